@@ -0,0 +1,153 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.classmgr;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Analyses compiled class files (see ClassFileInfo), caching the results.
+ *
+ * Results are cached by the hash of the class file contents, so a class file which is
+ * rewritten with identical contents (as often happens when a whole package is recompiled)
+ * is not analysed again, and is reported as unchanged so that callers can skip updating
+ * anything derived from it.
+ */
+@OnThread(Tag.Any)
+public class ClassFileAnalyser
+{
+    // Results, keyed by hash of the class file contents:
+    private final Map<String, ClassFileInfo> byHash = new ConcurrentHashMap<>();
+    // The hash of each class file when it was last analysed:
+    private final Map<File, String> lastHashes = new ConcurrentHashMap<>();
+
+    /**
+     * The result of analysing a class file.
+     */
+    @OnThread(Tag.Any)
+    public static class Result
+    {
+        private final ClassFileInfo info;
+        private final boolean changed;
+
+        private Result(ClassFileInfo info, boolean changed)
+        {
+            this.info = info;
+            this.changed = changed;
+        }
+
+        /** The information from the class file. */
+        public ClassFileInfo getInfo()
+        {
+            return info;
+        }
+
+        /** Whether the class file has changed since it was last analysed (always true the first time). */
+        public boolean isChanged()
+        {
+            return changed;
+        }
+    }
+
+    /**
+     * Analyses the given class file.
+     *
+     * @return The result, or null if the file could not be read or is not a valid class file.
+     */
+    public Result analyse(File classFile)
+    {
+        File f = classFile.getAbsoluteFile();
+        try
+        {
+            byte[] contents = Files.readAllBytes(f.toPath());
+            String hash = hash(contents);
+            ClassFileInfo info = byHash.get(hash);
+            if (info == null)
+            {
+                info = ClassFileInfo.read(contents);
+                byHash.put(hash, info);
+            }
+            String previousHash = lastHashes.put(f, hash);
+            if (previousHash != null && !previousHash.equals(hash))
+            {
+                // Don't keep results for old versions of classes.  (If another class file has
+                // the same contents, which is unlikely, it will just be analysed again.)
+                byHash.remove(previousHash);
+            }
+            return new Result(info, !hash.equals(previousHash));
+        }
+        catch (IOException e)
+        {
+            lastHashes.remove(f);
+            Debug.message("Could not analyse class file " + f + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Analyses the given class files, in parallel.
+     *
+     * @return The results, keyed by class file as passed in.  Files which could not be analysed
+     *         are not included.
+     */
+    public Map<File, Result> analyseAll(Collection<File> classFiles)
+    {
+        long start = System.currentTimeMillis();
+        Map<File, Result> results = new ConcurrentHashMap<>();
+        classFiles.parallelStream().distinct().forEach(f -> {
+            Result result = analyse(f);
+            if (result != null)
+                results.put(f, result);
+        });
+        Debug.log("Analysed " + classFiles.size() + " class files in " + (System.currentTimeMillis() - start) + "ms");
+        return results;
+    }
+
+    private static String hash(byte[] contents)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(contents);
+            StringBuilder s = new StringBuilder();
+            for (byte b : digest)
+            {
+                s.append(String.format("%02x", b));
+            }
+            return s.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to support SHA-256:
+            throw new IllegalStateException(e);
+        }
+    }
+}
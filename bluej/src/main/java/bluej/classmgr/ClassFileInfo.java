@@ -0,0 +1,389 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.classmgr;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Information about a class, read directly from the bytes of its class file.  Reading
+ * the class file this way does not load the class, so there is no need for a class loader,
+ * and it can safely be done on any thread.
+ *
+ * Only the constant pool, the class header and the signature attributes are examined;
+ * code attributes are skipped.  All class names are binary names (e.g. "a.b.Outer$Inner").
+ */
+@OnThread(Tag.Any)
+public final class ClassFileInfo
+{
+    private static final int MAGIC = 0xCAFEBABE;
+
+    // Constant pool tags, see JVMS 4.4:
+    private static final int CONSTANT_Utf8 = 1;
+    private static final int CONSTANT_Integer = 3;
+    private static final int CONSTANT_Float = 4;
+    private static final int CONSTANT_Long = 5;
+    private static final int CONSTANT_Double = 6;
+    private static final int CONSTANT_Class = 7;
+    private static final int CONSTANT_String = 8;
+    private static final int CONSTANT_Fieldref = 9;
+    private static final int CONSTANT_Methodref = 10;
+    private static final int CONSTANT_InterfaceMethodref = 11;
+    private static final int CONSTANT_NameAndType = 12;
+    private static final int CONSTANT_MethodHandle = 15;
+    private static final int CONSTANT_MethodType = 16;
+    private static final int CONSTANT_Dynamic = 17;
+    private static final int CONSTANT_InvokeDynamic = 18;
+    private static final int CONSTANT_Module = 19;
+    private static final int CONSTANT_Package = 20;
+
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+    private static final int ACC_ENUM = 0x4000;
+
+    private final String name;
+    private final String superclass;
+    private final List<String> interfaces;
+    private final List<String> used;
+    private final List<String> typeParameters;
+    private final int accessFlags;
+
+    private ClassFileInfo(String name, String superclass, List<String> interfaces, List<String> used,
+            List<String> typeParameters, int accessFlags)
+    {
+        this.name = name;
+        this.superclass = superclass;
+        this.interfaces = Collections.unmodifiableList(interfaces);
+        this.used = Collections.unmodifiableList(used);
+        this.typeParameters = Collections.unmodifiableList(typeParameters);
+        this.accessFlags = accessFlags;
+    }
+
+    /**
+     * Reads the information from the given class file contents.
+     *
+     * @throws IOException if the contents are not a valid class file.
+     */
+    public static ClassFileInfo read(byte[] classFile) throws IOException
+    {
+        try
+        {
+            return new Reader(classFile).read();
+        }
+        catch (RuntimeException e)
+        {
+            // e.g. index out of bounds, or a class cast, from a malformed file:
+            throw new IOException("Malformed class file: " + e, e);
+        }
+    }
+
+    /** The binary name of the class. */
+    public String getName()
+    {
+        return name;
+    }
+
+    /** The binary name of the superclass, or null if there is none (java.lang.Object, or a module-info). */
+    public String getSuperclass()
+    {
+        return superclass;
+    }
+
+    /** The binary names of the interfaces directly implemented (or, for an interface, extended). */
+    public List<String> getInterfaces()
+    {
+        return interfaces;
+    }
+
+    /**
+     * The binary names of all the other classes referred to by the class file, in
+     * sorted order.  This includes the superclass and interfaces, and the types in
+     * field and method descriptors, but not the class itself.  Array types are given
+     * as their element types.
+     */
+    public List<String> getUsed()
+    {
+        return used;
+    }
+
+    /** The names of the class's type parameters, empty if it is not generic. */
+    public List<String> getTypeParameters()
+    {
+        return typeParameters;
+    }
+
+    public boolean isInterface()
+    {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    public boolean isAbstract()
+    {
+        return (accessFlags & ACC_ABSTRACT) != 0;
+    }
+
+    public boolean isEnum()
+    {
+        return (accessFlags & ACC_ENUM) != 0;
+    }
+
+    /**
+     * Reads a class file (JVMS chapter 4).
+     */
+    private static class Reader
+    {
+        private final DataInputStream in;
+        // Constant pool entries: Utf8 entries are held as String, and Class entries as Integer
+        // (the index of the name).  Other entries we are not interested in are null:
+        private Object[] pool;
+        // The indexes of the Utf8 entries which are descriptors:
+        private final List<Integer> descriptors = new ArrayList<>();
+        private final Set<String> used = new TreeSet<>();
+
+        private Reader(byte[] classFile)
+        {
+            in = new DataInputStream(new ByteArrayInputStream(classFile));
+        }
+
+        private ClassFileInfo read() throws IOException
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a class file");
+            in.readUnsignedShort(); // minor version
+            in.readUnsignedShort(); // major version
+            readConstantPool();
+
+            int accessFlags = in.readUnsignedShort();
+            String name = className(in.readUnsignedShort());
+            int superIndex = in.readUnsignedShort();
+            String superclass = superIndex == 0 ? null : className(superIndex);
+            List<String> interfaces = new ArrayList<>();
+            int interfaceCount = in.readUnsignedShort();
+            for (int i = 0; i < interfaceCount; i++)
+            {
+                interfaces.add(className(in.readUnsignedShort()));
+            }
+
+            // Fields and methods: we only need the descriptors (which will be in the
+            // constant pool), so skip the attributes:
+            for (int member = 0; member < 2; member++)
+            {
+                int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++)
+                {
+                    in.readUnsignedShort(); // access flags
+                    in.readUnsignedShort(); // name
+                    descriptors.add(in.readUnsignedShort());
+                    skipAttributes();
+                }
+            }
+
+            List<String> typeParameters = new ArrayList<>();
+            int attributeCount = in.readUnsignedShort();
+            for (int i = 0; i < attributeCount; i++)
+            {
+                String attributeName = (String)pool[in.readUnsignedShort()];
+                int length = in.readInt();
+                if ("Signature".equals(attributeName))
+                {
+                    typeParameters = parseTypeParameters((String)pool[in.readUnsignedShort()]);
+                }
+                else
+                {
+                    in.skipNBytes(length);
+                }
+            }
+
+            // Now add all the class references:
+            for (Object entry : pool)
+            {
+                if (entry instanceof Integer)
+                {
+                    addUsedFromClassName((String)pool[(Integer)entry]);
+                }
+            }
+            for (int descriptor : descriptors)
+            {
+                addUsedFromDescriptor((String)pool[descriptor]);
+            }
+            used.remove(name);
+
+            return new ClassFileInfo(name, superclass, interfaces, new ArrayList<>(used), typeParameters, accessFlags);
+        }
+
+        private void readConstantPool() throws IOException
+        {
+            int count = in.readUnsignedShort();
+            pool = new Object[count];
+            // Entry zero is unused:
+            for (int i = 1; i < count; i++)
+            {
+                int tag = in.readUnsignedByte();
+                switch (tag)
+                {
+                    case CONSTANT_Utf8:
+                        pool[i] = in.readUTF();
+                        break;
+                    case CONSTANT_Class:
+                        pool[i] = Integer.valueOf(in.readUnsignedShort());
+                        break;
+                    case CONSTANT_NameAndType:
+                        in.readUnsignedShort(); // name
+                        descriptors.add(in.readUnsignedShort());
+                        break;
+                    case CONSTANT_MethodType:
+                        descriptors.add(in.readUnsignedShort());
+                        break;
+                    case CONSTANT_String: case CONSTANT_Module: case CONSTANT_Package:
+                        in.readUnsignedShort();
+                        break;
+                    case CONSTANT_MethodHandle:
+                        in.readUnsignedByte();
+                        in.readUnsignedShort();
+                        break;
+                    case CONSTANT_Integer: case CONSTANT_Float:
+                    case CONSTANT_Fieldref: case CONSTANT_Methodref: case CONSTANT_InterfaceMethodref:
+                    case CONSTANT_Dynamic: case CONSTANT_InvokeDynamic:
+                        in.readInt();
+                        break;
+                    case CONSTANT_Long: case CONSTANT_Double:
+                        in.readLong();
+                        // These take up two entries:
+                        i += 1;
+                        break;
+                    default:
+                        throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+                }
+            }
+        }
+
+        private void skipAttributes() throws IOException
+        {
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++)
+            {
+                in.readUnsignedShort(); // name
+                in.skipNBytes(in.readInt());
+            }
+        }
+
+        /**
+         * Gets the binary name for the Class constant at the given index.
+         */
+        private String className(int index)
+        {
+            return ((String)pool[(Integer)pool[index]]).replace('/', '.');
+        }
+
+        /**
+         * Adds the class named by a Class constant, which may be an array descriptor.
+         */
+        private void addUsedFromClassName(String internalName)
+        {
+            if (internalName.startsWith("["))
+                addUsedFromDescriptor(internalName);
+            else
+                used.add(internalName.replace('/', '.'));
+        }
+
+        /**
+         * Adds all the classes in a field or method descriptor.
+         */
+        private void addUsedFromDescriptor(String descriptor)
+        {
+            int i = descriptor.indexOf('L');
+            while (i != -1)
+            {
+                int end = descriptor.indexOf(';', i);
+                if (end == -1)
+                    break;
+                used.add(descriptor.substring(i + 1, end).replace('/', '.'));
+                i = descriptor.indexOf('L', end);
+            }
+        }
+    }
+
+    /**
+     * Gets the type parameter names from a class signature (JVMS 4.7.9.1), for example
+     * "&lt;T:Ljava/lang/Object;U::Ljava/lang/Comparable&lt;TU;&gt;;&gt;Ljava/lang/Object;"
+     * gives T and U.
+     */
+    static List<String> parseTypeParameters(String signature)
+    {
+        List<String> names = new ArrayList<>();
+        if (!signature.startsWith("<"))
+            return names;
+        int i = 1;
+        while (signature.charAt(i) != '>')
+        {
+            int colon = signature.indexOf(':', i);
+            names.add(signature.substring(i, colon));
+            i = colon;
+            // A class bound (which may be empty), then any interface bounds:
+            while (signature.charAt(i) == ':')
+            {
+                i += 1;
+                if (signature.charAt(i) != ':' && signature.charAt(i) != '>')
+                    i = skipReferenceType(signature, i);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the index just after the reference type signature which begins at the given index.
+     */
+    private static int skipReferenceType(String signature, int i)
+    {
+        switch (signature.charAt(i))
+        {
+            case '[':
+                // Array of any type, including primitives (a single character):
+                char element = signature.charAt(i + 1);
+                return element == 'L' || element == 'T' || element == '[' ? skipReferenceType(signature, i + 1) : i + 2;
+            case 'T':
+                return signature.indexOf(';', i) + 1;
+            default:
+                // A class type, which may have (nested) type arguments:
+                int depth = 0;
+                for (int j = i + 1; ; j++)
+                {
+                    char c = signature.charAt(j);
+                    if (c == '<')
+                        depth += 1;
+                    else if (c == '>')
+                        depth -= 1;
+                    else if (c == ';' && depth == 0)
+                        return j + 1;
+                }
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2017,2022  Michael Kolling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2017,2022,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -141,6 +141,12 @@ public class DataCollector
         }
 
         recordingThisSession = uuidValidForRecording();
+
+        if (OPT_OUT.equals(uuid))
+        {
+            // In case any unsent events were left from before they opted out:
+            DataSubmitter.discardUnsent();
+        }
         
         if (recordingThisSession)
         {
@@ -197,6 +203,8 @@ public class DataCollector
         {
             uuid = OPT_OUT;
             recordingThisSession = false;
+            // Don't send, or keep, anything recorded before they opted out:
+            DataSubmitter.discardUnsent();
         }
         Config.putPropString(PROPERTY_UUID, uuid);
     }
@@ -857,6 +865,14 @@ public class DataCollector
         return DataSubmitter.hasGivenUp();
     }
 
+    /**
+     * Gets the number of events which have been recorded but not yet sent to the server.
+     */
+    public static int getPendingEventCount()
+    {
+        return DataSubmitter.getQueueDepth();
+    }
+
     public static class NamedTyped
     {
         private  String name;
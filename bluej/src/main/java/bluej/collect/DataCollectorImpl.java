@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2012,2013,2014,2015,2016,2017,2019,2022  Michael Kolling and John Rosenberg
+ Copyright (C) 2012,2013,2014,2015,2016,2017,2019,2022,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -43,6 +43,7 @@ import bluej.pkgmgr.Project;
 import bluej.pkgmgr.target.ClassTarget;
 import bluej.pkgmgr.target.ClassTarget.SourceFileInfo;
 import bluej.stride.generic.Frame;
+import bluej.utility.Debug;
 import bluej.utility.Utility;
 import difflib.Delta;
 import difflib.DiffUtils;
@@ -416,8 +417,14 @@ public class DataCollectorImpl
         submitEventNoData(null, null, EventName.BLUEJ_FINISH);
         
         // Give the queue 1 second to be flushed, so that the finish event gets time to be sent,
-        // but otherwise, return anyway (can't wait forever):
+        // but otherwise, return anyway (can't wait forever).  Anything not sent is kept
+        // in the journal and sent next time:
         DataSubmitter.waitForQueueFlush(1000);
+        int unsent = DataSubmitter.getQueueDepth();
+        if (unsent > 0)
+        {
+            Debug.log("Blackbox: " + unsent + " event(s) left to send next time");
+        }
     }
 
     public static void restartVM(Project project)
@@ -461,11 +468,11 @@ public class DataCollectorImpl
     {
         final Project proj = pkg.getProject();
         final ProjectDetails projDetails = new ProjectDetails(proj);
-        // Generate FileKeys and anonymous source for all the files:
+        // Generate FileKeys for all the files (the anonymised source, like the diff,
+        // is made on the submitter thread rather than holding up the caller):
         for (EditedFileInfo editedFile : editedFiles)
         {
             editedFile.fileKey = new FileKey(projDetails, CollectUtility.toPath(projDetails, editedFile.path));
-            editedFile.anonSource = Arrays.asList(Utility.splitLines(CodeAnonymiser.anonymise(editedFile.source)));
         }
                 
         submitEvent(proj, pkg, EventName.EDIT, new Event() {
@@ -486,6 +493,7 @@ public class DataCollectorImpl
                 MultipartEntity mpe = new MultipartEntity();
                 for (EditedFileInfo editedFile : editedFiles)
                 {
+                    editedFile.anonSource = Arrays.asList(Utility.splitLines(CodeAnonymiser.anonymise(editedFile.source)));
 
                     List<String> previousDoc = fileVersions.get(editedFile.fileKey);
                     if (previousDoc == null)
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2013,2016,2018,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 2013,2016,2018,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -26,12 +26,14 @@ import bluej.Config;
 import bluej.extensions2.event.ApplicationEvent;
 import bluej.extmgr.ExtensionsManager;
 import bluej.pkgmgr.Project;
+import bluej.utility.Debug;
 import javafx.application.Platform;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.params.BasicHttpParams;
@@ -41,7 +43,9 @@ import org.apache.http.util.EntityUtils;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -54,6 +58,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * The class has nothing to do with collecting the data, and deliberately
  * does not depend on any other BlueJ classes.  Package-visible.
  * 
+ * <p>Events are processed in batches: each event waiting in the queue is made into a
+ * request and recorded in a journal on disk, and then all the unsent requests are
+ * posted, using the same connection.  Requests which have not been sent when BlueJ
+ * exits (or if the server cannot be reached) are sent the next time it is started.
+ * 
  * @author Davin McCall
  */
 class DataSubmitter
@@ -62,6 +71,22 @@ class DataSubmitter
         //For testing:
         //"http://localhost:3000/master_events";
 
+    // The most space the journal of unsent events may take on disk:
+    private static final long MAX_JOURNAL_LENGTH = 32L * 1024 * 1024;
+    private static final String JOURNAL_FILENAME = "blackbox-journal.dat";
+
+    /**
+     * The result of posting a request to the server.
+     */
+    enum PostResult
+    {
+        /** The server accepted the request */
+        SENT,
+        /** The server refused the request; sending it again would not help */
+        REJECTED,
+        /** The request could not be sent, e.g. because the server could not be reached or was overloaded */
+        FAILED
+    }
     
     private static AtomicBoolean givenUp = new AtomicBoolean(false);
     
@@ -71,13 +96,23 @@ class DataSubmitter
     private static boolean isRunning = false;
     
     private static List<Event> queue = new LinkedList<Event>();
+
+    /**
+     * The journal of requests which have not yet been sent.  Set by initSequence, before
+     * any events are submitted; only null if data is not being collected.
+     */
+    private static EventJournal journal;
     
     private static int sequenceNum;
 
     /**
-     * The versions of the files as we have last sent them to the server.
+     * The versions of the files as we have last recorded them in the journal, to be sent.
+     * Requests are sent in the order they are recorded, so the server will have these
+     * versions by the time it receives any later request diffed against them.  If the
+     * server refuses a request, the later requests of the session are dropped and this
+     * is cleared, so that the next requests send the files in full.
      * 
-     * Should only be accessed by the postData method, which is running on
+     * Should only be accessed by the processQueue method, which is running on
      * the event-sending thread
      */
     private static Map<FileKey, List<String> > fileVersions = new HashMap<FileKey, List<String> >();
@@ -96,17 +131,25 @@ class DataSubmitter
         
         synchronized (queue) {
             queue.add(evt);
-            
-            if (! isRunning) {
-                new Thread("Process Blackbox queue") {
-                    @OnThread(value = Tag.Worker, ignoreParent = true)
-                    public void run()
-                    {
-                        processQueue();
-                    }
-                }.start();
-                isRunning = true;
-            }
+            startProcessing();
+        }
+    }
+
+    /**
+     * Starts the thread which processes the queue, if it is not already running.
+     * Must be called while synchronized on queue.
+     */
+    private static void startProcessing()
+    {
+        if (! isRunning) {
+            new Thread("Process Blackbox queue") {
+                @OnThread(value = Tag.Worker, ignoreParent = true)
+                public void run()
+                {
+                    processQueue();
+                }
+            }.start();
+            isRunning = true;
         }
     }
     
@@ -117,21 +160,28 @@ class DataSubmitter
     private static void processQueue()
     {
         while (true) {
-            Event evt;
+            List<Event> batch;
             synchronized (queue) {
-                if (queue.isEmpty()) {
+                if (queue.isEmpty() && (givenUp.get() || journal.getPendingCount() == 0)) {
                     isRunning = false;
                     queue.notifyAll(); // in case anyone is waiting for us to finish
                     return;
                 }
-                evt = queue.remove(0);
+                batch = new ArrayList<>(queue);
+                queue.clear();
+            }
+
+            // Record the events in the journal first, so that they are not lost
+            // if BlueJ exits before they are sent:
+            for (Event evt : batch)
+            {
+                recordEvent(evt);
             }
-            
 
             if (!givenUp.get())
             {
-                givenUp.set(!postData(evt));
-                // If we just gave up on this event:
+                givenUp.set(!postPending());
+                // If we just gave up:
                 if (givenUp.get())
                 {
                     Platform.runLater(() ->
@@ -148,67 +198,146 @@ class DataSubmitter
             }
         }
     }
-    
+
     /**
-     * Actually post the data to the server.
+     * Makes the request for an event, and records it in the journal to be sent.
+     */
+    @OnThread(Tag.Worker)
+    private static void recordEvent(Event evt)
+    {
+        MultipartEntity mpe = evt.makeData(sequenceNum, fileVersions);
+        if (mpe == null)
+        {
+            return; // nothing to send
+        }
+
+        try
+        {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            mpe.writeTo(body);
+            journal.add(mpe.getContentType().getValue(), body.toByteArray());
+        }
+        catch (IOException e)
+        {
+            // Shouldn't happen when writing to memory
+            Debug.reportError("Problem forming Blackbox event", e);
+            return;
+        }
+
+        //Only increment sequence number if we actually send data:
+        sequenceNum += 1;
+        // Later events' diffs are against this version, which the server will have by
+        // the time it receives them (unless it refuses this one; see postPending):
+        evt.success(fileVersions);
+    }
+
+    /**
+     * Posts all the unsent requests in the journal, in order, using one connection.
      * 
      * Returns false if there was an error.
      */
     @OnThread(Tag.Worker)
-    private static boolean postData(Event evt)
-    {   
+    private static boolean postPending()
+    {
+        HttpClient client = makeClient();
+        try
+        {
+            for (EventJournal.Entry entry : journal.getPending())
+            {
+                // The user may have opted out meanwhile:
+                if (journal.isDiscarded())
+                    return true;
+                switch (postData(client, submitUrl, entry.contentType, entry.body))
+                {
+                    case SENT:
+                        journal.markSent(entry);
+                        break;
+                    case REJECTED:
+                        // Sending it again won't help, so don't keep it.  The later requests
+                        // from the same session may contain diffs against the file versions
+                        // which it had, so they must be dropped too:
+                        journal.dropFrom(entry);
+                        // And the next requests must not be diffed against those versions either:
+                        fileVersions.clear();
+                        return false;
+                    case FAILED:
+                        // Leave it in the journal, to try again next time:
+                        return false;
+                }
+            }
+            return true;
+        }
+        finally
+        {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    /**
+     * Makes a client for posting requests to the server.
+     */
+    @OnThread(Tag.Worker)
+    static HttpClient makeClient()
+    {
         HttpParams params = new BasicHttpParams();
         HttpConnectionParams.setConnectionTimeout(params, Boot.isTrialRecording() ? 30000 : 10000);
         HttpConnectionParams.setSoTimeout(params, Boot.isTrialRecording() ? 30000 : 10000);
-        HttpClient client = new DefaultHttpClient(params);
-        
+        return new DefaultHttpClient(params);
+    }
+    
+    /**
+     * Actually post a request to the server.  Package-visible for testing.
+     */
+    @OnThread(Tag.Worker)
+    static PostResult postData(HttpClient client, String url, String contentType, byte[] body)
+    {   
         try {
-            HttpPost post = new HttpPost(submitUrl);
-
-            MultipartEntity mpe = evt.makeData(sequenceNum, fileVersions);
-            if (mpe == null)
+            HttpPost post = new HttpPost(url);
+            ByteArrayEntity entity = new ByteArrayEntity(body);
+            entity.setContentType(contentType);
+            post.setEntity(entity);
+            HttpResponse response = client.execute(post);
+            // Always read the response, so that the connection can be reused:
+            EntityUtils.consume(response.getEntity());
+            
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode == 429 || statusCode >= 500)
             {
-                return true; // nothing to send, no error
+                // Too many requests, or a server error; these are temporary, so try again later:
+                return PostResult.FAILED;
             }
             
-            //Only increment sequence number if we actually send data:
-            sequenceNum += 1;
-            post.setEntity(mpe);
-            HttpResponse response = client.execute(post);
-            
             for (Header h : response.getAllHeaders())
             {
-                if ("X-Status".equals(h.getName()) && !"Created".equals(h.getValue()))
+                // Header names are case-insensitive:
+                if ("X-Status".equalsIgnoreCase(h.getName()) && !"Created".equals(h.getValue()))
                 {
-                    return false;
+                    return PostResult.REJECTED;
                 }
             }
             
-            if (response.getStatusLine().getStatusCode() != 200)
+            if (statusCode != 200)
             {
-                return false;
+                return PostResult.REJECTED;
             }
-            
-            evt.success(fileVersions);
-                
-            EntityUtils.consume(response.getEntity());
         }
         catch (ClientProtocolException cpe) {
-            return false;
+            return PostResult.FAILED;
         }
         catch (IOException ioe) {
             //For now:
             ioe.printStackTrace();
             
-            return false;
+            return PostResult.FAILED;
         }
         
-        return true;
+        return PostResult.SENT;
     }
     
     /**
      * Waits until all pending events have been sent to the server, or the timeout expires.  If events are still being added in parallel
-     * to this call, there will be undefined behaviour.
+     * to this call, there will be undefined behaviour.  Events which have not been sent when this returns
+     * will be sent the next time BlueJ is started.
      */
     public static void waitForQueueFlush(int maxMillis)
     {
@@ -236,10 +365,55 @@ class DataSubmitter
         }
     }
 
+    /**
+     * Gets the number of events waiting to be sent: those still in the queue, and
+     * those recorded in the journal but not yet sent.
+     */
+    public static int getQueueDepth()
+    {
+        synchronized (queue)
+        {
+            return queue.size() + (journal == null ? 0 : journal.getPendingCount());
+        }
+    }
+
     public static void initSequence()
     {
         sequenceNum = 1; //Server relies on it starting at 1, do not change
         
+        synchronized (queue)
+        {
+            if (journal == null)
+            {
+                journal = new EventJournal(Config.getUserConfigFile(JOURNAL_FILENAME), MAX_JOURNAL_LENGTH);
+                // Send anything left over from last time:
+                if (journal.getPendingCount() > 0)
+                {
+                    startProcessing();
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards all the events which have not been sent, including those in the journal
+     * on disk.  Called when the user opts out of data collection.
+     */
+    public static void discardUnsent()
+    {
+        synchronized (queue)
+        {
+            queue.clear();
+            if (journal != null)
+            {
+                journal.discard();
+            }
+            else
+            {
+                // Left over from an earlier session:
+                Config.getUserConfigFile(JOURNAL_FILENAME).delete();
+            }
+        }
     }
 
     public static boolean hasGivenUp()
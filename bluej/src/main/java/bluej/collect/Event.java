@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2012  Michael Kolling and John Rosenberg 
+ Copyright (C) 2012,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -39,7 +39,7 @@ interface Event
      * 
      * @param sequenceNum The sequence number to use for the event
      * @param fileVersions Our local version of the files, as we have last
-     * successfully sent them to the server.  Maps a file identifier to a list
+     * recorded them to be sent to the server.  Maps a file identifier to a list
      * of lines in the file
      * @return A MultipartEntity to send to the server
      */
@@ -47,9 +47,9 @@ interface Event
     MultipartEntity makeData(int sequenceNum, Map<FileKey, List<String> > fileVersions);
     
     /**
-     * A callback that is called after the event has been successfully sent to
-     * the server.  If necessary, it should update the passed-in map with the
-     * file contents
+     * A callback that is called after the event's data has been recorded to be sent
+     * to the server (which happens in order, before any later events are sent).
+     * If necessary, it should update the passed-in map with the file contents
      * @param fileVersions Map, to be modified by the method
      */
     void success(Map<FileKey, List<String> > fileVersions);
@@ -0,0 +1,327 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.collect;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * An append-only journal of the requests waiting to be sent to the data collection server,
+ * so that events which have not been sent when BlueJ exits (or loses its connection) can be
+ * sent when it is next started.  Package-visible.
+ *
+ * <p>The file is a sequence of records: an entry record holds a request (its id, session,
+ * content type and body), and a sent record holds just the id of an entry which has since
+ * been sent.  The session identifies the run of BlueJ which recorded the entry, since
+ * requests can depend on those recorded before them in the same session.
+ * An incomplete record at the end of the file (e.g. if BlueJ was killed while writing) is ignored.
+ * The file is rewritten with only the unsent entries when it is opened, and emptied whenever
+ * everything has been sent.
+ */
+@OnThread(Tag.Any)
+class EventJournal
+{
+    private static final byte ENTRY = 'E';
+    private static final byte SENT = 'S';
+
+    /**
+     * A request recorded in the journal.
+     */
+    static class Entry
+    {
+        final long id;
+        final long session;
+        final String contentType;
+        final byte[] body;
+
+        private Entry(long id, long session, String contentType, byte[] body)
+        {
+            this.id = id;
+            this.session = session;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    private final File file;
+    // Once the file is this long, new entries are not recorded (but are still sent):
+    private final long maxLength;
+    // The unsent entries, in the order they were recorded:
+    private final Map<Long, Entry> pending = new LinkedHashMap<>();
+    private long nextId = 1;
+    // The session for entries added to this journal: one more than any read from the file.
+    private long session = 1;
+    private DataOutputStream out;
+    private long length;
+    // Set once the journal has been discarded, after which nothing more is recorded:
+    private boolean discarded = false;
+
+    /**
+     * Opens the journal in the given file, reading any entries left unsent from before.
+     */
+    EventJournal(File file, long maxLength)
+    {
+        this.file = file;
+        this.maxLength = maxLength;
+        if (file.exists())
+        {
+            read();
+            compact();
+        }
+    }
+
+    private void read()
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            while (true)
+            {
+                byte type = in.readByte();
+                long id = in.readLong();
+                if (type == ENTRY)
+                {
+                    long entrySession = in.readLong();
+                    String contentType = in.readUTF();
+                    int bodyLength = in.readInt();
+                    // (available() is the rest of the file)
+                    if (bodyLength < 0 || bodyLength > in.available())
+                    {
+                        Debug.message("Blackbox journal is incomplete or corrupt; ignoring the rest of it");
+                        break;
+                    }
+                    byte[] body = new byte[bodyLength];
+                    in.readFully(body);
+                    pending.put(id, new Entry(id, entrySession, contentType, body));
+                    session = Math.max(session, entrySession + 1);
+                }
+                else if (type == SENT)
+                {
+                    pending.remove(id);
+                }
+                else
+                {
+                    Debug.message("Blackbox journal is corrupt; ignoring the rest of it");
+                    break;
+                }
+                nextId = Math.max(nextId, id + 1);
+            }
+        }
+        catch (EOFException e)
+        {
+            // End of the file, possibly part-way through the last record, which we ignore
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Problem reading Blackbox journal", e);
+        }
+    }
+
+    /**
+     * Rewrites the file to hold only the unsent entries.
+     */
+    private void compact()
+    {
+        File temp = new File(file.getPath() + ".tmp");
+        try
+        {
+            try (DataOutputStream tempOut = new DataOutputStream(new FileOutputStream(temp)))
+            {
+                for (Entry entry : pending.values())
+                {
+                    writeEntry(tempOut, entry);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            length = file.length();
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Problem rewriting Blackbox journal", e);
+        }
+    }
+
+    /**
+     * Records a request to be sent.
+     *
+     * @return The journal entry for the request.  It may not have been written to the file
+     *         (if there was an error, or the file has grown too long), but is held in memory
+     *         until it is sent.
+     */
+    synchronized Entry add(String contentType, byte[] body)
+    {
+        Entry entry = new Entry(nextId++, session, contentType, body);
+        if (discarded)
+            return entry;
+        pending.put(entry.id, entry);
+        if (length < maxLength)
+        {
+            try
+            {
+                writeEntry(getOutput(), entry);
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                Debug.reportError("Problem writing Blackbox journal", e);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Records that the given entry has been sent (or should not be sent after all).
+     */
+    synchronized void markSent(Entry entry)
+    {
+        if (pending.remove(entry.id) == null)
+            return;
+        try
+        {
+            if (pending.isEmpty())
+            {
+                // Nothing left to send, so start the file again:
+                closeOutput();
+                new FileOutputStream(file).close();
+                length = 0;
+            }
+            else
+            {
+                DataOutputStream o = getOutput();
+                o.writeByte(SENT);
+                o.writeLong(entry.id);
+                o.flush();
+                length += 9;
+            }
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Problem writing Blackbox journal", e);
+        }
+    }
+
+    /**
+     * Drops the given entry, and all the entries recorded after it in the same session,
+     * since their requests may depend on it (e.g. a diff against a file version which
+     * it sent).  Used when the server has refused the entry's request.
+     */
+    synchronized void dropFrom(Entry entry)
+    {
+        for (Entry later : new ArrayList<>(pending.values()))
+        {
+            if (later.session == entry.session && later.id >= entry.id)
+            {
+                markSent(later);
+            }
+        }
+    }
+
+    /**
+     * Deletes the journal file and forgets all the unsent entries.  Nothing more is
+     * recorded afterwards.  Used when the user opts out of data collection.
+     */
+    synchronized void discard()
+    {
+        discarded = true;
+        pending.clear();
+        try
+        {
+            closeOutput();
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Problem closing Blackbox journal", e);
+        }
+        file.delete();
+        length = 0;
+    }
+
+    /**
+     * Whether the journal has been discarded (see discard).
+     */
+    synchronized boolean isDiscarded()
+    {
+        return discarded;
+    }
+
+    /**
+     * Gets the entries which have not yet been sent, in the order they were added.
+     */
+    synchronized List<Entry> getPending()
+    {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Gets the number of entries which have not yet been sent.
+     */
+    synchronized int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    private DataOutputStream getOutput() throws IOException
+    {
+        if (out == null)
+        {
+            out = new DataOutputStream(new FileOutputStream(file, true));
+            length = file.length();
+        }
+        return out;
+    }
+
+    private void closeOutput() throws IOException
+    {
+        if (out != null)
+        {
+            out.close();
+            out = null;
+        }
+    }
+
+    private void writeEntry(DataOutputStream o, Entry entry) throws IOException
+    {
+        int before = o.size();
+        o.writeByte(ENTRY);
+        o.writeLong(entry.id);
+        o.writeLong(entry.session);
+        o.writeUTF(entry.contentType);
+        o.writeInt(entry.body.length);
+        o.write(entry.body);
+        length += o.size() - before;
+    }
+}
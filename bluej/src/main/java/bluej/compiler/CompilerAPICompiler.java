@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2018  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2018,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,27 +21,36 @@
  */
 package bluej.compiler;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
 
 import bluej.Config;
 import bluej.compiler.Diagnostic.DiagnosticOrigin;
+import bluej.utility.Debug;
 
 /**
  * A compiler implementation using the Compiler API introduced in Java 6.
@@ -51,6 +60,10 @@ import bluej.compiler.Diagnostic.DiagnosticOrigin;
 public class CompilerAPICompiler extends Compiler
 {
     private static final AtomicInteger nextDiagnosticIdentifier = new AtomicInteger(1);
+    
+    // The file manager kept for in-memory compilation, and the settings it was made with:
+    private StandardJavaFileManager inMemoryFileManager;
+    private List<Object> inMemoryFileManagerKey;
 
     public CompilerAPICompiler()
     {
@@ -87,7 +100,227 @@ public class CompilerAPICompiler extends Compiler
             return false;
         }
         
-        DiagnosticListener<JavaFileObject> diagListener = new DiagnosticListener<JavaFileObject>() {
+        DiagnosticListener<JavaFileObject> diagListener = makeDiagnosticListener(sources[0], observer, internal, type);
+        
+        try
+        {  
+            //setup the filemanager
+            StandardJavaFileManager sjfm = jc.getStandardFileManager(diagListener, null, fileCharset);
+            List<File> pathList = new ArrayList<File>();
+            List<File> outputList = new ArrayList<File>();
+            outputList.add(getDestDir());
+            pathList.addAll(getClassPath());
+            
+            // In BlueJ, the destination directory and the source path are
+            // always the same
+            sjfm.setLocation(StandardLocation.SOURCE_PATH, outputList);
+            sjfm.setLocation(StandardLocation.CLASS_PATH, pathList);
+            File tempDir = null;
+            if (type.keepClasses())
+            {
+                sjfm.setLocation(StandardLocation.CLASS_OUTPUT, outputList);
+            }
+            else
+            {
+                // We could make a new file manager that memory-mapped the output files
+                // and discarded them... but creating a temporary dir is much more
+                // straightforward:
+                tempDir = Files.createTempDirectory("bluej").toFile();
+                sjfm.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(tempDir));
+            }
+            
+            //get the source files for compilation  
+            Iterable<? extends JavaFileObject> compilationUnits1 =
+                sjfm.getJavaFileObjectsFromFiles(Arrays.asList(sources));
+            //add any options
+            if(isDebug()) {
+                optionsList.add("-g");
+            }
+            if(isDeprecation()) {
+                optionsList.add("-deprecation");
+            }
+            
+            File[] bootClassPath = getBootClassPath();
+            if (bootClassPath != null && bootClassPath.length != 0) {
+                sjfm.setLocation(StandardLocation.PLATFORM_CLASS_PATH, Arrays.asList(bootClassPath));
+            }
+            
+            optionsList.addAll(userOptions);
+            
+            //compile
+            result = jc.getTask(null, sjfm, diagListener, optionsList, null, compilationUnits1).call();
+            sjfm.close();
+            if (tempDir != null)
+                tempDir.delete();
+        }
+        catch(IOException e)
+        {
+            e.printStackTrace(System.out);
+            return false;
+        }
+
+        return result;
+    }
+
+    /**
+     * Compile a single source held in memory (such as a generated shell class), without
+     * writing anything to disk.  Only the given class (and its nested classes) is
+     * compiled; other classes it uses must already be compiled.
+     * 
+     * <p>Unlike compile(), the file manager is kept from one call to the next (as long as the
+     * class path is unchanged), so that the platform classes and libraries do not need to be
+     * opened again for each compilation.
+     * 
+     * @param sourceFile  The file which would hold the source; used in diagnostics
+     * @param className   The fully qualified name of the class
+     * @param source      The source code
+     * 
+     * @return  The compiled classes (binary name to class file contents), or null if the
+     *          compilation was not successful.
+     */
+    public Map<String, byte[]> compileInMemory(File sourceFile, String className, final String source,
+            CompileObserver observer, List<String> userOptions, Charset fileCharset, CompileType type)
+    {
+        JavaCompiler jc = ToolProvider.getSystemJavaCompiler();
+        if (jc == null) {
+            observer.compilerMessage(new bluej.compiler.Diagnostic(bluej.compiler.Diagnostic.ERROR,
+                    "The compiler does not appear to be available."), type);
+            return null;
+        }
+        
+        try
+        {
+            StandardJavaFileManager sjfm = getInMemoryFileManager(jc, fileCharset);
+            
+            // Keep the output in memory, rather than writing it to the output directory:
+            final Map<String, byte[]> classes = new HashMap<>();
+            JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(sjfm) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, final String name,
+                        JavaFileObject.Kind kind, FileObject sibling)
+                {
+                    URI uri = URI.create("mem:///" + name.replace('.', '/') + kind.extension);
+                    return new SimpleJavaFileObject(uri, kind) {
+                        @Override
+                        public OutputStream openOutputStream()
+                        {
+                            return new ByteArrayOutputStream() {
+                                @Override
+                                public void close()
+                                {
+                                    classes.put(name, toByteArray());
+                                }
+                            };
+                        }
+                    };
+                }
+            };
+            
+            URI sourceUri = URI.create("mem:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+            JavaFileObject sourceObject = new SimpleJavaFileObject(sourceUri, JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors)
+                {
+                    return source;
+                }
+            };
+            
+            List<String> optionsList = new ArrayList<String>();
+            if (isDebug()) {
+                optionsList.add("-g");
+            }
+            if (isDeprecation()) {
+                optionsList.add("-deprecation");
+            }
+            // Don't generate classes for any out-of-date sources which are found on the source path:
+            optionsList.add("-implicit:none");
+            optionsList.addAll(userOptions);
+            
+            DiagnosticListener<JavaFileObject> diagListener = makeDiagnosticListener(sourceFile, observer, true, type);
+            boolean result = jc.getTask(null, fileManager, diagListener, optionsList, null,
+                    Collections.singletonList(sourceObject)).call();
+            return result ? classes : null;
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            // IllegalArgumentException indicates a bad user option
+            e.printStackTrace(System.out);
+            return null;
+        }
+    }
+    
+    /**
+     * Get the file manager to use for in-memory compilation.  This is re-used as long as
+     * the destination directory, class path and character set are the same, and none
+     * of the class path entries has been modified.
+     */
+    private StandardJavaFileManager getInMemoryFileManager(JavaCompiler jc, Charset fileCharset)
+        throws IOException
+    {
+        List<File> classPath = getClassPath();
+        List<Object> key = new ArrayList<>();
+        key.add(getDestDir());
+        key.add(fileCharset);
+        key.add(getBootClassPath() == null ? Collections.emptyList() : Arrays.asList(getBootClassPath()));
+        for (File f : classPath) {
+            key.add(f);
+            key.add(f.lastModified());
+        }
+        
+        if (inMemoryFileManager != null && key.equals(inMemoryFileManagerKey)) {
+            return inMemoryFileManager;
+        }
+        
+        if (inMemoryFileManager != null) {
+            inMemoryFileManager.close();
+            inMemoryFileManager = null;
+        }
+        
+        StandardJavaFileManager sjfm = jc.getStandardFileManager(null, null, fileCharset);
+        List<File> destList = Collections.singletonList(getDestDir());
+        // In BlueJ, the destination directory and the source path are always the same
+        sjfm.setLocation(StandardLocation.SOURCE_PATH, destList);
+        sjfm.setLocation(StandardLocation.CLASS_PATH, classPath);
+        sjfm.setLocation(StandardLocation.CLASS_OUTPUT, destList);
+        File[] bootClassPath = getBootClassPath();
+        if (bootClassPath != null && bootClassPath.length != 0) {
+            sjfm.setLocation(StandardLocation.PLATFORM_CLASS_PATH, Arrays.asList(bootClassPath));
+        }
+        
+        inMemoryFileManager = sjfm;
+        inMemoryFileManagerKey = key;
+        return sjfm;
+    }
+
+    /**
+     * Close the file manager kept for in-memory compilation, if it was made for the given
+     * destination directory.  It holds the class path jars open, which (on Windows)
+     * stops them from being replaced, so it must be closed when the project is closed.
+     */
+    void closeInMemoryFileManager(File destDir)
+    {
+        if (inMemoryFileManager != null && inMemoryFileManagerKey.get(0).equals(destDir)) {
+            try {
+                inMemoryFileManager.close();
+            }
+            catch (IOException e) {
+                Debug.reportError("Problem closing compiler file manager", e);
+            }
+            inMemoryFileManager = null;
+            inMemoryFileManagerKey = null;
+        }
+    }
+
+    /**
+     * Make a listener which passes the compiler's diagnostics on to the observer,
+     * with some adjustment of the messages.
+     * 
+     * @param firstSource  The first source file being compiled (used to resolve source paths on old JDKs)
+     */
+    private DiagnosticListener<JavaFileObject> makeDiagnosticListener(final File firstSource,
+            final CompileObserver observer, final boolean internal, final CompileType type)
+    {
+        return new DiagnosticListener<JavaFileObject>() {
             @Override
             public void report(Diagnostic<? extends JavaFileObject> diag)
             {
@@ -107,7 +340,7 @@ public class CompilerAPICompiler extends Compiler
                         // See bug: http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6419926
                         // JDK6 returns URIs without a scheme in some cases, so always resolve against a
                         // known "file:/" URI:
-                        URI srcUri = sources[0].toURI().resolve(diag.getSource().toUri());
+                        URI srcUri = firstSource.toURI().resolve(diag.getSource().toUri());
                         src = new File(srcUri).getPath();
                     }
                 }
@@ -180,65 +413,6 @@ public class CompilerAPICompiler extends Compiler
                     observer.compilerMessage(bjDiagnostic, type);
             }
         };
-        
-        try
-        {  
-            //setup the filemanager
-            StandardJavaFileManager sjfm = jc.getStandardFileManager(diagListener, null, fileCharset);
-            List<File> pathList = new ArrayList<File>();
-            List<File> outputList = new ArrayList<File>();
-            outputList.add(getDestDir());
-            pathList.addAll(getClassPath());
-            
-            // In BlueJ, the destination directory and the source path are
-            // always the same
-            sjfm.setLocation(StandardLocation.SOURCE_PATH, outputList);
-            sjfm.setLocation(StandardLocation.CLASS_PATH, pathList);
-            File tempDir = null;
-            if (type.keepClasses())
-            {
-                sjfm.setLocation(StandardLocation.CLASS_OUTPUT, outputList);
-            }
-            else
-            {
-                // We could make a new file manager that memory-mapped the output files
-                // and discarded them... but creating a temporary dir is much more
-                // straightforward:
-                tempDir = Files.createTempDirectory("bluej").toFile();
-                sjfm.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(tempDir));
-            }
-            
-            //get the source files for compilation  
-            Iterable<? extends JavaFileObject> compilationUnits1 =
-                sjfm.getJavaFileObjectsFromFiles(Arrays.asList(sources));
-            //add any options
-            if(isDebug()) {
-                optionsList.add("-g");
-            }
-            if(isDeprecation()) {
-                optionsList.add("-deprecation");
-            }
-            
-            File[] bootClassPath = getBootClassPath();
-            if (bootClassPath != null && bootClassPath.length != 0) {
-                sjfm.setLocation(StandardLocation.PLATFORM_CLASS_PATH, Arrays.asList(bootClassPath));
-            }
-            
-            optionsList.addAll(userOptions);
-            
-            //compile
-            result = jc.getTask(null, sjfm, diagListener, optionsList, null, compilationUnits1).call();
-            sjfm.close();
-            if (tempDir != null)
-                tempDir.delete();
-        }
-        catch(IOException e)
-        {
-            e.printStackTrace(System.out);
-            return false;
-        }
-
-        return result;
     }
 
     /**
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2014  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2014,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -56,10 +56,10 @@ class CompilerThread extends Thread
      */
     public void run()
     {
-        Job job;
+        CompileJob job;
         while (true) {
             synchronized (this) {
-                while ((job = (Job) jobs.dequeue()) == null) {
+                while ((job = (CompileJob) jobs.dequeue()) == null) {
                     busy = false;
                     notifyAll();
                     try {
@@ -79,7 +79,7 @@ class CompilerThread extends Thread
      * immediately.
      */
     @OnThread(Tag.Any)
-    public synchronized void addJob(Job job)
+    public synchronized void addJob(CompileJob job)
     {
         jobs.enqueue(job);
         busy = true;
@@ -0,0 +1,78 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import bluej.Config;
+import bluej.classmgr.BPClassLoader;
+
+/**
+ * A compiler job for a single generated source file (such as the shell class for an
+ * interactive invocation) which is held in memory.  The resulting class files are
+ * also kept in memory, and passed to the classes handler rather than being written to disk.
+ *
+ * <p>The source file does not need to exist; it is only used to identify the source
+ * to the observer.
+ */
+record InMemoryJob(File sourceFile, String className, String source, CompilerAPICompiler compiler,
+                   CompileObserver observer, Consumer<Map<String, byte[]>> classesHandler,
+                   BPClassLoader bpClassLoader, File destDir, List<String> userCompileOptions,
+                   Charset fileCharset, CompileType type, CompileReason reason)
+    implements CompileJob
+{
+    /**
+     * Compile this job.  If successful, the classes handler is called (on the compiler
+     * thread) with the compiled classes before the observer's endCompile method.
+     */
+    @Override
+    public void compile()
+    {
+        int compilationSequence = Job.nextCompilationSequence.getAndIncrement();
+        CompileInputFile[] sources = {new CompileInputFile(sourceFile, sourceFile)};
+
+        try {
+            observer.startCompile(sources, reason, type, compilationSequence);
+
+            compiler.setDestDir(destDir);
+            compiler.setClasspath(bpClassLoader.getClassPathAsFiles());
+            compiler.setBootClassPath(null);
+
+            Map<String, byte[]> classes = compiler.compileInMemory(sourceFile, className, source, observer,
+                    userCompileOptions, fileCharset, type);
+            if (classes != null) {
+                classesHandler.accept(classes);
+            }
+
+            observer.endCompile(sources, classes != null, type, compilationSequence);
+        }
+        catch (Exception e) {
+            System.err.println(Config.getString("compileException") + ": " + e);
+            e.printStackTrace();
+            observer.endCompile(sources, false, type, compilationSequence);
+        }
+    }
+}
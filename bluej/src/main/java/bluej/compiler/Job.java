@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2016,2020,2022  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2016,2020,2022,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -42,17 +42,19 @@ record Job(CompileInputFile[] sources, Compiler compiler, CompileObserver observ
                              // or user files if we want to suppress
                              // "unchecked" warnings, false otherwise
            List<String> userCompileOptions, Charset fileCharset, CompileType type, CompileReason reason)
+    implements CompileJob
 {
     /**
      * Generator for unique ascending compilation identifiers.  It doesn't matter if it's shared between
      * packages or between projects, it just needs to be unique and ascending.  An individual user won't manage
      * 2 billion compilations in a single session, so integer is fine:
      */
-    private static final AtomicInteger nextCompilationSequence = new AtomicInteger(1);
+    static final AtomicInteger nextCompilationSequence = new AtomicInteger(1);
 
     /**
      * Compile this job
      */
+    @Override
     public void compile()
     {
         int compilationSequence = nextCompilationSequence.getAndIncrement();
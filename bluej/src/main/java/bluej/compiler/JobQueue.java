@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2011,2012,2013,2016  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2011,2012,2013,2016,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -25,6 +25,8 @@ import java.io.File;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import bluej.Config;
 import bluej.classmgr.BPClassLoader;
@@ -51,7 +53,7 @@ public class JobQueue
     // ---- instance ----
 
     private CompilerThread thread = null;
-    private Compiler compiler = null;
+    private CompilerAPICompiler compiler = null;
 
     /**
      * Construct the JobQueue. This is private; use getJobQueue() to get the job queue instance.
@@ -90,6 +92,44 @@ public class JobQueue
                 destDir, suppressUnchecked, options, fileCharset, type, reason));
     }
 
+    /**
+     * Adds a job to the compile queue to compile a single generated source, held in memory.
+     * Nothing is written to disk: the compiled classes are passed to the classes handler.
+     * Classes needed by the source are found, but not compiled, from the classpath and destDir.
+     * 
+     * @param sourceFile  The file which would hold the source (used to identify it to the observer)
+     * @param className   The fully-qualified name of the class declared by the source
+     * @param source      The source code
+     * @param observer    Observer to be notified when compilation begins,
+     *                    errors/warnings, completes
+     * @param classesHandler  Receives the compiled classes (binary name to class file contents)
+     *                        on the compiler thread if compilation succeeds, before the
+     *                        observer's endCompile is called
+     */
+    public void addInMemoryJob(File sourceFile, String className, String source, CompileObserver observer,
+            Consumer<Map<String, byte[]>> classesHandler, BPClassLoader bpClassLoader, File destDir,
+            Charset fileCharset, CompileReason reason, CompileType type)
+    {
+        List<String> options = new ArrayList<String>();
+        String optionString = Config.getPropString(Compiler.COMPILER_OPTIONS, "");
+        options.addAll(Utility.dequoteCommandLine(optionString));
+        
+        thread.addJob(new InMemoryJob(sourceFile, className, source, compiler, observer, classesHandler,
+                bpClassLoader, destDir, options, fileCharset, type, reason));
+    }
+
+    /**
+     * Releases any files which the compiler holds open for the project with the given
+     * directory (such as the jars on its class path).  This is done on the compiler
+     * thread, after any jobs which are already queued.
+     * 
+     * @param projectDir  The project directory (the destination directory for its jobs)
+     */
+    public void projectClosed(File projectDir)
+    {
+        thread.addJob(() -> compiler.closeInMemoryFileManager(projectDir));
+    }
+
     /**
      * Wait until the compiler job queue is empty, then return.
      */
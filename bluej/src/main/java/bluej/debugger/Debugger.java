@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -26,6 +26,7 @@ import java.net.URL;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import bluej.classmgr.BPClassLoader;
 import bluej.debugger.jdi.JdiDebugger;
@@ -70,6 +71,14 @@ public abstract class Debugger
     // persist through calls to removeBreakpointsForClass, and through the clear-all breakpoint
     // removal that happens, for example, when a new class loader is added to the VM
     public static final String PERSIST_BREAKPOINT_PROPERTY = "VMReference.PERSIST_BREAKPOINT";    
+
+    // Breakpoint properties for conditional breakpoints, hit counts and log points.  The condition is
+    // a boolean Java expression; the breakpoint only stops when it is true.  The hit count N means the
+    // breakpoint only stops every Nth time it is reached.  If a log message is set, the breakpoint
+    // never stops, but writes the message to the terminal, with expressions in {braces} filled in.
+    public static final String BREAKPOINT_CONDITION_PROPERTY = "bluej.breakpoint.condition";
+    public static final String BREAKPOINT_HIT_COUNT_PROPERTY = "bluej.breakpoint.hitCount";
+    public static final String BREAKPOINT_LOG_MESSAGE_PROPERTY = "bluej.breakpoint.logMessage";
     
     public static final int NORMAL_EXIT = 0;
     public static final int EXCEPTION = 2;
@@ -219,6 +228,20 @@ public abstract class Debugger
      */
     @OnThread(Tag.Any)
     public abstract TestResultsWithRunTime runTestMethod(String className, String methodName);
+
+    /**
+     * Run all the tests in the given test classes, as a single test run.  Each result is
+     * passed to the listener (on the calling thread or another worker thread) as soon as
+     * its test has finished, while the remaining tests are still running.
+     * 
+     * @param  classNames  the fully qualified names of the test classes
+     * @param  parallel    whether the test classes may run in parallel
+     * @param  resultListener  receives each result as it arrives
+     * @return a TestResultsWithRunTime object that wraps all the results and the total runtime
+     */
+    @OnThread(Tag.Worker)
+    public abstract TestResultsWithRunTime runAllTests(List<String> classNames, boolean parallel,
+            Consumer<DebuggerTestResult> resultListener);
     
     /**
      * Dispose all top level windows in the remote machine.
@@ -233,6 +256,36 @@ public abstract class Debugger
     public abstract DebuggerResult runClassMain(String className)
         throws ClassNotFoundException;
 
+    /**
+     * Send the given compiled classes to the current class loader in the remote VM, so that
+     * they can be loaded (for instance by runClassMain) without the class files being on disk.
+     * 
+     * @param classes  The class file contents, by binary class name
+     * @return  true if successful; false if the classes could not be sent, in which case
+     *          they must be loaded from disk as usual.
+     */
+    @OnThread(Tag.NOTVMEventHandler)
+    public abstract boolean defineClasses(Map<String, byte[]> classes);
+
+    /**
+     * Start the sampling profiler in the remote VM.  It samples the stacks of the running
+     * threads at the given interval until stopProfiling() is called (or the VM is reset).
+     * 
+     * @param intervalMillis  The time between samples, in milliseconds
+     * @return  true if successful; false if the VM is not available
+     */
+    @OnThread(Tag.NOTVMEventHandler)
+    public abstract boolean startProfiling(int intervalMillis);
+
+    /**
+     * Stop the sampling profiler in the remote VM, and get its results.
+     * 
+     * @return  The results, or null if the profiler was not running (e.g. because
+     *          the VM has been reset since it was started)
+     */
+    @OnThread(Tag.NOTVMEventHandler)
+    public abstract ProfileTree stopProfiling();
+
     /**
      * Instantiate a class using the default constructor for that class.
      * @param className  The name of the class to instantiate
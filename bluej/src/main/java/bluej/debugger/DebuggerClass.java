@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2010,2011,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,8 +21,12 @@
  */
 package bluej.debugger;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
 /**
  * A class for representing classes in the debugged VM.
  *
@@ -49,6 +53,22 @@ public abstract class DebuggerClass
     {
         return getStaticFields().get(slot);
     }
+
+    /**
+     * Gets the values of the given static fields of this class (as given by
+     * DebuggerField.getValueString()), in the same order.  Implementations may
+     * fetch all the values at once, which is quicker than one at a time.
+     */
+    @OnThread(Tag.Any)
+    public List<String> getStaticFieldValueStrings(List<DebuggerField> fields)
+    {
+        List<String> values = new ArrayList<>(fields.size());
+        for (DebuggerField field : fields)
+        {
+            values.add(field.getValueString());
+        }
+        return values;
+    }
     
     /**
      * Returns true if this represents a Java interface
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2013,2018,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2013,2018,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -22,6 +22,7 @@
 package bluej.debugger;
 
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
 
 import bluej.debugger.gentype.GenTypeClass;
@@ -128,6 +129,42 @@ public abstract class DebuggerObject
      */
     public abstract String getElementValueString(int index);
 
+    /**
+     * Gets the values of a range of elements of this array (as given by
+     * getElementValueString).  Implementations may fetch all the values at once,
+     * which is quicker than one at a time.
+     * 
+     * @param index  The index of the first element
+     * @param count  The number of elements
+     */
+    @OnThread(Tag.Any)
+    @SuppressWarnings("threadchecker")
+    public List<String> getElementValueStrings(int index, int count)
+    {
+        List<String> values = new ArrayList<>(count);
+        for (int i = index; i < index + count; i++)
+        {
+            values.add(getElementValueString(i));
+        }
+        return values;
+    }
+
+    /**
+     * Gets the values of the given fields of this object (as given by
+     * DebuggerField.getValueString()), in the same order.  Implementations may
+     * fetch all the values at once, which is quicker than one at a time.
+     */
+    @OnThread(Tag.Any)
+    public List<String> getFieldValueStrings(List<DebuggerField> fields)
+    {
+        List<String> values = new ArrayList<>(fields.size());
+        for (DebuggerField field : fields)
+        {
+            values.add(field.getValueString());
+        }
+        return values;
+    }
+
     /**
      * Return the JDI object. This exposes the JDI to Inspectors.
      * If JDI is not being used, it should return null.
@@ -0,0 +1,261 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import bluej.runtime.Sampler;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The results of a profiling run: the sampled stacks arranged into a call tree,
+ * plus a list of the methods in which most samples were taken ("hot" methods).
+ * 
+ * @see Debugger#stopProfiling()
+ */
+@OnThread(Tag.Any)
+public class ProfileTree
+{
+    private final Node root;
+    private final List<Node> hotMethods;
+
+    /**
+     * A method in the call tree (or in the hot method list), with the number of samples taken
+     * in it ("self") and in it or the methods it called ("total").
+     */
+    @OnThread(Tag.Any)
+    public static class Node
+    {
+        private final String className;
+        private final String methodName;
+        private final String fileName;
+        private int total;
+        private int self;
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        // The number of samples at each line of the method:
+        private final Map<Integer, int[]> lineCounts = new HashMap<>();
+
+        private Node(String className, String methodName, String fileName)
+        {
+            this.className = className;
+            this.methodName = methodName;
+            this.fileName = fileName;
+        }
+
+        /**
+         * The fully-qualified name of the method's class, or null for the root of the tree.
+         */
+        public String getClassName()
+        {
+            return className;
+        }
+
+        public String getMethodName()
+        {
+            return methodName;
+        }
+
+        /**
+         * The name of the method's source file (without path), or null if not known.
+         */
+        public String getFileName()
+        {
+            return fileName;
+        }
+
+        /**
+         * The number of samples taken in this method or the methods it called.
+         */
+        public int getTotal()
+        {
+            return total;
+        }
+
+        /**
+         * The number of samples taken in this method itself.
+         */
+        public int getSelf()
+        {
+            return self;
+        }
+
+        /**
+         * The methods called from this one, most sampled first.  Empty for hot methods.
+         */
+        public List<Node> getChildren()
+        {
+            List<Node> r = new ArrayList<>(children.values());
+            r.sort(Comparator.comparingInt(Node::getTotal).reversed());
+            return r;
+        }
+
+        /**
+         * The line of the method with the most samples, or -1 if not known.
+         */
+        public int getHottestLine()
+        {
+            int line = -1;
+            int count = 0;
+            for (Map.Entry<Integer, int[]> entry : lineCounts.entrySet())
+            {
+                if (entry.getValue()[0] > count && entry.getKey() > 0)
+                {
+                    line = entry.getKey();
+                    count = entry.getValue()[0];
+                }
+            }
+            return line;
+        }
+
+        private void addLine(int line, int count)
+        {
+            lineCounts.computeIfAbsent(line, k -> new int[1])[0] += count;
+        }
+
+        @Override
+        public String toString()
+        {
+            return className == null ? "" : className + "." + methodName;
+        }
+    }
+
+    private ProfileTree(Node root, List<Node> hotMethods)
+    {
+        this.root = root;
+        this.hotMethods = hotMethods;
+    }
+
+    /**
+     * Build a profile tree from the results of the sampler in the debug VM
+     * (see bluej.runtime.Sampler for the format).
+     */
+    public static ProfileTree parse(String samples)
+    {
+        Map<String, Node> methods = new HashMap<>();
+        Node root = new Node(null, null, null);
+        Set<Node> seen = new HashSet<>();
+
+        for (String stack : samples.split("\n"))
+        {
+            int firstFrame = stack.indexOf(Sampler.FRAME_SEPARATOR);
+            if (firstFrame <= 0)
+            {
+                continue;
+            }
+            int count;
+            try
+            {
+                count = Integer.parseInt(stack.substring(0, firstFrame));
+            }
+            catch (NumberFormatException e)
+            {
+                continue;
+            }
+            root.total += count;
+
+            Node treeNode = root;
+            Node method = null;
+            int line = -1;
+            seen.clear();
+            for (String frame : stack.substring(firstFrame + 1).split(String.valueOf(Sampler.FRAME_SEPARATOR)))
+            {
+                String[] fields = frame.split(String.valueOf(Sampler.FIELD_SEPARATOR), -1);
+                if (fields.length != 4)
+                {
+                    break;
+                }
+                String fileName = fields[2].isEmpty() ? null : fields[2];
+                line = parseLine(fields[3]);
+                String key = fields[0] + "." + fields[1];
+
+                Node parent = treeNode;
+                treeNode = parent.children.computeIfAbsent(key, k -> new Node(fields[0], fields[1], fileName));
+                treeNode.total += count;
+                treeNode.addLine(line, count);
+
+                method = methods.computeIfAbsent(key, k -> new Node(fields[0], fields[1], fileName));
+                // Recursive methods appear several times in a stack; only count each sample once:
+                if (seen.add(method))
+                {
+                    method.total += count;
+                }
+                method.addLine(line, count);
+            }
+            if (method != null)
+            {
+                treeNode.self += count;
+                method.self += count;
+            }
+        }
+
+        List<Node> hotMethods = new ArrayList<>(methods.values());
+        hotMethods.sort(Comparator.comparingInt(Node::getSelf).thenComparingInt(Node::getTotal).reversed());
+        return new ProfileTree(root, Collections.unmodifiableList(hotMethods));
+    }
+
+    private static int parseLine(String line)
+    {
+        try
+        {
+            return Integer.parseInt(line);
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * The root of the call tree.  Its children are the outermost methods of the
+     * sampled stacks, and its total is the number of samples.
+     */
+    public Node getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * The methods which were sampled, in order of the number of samples taken
+     * in the method itself (most first).
+     */
+    public List<Node> getHotMethods()
+    {
+        return hotMethods;
+    }
+
+    /**
+     * The total number of samples.
+     */
+    public int getSampleCount()
+    {
+        return root.total;
+    }
+}
@@ -0,0 +1,753 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger.jdi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import bluej.utility.JavaNames;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.BooleanValue;
+import com.sun.jdi.ByteValue;
+import com.sun.jdi.CharValue;
+import com.sun.jdi.DoubleValue;
+import com.sun.jdi.Field;
+import com.sun.jdi.FloatValue;
+import com.sun.jdi.IntegerValue;
+import com.sun.jdi.LocalVariable;
+import com.sun.jdi.LongValue;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.ShortValue;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.StringReference;
+import com.sun.jdi.Value;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A Java expression used by a conditional breakpoint or a log point.  The expression is
+ * parsed once, when the breakpoint is set, and then evaluated directly against the stack
+ * frame each time the breakpoint is hit, without calling any code in the debug VM.
+ * 
+ * <p>A subset of Java expressions is supported: literals, local variables, fields (of "this",
+ * or of an object), array elements, array length, the unary and binary arithmetic, comparison
+ * and logical operators, and the String methods length(), isEmpty() and equals().  Unlike Java,
+ * == compares Strings by value.
+ * 
+ * <p>Expressions are not compiled into a class in the debug VM (as codepad code is), for
+ * these reasons:
+ * <ul>
+ * <li>A JDI breakpoint always suspends the thread which hits it, so running a compiled
+ *     condition would not avoid the suspension.  Only changing the user's class files to call
+ *     the condition at that line would, and that needs a class file library.</li>
+ * <li>A compiled condition would have to be invoked from the VM event handler thread while
+ *     the breakpoint event is being handled.  If the condition ran into another breakpoint
+ *     (e.g. in a method it calls), that event could never be handled, and the debugger would
+ *     hang.  Running it on the debug VM's worker thread instead would not help, since the
+ *     event handler would still have to wait for it.</li>
+ * <li>Compiling needs the types of the local variables in scope, which JDI only gives for a
+ *     suspended frame, so the first hit would wait for a compilation.</li>
+ * </ul>
+ * Evaluating from the frame only reads values, so it cannot cause events, and it has no
+ * side effects in the debugged program.
+ */
+@OnThread(Tag.Any)
+public class BreakpointExpression
+{
+    private final Node root;
+
+    /**
+     * An error while evaluating an expression, e.g. an unknown variable.
+     */
+    public static class EvaluationException extends Exception
+    {
+        public EvaluationException(String message)
+        {
+            super(message);
+        }
+    }
+
+    /**
+     * A node of the parsed expression.  Values are represented as: Boolean, Integer (byte,
+     * short and int), Long, Float, Double, Character, String, ObjectReference or null.
+     * Arithmetic follows Java's binary numeric promotion, so that (for example) int
+     * arithmetic overflows the way it would in the debugged program.
+     */
+    @FunctionalInterface
+    private static interface Node
+    {
+        Object evaluate(StackFrame frame) throws EvaluationException;
+    }
+
+    private BreakpointExpression(Node root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * Parse an expression.
+     * 
+     * @throws IllegalArgumentException  if the expression is not valid; the message describes the problem
+     */
+    public static BreakpointExpression parse(String text)
+    {
+        Parser parser = new Parser(text);
+        Node root = parser.parseExpression();
+        parser.expectEnd();
+        return new BreakpointExpression(root);
+    }
+
+    /**
+     * Evaluate the expression in the given (suspended) stack frame.
+     */
+    public Object evaluate(StackFrame frame) throws EvaluationException
+    {
+        return root.evaluate(frame);
+    }
+
+    /**
+     * Evaluate the expression as a condition in the given (suspended) stack frame.
+     * 
+     * @throws EvaluationException  if the expression cannot be evaluated, or is not boolean
+     */
+    public boolean evaluateCondition(StackFrame frame) throws EvaluationException
+    {
+        Object result = root.evaluate(frame);
+        if (result instanceof Boolean b) {
+            return b;
+        }
+        throw new EvaluationException("Condition is not a boolean: " + format(result));
+    }
+
+    /**
+     * Format a value (as returned by evaluate) for display in a log message.
+     */
+    public static String format(Object value)
+    {
+        if (value instanceof ArrayReference array) {
+            return JavaNames.stripPrefix(array.referenceType().name()) + "[" + array.length() + "]";
+        }
+        else if (value instanceof ObjectReference object) {
+            return JavaNames.stripPrefix(object.referenceType().name()) + "#" + object.uniqueID();
+        }
+        else {
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * Parse a log message, in which expressions may be included in braces, for example
+     * "i = {i}, total = {total / count}".
+     * 
+     * @return  The parts of the message: Strings (to be shown as they are) and BreakpointExpressions
+     * @throws IllegalArgumentException  if an expression is not valid, or the braces do not match
+     */
+    public static List<Object> parseMessage(String message)
+    {
+        List<Object> parts = new ArrayList<>();
+        int pos = 0;
+        while (pos < message.length()) {
+            int open = message.indexOf('{', pos);
+            if (open == -1) {
+                parts.add(message.substring(pos));
+                break;
+            }
+            int close = message.indexOf('}', open);
+            if (close == -1) {
+                throw new IllegalArgumentException("Missing } in message");
+            }
+            if (open > pos) {
+                parts.add(message.substring(pos, open));
+            }
+            parts.add(parse(message.substring(open + 1, close)));
+            pos = close + 1;
+        }
+        return parts;
+    }
+
+    /**
+     * Fill in a log message (as parsed by parseMessage) using the given stack frame.
+     * Expressions which cannot be evaluated are shown with the reason.
+     */
+    public static String formatMessage(List<Object> parts, StackFrame frame)
+    {
+        StringBuilder r = new StringBuilder();
+        for (Object part : parts) {
+            if (part instanceof BreakpointExpression expression) {
+                try {
+                    r.append(format(expression.evaluate(frame)));
+                }
+                catch (EvaluationException e) {
+                    r.append("<").append(e.getMessage()).append(">");
+                }
+            }
+            else {
+                r.append(part);
+            }
+        }
+        return r.toString();
+    }
+
+    // --- evaluation ---
+
+    /**
+     * Convert a value from the debug VM to our representation (see Node).
+     */
+    private static Object fromValue(Value value)
+    {
+        if (value instanceof BooleanValue v) {
+            return v.value();
+        }
+        else if (value instanceof CharValue v) {
+            return v.value();
+        }
+        else if (value instanceof ByteValue || value instanceof ShortValue || value instanceof IntegerValue) {
+            return ((com.sun.jdi.PrimitiveValue) value).intValue();
+        }
+        else if (value instanceof LongValue v) {
+            return v.value();
+        }
+        else if (value instanceof FloatValue v) {
+            return v.value();
+        }
+        else if (value instanceof DoubleValue v) {
+            return v.value();
+        }
+        else if (value instanceof StringReference s) {
+            return s.value();
+        }
+        else {
+            // ObjectReference or null:
+            return value;
+        }
+    }
+
+    private static Object lookupName(StackFrame frame, String name) throws EvaluationException
+    {
+        try {
+            LocalVariable local = frame.visibleVariableByName(name);
+            if (local != null) {
+                return fromValue(frame.getValue(local));
+            }
+        }
+        catch (AbsentInformationException e) {
+            // No local variable information; carry on and look for a field
+        }
+        ObjectReference thisObject = frame.thisObject();
+        if (name.equals("this")) {
+            return thisObject;
+        }
+        ReferenceType type = thisObject != null ? thisObject.referenceType() : frame.location().declaringType();
+        Field field = type.fieldByName(name);
+        if (field != null) {
+            return fromValue(field.isStatic() ? type.getValue(field) : thisObject.getValue(field));
+        }
+        throw new EvaluationException("Unknown variable: " + name);
+    }
+
+    private static Object getMember(Object target, String name) throws EvaluationException
+    {
+        if (target instanceof ArrayReference array && name.equals("length")) {
+            return array.length();
+        }
+        else if (target instanceof ObjectReference object) {
+            Field field = object.referenceType().fieldByName(name);
+            if (field != null) {
+                return fromValue(object.getValue(field));
+            }
+            throw new EvaluationException("Unknown field: " + name);
+        }
+        else if (target == null) {
+            throw new EvaluationException("Null pointer accessing " + name);
+        }
+        throw new EvaluationException("Cannot access " + name + " of " + format(target));
+    }
+
+    private static Object callMethod(Object target, String name, List<Object> args) throws EvaluationException
+    {
+        if (target instanceof String s) {
+            if (name.equals("length") && args.isEmpty()) {
+                return s.length();
+            }
+            else if (name.equals("isEmpty") && args.isEmpty()) {
+                return s.isEmpty();
+            }
+            else if (name.equals("equals") && args.size() == 1) {
+                return s.equals(args.get(0));
+            }
+        }
+        else if (target == null) {
+            throw new EvaluationException("Null pointer calling " + name);
+        }
+        throw new EvaluationException("Method " + name + " is not supported in breakpoint expressions");
+    }
+
+    private static Object getElement(Object target, Object index) throws EvaluationException
+    {
+        if (!(target instanceof ArrayReference array)) {
+            throw new EvaluationException(target == null ? "Null pointer accessing array" : "Not an array: " + format(target));
+        }
+        long i = asLong(index);
+        if (i < 0 || i >= array.length()) {
+            throw new EvaluationException("Array index out of bounds: " + i);
+        }
+        return fromValue(array.getValue((int) i));
+    }
+
+    private static boolean isNumeric(Object value)
+    {
+        return value instanceof Number || value instanceof Character;
+    }
+
+    private static long asLong(Object value) throws EvaluationException
+    {
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        else if (value instanceof Character c) {
+            return c;
+        }
+        throw new EvaluationException("Not an integer: " + format(value));
+    }
+
+    private static double asDouble(Object value) throws EvaluationException
+    {
+        if (value instanceof Double || value instanceof Float) {
+            return ((Number) value).doubleValue();
+        }
+        return asLong(value);
+    }
+
+    private static boolean asBoolean(Object value) throws EvaluationException
+    {
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        throw new EvaluationException("Not a boolean: " + format(value));
+    }
+
+    private static Object binary(String op, Object a, Object b) throws EvaluationException
+    {
+        if (op.equals("+") && (a instanceof String || b instanceof String)) {
+            return format(a) + format(b);
+        }
+        if ((op.equals("==") || op.equals("!=")) && (!isNumeric(a) || !isNumeric(b))) {
+            return Objects.equals(a, b) == op.equals("==");
+        }
+        if (!isNumeric(a) || !isNumeric(b)) {
+            throw new EvaluationException("Operator " + op + " cannot be applied to " + format(a) + " and " + format(b));
+        }
+        if (a instanceof Double || b instanceof Double) {
+            double x = asDouble(a);
+            double y = asDouble(b);
+            switch (op) {
+                case "+": return x + y;
+                case "-": return x - y;
+                case "*": return x * y;
+                case "/": return x / y;
+                case "%": return x % y;
+                case "==": return x == y;
+                case "!=": return x != y;
+                case "<": return x < y;
+                case "<=": return x <= y;
+                case ">": return x > y;
+                case ">=": return x >= y;
+            }
+        }
+        else if (a instanceof Float || b instanceof Float) {
+            float x = (float) asDouble(a);
+            float y = (float) asDouble(b);
+            switch (op) {
+                case "+": return x + y;
+                case "-": return x - y;
+                case "*": return x * y;
+                case "/": return x / y;
+                case "%": return x % y;
+                case "==": return x == y;
+                case "!=": return x != y;
+                case "<": return x < y;
+                case "<=": return x <= y;
+                case ">": return x > y;
+                case ">=": return x >= y;
+            }
+        }
+        else {
+            long x = asLong(a);
+            long y = asLong(b);
+            long result;
+            switch (op) {
+                case "+": result = x + y; break;
+                case "-": result = x - y; break;
+                case "*": result = x * y; break;
+                case "/":
+                case "%":
+                    if (y == 0) {
+                        throw new EvaluationException("Division by zero");
+                    }
+                    result = op.equals("/") ? x / y : x % y;
+                    break;
+                case "==": return x == y;
+                case "!=": return x != y;
+                case "<": return x < y;
+                case "<=": return x <= y;
+                case ">": return x > y;
+                case ">=": return x >= y;
+                default: throw new EvaluationException("Unknown operator: " + op);
+            }
+            // Unless either operand is a long, Java does the arithmetic in int:
+            return (a instanceof Long || b instanceof Long) ? (Object) result : (Object) (int) result;
+        }
+        throw new EvaluationException("Unknown operator: " + op);
+    }
+
+    // --- parsing ---
+
+    /**
+     * A recursive-descent parser, producing a tree of Nodes.
+     */
+    private static class Parser
+    {
+        // Binary operators, from lowest to highest precedence:
+        private static final String[][] BINARY_OPERATORS = {
+            {"||"}, {"&&"}, {"==", "!="}, {"<", "<=", ">", ">="}, {"+", "-"}, {"*", "/", "%"}
+        };
+
+        private final String text;
+        private int pos = 0;
+
+        Parser(String text)
+        {
+            this.text = text;
+        }
+
+        Node parseExpression()
+        {
+            return parseBinary(0);
+        }
+
+        void expectEnd()
+        {
+            skipSpace();
+            if (pos < text.length()) {
+                throw error("Unexpected " + text.charAt(pos));
+            }
+        }
+
+        private Node parseBinary(int level)
+        {
+            if (level == BINARY_OPERATORS.length) {
+                return parseUnary();
+            }
+            Node left = parseBinary(level + 1);
+            while (true) {
+                String op = matchOperator(BINARY_OPERATORS[level]);
+                if (op == null) {
+                    return left;
+                }
+                Node l = left;
+                Node r = parseBinary(level + 1);
+                if (op.equals("&&")) {
+                    left = f -> asBoolean(l.evaluate(f)) && asBoolean(r.evaluate(f));
+                }
+                else if (op.equals("||")) {
+                    left = f -> asBoolean(l.evaluate(f)) || asBoolean(r.evaluate(f));
+                }
+                else {
+                    left = f -> binary(op, l.evaluate(f), r.evaluate(f));
+                }
+            }
+        }
+
+        private Node parseUnary()
+        {
+            skipSpace();
+            if (lookingAt("!") && !lookingAt("!=")) {
+                pos += 1;
+                Node operand = parseUnary();
+                return f -> !asBoolean(operand.evaluate(f));
+            }
+            else if (lookingAt("-")) {
+                pos += 1;
+                Node operand = parseUnary();
+                return f -> {
+                    Object value = operand.evaluate(f);
+                    if (value instanceof Double d) {
+                        return -d;
+                    }
+                    else if (value instanceof Float fl) {
+                        return -fl;
+                    }
+                    else if (value instanceof Long l) {
+                        return -l;
+                    }
+                    return -(int) asLong(value);
+                };
+            }
+            else if (lookingAt("+")) {
+                pos += 1;
+                return parseUnary();
+            }
+            return parsePostfix(parsePrimary());
+        }
+
+        private Node parsePostfix(Node target)
+        {
+            while (true) {
+                skipSpace();
+                if (lookingAt(".")) {
+                    pos += 1;
+                    String name = parseIdentifier();
+                    skipSpace();
+                    Node t = target;
+                    if (lookingAt("(")) {
+                        pos += 1;
+                        List<Node> args = new ArrayList<>();
+                        skipSpace();
+                        if (!lookingAt(")")) {
+                            do {
+                                args.add(parseExpression());
+                                skipSpace();
+                            }
+                            while (consume(","));
+                        }
+                        expect(")");
+                        target = f -> {
+                            List<Object> argValues = new ArrayList<>();
+                            for (Node arg : args) {
+                                argValues.add(arg.evaluate(f));
+                            }
+                            return callMethod(t.evaluate(f), name, argValues);
+                        };
+                    }
+                    else {
+                        target = f -> getMember(t.evaluate(f), name);
+                    }
+                }
+                else if (lookingAt("[")) {
+                    pos += 1;
+                    Node index = parseExpression();
+                    expect("]");
+                    Node t = target;
+                    target = f -> getElement(t.evaluate(f), index.evaluate(f));
+                }
+                else {
+                    return target;
+                }
+            }
+        }
+
+        private Node parsePrimary()
+        {
+            skipSpace();
+            if (pos >= text.length()) {
+                throw error("Expression expected");
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos += 1;
+                Node inner = parseExpression();
+                expect(")");
+                return inner;
+            }
+            else if (Character.isDigit(c) || (c == '.' && pos + 1 < text.length() && Character.isDigit(text.charAt(pos + 1)))) {
+                Object value = parseNumber();
+                return f -> value;
+            }
+            else if (c == '"') {
+                String value = parseQuoted('"');
+                return f -> value;
+            }
+            else if (c == '\'') {
+                String value = parseQuoted('\'');
+                if (value.length() != 1) {
+                    throw error("Invalid character literal");
+                }
+                Character ch = value.charAt(0);
+                return f -> ch;
+            }
+            else if (Character.isJavaIdentifierStart(c)) {
+                String name = parseIdentifier();
+                switch (name) {
+                    case "true": return f -> Boolean.TRUE;
+                    case "false": return f -> Boolean.FALSE;
+                    case "null": return f -> null;
+                    default: return f -> lookupName(f, name);
+                }
+            }
+            throw error("Unexpected " + c);
+        }
+
+        private Object parseNumber()
+        {
+            int start = pos;
+            boolean isHex = text.startsWith("0x", pos) || text.startsWith("0X", pos);
+            boolean isDouble = false;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '.' || (!isHex && (c == 'e' || c == 'E'))) {
+                    isDouble = true;
+                }
+                else if ((c == '-' || c == '+') && (text.charAt(pos - 1) == 'e' || text.charAt(pos - 1) == 'E')) {
+                    // Exponent sign
+                }
+                else if (!Character.isLetterOrDigit(c) && c != '_') {
+                    break;
+                }
+                pos += 1;
+            }
+            String number = text.substring(start, pos).replace("_", "");
+            try {
+                if (number.endsWith("L") || number.endsWith("l")) {
+                    return Long.decode(number.substring(0, number.length() - 1));
+                }
+                else if (!isHex && (number.endsWith("f") || number.endsWith("F"))) {
+                    return Float.parseFloat(number.substring(0, number.length() - 1));
+                }
+                else if (!isHex && (number.endsWith("d") || number.endsWith("D"))) {
+                    return Double.parseDouble(number.substring(0, number.length() - 1));
+                }
+                else if (isDouble) {
+                    return Double.parseDouble(number);
+                }
+                else {
+                    long value = Long.decode(number);
+                    // An int literal: decimal literals may go up to 2147483648 (only valid
+                    // when negated, which then gives Integer.MIN_VALUE), while hex and octal
+                    // literals may use all 32 bits:
+                    boolean isDecimal = !isHex && !(number.length() > 1 && number.startsWith("0"));
+                    if (value > (isDecimal ? 2147483648L : 0xFFFFFFFFL)) {
+                        throw error("Integer number too large: " + number);
+                    }
+                    return (int) value;
+                }
+            }
+            catch (NumberFormatException e) {
+                throw error("Invalid number " + number);
+            }
+        }
+
+        private String parseQuoted(char quote)
+        {
+            StringBuilder r = new StringBuilder();
+            pos += 1;
+            while (pos < text.length() && text.charAt(pos) != quote) {
+                char c = text.charAt(pos);
+                if (c == '\\' && pos + 1 < text.length()) {
+                    pos += 1;
+                    switch (text.charAt(pos)) {
+                        case 'n': r.append('\n'); break;
+                        case 't': r.append('\t'); break;
+                        case 'r': r.append('\r'); break;
+                        case '0': r.append('\0'); break;
+                        default: r.append(text.charAt(pos)); break;
+                    }
+                }
+                else {
+                    r.append(c);
+                }
+                pos += 1;
+            }
+            if (pos >= text.length()) {
+                throw error("Missing closing " + quote);
+            }
+            pos += 1;
+            return r.toString();
+        }
+
+        private String parseIdentifier()
+        {
+            skipSpace();
+            int start = pos;
+            if (pos < text.length() && Character.isJavaIdentifierStart(text.charAt(pos))) {
+                pos += 1;
+                while (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                    pos += 1;
+                }
+            }
+            if (start == pos) {
+                throw error("Name expected");
+            }
+            return text.substring(start, pos);
+        }
+
+        /**
+         * Match (and consume) one of the given operators.  The longest match is taken,
+         * so that "<=" is not read as "<".
+         */
+        private String matchOperator(String[] operators)
+        {
+            skipSpace();
+            String match = null;
+            for (String op : operators) {
+                if (lookingAt(op) && (match == null || op.length() > match.length())) {
+                    match = op;
+                }
+            }
+            // Don't mistake a compound assignment (e.g. "+=") for an operator:
+            if (match != null && match.length() == 1 && "+-*/%".indexOf(match.charAt(0)) != -1
+                    && pos + 1 < text.length() && text.charAt(pos + 1) == '=') {
+                return null;
+            }
+            if (match != null) {
+                pos += match.length();
+            }
+            return match;
+        }
+
+        private boolean lookingAt(String s)
+        {
+            return text.startsWith(s, pos);
+        }
+
+        private boolean consume(String s)
+        {
+            skipSpace();
+            if (lookingAt(s)) {
+                pos += s.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String s)
+        {
+            if (!consume(s)) {
+                throw error(s + " expected");
+            }
+        }
+
+        private void skipSpace()
+        {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos += 1;
+            }
+        }
+
+        private IllegalArgumentException error(String message)
+        {
+            return new IllegalArgumentException(message + " (at position " + (pos + 1) + ")");
+        }
+    }
+}
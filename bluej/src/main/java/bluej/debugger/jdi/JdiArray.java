@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2000-2009,2010,2011,2018,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 2000-2009,2010,2011,2018,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,6 +21,9 @@
  */
 package bluej.debugger.jdi;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import bluej.debugger.DebuggerObject;
 import bluej.debugger.gentype.GenTypeArray;
 import bluej.debugger.gentype.GenTypeArrayClass;
@@ -184,6 +187,22 @@ public class JdiArray extends JdiObject
         return JdiUtils.getJdiUtils().getValueString(val);
     }
 
+    /**
+     * Gets the values of a range of elements, all in one request to the debug VM.
+     */
+    @Override
+    @OnThread(Tag.Any)
+    @SuppressWarnings("threadchecker")
+    public List<String> getElementValueStrings(int index, int count)
+    {
+        List<Value> values = ((ArrayReference) obj).getValues(index, count);
+        List<String> rlist = new ArrayList<>(values.size());
+        for (Value val : values) {
+            rlist.add(JdiUtils.getJdiUtils().getValueString(val));
+        }
+        return rlist;
+    }
+
     /*
      * Return the object in object field 'slot'.
      *
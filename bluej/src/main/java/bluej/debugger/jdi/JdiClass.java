@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2010,2011,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,6 +23,7 @@ package bluej.debugger.jdi;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import bluej.debugger.DebuggerClass;
 import bluej.debugger.DebuggerField;
@@ -32,6 +33,9 @@ import com.sun.jdi.ClassType;
 import com.sun.jdi.Field;
 import com.sun.jdi.InterfaceType;
 import com.sun.jdi.ReferenceType;
+import com.sun.jdi.Value;
+import threadchecker.OnThread;
+import threadchecker.Tag;
 
 /**
  * Represents an class running on the user (remote) machine.
@@ -72,10 +76,35 @@ public class JdiClass extends DebuggerClass
     @Override
     public List<DebuggerField> getStaticFields()
     {
-        List<Field> visibleFields = remoteClass.visibleFields();
+        JdiClassFields classFields = JdiClassFields.of(remoteClass);
         List<DebuggerField> rlist = new ArrayList<DebuggerField>(staticFields.size());
         for (Field field : staticFields) {
-            rlist.add(new JdiField(field, null, ! visibleFields.contains(field)));
+            rlist.add(new JdiField(field, null, ! classFields.isVisible(field)));
+        }
+        return rlist;
+    }
+
+    /**
+     * Gets the values of the given static fields of this class, all in one request
+     * to the debug VM.
+     */
+    @Override
+    @OnThread(Tag.Any)
+    @SuppressWarnings("threadchecker")
+    public List<String> getStaticFieldValueStrings(List<DebuggerField> fields)
+    {
+        List<Field> jdiFields = new ArrayList<>(fields.size());
+        for (DebuggerField field : fields) {
+            if (! (field instanceof JdiField) || ((JdiField) field).getObject() != null) {
+                return super.getStaticFieldValueStrings(fields);
+            }
+            jdiFields.add(((JdiField) field).getJdiField());
+        }
+
+        Map<Field, Value> values = remoteClass.getValues(jdiFields);
+        List<String> rlist = new ArrayList<>(jdiFields.size());
+        for (Field field : jdiFields) {
+            rlist.add(JdiUtils.getJdiUtils().getValueString(values.get(field)));
         }
         return rlist;
     }
@@ -109,7 +138,7 @@ public class JdiClass extends DebuggerClass
         staticFields = new ArrayList<Field>();
 
         if (remoteClass != null) {
-            List<Field> allFields = remoteClass.allFields();
+            List<Field> allFields = JdiClassFields.of(remoteClass).getAllFields();
             for (int i = 0; i < allFields.size(); i++) {
                 Field field = (Field) allFields.get(i);
                 if (field.isStatic())
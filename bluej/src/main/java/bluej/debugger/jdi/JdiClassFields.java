@@ -0,0 +1,84 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger.jdi;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.sun.jdi.Field;
+import com.sun.jdi.ReferenceType;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The fields of a remote class, cached per class.  A class's fields cannot change
+ * once it is loaded, so there is no need to ask the debug VM again for every
+ * object (or every inspector update).
+ */
+@OnThread(Tag.Any)
+class JdiClassFields
+{
+    // Weak keys, so that we don't keep the mirrors of unloaded classes (or old VMs):
+    private static final Map<ReferenceType, JdiClassFields> cache = new WeakHashMap<>();
+
+    private final List<Field> allFields;
+    private final Set<Field> visibleFields;
+
+    private JdiClassFields(ReferenceType type)
+    {
+        allFields = Collections.unmodifiableList(type.allFields());
+        visibleFields = new HashSet<>(type.visibleFields());
+    }
+
+    /**
+     * Gets the fields of the given class, from the cache if possible.
+     */
+    static JdiClassFields of(ReferenceType type)
+    {
+        synchronized (cache)
+        {
+            return cache.computeIfAbsent(type, JdiClassFields::new);
+        }
+    }
+
+    /**
+     * All the fields of the class (as ReferenceType.allFields()), including those
+     * inherited and those hidden by a field of the same name.
+     */
+    List<Field> getAllFields()
+    {
+        return allFields;
+    }
+
+    /**
+     * Checks whether the given field is visible in the class, rather than hidden by another
+     * field of the same name (as ReferenceType.visibleFields()).
+     */
+    boolean isVisible(Field field)
+    {
+        return visibleFields.contains(field);
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2014,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2014,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import bluej.BlueJEvent;
 import bluej.BlueJEventListener;
@@ -92,6 +93,8 @@ public class JdiDebugger extends Debugger
     /** An object to provide a lock for server thread execution */
     @OnThread(Tag.Any)
     private Object serverThreadLock = new Object();
+    // How often to collect test results while running all tests, in milliseconds:
+    private static final int TEST_RESULT_POLL_INTERVAL = 100;
 
     // a set holding all the JdiThreads in the VM
     @OnThread(Tag.VMEventHandler)
@@ -613,42 +616,17 @@ public class JdiDebugger extends Debugger
                 }
                 
                 int runTimeMs = Integer.parseInt(((StringReference) arrayRef.getValue(0)).value());
+                // Fetch all the values at once, rather than one at a time:
+                List<Value> values = arrayRef.getValues();
                 int i = 1;
-                while (i < arrayRef.length())
+                while (i < values.size())
                 {
-                    
-                    String actualMethodName = ((StringReference) arrayRef.getValue(i)).value();
-                    String displayTestName = ((StringReference) arrayRef.getValue(i + 1)).value();
-                    String failureType = ((StringReference) arrayRef.getValue(i + 8)).value();
-                    
-                    if (failureType.equals("success"))
+                    String[] fields = new String[9];
+                    for (int j = 0; j < fields.length; j++)
                     {
-                        results.add(new JdiTestResult(className, actualMethodName, displayTestName, 0));
-                        
+                        fields[j] = ((StringReference) values.get(i + j)).value();
                     }
-                    else
-                    {
-                        String exMsg = ((StringReference) arrayRef.getValue(i + 2)).value();
-                        String traceMsg = ((StringReference) arrayRef.getValue(i + 3)).value();
-                        String failureClass = ((StringReference) arrayRef.getValue(i + 4)).value();
-                        String failureSource = ((StringReference) arrayRef.getValue(i + 5)).value();
-                        String failureMethod = ((StringReference) arrayRef.getValue(i + 6)).value();
-                        int lineNo = Integer.parseInt(((StringReference) arrayRef.getValue(i + 7)).value());
-                        SourceLocation failPoint = new SourceLocation(failureClass, failureSource,
-                                failureMethod, lineNo);
-
-                        if (failureType.equals("failure"))
-                        {
-                            results.add(new JdiTestResultFailure(className, actualMethodName, displayTestName, exMsg, traceMsg,
-                                    failPoint, 0));
-                        }
-                        else
-                        {
-                            results.add(new JdiTestResultError(className, actualMethodName, displayTestName, exMsg, traceMsg,
-                                    failPoint, 0));
-                        }
-                    }
-
+                    results.add(JdiTestResult.makeTestResult(className, fields, 0));
                     i = i + 9;
                 }
                 testResultsWithRunTime.setTotalRunTime(runTimeMs);
@@ -675,6 +653,75 @@ public class JdiDebugger extends Debugger
         }
     }
     
+    @Override
+    @OnThread(Tag.Worker)
+    public TestResultsWithRunTime runAllTests(List<String> classNames, boolean parallel,
+            Consumer<DebuggerTestResult> resultListener)
+    {
+        List<DebuggerTestResult> results = new ArrayList<>();
+        TestResultsWithRunTime testResultsWithRunTime = new TestResultsWithRunTime();
+        testResultsWithRunTime.setResults(results);
+        VMReference vmr = getVM();
+        if (vmr == null || classNames.isEmpty())
+        {
+            return testResultsWithRunTime;
+        }
+
+        long startTime = System.currentTimeMillis();
+        // Collect the results while the tests run, so that they can be shown as they finish.
+        // (The results list is only added to by the poller until it has finished.)
+        TestResultPoller poller = new TestResultPoller(vmr::pollTestResults, TEST_RESULT_POLL_INTERVAL,
+                result -> {
+                    results.add(result);
+                    resultListener.accept(result);
+                });
+
+        try
+        {
+            synchronized (serverThreadLock)
+            {
+                poller.start();
+                ArrayReference times;
+                try
+                {
+                    times = (ArrayReference) vmr.invokeRunAllTests(String.join(",", classNames), parallel);
+                }
+                finally
+                {
+                    // Also collects any results the poller did not get to:
+                    poller.finish();
+                }
+
+                if (times != null && times.length() == 2)
+                {
+                    int runTimeMs = Integer.parseInt(((StringReference) times.getValue(0)).value());
+                    long testTimeMs = Long.parseLong(((StringReference) times.getValue(1)).value());
+                    testResultsWithRunTime.setTotalRunTime(runTimeMs);
+                    Debug.log("Ran " + results.size() + " tests from " + classNames.size() + " classes"
+                            + (parallel ? " in parallel" : "") + ": " + runTimeMs + "ms to run (wall time "
+                            + (System.currentTimeMillis() - startTime) + "ms), tests took " + testTimeMs + "ms in total");
+                }
+            }
+        }
+        catch (InvocationException ie)
+        {
+            DebuggerTestResult error = new JdiTestResultError(classNames.get(0), "", "", "Internal invocation error", "", null, 0);
+            results.add(error);
+            resultListener.accept(error);
+        }
+        catch (VMDisconnectedException vmde)
+        {
+            DebuggerTestResult error = new JdiTestResultError(classNames.get(0), "", "", "VM restarted", "", null, 0);
+            results.add(error);
+            resultListener.accept(error);
+        }
+        catch (InterruptedException e)
+        {
+            Debug.reportError(e);
+        }
+        return testResultsWithRunTime;
+    }
+
     /**
      * Dispose all top level windows in the remote machine.
      */
@@ -715,6 +762,61 @@ public class JdiDebugger extends Debugger
         }
     }
 
+    @Override
+    @OnThread(Tag.NOTVMEventHandler)
+    public boolean defineClasses(Map<String, byte[]> classes)
+    {
+        VMReference vmr = getVM();
+        if (vmr == null) {
+            return false;
+        }
+        try {
+            for (Map.Entry<String, byte[]> c : classes.entrySet()) {
+                if (!vmr.defineClass(c.getKey(), c.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch (VMDisconnectedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    @OnThread(Tag.NOTVMEventHandler)
+    public boolean startProfiling(int intervalMillis)
+    {
+        VMReference vmr = getVM();
+        if (vmr == null) {
+            return false;
+        }
+        try {
+            vmr.startProfiling(intervalMillis);
+            return true;
+        }
+        catch (VMDisconnectedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    @OnThread(Tag.NOTVMEventHandler)
+    public ProfileTree stopProfiling()
+    {
+        VMReference vmr = getVM();
+        if (vmr == null) {
+            return null;
+        }
+        try {
+            String samples = vmr.stopProfiling();
+            return samples == null ? null : ProfileTree.parse(samples);
+        }
+        catch (VMDisconnectedException e) {
+            return null;
+        }
+    }
+
     @Override
     public CompletableFuture<FXPlatformSupplier<DebuggerResult>> launchFXApp(String className)
     {
@@ -1089,7 +1191,10 @@ public class JdiDebugger extends Debugger
     {
         JdiThread jdiThread = allThreads.removeThread(tr);
         if (jdiThread != null)
+        {
+            jdiThread.died();
             threadListener.removeThread(jdiThread);
+        }
     }
 
     // -- support methods --
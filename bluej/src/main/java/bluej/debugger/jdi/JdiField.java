@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2011,2018,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 2011,2018,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -53,6 +53,24 @@ public class JdiField extends DebuggerField
         this.hidden = hidden;
     }
 
+    /**
+     * Gets the JDI field this represents.
+     */
+    @OnThread(Tag.Any)
+    Field getJdiField()
+    {
+        return field;
+    }
+
+    /**
+     * Gets the object whose field this is, or null for a static field.
+     */
+    @OnThread(Tag.Any)
+    JdiObject getObject()
+    {
+        return object;
+    }
+
     @Override
     @OnThread(Tag.Any)
     public String getName()
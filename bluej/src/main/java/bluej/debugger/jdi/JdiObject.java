@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2018,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2018,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,6 +23,7 @@ package bluej.debugger.jdi;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import bluej.debugger.DebuggerClass;
@@ -36,6 +37,7 @@ import com.sun.jdi.ArrayReference;
 import com.sun.jdi.Field;
 import com.sun.jdi.ObjectReference;
 import com.sun.jdi.ReferenceType;
+import com.sun.jdi.Value;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
@@ -265,17 +267,41 @@ public class JdiObject extends DebuggerObject
     @OnThread(Tag.Any)
     public List<DebuggerField> getFields()
     {
-        List<Field> visibleFields = obj.referenceType().visibleFields();
+        JdiClassFields classFields = JdiClassFields.of(obj.referenceType());
         List<DebuggerField> rlist = new ArrayList<DebuggerField>(fields.size());
         for (Field field : fields) {
             if (! checkIgnoreField(field)) {
-                boolean visible = visibleFields.remove(field);
-                rlist.add(new JdiField(field, this, !visible));
+                rlist.add(new JdiField(field, this, ! classFields.isVisible(field)));
             }
         }
         return rlist;
     }
 
+    /**
+     * Gets the values of the given fields of this object, all in one request to
+     * the debug VM.
+     */
+    @Override
+    @OnThread(Tag.Any)
+    @SuppressWarnings("threadchecker")
+    public List<String> getFieldValueStrings(List<DebuggerField> fieldList)
+    {
+        List<Field> jdiFields = new ArrayList<>(fieldList.size());
+        for (DebuggerField field : fieldList) {
+            if (! (field instanceof JdiField) || ((JdiField) field).getObject() != this) {
+                return super.getFieldValueStrings(fieldList);
+            }
+            jdiFields.add(((JdiField) field).getJdiField());
+        }
+
+        Map<Field, Value> values = obj.getValues(jdiFields);
+        List<String> rlist = new ArrayList<>(jdiFields.size());
+        for (Field field : jdiFields) {
+            rlist.add(JdiUtils.getJdiUtils().getValueString(values.get(field)));
+        }
+        return rlist;
+    }
+
     @OnThread(Tag.Any)
     private static boolean checkIgnoreField(Field f)
     {
@@ -291,7 +317,7 @@ public class JdiObject extends DebuggerObject
         if (obj != null) {
             ReferenceType cls = obj.referenceType();
             if (cls != null) {
-                fields.addAll(cls.allFields());
+                fields.addAll(JdiClassFields.of(cls).getAllFields());
                 return;
             }
         }
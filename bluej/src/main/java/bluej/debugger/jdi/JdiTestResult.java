@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2011,2012,2019  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2011,2012,2019,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -128,6 +128,45 @@ public class JdiTestResult extends DebuggerTestResult
         return true;
     }
 
+    /**
+     * Create a test result from the fields for one test returned by the remote VM
+     * (see ExecServer.runTestMethod).
+     * 
+     * @param fields  the fields of the result, starting at the given offset
+     */
+    static DebuggerTestResult makeTestResult(String className, String[] fields, int offset)
+    {
+        String actualMethodName = fields[offset];
+        String displayTestName = fields[offset + 1];
+        String failureType = fields[offset + 8];
+
+        if (failureType.equals("success"))
+        {
+            return new JdiTestResult(className, actualMethodName, displayTestName, 0);
+        }
+
+        String exMsg = fields[offset + 2];
+        String traceMsg = fields[offset + 3];
+        String failureClass = fields[offset + 4];
+        String failureSource = fields[offset + 5];
+        String failureMethod = fields[offset + 6];
+        int lineNo = fields[offset + 7].isEmpty() ? 0 : Integer.parseInt(fields[offset + 7]);
+        SourceLocation failPoint = new SourceLocation(failureClass, failureSource,
+                failureMethod, lineNo);
+
+        if (failureType.equals("failure"))
+        {
+            return new JdiTestResultFailure(className, actualMethodName, displayTestName, exMsg, traceMsg,
+                    failPoint, 0);
+        }
+        else
+        {
+            return new JdiTestResultError(className, actualMethodName, displayTestName, exMsg, traceMsg,
+                    failPoint, 0);
+        }
+    }
+
+
     /**
      * Filters stack frames from internal JUnit classes
      */
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2016,2018,2019,2020,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2016,2018,2019,2020,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -54,6 +54,14 @@ class JdiThread extends DebuggerThread
     static final String statusWaiting = Config.getString("debugger.threadstatus.waiting");
     static final String statusZombie = Config.getString("debugger.threadstatus.zombie");
 
+    /**
+     * Classes which stepping should never stop in: the JDK, and the libraries which BlueJ
+     * puts on the debug VM's classpath.  These become class exclusion filters on the step
+     * request, so that the debug VM steps straight through them without reporting back.
+     */
+    private static final String DEFAULT_EXCLUDES = "java.*, javax.*, sun.*, com.sun.*, jdk.*, "
+        + "junit.*, org.junit.*, org.hamcrest.*, org.opentest4j.*";
+
     /** a list of classes to exclude from source display */
     @OnThread(value = Tag.Any, requireSynchronized = true)
     private static List<String> excludes;
@@ -62,7 +70,7 @@ class JdiThread extends DebuggerThread
     private static synchronized List<String> getExcludes()
     {
         if (excludes == null) {
-            setExcludes("java.*, javax.*, sun.*, com.sun.*");
+            setExcludes(DEFAULT_EXCLUDES + ", " + Config.getPropString("bluej.debugger.stepExcludes", ""));
         }
         return excludes;
     }
@@ -96,9 +104,17 @@ class JdiThread extends DebuggerThread
     @OnThread(Tag.VMEventHandler)
     private boolean isSuspended;
     
-    /** Any active step request */
+    /**
+     * The step request for this thread.  It is kept (disabled) after the step completes,
+     * and enabled again for the next step of the same depth, rather than creating a new
+     * request with all its filters each time.
+     */
     @OnThread(Tag.VMEventHandler)
     StepRequest stepRequest;
+
+    /** The time (System.nanoTime) at which the current step started, or 0 if not stepping */
+    @OnThread(Tag.VMEventHandler)
+    private long stepStartTime;
     
     /*
      * Note that we have to track suspension status internally, because JDI will happily
@@ -668,14 +684,23 @@ class JdiThread extends DebuggerThread
     private void doStep(int depth)
     {
         clearPreviousStep(rt);
-        stepRequest = eventReqMgr.createStepRequest(rt,
-                                             StepRequest.STEP_LINE, depth);
-        addExcludesToRequest(stepRequest);
+        if (stepRequest != null && stepRequest.depth() != depth) {
+            // Only one step request is allowed per thread:
+            eventReqMgr.deleteEventRequest(stepRequest);
+            stepRequest = null;
+        }
+        if (stepRequest == null) {
+            stepRequest = eventReqMgr.createStepRequest(rt,
+                                                 StepRequest.STEP_LINE, depth);
+            addExcludesToRequest(stepRequest);
 
-        // Make sure the step event is done only once
-        stepRequest.addCountFilter(1);
-        stepRequest.putProperty(VMEventHandler.DONT_RESUME, "yes");
+            // Make sure the step event is done only once.  The count restarts
+            // each time the request is enabled, so this also holds when it is reused:
+            stepRequest.addCountFilter(1);
+            stepRequest.putProperty(VMEventHandler.DONT_RESUME, "yes");
+        }
         stepRequest.enable();
+        stepStartTime = System.nanoTime();
 
         synchronized (this) {
             if (isSuspended) {
@@ -688,7 +713,7 @@ class JdiThread extends DebuggerThread
 
     /**
      * A previously set step may not have completed yet - find out and
-     * if it is so, remove it.
+     * if it is so, disable it (it is kept for re-use by the next step).
      */
     @OnThread(Tag.VMEventHandler)
     private void clearPreviousStep(ThreadReference thread)
@@ -696,8 +721,29 @@ class JdiThread extends DebuggerThread
         if (eventReqMgr == null)
             getEventRequestManager();
 
+        if (stepRequest != null && stepRequest.isEnabled()) {
+            stepRequest.disable();
+        }
+        if (stepStartTime != 0) {
+            long millis = (System.nanoTime() - stepStartTime) / 1000000;
+            Debug.log("Step " + (stepRequest.depth() == StepRequest.STEP_INTO ? "into" : "over")
+                    + " in thread " + getName() + " took " + millis + "ms");
+            stepStartTime = 0;
+        }
+    }
+
+    /**
+     * Inform the JdiThread that the underlying thread has died, so that
+     * its step request can be removed.
+     */
+    @OnThread(Tag.VMEventHandler)
+    void died()
+    {
         if (stepRequest != null) {
-            eventReqMgr.deleteEventRequest(stepRequest);
+            try {
+                eventReqMgr.deleteEventRequest(stepRequest);
+            }
+            catch (VMDisconnectedException vmde) {}
             stepRequest = null;
         }
     }
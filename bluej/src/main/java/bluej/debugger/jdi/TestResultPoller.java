@@ -0,0 +1,125 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger.jdi;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import bluej.debugger.DebuggerTestResult;
+import bluej.runtime.ExecServer;
+import bluej.utility.Debug;
+import com.sun.jdi.VMDisconnectedException;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A thread which collects the test results streamed by the remote VM during a test
+ * run (see ExecServer.pollTestResults), and passes each one to a listener as it arrives.
+ * 
+ * <p>The thread is stopped by finish(), not by interrupting it: the poll waits for the
+ * remote VM's worker thread, and an interrupt there would leave the worker thread (and
+ * any results already taken from the remote VM) in an unknown state.
+ */
+@OnThread(Tag.Worker)
+class TestResultPoller extends Thread
+{
+    private final Supplier<String> source;
+    private final int interval;
+    private final Consumer<DebuggerTestResult> listener;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param source    Fetches the results since the last call, encoded as described in
+     *                  ExecServer.pollTestResults (or null if there are none)
+     * @param interval  The time between polls, in milliseconds
+     * @param listener  Called (on this thread, or the thread calling finish()) with each result
+     */
+    @OnThread(Tag.Any)
+    TestResultPoller(Supplier<String> source, int interval, Consumer<DebuggerTestResult> listener)
+    {
+        super("Test result poller");
+        this.source = source;
+        this.interval = interval;
+        this.listener = listener;
+        setDaemon(true);
+    }
+
+    @Override
+    @OnThread(value = Tag.Worker, ignoreParent = true)
+    public void run()
+    {
+        while (!stopped)
+        {
+            poll();
+            try
+            {
+                Thread.sleep(interval);
+            }
+            catch (InterruptedException e)
+            {
+                // Not expected; we check the stopped flag anyway
+            }
+        }
+    }
+
+    /**
+     * Stop polling, wait for the thread to finish, and then collect any results that it
+     * did not get to.
+     */
+    void finish() throws InterruptedException
+    {
+        stopped = true;
+        join();
+        poll();
+    }
+
+    /**
+     * Fetch the results since the last poll, and pass them to the listener.
+     */
+    private void poll()
+    {
+        String encoded;
+        try
+        {
+            encoded = source.get();
+        }
+        catch (VMDisconnectedException e)
+        {
+            return;
+        }
+        if (encoded == null)
+        {
+            return;
+        }
+        for (String record : encoded.split(String.valueOf(ExecServer.TEST_RECORD_SEPARATOR)))
+        {
+            // The class name, then the fields as for runTestMethod:
+            String[] fields = record.split(String.valueOf(ExecServer.TEST_FIELD_SEPARATOR), -1);
+            if (fields.length != 10)
+            {
+                Debug.reportError("Malformed test result from debug VM: " + record);
+                continue;
+            }
+            listener.accept(JdiTestResult.makeTestResult(fields[0], fields, 1));
+        }
+    }
+}
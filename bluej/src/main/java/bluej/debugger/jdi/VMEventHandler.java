@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2012,2014,2019,2020,2021,2023  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2012,2014,2019,2020,2021,2023,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -165,6 +165,14 @@ class VMEventHandler extends Thread
                     //     o StepEvent
                     //     o MethodEntryEvent 
 
+                    // Conditional breakpoints whose condition is false, and log points, are dealt
+                    // with straight away; the thread resumes without the rest of BlueJ seeing the event:
+                    if (passEventSet(eventSet))
+                    {
+                        eventSet.resume();
+                        continue;
+                    }
+
                     boolean addToSuspendCount = true;
 
                     // iterate through all events in the set
@@ -273,6 +281,25 @@ class VMEventHandler extends Thread
         return DebuggerEvent.THREAD_HALT_UNKNOWN;
     }
     
+    /**
+     * Check whether an event set consists only of breakpoint events which should be passed
+     * over without stopping (see VMReference.passBreakpointEvent).
+     */
+    @OnThread(Tag.VMEventHandler)
+    private boolean passEventSet(EventSet eventSet)
+    {
+        if (eventSet.isEmpty())
+            return false;
+        boolean pass = true;
+        for (Event ev : eventSet)
+        {
+            // Evaluate every event, so that all log points at this location are written:
+            if (!(ev instanceof BreakpointEvent) || !vm.passBreakpointEvent((BreakpointEvent) ev))
+                pass = false;
+        }
+        return pass;
+    }
+
     @OnThread(Tag.VMEventHandler)
     private boolean screenEvent(Event event)
     {
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -78,6 +78,7 @@ import com.sun.jdi.Method;
 import com.sun.jdi.ObjectCollectedException;
 import com.sun.jdi.ObjectReference;
 import com.sun.jdi.ReferenceType;
+import com.sun.jdi.StackFrame;
 import com.sun.jdi.StringReference;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VMDisconnectedException;
@@ -88,6 +89,7 @@ import com.sun.jdi.VirtualMachineManager;
 import com.sun.jdi.connect.Connector;
 import com.sun.jdi.connect.Connector.Argument;
 import com.sun.jdi.connect.ListeningConnector;
+import com.sun.jdi.event.BreakpointEvent;
 import com.sun.jdi.event.ExceptionEvent;
 import com.sun.jdi.event.LocatableEvent;
 import com.sun.jdi.event.ThreadDeathEvent;
@@ -148,6 +150,11 @@ public class VMReference
     // the name of the method used to show  the terminal on input
     public static final String SERVER_SHOW_TERMINAL_ON_INPUT_NAME = "showTerminalOnInput";
 
+    // breakpoint request properties holding the parsed condition (a BreakpointExpression)
+    // and log message (a list of parts, see BreakpointExpression.parseMessage)
+    private static final String CONDITION_EXPRESSION_KEY = "VMReference.CONDITION_EXPRESSION";
+    private static final String LOG_MESSAGE_PARTS_KEY = "VMReference.LOG_MESSAGE_PARTS";
+
     // A map which can be used to map instances of VirtualMachine to VMReference 
     private static Map<VirtualMachine, VMReference> vmToReferenceMap = new HashMap<VirtualMachine, VMReference>();
     
@@ -827,6 +834,177 @@ public class VMReference
         }
     }
     
+    /**
+     * Send the contents of a class file to the remote VM, so that the class can be loaded by
+     * the current class loader without the class file being on its class path.  The class
+     * is not loaded (or defined) until something requests it.
+     * 
+     * @param className   The binary name of the class
+     * @param classBytes  The contents of the class file
+     * @return  true if successful, or false if the current class loader does not support this
+     */
+    @OnThread(Tag.NOTVMEventHandler)
+    boolean defineClass(String className, byte[] classBytes)
+    {
+        ArrayType byteArrayType;
+        try {
+            byteArrayType = (ArrayType) loadClass("[B");
+        }
+        catch (ClassNotFoundException cnfe) {
+            return false;
+        }
+        
+        synchronized(workerThread) {
+            workerThreadReadyWait();
+            workerThreadReserved = true;
+            // If the VM goes away part way through, we must still release the worker thread,
+            // or every later request would wait for it forever:
+            try {
+                // Suspend to avoid the array being collected before we can store it, see invokeConstructor:
+                machine.suspend();
+                try {
+                    ArrayReference bytesArray = byteArrayType.newInstance(classBytes.length);
+                    while (true) {
+                        try {
+                            bytesArray.disableCollection();
+                            break;
+                        }
+                        catch (ObjectCollectedException oce) {
+                            bytesArray = byteArrayType.newInstance(classBytes.length);
+                        }
+                    }
+                    
+                    List<Value> values = new ArrayList<>(classBytes.length);
+                    for (byte b : classBytes) {
+                        values.add(machine.mirrorOf(b));
+                    }
+                    if (!values.isEmpty()) {
+                        bytesArray.setValues(values);
+                    }
+                    setStaticFieldValue(serverClass, ExecServer.CLASS_BYTES_NAME, bytesArray);
+                    bytesArray.enableCollection();
+                }
+                catch (InvalidTypeException | ClassNotLoadedException e) {
+                    // Shouldn't happen for a byte array
+                    Debug.reportError("Could not send class to debug VM", e);
+                    return false;
+                }
+                finally {
+                    machine.resume();
+                }
+                
+                setStaticFieldObject(serverClass, ExecServer.CLASSNAME_NAME, className);
+                setStaticFieldValue(serverClass, ExecServer.WORKER_ACTION_NAME, machine.mirrorOf(ExecServer.DEFINE_CLASS));
+                
+                workerThreadReady = false;
+                workerThread.resume();
+                workerThreadFinishWait();
+                
+                ObjectReference result = getStaticFieldObject(serverClass, ExecServer.WORKER_RETURN_NAME);
+                return result != null;
+            }
+            finally {
+                workerThreadReserved = false;
+                workerThread.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Start the sampling profiler in the remote VM (see bluej.runtime.Sampler).
+     * Any previous samples are discarded.
+     * 
+     * @param intervalMillis  The time between samples, in milliseconds
+     */
+    @OnThread(Tag.NOTVMEventHandler)
+    void startProfiling(int intervalMillis)
+    {
+        synchronized(workerThread) {
+            workerThreadReadyWait();
+            workerThreadReserved = true;
+            // Release the worker thread even if the VM goes away, as in defineClass:
+            try {
+                setStaticFieldValue(serverClass, ExecServer.PROFILE_INTERVAL_NAME, machine.mirrorOf(intervalMillis));
+                setStaticFieldValue(serverClass, ExecServer.WORKER_ACTION_NAME, machine.mirrorOf(ExecServer.START_PROFILING));
+                
+                workerThreadReady = false;
+                workerThread.resume();
+                workerThreadFinishWait();
+            }
+            finally {
+                workerThreadReserved = false;
+                workerThread.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Stop the sampling profiler in the remote VM, and get the samples it took.
+     * 
+     * @return  The samples, in the format described in bluej.runtime.Sampler,
+     *          or null if the profiler was not running.
+     */
+    @OnThread(Tag.NOTVMEventHandler)
+    String stopProfiling()
+    {
+        synchronized(workerThread) {
+            workerThreadReadyWait();
+            workerThreadReserved = true;
+            try {
+                setStaticFieldValue(serverClass, ExecServer.WORKER_ACTION_NAME, machine.mirrorOf(ExecServer.STOP_PROFILING));
+                
+                workerThreadReady = false;
+                workerThread.resume();
+                workerThreadFinishWait();
+                
+                StringReference result = (StringReference) getStaticFieldObject(serverClass, ExecServer.WORKER_RETURN_NAME);
+                String samples = result == null ? null : result.value();
+                // Let the string be collected:
+                setStaticFieldValue(serverClass, ExecServer.WORKER_RETURN_NAME, null);
+                return samples;
+            }
+            finally {
+                workerThreadReserved = false;
+                workerThread.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Collect the test results which have been streamed from a run of all tests
+     * (see invokeRunAllTests) since the last call.  This uses the worker thread,
+     * so it can be called while the tests are running.
+     * 
+     * @return  The results, encoded as described in ExecServer.pollTestResults,
+     *          or null if there are none.
+     */
+    @OnThread(Tag.NOTVMEventHandler)
+    String pollTestResults()
+    {
+        synchronized(workerThread) {
+            workerThreadReadyWait();
+            workerThreadReserved = true;
+            // Release the worker thread even if the VM goes away, as in defineClass:
+            try {
+                setStaticFieldValue(serverClass, ExecServer.WORKER_ACTION_NAME, machine.mirrorOf(ExecServer.POLL_TEST_RESULTS));
+                
+                workerThreadReady = false;
+                workerThread.resume();
+                workerThreadFinishWait();
+                
+                StringReference result = (StringReference) getStaticFieldObject(serverClass, ExecServer.WORKER_RETURN_NAME);
+                String results = result == null ? null : result.value();
+                // Let the string be collected:
+                setStaticFieldValue(serverClass, ExecServer.WORKER_RETURN_NAME, null);
+                return results;
+            }
+            finally {
+                workerThreadReserved = false;
+                workerThread.notifyAll();
+            }
+        }
+    }
+    
     /**
      * Load and initialize a class in the remote machine, and return a reference to it.
      * Initialization causes static initializer assignments and blocks to be executed in
@@ -1305,6 +1483,62 @@ public class VMReference
         return owner.screenBreakpoint(event.thread(), debuggerEventType, props);
     }
 
+    /**
+     * Check whether a breakpoint event should be passed over, resuming the thread straight away
+     * without informing the rest of BlueJ.  This is the case for a breakpoint whose condition is
+     * false, and for a log point, whose message is written to the terminal here.  The condition
+     * and message are evaluated against the suspended thread's frame, without running any code
+     * in the debug VM (see BreakpointExpression for why they are not compiled and run there).
+     */
+    @OnThread(Tag.VMEventHandler)
+    public boolean passBreakpointEvent(BreakpointEvent event)
+    {
+        EventRequest request = event.request();
+        if (request == null) {
+            return false;
+        }
+        if (request.getProperty(Debugger.BREAKPOINT_HIT_COUNT_PROPERTY) != null && request.isEnabled()) {
+            // A count filter expires once it has been reached; re-enabling the request starts the count again:
+            request.disable();
+            request.enable();
+        }
+
+        BreakpointExpression condition = (BreakpointExpression) request.getProperty(CONDITION_EXPRESSION_KEY);
+        @SuppressWarnings("unchecked")
+        List<Object> logMessage = (List<Object>) request.getProperty(LOG_MESSAGE_PARTS_KEY);
+        if (condition == null && logMessage == null) {
+            return false;
+        }
+
+        try {
+            StackFrame frame = event.thread().frame(0);
+            if (condition != null && !condition.evaluateCondition(frame)) {
+                return true;
+            }
+            if (logMessage != null) {
+                Writer writer = term.getWriter();
+                writer.write(BreakpointExpression.formatMessage(logMessage, frame) + "\n");
+                writer.flush();
+                return true;
+            }
+            return false;
+        }
+        catch (BreakpointExpression.EvaluationException ee) {
+            // Stop at the breakpoint, so the user can see what's wrong:
+            try {
+                term.getErrorWriter().write(Config.getString("debugger.breakpoint.conditionError") + " " + ee.getMessage() + "\n");
+                term.getErrorWriter().flush();
+            }
+            catch (IOException ioe) {
+                // Nothing more we can do
+            }
+            return false;
+        }
+        catch (IncompatibleThreadStateException | IOException e) {
+            return false;
+        }
+    }
+
     // ==== code for active debugging: setting breakpoints, stepping, etc ===
 
     /**
@@ -1400,18 +1634,7 @@ public class VMReference
         if (location == null) {
             return false;
         }
-        EventRequestManager erm = machine.eventRequestManager();
-        BreakpointRequest bpreq = erm.createBreakpointRequest(location);
-        bpreq.setSuspendPolicy(EventRequest.SUSPEND_EVENT_THREAD);
-        bpreq.putProperty(VMEventHandler.DONT_RESUME, "yes");
-        if (properties != null) {
-            for (Map.Entry<String, String> property : properties.entrySet()) {
-                bpreq.putProperty(property.getKey(), property.getValue());
-            }
-        }
-        bpreq.enable();
-
-        return true;
+        return setBreakpoint(location, properties) == null;
     }
 
     String setBreakpoint(ReferenceType classType, int line, Map<String, String> properties)
@@ -1422,16 +1645,48 @@ public class VMReference
                 return Config.getString("debugger.jdiDebugger.noCodeMsg");
             }
 
-            setBreakpoint(locations.get(0), properties);
-            return null;
+            return setBreakpoint(locations.get(0), properties);
         }
         catch (AbsentInformationException aie) {
             return Config.getString("debugger.jdiDebugger.noCodeMsg");
         }
     }
     
-    void setBreakpoint(Location location, Map<String,String> properties)
+    /**
+     * Set a breakpoint at the given location.
+     * 
+     * @return null if the breakpoint was set, or an error message if it was not (because
+     *         the hit count, condition or log message is invalid).
+     */
+    String setBreakpoint(Location location, Map<String,String> properties)
     {
+        // Check the properties first, so that we don't set a breakpoint which would
+        // stop on every hit when the user asked for it to stop only sometimes:
+        int count = 1;
+        BreakpointExpression condition = null;
+        List<Object> logMessageParts = null;
+        if (properties != null) {
+            String hitCount = properties.get(Debugger.BREAKPOINT_HIT_COUNT_PROPERTY);
+            String conditionText = properties.get(Debugger.BREAKPOINT_CONDITION_PROPERTY);
+            String logMessage = properties.get(Debugger.BREAKPOINT_LOG_MESSAGE_PROPERTY);
+            try {
+                if (hitCount != null) {
+                    count = Integer.parseInt(hitCount.trim());
+                }
+                if (conditionText != null && !conditionText.isBlank()) {
+                    condition = BreakpointExpression.parse(conditionText);
+                }
+                if (logMessage != null && !logMessage.isEmpty()) {
+                    logMessageParts = BreakpointExpression.parseMessage(logMessage);
+                }
+            }
+            catch (IllegalArgumentException iae) {
+                // (Includes NumberFormatException from the hit count)
+                Debug.message("Invalid breakpoint properties " + properties + ": " + iae.getMessage());
+                return Config.getString("debugger.jdiDebugger.invalidBreakpointMsg") + " " + iae.getMessage();
+            }
+        }
+
         EventRequestManager erm = machine.eventRequestManager();
         BreakpointRequest bpreq = erm.createBreakpointRequest(location);
         bpreq.setSuspendPolicy(EventRequest.SUSPEND_EVENT_THREAD);
@@ -1440,8 +1695,21 @@ public class VMReference
             for (Map.Entry<String, String> property : properties.entrySet()) {
                 bpreq.putProperty(property.getKey(), property.getValue());
             }
+            // The hit count becomes a count filter, so that the debug VM only reports every Nth hit.
+            // The condition and log message are stored on the request, ready to be evaluated each
+            // time the breakpoint is hit (see passBreakpointEvent).
+            if (count > 1) {
+                bpreq.addCountFilter(count);
+            }
+            if (condition != null) {
+                bpreq.putProperty(CONDITION_EXPRESSION_KEY, condition);
+            }
+            if (logMessageParts != null) {
+                bpreq.putProperty(LOG_MESSAGE_PARTS_KEY, logMessageParts);
+            }
         }
         bpreq.enable();
+        return null;
     }
     
     // As above but sets the breakpoint on the first line of a given method
@@ -1461,8 +1729,7 @@ public class VMReference
     boolean setBreakpoint(ReferenceType classType, String methodName, Map<String, String> properties)
     {
         Location loc = findMethodLocation(classType, methodName);
-        setBreakpoint(loc, properties);
-        return true;
+        return setBreakpoint(loc, properties) == null;
     }    
     
 
@@ -1899,6 +2166,44 @@ public class VMReference
         return rval;
     }
 
+    /**
+     * Run all the tests in the given classes, as a single test plan.  The results are
+     * not returned, but must be collected while the tests run using pollTestResults.
+     * 
+     * @param classNames  The names of the test classes, separated by commas
+     * @param parallel    Whether to run the test classes in parallel
+     * @return  An array of two strings: the total run time and the sum of the
+     *          individual test run times, both in milliseconds
+     * @throws InvocationException
+     */
+    public Value invokeRunAllTests(String classNames, boolean parallel)
+        throws InvocationException
+    {
+        // Calls to this method are serialized via serverThreadLock in JdiDebugger
+
+        serverThreadStartWait();
+        
+        // Store the classes to test
+        setStaticFieldObject(serverClass, ExecServer.CLASS_TO_RUN_NAME, classNames);
+        setStaticFieldValue(serverClass, ExecServer.RUN_TESTS_IN_PARALLEL_NAME, machine.mirrorOf(parallel));
+        setStaticFieldValue(serverClass, ExecServer.EXEC_ACTION_NAME, machine.mirrorOf(ExecServer.TEST_RUN_ALL));
+
+        // Resume the thread, wait for it to finish and the new thread to start
+        serverThreadStarted = false;
+        resumeServerThread();
+        serverThreadStartWait();
+        
+        Value rval = getStaticFieldObject(serverClass, ExecServer.METHOD_RETURN_NAME);
+        if (rval == null) {
+            ObjectReference e = getStaticFieldObject(serverClass, ExecServer.EXCEPTION_NAME);
+            if (e != null) {
+                exceptionEvent(new InvocationException(e));
+                throw new InvocationException(e);
+            }
+        }
+        return rval;
+    }
+
     /**
      * Dispose of all gui windows opened from the debug vm.
      */
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2014,2015,2016,2018,2019,2020,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2014,2015,2016,2018,2019,2020,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -135,6 +135,11 @@ public class Invoker
     
     /** Whether we've already seen an error from the compiler */
     private boolean gotError;
+    
+    /** The shell class source, while it is being compiled in memory (null otherwise) */
+    private String shellSource;
+    /** The shell classes compiled in memory, until they are sent to the debug VM */
+    private Map<String, byte[]> compiledClasses;
 
     /**
      * Construct an invoker, specifying most attributes manually.
@@ -542,7 +547,7 @@ public class Invoker
                 argString += ';';
             
             watcher.beginCompile();
-            File shell = writeInvocationFile(paramInit, command + argString, isVoid, constype);
+            File shell = writeInvocationFile(makeInvocationSource(paramInit, command + argString, isVoid, constype));
             if (shell != null) {
                 commandString = command + actualArgString;
                 compileInvocationFile(shell);
@@ -617,14 +622,18 @@ public class Invoker
      * <p>This method is still executed in the interface thread, while "endCompile"
      * will be executed by the CompilerThread.
      * 
+     * <p>The shell class is compiled in memory and sent straight to the debug VM, which
+     * avoids writing and reading files; if that fails for a reason other than an error
+     * in the code, we fall back to compiling from a file as for other invocations.
+     * 
      * @param resultType   the type of the result expressed in Java (eg "int",
      *                     "java.util.ArrayList<String>"). An empty string means
      *                     the type is not known. A null value indicates that there
      *                     is no result (the invocation is a statement).
      * 
-     * @return true if successful, or false if there was a problem (the shell
-     * file couldn't be written). In case of failure, a dialog is displayed to
-     * alert the user.
+     * @return true if the compilation was started. (A problem writing the shell
+     * file in the fallback case is reported to the watcher as an error, after a
+     * dialog is displayed to alert the user.)
      */
     public boolean doFreeFormInvocation(String resultType)
     {
@@ -642,20 +651,47 @@ public class Invoker
             ir = new StatementInvokerRecord(commandString);
         }
 
-        File shell = writeInvocationFile("", commandString, !hasResult, resultType);
+        shellSource = makeInvocationSource("", commandString, !hasResult, resultType);
+        compileInvocationInMemory();
+        return true;
+    }
+
+    /**
+     * Start the compilation of the shell source (shellSource) in memory, and register us as
+     * a watcher.  When successful, the compiled classes are stored in compiledClasses
+     * before endCompile is called.
+     */
+    private void compileInvocationInMemory()
+    {
+        Project project = pkg.getProject();
+        String shellClassName = JavaNames.combineNames(pkgName, shellName);
+        JobQueue.getJobQueue().addInMemoryJob(new File(pkgPath, shellName + ".java"), shellClassName, shellSource,
+                new EventqueueCompileObserverAdapter(this),
+                classes -> Platform.runLater(() -> compiledClasses = classes),
+                project.getClassLoader(), project.getProjectDir(), project.getProjectCharset(),
+                CompileReason.INVOKE, CompileType.INTERNAL_COMPILE);
+    }
+
+    /**
+     * Compile the shell source (shellSource) from a file instead, after compiling or loading
+     * it in memory did not work.
+     */
+    private void compileInvocationFromFile()
+    {
+        File shell = writeInvocationFile(shellSource);
+        shellSource = null;
+        compiledClasses = null;
         if (shell != null) {
             compileInvocationFile(shell);
-            return true;
         }
         else {
-            return false;
+            watcher.putError("Invocation failed.", ir);
         }
     }
 
     /**
-     * Write a source file for a class (the 'shell file') to do the interactive
-     * invocation. Returns the written file, or null if the file cannot be written
-     * (an error dialog will be shown in this case).
+     * Make the source for a class (the 'shell file') to do the interactive
+     * invocation.
      * 
      * <p>A shell file has, very roughly, the following form:
      * 
@@ -691,7 +727,7 @@ public class Invoker
      *                  cases to yield a more accurate result type (when generic types
      *                  are involved).
      */
-    private File writeInvocationFile(String paramInit, String callString,
+    private String makeInvocationSource(String paramInit, String callString,
             boolean isVoid, String constype)
     {
         // Create package specification line ("package xyz")
@@ -818,44 +854,54 @@ public class Invoker
         }
         String scopeSave = buffer.toString();
 
+        StringBuilder shell = new StringBuilder();
+        shell.append(packageLine);
+        shell.append(Config.nl);
+        if (imports != null) {
+            shell.append(imports);
+            shell.append(Config.nl);
+        }
+        shell.append("public class ");
+        shell.append(shellName);
+        shell.append(" extends bluej.runtime.Shell {");
+        shell.append(Config.nl);
+        shell.append("public static ");
+        if (isVoid) {
+            shell.append("void");
+        }
+        else {
+            shell.append("java.lang.Object");
+        }
+        shell.append(" run() throws Throwable {");
+        shell.append(Config.nl);
+        shell.append(vardecl);
+        shell.append(Config.nl);
+        shell.append(invocation);
+        shell.append(scopeSave);
+        if (! isVoid) {
+            shell.append("}"); // end finally block
+            if (constype != null) {
+                shell.append("} };"); // end block, anonymous inner object
+            }
+        }
+        shell.append(Config.nl);
+        shell.append("}}"); // end method, class
+        shell.append(Config.nl);
+        return shell.toString();
+    }
+
+    /**
+     * Write the given shell class source to the shell file. Returns the written file,
+     * or null if the file cannot be written (an error dialog will be shown in this case).
+     */
+    private File writeInvocationFile(String source)
+    {
         File shellFile = new File(pkgPath, shellName + ".java");
         BufferedWriter shell = null;
         try {
             FileOutputStream fos = new FileOutputStream(shellFile);
             shell = new BufferedWriter(new OutputStreamWriter(fos, sourceCharset));
-
-            shell.write(packageLine);
-            shell.newLine();
-            if (imports != null) {
-                shell.write(imports);
-                shell.newLine();
-            }
-            shell.write("public class ");
-            shell.write(shellName);
-            shell.write(" extends bluej.runtime.Shell {");
-            shell.newLine();
-            shell.write("public static ");
-            if (isVoid) {
-                shell.write("void");
-            }
-            else {
-                shell.write("java.lang.Object");
-            }
-            shell.write(" run() throws Throwable {");
-            shell.newLine();
-            shell.write(vardecl);
-            shell.newLine();
-            shell.write(invocation);
-            shell.write(scopeSave);
-            if (! isVoid) {
-                shell.write("}"); // end finally block
-                if (constype != null) {
-                    shell.write("} };"); // end block, anonymous inner object
-                }
-            }
-            shell.newLine();
-            shell.write("}}"); // end method, class
-            shell.newLine();
+            shell.write(source);
             shell.close();
         }
         catch (IOException e) {
@@ -1103,8 +1149,33 @@ public class Invoker
         }
 
         if (successful) {
-            watcher.beginExecution(ir);
-            startClass();
+            if (compiledClasses != null) {
+                // Compiled in memory: send the classes to the debug VM before running
+                Map<String, byte[]> classes = compiledClasses;
+                compiledClasses = null;
+                Debugger vmDebugger = debugger;
+                Utility.runBackground(() -> {
+                    boolean defined = vmDebugger.defineClasses(classes);
+                    Platform.runLater(() -> {
+                        if (defined) {
+                            shellSource = null;
+                            watcher.beginExecution(ir);
+                            startClass();
+                        }
+                        else {
+                            compileInvocationFromFile();
+                        }
+                    });
+                });
+            }
+            else {
+                watcher.beginExecution(ir);
+                startClass();
+            }
+        }
+        else if (!gotError && shellSource != null) {
+            // The in-memory compilation failed without reporting an error; try again from a file:
+            compileInvocationFromFile();
         }
         else {
             if (!gotError)
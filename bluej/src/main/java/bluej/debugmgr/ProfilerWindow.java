@@ -0,0 +1,312 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugmgr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.geometry.VPos;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.stage.Stage;
+
+import bluej.BlueJTheme;
+import bluej.Config;
+import bluej.debugger.Debugger;
+import bluej.debugger.ProfileTree;
+import bluej.debugger.ProfileTree.Node;
+import bluej.pkgmgr.Package;
+import bluej.pkgmgr.Project;
+import bluej.utility.JavaNames;
+import bluej.utility.Utility;
+import bluej.utility.javafx.JavaFXUtil;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The profiler window.  Starts and stops the sampling profiler in the debug VM, and
+ * shows the results as a list of hot methods and as a flame graph.  Double-clicking
+ * a method (or clicking in the flame graph) shows its most-sampled line in the editor.
+ */
+@OnThread(Tag.FXPlatform)
+public class ProfilerWindow
+{
+    // The time between samples, in milliseconds:
+    private static final int SAMPLE_INTERVAL = Config.getPropInteger("bluej.profiler.interval", 10);
+    private static final double ROW_HEIGHT = 18;
+    private static final Font FLAME_FONT = Font.font(11);
+
+    private final Project project;
+    private final Stage window;
+    private final Button startButton;
+    private final Button stopButton;
+    private final Label status = new Label();
+    private final TableView<Node> hotMethods = new TableView<>();
+    private final Canvas flameGraph = new Canvas();
+    private final ScrollPane flameGraphPane = new ScrollPane(flameGraph);
+    // The flame graph boxes currently drawn, for finding which was clicked:
+    private final List<FlameBox> flameBoxes = new ArrayList<>();
+
+    private ProfileTree profile;
+    private boolean profiling = false;
+
+    /**
+     * A box drawn in the flame graph for a node of the call tree.
+     */
+    private static record FlameBox(double x, double y, double width, Node node) {}
+
+    public ProfilerWindow(Project project)
+    {
+        this.project = project;
+        window = new Stage();
+        window.setTitle(Config.getApplicationName() + ":  " + Config.getString("debugger.profiler.windowTitle"));
+        BlueJTheme.setWindowIconFX(window);
+
+        startButton = new Button(Config.getString("debugger.profiler.start"));
+        startButton.setOnAction(e -> start());
+        stopButton = new Button(Config.getString("debugger.profiler.stop"));
+        stopButton.setOnAction(e -> stop());
+        stopButton.setDisable(true);
+        HBox buttons = new HBox(startButton, stopButton, status);
+        JavaFXUtil.addStyleClass(buttons, "profiler-buttons");
+
+        TableColumn<Node, String> methodColumn = new TableColumn<>(Config.getString("debugger.profiler.method"));
+        methodColumn.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(describe(c.getValue())));
+        methodColumn.setPrefWidth(300);
+        TableColumn<Node, String> selfColumn = new TableColumn<>(Config.getString("debugger.profiler.self"));
+        selfColumn.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(percent(c.getValue().getSelf())));
+        TableColumn<Node, String> totalColumn = new TableColumn<>(Config.getString("debugger.profiler.total"));
+        totalColumn.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(percent(c.getValue().getTotal())));
+        hotMethods.getColumns().setAll(List.of(methodColumn, selfColumn, totalColumn));
+        hotMethods.setRowFactory(t -> {
+            TableRow<Node> row = new TableRow<>();
+            row.setOnMouseClicked(e -> {
+                if (e.getClickCount() == 2 && !row.isEmpty())
+                {
+                    showSource(row.getItem());
+                }
+            });
+            return row;
+        });
+
+        flameGraphPane.setFitToWidth(true);
+        JavaFXUtil.addChangeListenerPlatform(flameGraphPane.viewportBoundsProperty(), b -> drawFlameGraph());
+        flameGraph.setOnMouseClicked(e -> {
+            for (FlameBox box : flameBoxes)
+            {
+                if (e.getX() >= box.x() && e.getX() < box.x() + box.width()
+                        && e.getY() >= box.y() && e.getY() < box.y() + ROW_HEIGHT)
+                {
+                    showSource(box.node());
+                    break;
+                }
+            }
+        });
+
+        TabPane tabs = new TabPane(new Tab(Config.getString("debugger.profiler.hotMethods"), hotMethods),
+                new Tab(Config.getString("debugger.profiler.flameGraph"), flameGraphPane));
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        BorderPane content = new BorderPane(tabs);
+        content.setTop(buttons);
+        JavaFXUtil.addStyleClass(content, "profiler");
+        Scene scene = new Scene(content, 600, 400);
+        Config.addDebuggerStylesheets(scene);
+        window.setScene(scene);
+        JavaFXUtil.addMacMinimiseShortcutHandler(window);
+        Config.loadAndTrackPositionAndSize(window, "bluej.profiler");
+    }
+
+    public void show()
+    {
+        window.show();
+        window.toFront();
+    }
+
+    public void hide()
+    {
+        window.hide();
+    }
+
+    /**
+     * The debug VM has gone away, and the profiler with it.
+     */
+    public void vmClosed()
+    {
+        if (profiling)
+        {
+            profiling = false;
+            startButton.setDisable(false);
+            stopButton.setDisable(true);
+            status.setText(Config.getString("debugger.profiler.vmReset"));
+        }
+    }
+
+    private void start()
+    {
+        Debugger debugger = project.getDebugger();
+        startButton.setDisable(true);
+        Utility.runBackground(() -> {
+            boolean started = debugger.startProfiling(SAMPLE_INTERVAL);
+            Platform.runLater(() -> {
+                profiling = started;
+                startButton.setDisable(started);
+                stopButton.setDisable(!started);
+                status.setText(Config.getString(started ? "debugger.profiler.running" : "debugger.profiler.notAvailable"));
+            });
+        });
+    }
+
+    private void stop()
+    {
+        Debugger debugger = project.getDebugger();
+        stopButton.setDisable(true);
+        Utility.runBackground(() -> {
+            ProfileTree result = debugger.stopProfiling();
+            Platform.runLater(() -> {
+                profiling = false;
+                startButton.setDisable(false);
+                if (result == null)
+                {
+                    status.setText(Config.getString("debugger.profiler.vmReset"));
+                }
+                else
+                {
+                    showProfile(result);
+                }
+            });
+        });
+    }
+
+    private void showProfile(ProfileTree profile)
+    {
+        this.profile = profile;
+        status.setText(Config.getString("debugger.profiler.samples")
+                .replace("$", Integer.toString(profile.getSampleCount()))
+                .replace("%", Long.toString((long)profile.getSampleCount() * SAMPLE_INTERVAL)));
+        hotMethods.getItems().setAll(profile.getHotMethods());
+        drawFlameGraph();
+    }
+
+    /**
+     * Draws the call tree as a flame graph (with the outermost calls at the top), where
+     * the width of each method's box is in proportion to the samples taken in it.
+     */
+    private void drawFlameGraph()
+    {
+        flameBoxes.clear();
+        double width = flameGraphPane.getViewportBounds().getWidth();
+        if (profile == null || profile.getSampleCount() == 0 || width <= 0)
+        {
+            flameGraph.setWidth(Math.max(0, width));
+            flameGraph.setHeight(0);
+            return;
+        }
+        List<FlameBox> toDraw = new ArrayList<>();
+        addFlameBoxes(profile.getRoot(), 0, 0, width / profile.getSampleCount(), toDraw);
+        double height = toDraw.stream().mapToDouble(b -> b.y() + ROW_HEIGHT).max().orElse(0);
+        flameGraph.setWidth(width);
+        flameGraph.setHeight(height);
+
+        GraphicsContext g = flameGraph.getGraphicsContext2D();
+        g.clearRect(0, 0, width, height);
+        g.setFont(FLAME_FONT);
+        g.setTextBaseline(VPos.CENTER);
+        for (FlameBox box : toDraw)
+        {
+            // Vary the colour by method, so that neighbouring boxes can be told apart:
+            double hue = 10 + (box.node().toString().hashCode() & 0x1f);
+            g.setFill(Color.hsb(hue, 0.6, 0.95));
+            g.fillRect(box.x(), box.y(), box.width() - 1, ROW_HEIGHT - 1);
+            if (box.width() > 30)
+            {
+                g.setFill(Color.BLACK);
+                g.fillText(box.node().getMethodName() + " (" + JavaNames.stripPrefix(box.node().getClassName()) + ")",
+                        box.x() + 3, box.y() + ROW_HEIGHT / 2, box.width() - 6);
+            }
+        }
+        flameBoxes.addAll(toDraw);
+    }
+
+    /**
+     * Adds the boxes for the children of the given node, and all their descendants.
+     * Boxes which would be too narrow to see are left out (along with their descendants).
+     */
+    private static void addFlameBoxes(Node node, double x, double y, double widthPerSample, List<FlameBox> boxes)
+    {
+        double childX = x;
+        for (Node child : node.getChildren())
+        {
+            double width = child.getTotal() * widthPerSample;
+            if (width < 1)
+            {
+                // Children are sorted biggest first, so the rest are too small too:
+                break;
+            }
+            boxes.add(new FlameBox(childX, y, width, child));
+            addFlameBoxes(child, childX, y + ROW_HEIGHT, widthPerSample, boxes);
+            childX += width;
+        }
+    }
+
+    /**
+     * Shows the most-sampled line of the given method in the editor, if it is in this project.
+     */
+    private void showSource(Node node)
+    {
+        if (node.getFileName() == null || node.getHottestLine() == -1)
+        {
+            return;
+        }
+        Package pkg = project.getPackage(JavaNames.getPrefix(node.getClassName()));
+        if (pkg != null)
+        {
+            pkg.showSource(node.getFileName(), node.getHottestLine());
+        }
+    }
+
+    private String describe(Node node)
+    {
+        String line = node.getHottestLine() == -1 ? "" : ":" + node.getHottestLine();
+        return node.getClassName() + "." + node.getMethodName() + " (" + (node.getFileName() == null ? "?" : node.getFileName()) + line + ")";
+    }
+
+    private String percent(int samples)
+    {
+        return String.format("%.1f%%", 100.0 * samples / profile.getSampleCount());
+    }
+}
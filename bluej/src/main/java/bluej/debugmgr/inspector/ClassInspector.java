@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2011,2013,2014,2016,2017,2018,2019  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2011,2013,2014,2016,2017,2018,2019,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -72,6 +72,9 @@ public class ClassInspector extends Inspector
 
     protected DebuggerClass myClass;
     private VBox contentPane;
+    // The static fields of the class, and their descriptions.  Found on first use:
+    private List<DebuggerField> staticFields;
+    private List<String> staticFieldDescriptions;
 
 
     /**
@@ -189,14 +192,31 @@ public class ClassInspector extends Inspector
     @OnThread(Tag.FXPlatform)
     protected List<FieldInfo> getListData()
     {
-        List<DebuggerField> fields = myClass.getStaticFields();
-        List<FieldInfo> fieldInfos = new ArrayList<FieldInfo>(fields.size());
-        for (DebuggerField field : fields) {
-            String desc = Inspector.fieldToString(field);
-            String value = field.getValueString();
-            fieldInfos.add(new FieldInfo(desc, value));
+        return makeListDataFetch().fetch().listData();
+    }
+
+    @Override
+    protected ListDataFetch makeListDataFetch()
+    {
+        if (staticFields == null) {
+            staticFields = myClass.getStaticFields();
+            staticFieldDescriptions = new ArrayList<>(staticFields.size());
+            for (DebuggerField field : staticFields) {
+                staticFieldDescriptions.add(Inspector.fieldToString(field));
+            }
         }
-        return fieldInfos;
+        DebuggerClass debuggerClass = myClass;
+        List<DebuggerField> fields = staticFields;
+        List<String> descriptions = staticFieldDescriptions;
+        return () -> {
+            // Fetch all the values in one go:
+            List<String> values = debuggerClass.getStaticFieldValueStrings(fields);
+            List<FieldInfo> fieldInfos = new ArrayList<FieldInfo>(fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                fieldInfos.add(new FieldInfo(descriptions.get(i), values.get(i)));
+            }
+            return new FetchedListData(fieldInfos, null);
+        };
     }
 
     /**
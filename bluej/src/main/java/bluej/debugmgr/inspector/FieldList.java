@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2013,2016,2017,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2013,2016,2017,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -64,6 +64,8 @@ public class FieldList extends ScrollPane
     private final ContentPane content = new ContentPane();
     // The latest data:
     private final List<FieldInfo> curData = new ArrayList<>();
+    // The labels showing the values, one per row of curData:
+    private final List<Label> valueLabels = new ArrayList<>();
     // The currently selected row index:
     private final IntegerProperty selectedRow = new SimpleIntegerProperty(-1);
     // A placeholder shown where are no fields:
@@ -102,22 +104,37 @@ public class FieldList extends ScrollPane
 
     /**
      * Sets the new fields and values.  If this is identical, the update is skipped.
+     * If only some values have changed, only those values are updated.
      */
     public void setData(List<FieldInfo> listData)
     {
         if (listData.equals(curData))
             return;
+
+        if (hasSameDescriptions(listData))
+        {
+            // Just update the values which have changed:
+            for (int i = 0; i < listData.size(); i++)
+            {
+                if (!listData.get(i).getValue().equals(curData.get(i).getValue()))
+                {
+                    setValue(valueLabels.get(i), listData.get(i).getValue());
+                }
+            }
+            curData.clear();
+            curData.addAll(listData);
+            requestLayout();
+            return;
+        }
         
         List<Node> children = new ArrayList<>();
+        valueLabels.clear();
         for (int i = 0; i < listData.size(); i++)
         {
             FieldInfo field = listData.get(i);
-            Label valueLabel = new Label(field.getValue());
-            if (OBJECT_REFERENCE.equals(valueLabel.getText()))
-            {
-                valueLabel.setGraphic(new ImageView(objectrefIcon));
-                valueLabel.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
-            }
+            Label valueLabel = new Label();
+            setValue(valueLabel, field.getValue());
+            valueLabels.add(valueLabel);
             Pane wrapper = new BorderPane(valueLabel);
             JavaFXUtil.addStyleClass(wrapper, "inspector-field-value-wrapper");
             JavaFXUtil.addStyleClass(valueLabel, "inspector-field-value-label");
@@ -143,6 +160,39 @@ public class FieldList extends ScrollPane
         requestLayout();
     }
     
+    /**
+     * Checks whether the given data has the same rows (by description) as the current data.
+     */
+    private boolean hasSameDescriptions(List<FieldInfo> listData)
+    {
+        if (listData.size() != curData.size())
+            return false;
+        for (int i = 0; i < listData.size(); i++)
+        {
+            if (!listData.get(i).getDescription().equals(curData.get(i).getDescription()))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the value shown by a value label.  Object references are shown as an arrow icon.
+     */
+    private void setValue(Label valueLabel, String value)
+    {
+        valueLabel.setText(value);
+        if (OBJECT_REFERENCE.equals(value))
+        {
+            valueLabel.setGraphic(new ImageView(objectrefIcon));
+            valueLabel.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+        }
+        else
+        {
+            valueLabel.setGraphic(null);
+            valueLabel.setContentDisplay(ContentDisplay.LEFT);
+        }
+    }
+
     /**
      * Sets the text to show when the list is empty
      */
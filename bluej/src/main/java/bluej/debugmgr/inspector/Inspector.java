@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011,2012,2014,2015,2016,2017,2018,2019,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2010,2011,2012,2014,2015,2016,2017,2018,2019,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -28,6 +28,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.event.EventHandler;
 import javafx.event.EventType;
 import javafx.scene.Cursor;
@@ -55,6 +56,8 @@ import bluej.testmgr.record.GetInvokerRecord;
 import bluej.testmgr.record.InvokerRecord;
 import bluej.testmgr.record.ObjectInspectInvokerRecord;
 import bluej.utility.DialogManager;
+import bluej.utility.Utility;
+import bluej.utility.javafx.FXPlatformRunnable;
 import bluej.utility.javafx.JavaFXUtil;
 import javafx.stage.WindowEvent;
 import javafx.util.Duration;
@@ -112,6 +115,31 @@ public abstract class Inspector extends Stage
     private static final int MAX_LIST_WIDTH = 400;
     private final ResizeListener resizeListener;
 
+    // True while the list data is being fetched in the background:
+    private boolean fetchingListData = false;
+    // True if another update was requested while the list data was being fetched:
+    private boolean updateRequested = false;
+    // True once the list has been filled in for the first time:
+    private boolean listDataShown = false;
+
+    /**
+     * List data fetched from the debug VM, together with an action (which may be null) to run
+     * on the FX thread just before the data is shown, e.g. to store extra details
+     * about the data which was fetched.
+     */
+    protected static record FetchedListData(List<FieldInfo> listData, FXPlatformRunnable beforeShow) {}
+
+    /**
+     * A task which fetches the list data from the debug VM.  It may run on any thread,
+     * so must only use the debugger, not the GUI.
+     */
+    @FunctionalInterface
+    protected static interface ListDataFetch
+    {
+        @OnThread(Tag.Any)
+        FetchedListData fetch();
+    }
+
     /**
      * Convert a field to a string representation, used to display the field in the inspector value list.
      */
@@ -296,15 +324,88 @@ public abstract class Inspector extends Stage
 
     // --- end of abstract methods ---
 
+    /**
+     * Makes a task which fetches the current list data.  If this returns non-null, update()
+     * runs the task on a background thread, so that the GUI does not wait for the debug VM.
+     * The default returns null, in which case update() uses getListData() on the FX thread.
+     */
+    protected ListDataFetch makeListDataFetch()
+    {
+        return null;
+    }
+
     /**
      * Requests an update of the field values shown in this viewer to show current object
-     * values.
-     * 
+     * values.  If the inspector supports it (see makeListDataFetch), the values are fetched
+     * in the background, so they may be shown a little later.
      */
     public void update()
     {
-        final List<FieldInfo> listData = getListData();
+        ListDataFetch fetch = makeListDataFetch();
+        // We fill the list directly the first time, so that the window is the right size when shown:
+        if (fetch == null || !listDataShown)
+        {
+            updateImmediately();
+            return;
+        }
+        if (fetchingListData)
+        {
+            // Fetch again once the current one finishes, as the values may have changed since it began:
+            updateRequested = true;
+            return;
+        }
 
+        fetchingListData = true;
+        Utility.runBackground(() -> {
+            FetchedListData fetched = null;
+            try
+            {
+                fetched = fetch.fetch();
+            }
+            catch (RuntimeException e)
+            {
+                // The debug VM may have been reset, or the object collected; leave the old values showing.
+            }
+            FetchedListData fetchedFinal = fetched;
+            Platform.runLater(() -> {
+                fetchingListData = false;
+                if (fetchedFinal != null)
+                {
+                    if (fetchedFinal.beforeShow() != null)
+                    {
+                        fetchedFinal.beforeShow().run();
+                    }
+                    showListData(fetchedFinal.listData());
+                }
+                if (updateRequested)
+                {
+                    updateRequested = false;
+                    update();
+                }
+            });
+        });
+    }
+
+    /**
+     * Updates the field values shown, without going to a background thread.  Use
+     * this rather than update() if the new data is needed straight away.
+     */
+    protected void updateImmediately()
+    {
+        // A background fetch which is already running may have out-of-date details, so fetch again after it:
+        if (fetchingListData)
+        {
+            updateRequested = true;
+        }
+        showListData(getListData());
+    }
+
+    /**
+     * Shows the given list data in the field list.
+     */
+    private void showListData(List<FieldInfo> listData)
+    {
+        listDataShown = true;
         int prevSelection = fieldList.selectedIndexProperty().get();
         
         fieldList.setData(listData);
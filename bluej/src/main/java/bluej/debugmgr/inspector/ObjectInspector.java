@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011,2013,2014,2016,2017,2018,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2010,2011,2013,2014,2016,2017,2018,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,7 +23,6 @@ package bluej.debugmgr.inspector;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
@@ -108,6 +107,10 @@ public class ObjectInspector extends Inspector
     protected List<Integer> indexToSlotList = null;
     private StackPane stackPane;
 
+    // The non-static fields of a (non-array) object, and their descriptions.  Found on first use:
+    private List<DebuggerField> instanceFields;
+    private List<String> instanceFieldDescriptions;
+
     /**
      *  Note: 'pkg' may be null if 'ir' is null.
      * 
@@ -241,22 +244,44 @@ public class ObjectInspector extends Inspector
     @OnThread(Tag.FXPlatform)
     protected List<FieldInfo> getListData()
     {
+        FetchedListData fetched = makeListDataFetch().fetch();
+        fetched.beforeShow().run();
+        return fetched.listData();
+    }
+
+    @Override
+    protected ListDataFetch makeListDataFetch()
+    {
+        DebuggerObject object = obj;
         // if is an array (we potentially will compress the array if it is
         // large)
-        if (obj.isArray()) {
-            return compressArrayList(obj);
+        if (object.isArray()) {
+            List<Integer> extraIndexes = new ArrayList<>(extraArrayIndexesToShow);
+            int extraSlot = extraArraySlotIndex;
+            return () -> compressArrayList(object, extraIndexes, extraSlot);
         }
         else {
-            List<DebuggerField> fields = obj.getFields();
-            List<FieldInfo> fieldInfos = new ArrayList<FieldInfo>(fields.size());
-            for (DebuggerField field : fields) {
-                if (! Modifier.isStatic(field.getModifiers())) {
-                    String desc = Inspector.fieldToString(field);
-                    String value = field.getValueString();
-                    fieldInfos.add(new FieldInfo(desc, value));
+            if (instanceFields == null) {
+                instanceFields = new ArrayList<>();
+                instanceFieldDescriptions = new ArrayList<>();
+                for (DebuggerField field : object.getFields()) {
+                    if (! Modifier.isStatic(field.getModifiers())) {
+                        instanceFields.add(field);
+                        instanceFieldDescriptions.add(Inspector.fieldToString(field));
+                    }
                 }
             }
-            return fieldInfos;
+            List<DebuggerField> fields = instanceFields;
+            List<String> descriptions = instanceFieldDescriptions;
+            return () -> {
+                // Fetch all the values in one go:
+                List<String> values = object.getFieldValueStrings(fields);
+                List<FieldInfo> fieldInfos = new ArrayList<FieldInfo>(fields.size());
+                for (int i = 0; i < fields.size(); i++) {
+                    fieldInfos.add(new FieldInfo(descriptions.get(i), values.get(i)));
+                }
+                return new FetchedListData(fieldInfos, () -> {});
+            };
         }
     }
 
@@ -427,7 +452,7 @@ public class ObjectInspector extends Inspector
                             extraArrayIndexesToShow.add(slot);
                             // The call to update will redraw the list, which will set a value for extraArrayIndexInList
                             // that informs of the actual position of the request slot in the UI list.
-                            update();
+                            updateImmediately();
                             // There is a strange behaviour with ScrollPane being overwriting our scroll values (after
                             // the selection has been made). The only way we found to get through it is to call the helper
                             // JavaFXUtil.runAfterNextLayout twice (once doesn't work)
@@ -502,18 +527,27 @@ public class ObjectInspector extends Inspector
      * When an element from the [...] section is queried, we had it inside the list
      * (depending on the index, we can have more than [...] eventually.
      * 
+     * The element values are fetched a range at a time, rather than one at a time.
+     * The returned data sets indexToSlotList (and extraArrayIndexInList) before it is shown.
+     * 
      * @param arrayObject
      *            the full field list for an array
+     * @param extraIndexes
+     *            the array indexes (from the [...] section) requested by the user
+     * @param extraSlot
+     *            the array index whose position in the list is wanted, or -1
      * @return the compressed array
      */
-    private List<FieldInfo> compressArrayList(DebuggerObject arrayObject)
+    @OnThread(Tag.Any)
+    private FetchedListData compressArrayList(DebuggerObject arrayObject, List<Integer> extraIndexes, int extraSlot)
     {
         // mimic the public length field that arrays possess
         // according to the java spec...
-        indexToSlotList = new LinkedList<Integer>();
-        indexToSlotList.add(0, Integer.valueOf(ARRAY_LENGTH_SLOT_VALUE));
+        List<Integer> slots = new ArrayList<Integer>();
+        slots.add(0, Integer.valueOf(ARRAY_LENGTH_SLOT_VALUE));
         
         int arrayTotalLength = arrayObject.getElementCount();
+        List<FieldInfo> newArray;
 
         // the +1 here is due to the fact that if we do not have at least one
         // more than
@@ -521,71 +555,63 @@ public class ObjectInspector extends Inspector
         // in displaying
         // the ... elements because there would be no elements for them to
         // reveal
-        if (arrayTotalLength > (VISIBLE_ARRAY_START + VISIBLE_ARRAY_TAIL + extraArrayIndexesToShow.size() + 2))
+        if (arrayTotalLength > (VISIBLE_ARRAY_START + VISIBLE_ARRAY_TAIL + extraIndexes.size() + 2))
         {
             // the destination list
-            List<FieldInfo> newArray = new ArrayList<FieldInfo>(2 + VISIBLE_ARRAY_START + VISIBLE_ARRAY_TAIL);
+            newArray = new ArrayList<FieldInfo>(2 + VISIBLE_ARRAY_START + VISIBLE_ARRAY_TAIL);
             newArray.add(0, new FieldInfo("int length", "" + arrayTotalLength));
-            for (int i = 0; i <= VISIBLE_ARRAY_START; i++)
-            {
-                // first 40 elements are displayed as per normal
-                newArray.add(new FieldInfo("[" + i + "]", arrayObject.getElementValueString(i)));
-                indexToSlotList.add(i);
-                //set the list position index for the request slot
-                if(i == extraArraySlotIndex)
-                {
-                    extraArrayIndexInList = newArray.size() - 1;
-                }
-            }
+            // first 40 elements are displayed as per normal
+            addElements(arrayObject, 0, VISIBLE_ARRAY_START + 1, newArray, slots);
 
             // now the first of our expansion slots unless when an extra queried value was requested
             boolean hasExpansion = false;
             for(int i = VISIBLE_ARRAY_START + 1; i < arrayTotalLength - VISIBLE_ARRAY_TAIL; i++)
             {
-                if(extraArrayIndexesToShow.contains(i))
+                if(extraIndexes.contains(i))
                 {
                     //add a normal field
-                    newArray.add(new FieldInfo("[" + i + "]", arrayObject.getElementValueString(i)));
-                    indexToSlotList.add(i);
+                    addElements(arrayObject, i, 1, newArray, slots);
                     hasExpansion = false;
-                    //set the list position index for the request slot
-                    if(i == extraArraySlotIndex)
-                    {
-                        extraArrayIndexInList = newArray.size() - 1;
-                    }
                 }
                 else if(!hasExpansion)
                 {
                     newArray.add(new FieldInfo("[...]", ""));
-                    indexToSlotList.add(Integer.valueOf(ARRAY_QUERY_SLOT_VALUE));
+                    slots.add(Integer.valueOf(ARRAY_QUERY_SLOT_VALUE));
                     hasExpansion = true;
                 }
             }
 
-            // tail part
-            for (int i = VISIBLE_ARRAY_TAIL; i > 0; i--)
-            {
-                // last 5 elements are displayed
-                int elNum = arrayTotalLength - i;
-                newArray.add(new FieldInfo("[" + elNum + "]", arrayObject.getElementValueString(elNum)));
-                indexToSlotList.add(arrayTotalLength - i);
-                //set the list position index for the request slot
-                if((arrayTotalLength-i) == extraArraySlotIndex)
-                {
-                    extraArrayIndexInList = newArray.size() - 1;
-                }
-            }
-            return newArray;
+            // tail part: last 5 elements are displayed
+            addElements(arrayObject, arrayTotalLength - VISIBLE_ARRAY_TAIL, VISIBLE_ARRAY_TAIL, newArray, slots);
         }
         else {
-            List<FieldInfo> fullArrayFieldList = new ArrayList<FieldInfo>(arrayObject.getElementCount() + 1);
-            fullArrayFieldList.add(0, new FieldInfo("int length", "" + arrayObject.getElementCount()));
-            
-            for (int i = 0; i < arrayObject.getElementCount(); i++) {
-                fullArrayFieldList.add(new FieldInfo("[" + i + "]", arrayObject.getElementValueString(i)));
-                indexToSlotList.add(i);
+            newArray = new ArrayList<FieldInfo>(arrayTotalLength + 1);
+            newArray.add(0, new FieldInfo("int length", "" + arrayTotalLength));
+            addElements(arrayObject, 0, arrayTotalLength, newArray, slots);
+        }
+        
+        //find the list position index for the request slot
+        int extraIndexInList = extraSlot == -1 ? -1 : slots.indexOf(extraSlot);
+        return new FetchedListData(newArray, () -> {
+            indexToSlotList = slots;
+            if (extraIndexInList != -1)
+            {
+                extraArrayIndexInList = extraIndexInList;
             }
-            return fullArrayFieldList;
+        });
+    }
+
+    /**
+     * Adds a range of array elements to the list data, fetching all their values at once.
+     */
+    @OnThread(Tag.Any)
+    private static void addElements(DebuggerObject arrayObject, int index, int count, List<FieldInfo> listData, List<Integer> slots)
+    {
+        List<String> values = arrayObject.getElementValueStrings(index, count);
+        for (int i = 0; i < count; i++)
+        {
+            listData.add(new FieldInfo("[" + (index + i) + "]", values.get(i)));
+            slots.add(index + i);
         }
     }
 
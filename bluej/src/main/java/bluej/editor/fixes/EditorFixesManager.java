@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program.
- Copyright (C) 2020,2021 Michael Kölling and John Rosenberg
+ Copyright (C) 2020,2021,2026 Michael Kölling and John Rosenberg
 
  This program is free software; you can redistribute it and/or
  modify it under the terms of the GNU General Public License
@@ -160,12 +160,29 @@ public class EditorFixesManager
        return importedTypes;
     }
 
+    /**
+     * Gets a copy of the list of futures for the imported types.  A new future is made for
+     * each import when the imports change, so this can be compared with an earlier copy
+     * to see whether the imported types may have changed since.
+     */
+    @OnThread(Tag.Any)
+    public List<Future<List<AssistContentThreadSafe>>> getImportedTypesSnapshot()
+    {
+        importedTypesLock.readLock().lock();
+        try
+        {
+            return new ArrayList<>(importedTypes);
+        }
+        finally
+        {
+            importedTypesLock.readLock().unlock();
+        }
+    }
+
     @OnThread(Tag.Worker)
     public Stream<AssistContentThreadSafe> getAllImportedTypes()
     {
-        importedTypesLock.readLock().lock();
-        ArrayList<Future<List<AssistContentThreadSafe>>> importedTypesCopy = new ArrayList<>(importedTypes);
-        importedTypesLock.readLock().unlock();
+        List<Future<List<AssistContentThreadSafe>>> importedTypesCopy = getImportedTypesSnapshot();
         return Stream.concat(Stream.of(projectImportInformation.thenApply(i -> i.getJavaLangImports())), importedTypesCopy.stream()).map(Utility::getFutureList).flatMap(List::stream);
     }
 
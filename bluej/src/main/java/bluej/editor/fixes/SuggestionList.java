@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2018,2019,2020,2021,2024 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2018,2019,2020,2021,2024,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -155,6 +155,14 @@ public class SuggestionList
      * List of choices available for the user.  Each entry represents a different item.
      */
     private final List<SuggestionDetails> choices;
+    /**
+     * The type of the slot being completed (choices of this type are marked as a type match).  May be null.
+     */
+    private final String targetType;
+    /**
+     * Whether more choices are expected to be added (by addChoices) after the list is shown.
+     */
+    private boolean moreChoicesExpected = false;
     /**
      * This array contains two entries per choice.  There is one complete set from
      * 0 to choices.size() - 1 which are the direct suggestions, and a second
@@ -445,6 +453,7 @@ public class SuggestionList
 
         this.suggestionListId = nextSuggListId.getAndIncrement();
         this.choices = FXCollections.observableArrayList(choices);
+        this.targetType = targetType;
         this.shownState.set(startShown);
         this.listener = listener;
         this.highlightListener = highlightListener;
@@ -555,15 +564,7 @@ public class SuggestionList
 
         listParent.setupSuggestionWindow(window);
         
-        for (int j = 0; j <= 1; j++)
-        {
-            for (int i = 0; i < choices.size(); i++)
-            {
-                SuggestionDetails choice = choices.get(i);
-                SuggestionListItem sugg = new SuggestionListItem(i, targetType != null && choice.type != null ? targetType.equals(choice.type) : false, j == 0);
-                doubleSuggestions.add(sugg);
-            }
-        }
+        addDoubleSuggestions(0);
         listBox.setPlaceholder(noneLabel);
 
         JavaFXUtil.addFocusListener(window, focused -> {
@@ -662,11 +663,71 @@ public class SuggestionList
         });
     }
 
+    /**
+     * Adds the direct and similar suggestion items for the choices from the given index
+     * onwards (which must be the number of choices that already have items).
+     */
+    private void addDoubleSuggestions(int from)
+    {
+        List<SuggestionListItem> direct = new ArrayList<>();
+        List<SuggestionListItem> similar = new ArrayList<>();
+        for (int i = from; i < choices.size(); i++)
+        {
+            SuggestionDetails choice = choices.get(i);
+            boolean typeMatch = targetType != null && choice.type != null ? targetType.equals(choice.type) : false;
+            direct.add(new SuggestionListItem(i, typeMatch, true));
+            similar.add(new SuggestionListItem(i, typeMatch, false));
+        }
+        // The direct suggestions go after the existing direct suggestions, and before all the similar ones:
+        doubleSuggestions.addAll(from, direct);
+        doubleSuggestions.addAll(similar);
+    }
+
+    /**
+     * Sets whether more choices are expected to be added (by addChoices) once the list is
+     * shown.  If so, showing the list does not automatically choose the only eligible choice,
+     * since there may be others to come.
+     */
+    public void setMoreChoicesExpected(boolean moreChoicesExpected)
+    {
+        this.moreChoicesExpected = moreChoicesExpected;
+    }
+
+    /**
+     * Adds more choices to the end of the list, for example as they are found in the
+     * background after the list has been shown.  The indexes of the existing choices (as
+     * passed to the listener) are unchanged.  The eligible choices are recalculated using
+     * the last prefix passed to calculateEligible.
+     * 
+     * @param moreChoices The choices to add
+     * @param moreChoicesExpected Whether yet more choices are expected after these
+     */
+    @OnThread(Tag.FXPlatform)
+    public void addChoices(List<? extends SuggestionDetails> moreChoices, boolean moreChoicesExpected)
+    {
+        this.moreChoicesExpected = moreChoicesExpected;
+        if (moreChoices.isEmpty())
+            return;
+
+        int oldSize = choices.size();
+        choices.addAll(moreChoices);
+        addDoubleSuggestions(oldSize);
+        // The similar suggestions come after all the direct ones, so their indexes have moved up:
+        if (highlighted >= oldSize)
+            highlighted += moreChoices.size();
+        if (lastPrefix != null)
+        {
+            calculateEligible(lastPrefix, lastAllowSimilar, false);
+            updateVisual(lastPrefix);
+        }
+    }
+
     @OnThread(Tag.FXPlatform)
     public void show(final Node reference, final Bounds textBoundsWithinReference)
     {
-        // If there's only one option, don't bother showing, just choose it right off the bat:
-        if (eligibleCount() == 1)
+        // If there's only one option, don't bother showing, just choose it right off the bat
+        // (unless there may be more options to come):
+        if (eligibleCount() == 1 && !moreChoicesExpected)
         {
             boolean singleOptionAvailable = true;
             // We need to make sure there are no rare options available:
@@ -1186,7 +1247,7 @@ public class SuggestionList
         {
             JavaReflective greenfootClassRef = new JavaReflective(pkg.loadClass("greenfoot.Greenfoot"));
             ExpressionTypeInfo greenfootClass = new ExpressionTypeInfo(new GenTypeClass(greenfootClassRef), null, null, true, false);
-            AssistContent[] greenfootStatic = ParseUtils.getPossibleCompletions(greenfootClass, javadocResolver, null, null, -1);
+            AssistContent[] greenfootStatic = ParseUtils.getPossibleCompletions(greenfootClass, javadocResolver, pkg.getProject().getCompletionIndex(), null, null, -1);
             Arrays.stream(greenfootStatic)
                 .filter(ac -> ac.getKind() == AssistContent.CompletionKind.METHOD)
                 .forEach(ac -> completionCandidates.add(new PrefixCompletionWrapper(ac, "Greenfoot.")));
@@ -1196,7 +1257,7 @@ public class SuggestionList
         // to facilitate the very common "System.out.println()" for example.
         JavaReflective systemClassRef = new JavaReflective(pkg.loadClass("java.lang.System"));
         ExpressionTypeInfo systemClass = new ExpressionTypeInfo(new GenTypeClass(systemClassRef), null, null, true, false);
-        AssistContent[] systemStatic = ParseUtils.getPossibleCompletions(systemClass, javadocResolver, null, null, -1);
+        AssistContent[] systemStatic = ParseUtils.getPossibleCompletions(systemClass, javadocResolver, pkg.getProject().getCompletionIndex(), null, null, -1);
         Arrays.stream(systemStatic)
             .filter(ac -> (ac.getName().equals("out") || ac.getName().equals("err") || ac.getName().equals("in")))
             .forEach(ac -> completionCandidates.add(new PrefixCompletionWrapper(ac, "System.")));
@@ -0,0 +1,152 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.beans.binding.BooleanBinding;
+import javafx.beans.binding.Bindings;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Window;
+
+import bluej.Config;
+import bluej.debugger.Debugger;
+import bluej.debugger.jdi.BreakpointExpression;
+import bluej.utility.javafx.JavaFXUtil;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A dialog to edit the condition, hit count and log message of a breakpoint.
+ * The result is the map of breakpoint properties (see Debugger), which is empty
+ * for a plain breakpoint.
+ */
+@OnThread(Tag.FXPlatform)
+public class BreakpointDialog extends Dialog<Map<String, String>>
+{
+    // Has to be a field to make sure the binding doesn't get GCed:
+    private final BooleanBinding invalid;
+
+    /**
+     * Creates a dialog for the breakpoint on the given line.
+     * 
+     * @param properties  The current properties of the breakpoint; may be null.
+     */
+    public BreakpointDialog(Window owner, int lineNumber, Map<String, String> properties)
+    {
+        setTitle(Config.getString("editor.breakpointDialog.title").replace("$", Integer.toString(lineNumber)));
+        initOwner(owner);
+        initModality(Modality.WINDOW_MODAL);
+        Config.addDialogStylesheets(getDialogPane());
+        getDialogPane().getButtonTypes().setAll(ButtonType.CANCEL, ButtonType.OK);
+
+        TextField condition = new TextField(getProperty(properties, Debugger.BREAKPOINT_CONDITION_PROPERTY));
+        condition.setPromptText(Config.getString("editor.breakpointDialog.condition.prompt"));
+        TextField hitCount = new TextField(getProperty(properties, Debugger.BREAKPOINT_HIT_COUNT_PROPERTY));
+        hitCount.setPromptText("1");
+        TextField logMessage = new TextField(getProperty(properties, Debugger.BREAKPOINT_LOG_MESSAGE_PROPERTY));
+        logMessage.setPromptText(Config.getString("editor.breakpointDialog.logMessage.prompt"));
+
+        GridPane grid = new GridPane();
+        grid.setHgap(8);
+        grid.setVgap(8);
+        grid.addRow(0, new Label(Config.getString("editor.breakpointDialog.condition")), condition);
+        grid.addRow(1, new Label(Config.getString("editor.breakpointDialog.hitCount")), hitCount);
+        grid.addRow(2, new Label(Config.getString("editor.breakpointDialog.logMessage")), logMessage);
+
+        Label error = new Label();
+        JavaFXUtil.addStyleClass(error, "dialog-error-label");
+        // Parsing is cheap, so we just check everything on every change:
+        invalid = Bindings.createBooleanBinding(() -> {
+            String message = validate(condition.getText(), hitCount.getText(), logMessage.getText());
+            error.setText(message == null ? "" : message);
+            return message != null;
+        }, condition.textProperty(), hitCount.textProperty(), logMessage.textProperty());
+        getDialogPane().lookupButton(ButtonType.OK).disableProperty().bind(invalid);
+
+        VBox content = new VBox(grid, new Label(Config.getString("editor.breakpointDialog.help")), error);
+        content.setSpacing(8);
+        getDialogPane().setContent(content);
+        setOnShown(e -> condition.requestFocus());
+
+        setResultConverter(bt -> {
+            if (bt == ButtonType.OK)
+            {
+                Map<String, String> result = new HashMap<>();
+                if (!condition.getText().isBlank())
+                    result.put(Debugger.BREAKPOINT_CONDITION_PROPERTY, condition.getText().trim());
+                if (!hitCount.getText().isBlank() && Integer.parseInt(hitCount.getText().trim()) > 1)
+                    result.put(Debugger.BREAKPOINT_HIT_COUNT_PROPERTY, hitCount.getText().trim());
+                if (!logMessage.getText().isEmpty())
+                    result.put(Debugger.BREAKPOINT_LOG_MESSAGE_PROPERTY, logMessage.getText());
+                return result;
+            }
+            return null;
+        });
+    }
+
+    private static String getProperty(Map<String, String> properties, String key)
+    {
+        return properties == null ? "" : properties.getOrDefault(key, "");
+    }
+
+    /**
+     * Checks the fields, returning an error message, or null if they are all valid.
+     */
+    private static String validate(String condition, String hitCount, String logMessage)
+    {
+        try
+        {
+            if (!condition.isBlank())
+                BreakpointExpression.parse(condition);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return Config.getString("editor.breakpointDialog.condition.error") + " " + e.getMessage();
+        }
+        try
+        {
+            if (!hitCount.isBlank() && Integer.parseInt(hitCount.trim()) < 1)
+                return Config.getString("editor.breakpointDialog.hitCount.error");
+        }
+        catch (NumberFormatException e)
+        {
+            return Config.getString("editor.breakpointDialog.hitCount.error");
+        }
+        try
+        {
+            BreakpointExpression.parseMessage(logMessage);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return Config.getString("editor.breakpointDialog.logMessage.error") + " " + e.getMessage();
+        }
+        return null;
+    }
+}
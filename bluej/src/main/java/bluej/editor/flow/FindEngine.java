@@ -0,0 +1,384 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import bluej.extensions2.editor.DocumentListener;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Finds all occurrences of a search term in a document.  The search runs directly over
+ * the document's content, without copying it into a String.
+ *
+ * While attached, the engine listens to the document and keeps its matches up to date as
+ * the document is edited, giving the same matches as a new search would.  Only the lines
+ * touched by an edit are searched again, and matches elsewhere are just moved along, except
+ * that regex matches may span lines: for a regex, the search starts from the end of the
+ * previous match, and carries on past the edit until it is back in step with the later
+ * matches.
+ */
+@OnThread(Tag.FXPlatform)
+class FindEngine implements DocumentListener
+{
+    private final HoleDocument document;
+    private final String searchFor;
+    private final boolean ignoreCase;
+    private final boolean regex;
+    private final boolean wholeWord;
+    private final Pattern pattern;
+    // Sorted by position, non-overlapping.  Each element is size 2: beginning (incl) and end (excl)
+    private final ArrayList<int[]> matches = new ArrayList<>();
+    private boolean attached = false;
+
+    /**
+     * Creates an engine and finds all the matches in the document.  Call attach() to
+     * keep the matches up to date as the document changes.
+     *
+     * @throws PatternSyntaxException if regex is true and the search term is not a valid regex.
+     */
+    FindEngine(HoleDocument document, String searchFor, boolean ignoreCase, boolean regex, boolean wholeWord)
+    {
+        this.document = document;
+        this.searchFor = searchFor;
+        this.ignoreCase = ignoreCase;
+        this.regex = regex;
+        this.wholeWord = wholeWord;
+        int flags = ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0;
+        this.pattern = Pattern.compile(regex ? searchFor : Pattern.quote(searchFor), flags);
+        matches.addAll(search(0, document.getLength()));
+    }
+
+    /**
+     * Checks if this engine is searching for the given term with the given options.
+     */
+    boolean isSearchFor(String searchFor, boolean ignoreCase, boolean regex, boolean wholeWord)
+    {
+        return this.searchFor.equals(searchFor) && this.ignoreCase == ignoreCase
+            && this.regex == regex && this.wholeWord == wholeWord;
+    }
+
+    /**
+     * Start updating the matches when the document changes.
+     */
+    void attach()
+    {
+        if (!attached)
+        {
+            document.addListener(false, this);
+            attached = true;
+        }
+    }
+
+    /**
+     * Stop updating the matches when the document changes.  The current
+     * matches should no longer be relied upon after this.
+     */
+    void detach()
+    {
+        if (attached)
+        {
+            document.removeListener(this);
+            attached = false;
+        }
+    }
+
+    int getMatchCount()
+    {
+        return matches.size();
+    }
+
+    /**
+     * Gets the match with the given index.  The returned array should not be modified.
+     */
+    int[] getMatch(int index)
+    {
+        return matches.get(index);
+    }
+
+    /**
+     * Gets the index of the first match which starts at or after the given position.
+     * If there is no such match, the match count is returned.
+     */
+    int indexOfFirstMatchFrom(int position)
+    {
+        int lo = 0;
+        int hi = matches.size();
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (matches.get(mid)[0] < position)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Gets (copies of) the matches which overlap the given range of the document.
+     */
+    List<int[]> getMatchesBetween(int startPos, int endPos)
+    {
+        // Matches don't overlap, so only the one before the first match from startPos could stretch into the range:
+        int first = Math.max(0, indexOfFirstMatchFrom(startPos) - 1);
+        List<int[]> r = new ArrayList<>();
+        for (int i = first; i < matches.size() && matches.get(i)[0] < endPos; i++)
+        {
+            if (matches.get(i)[1] > startPos)
+            {
+                r.add(matches.get(i).clone());
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Gets the match (if any) which begins exactly at the given position.
+     */
+    int[] getMatchAt(int position)
+    {
+        int index = indexOfFirstMatchFrom(position);
+        if (index < matches.size() && matches.get(index)[0] == position)
+            return matches.get(index);
+        else
+            return null;
+    }
+
+    /**
+     * Gets the replacement text for the given match.  For a regex search, group references
+     * ($1, etc) in the replacement are substituted, as in Matcher.appendReplacement.  For a plain
+     * search, the replacement is returned unaltered.
+     */
+    String getReplacementFor(int[] match, String replacement)
+    {
+        if (!regex)
+        {
+            return replacement;
+        }
+        Matcher m = makeMatcher(match[0], match[1]);
+        if (!m.lookingAt() || m.end() != match[1])
+        {
+            return replacement;
+        }
+        return expandReplacement(m, replacement);
+    }
+
+    @Override
+    public void textReplaced(int origStartIncl, String replaced, String replacement, int linesRemoved, int linesAdded)
+    {
+        int delta = replacement.length() - replaced.length();
+        // The region we search again, in terms of the new document.  It runs up to the start
+        // of the line after the edit, so that it includes the line break:
+        int regionStart = document.getLineStart(document.getLineFromPosition(origStartIncl));
+        int lastLine = document.getLineFromPosition(origStartIncl + replacement.length());
+        int regionEnd = lastLine + 1 < document.getLineCount() ? document.getLineStart(lastLine + 1) : document.getLength();
+        // The same region in terms of the old document:
+        int oldRegionEnd = regionEnd - delta;
+
+        // Remove all the matches which touch the old region (touching, because of whole word matching):
+        int first = indexOfFirstMatchFrom(regionStart);
+        if (first > 0 && matches.get(first - 1)[1] >= regionStart)
+        {
+            first -= 1;
+        }
+        int last = first;
+        while (last < matches.size() && matches.get(last)[0] < oldRegionEnd)
+        {
+            last += 1;
+        }
+        // A removed match may extend beyond the region (e.g. a regex match which ends with
+        // a newline); search again over the whole of its text, so that it can be found again:
+        int searchStart = regionStart;
+        int searchEnd = regionEnd;
+        if (last > first)
+        {
+            // If the first removed match starts before the region, it is before the edit, so
+            // its position is unchanged:
+            searchStart = Math.min(searchStart, matches.get(first)[0]);
+            // The last removed match may end after the edit:
+            int lastEnd = matches.get(last - 1)[1];
+            if (lastEnd > oldRegionEnd)
+            {
+                searchEnd = Math.max(searchEnd, lastEnd + delta);
+            }
+        }
+        matches.subList(first, last).clear();
+
+        // Adjust the matches after the region:
+        for (int i = first; i < matches.size(); i++)
+        {
+            int[] match = matches.get(i);
+            match[0] += delta;
+            match[1] += delta;
+        }
+
+        if (searchFor.isEmpty())
+        {
+            return;
+        }
+
+        // A search of the whole document would carry on from the end of the previous match.
+        // A regex match may span lines, so it could start anywhere after that; a plain match
+        // is as long as the search term, so it cannot start further back than that:
+        int prevEnd = first > 0 ? matches.get(first - 1)[1] : 0;
+        searchStart = regex ? prevEnd : Math.max(prevEnd, searchStart - (searchFor.length() - 1));
+        // Similarly, a plain match which starts in the region cannot end far beyond it.  If
+        // there are later matches, we carry on until we find one of them (see below):
+        int scanEnd = document.getLength();
+        if (!regex && first == matches.size())
+        {
+            scanEnd = Math.min(scanEnd, searchEnd + searchFor.length() - 1);
+        }
+
+        // Search from the start of the region.  A match found there may run on past the
+        // region, hiding later matches, so we keep going until we find a match which was
+        // there before the edit: from there on, the search would find the same matches as
+        // before.  The later matches which were passed over are removed.
+        List<int[]> found = new ArrayList<>();
+        int next = first;
+        boolean inStep = false;
+        Matcher m = makeMatcher(searchStart, scanEnd);
+        while (m.find())
+        {
+            int start = m.start();
+            int end = m.end();
+            // Ignore empty matches, e.g. from "x*":
+            if (end == start || (wholeWord && !isWholeWord(start, end)))
+            {
+                continue;
+            }
+            while (next < matches.size() && matches.get(next)[0] < start)
+            {
+                next += 1;
+            }
+            if (next < matches.size() && matches.get(next)[0] == start && matches.get(next)[1] == end)
+            {
+                inStep = true;
+                break;
+            }
+            found.add(new int[] {start, end});
+            while (next < matches.size() && matches.get(next)[0] < end)
+            {
+                next += 1;
+            }
+        }
+        if (!inStep)
+        {
+            // We searched to the end, so none of the later matches remain:
+            next = matches.size();
+        }
+        matches.subList(first, next).clear();
+        matches.addAll(first, found);
+    }
+
+    /**
+     * Finds all the matches which lie within the given region of the document.
+     */
+    private List<int[]> search(int startPos, int endPos)
+    {
+        List<int[]> r = new ArrayList<>();
+        if (searchFor.isEmpty())
+        {
+            return r;
+        }
+        Matcher m = makeMatcher(startPos, endPos);
+        while (m.find())
+        {
+            // Ignore empty matches, e.g. from "x*":
+            if (m.end() > m.start() && (!wholeWord || isWholeWord(m.start(), m.end())))
+            {
+                r.add(new int[] {m.start(), m.end()});
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Makes a matcher over the whole document, restricted to the given region,
+     * but able to look outside the region (for things like \b or lookbehind).
+     */
+    private Matcher makeMatcher(int startPos, int endPos)
+    {
+        // getContent is a view on the document, rather than a copy.  We only use it
+        // during this method call, so the document cannot be modified while we use it:
+        Matcher m = pattern.matcher(document.getContent(0, document.getLength()));
+        m.useTransparentBounds(true);
+        m.useAnchoringBounds(false);
+        m.region(startPos, endPos);
+        return m;
+    }
+
+    private boolean isWholeWord(int start, int end)
+    {
+        CharSequence content = document.getContent(0, document.getLength());
+        return (start == 0 || !Character.isJavaIdentifierPart(content.charAt(start - 1)))
+            && (end == content.length() || !Character.isJavaIdentifierPart(content.charAt(end)));
+    }
+
+    /**
+     * Expands $n group references in the replacement text, and \ escapes, following
+     * the rules of Matcher.appendReplacement (but without copying text before the match).
+     */
+    private static String expandReplacement(MatchResult m, String replacement)
+    {
+        StringBuilder r = new StringBuilder();
+        int i = 0;
+        while (i < replacement.length())
+        {
+            char c = replacement.charAt(i);
+            if (c == '\\' && i + 1 < replacement.length())
+            {
+                r.append(replacement.charAt(i + 1));
+                i += 2;
+            }
+            else if (c == '$' && i + 1 < replacement.length() && Character.isDigit(replacement.charAt(i + 1)))
+            {
+                // Like Matcher, take as many digits as still give a valid group number:
+                int group = replacement.charAt(i + 1) - '0';
+                i += 2;
+                while (i < replacement.length() && Character.isDigit(replacement.charAt(i))
+                    && group * 10 + (replacement.charAt(i) - '0') <= m.groupCount())
+                {
+                    group = group * 10 + (replacement.charAt(i) - '0');
+                    i += 1;
+                }
+                if (group <= m.groupCount() && m.group(group) != null)
+                {
+                    r.append(m.group(group));
+                }
+            }
+            else
+            {
+                r.append(c);
+                i += 1;
+            }
+        }
+        return r.toString();
+    }
+}
@@ -1,6 +1,6 @@
 /*
 This file is part of the BlueJ program. 
-Copyright (C) 1999-2010,2011,2014,2019,2021  Michael Kolling and John Rosenberg 
+Copyright (C) 1999-2010,2011,2014,2019,2021,2026  Michael Kolling and John Rosenberg 
 
 This program is free software; you can redistribute it and/or 
 modify it under the terms of the GNU General Public License 
@@ -68,6 +68,8 @@ public class FindPanel extends GridPane
     private final TextField replaceField;
     private final FlowEditor editor;
     private final CheckBox matchCaseCheckBox;
+    private final CheckBox wholeWordCheckBox;
+    private final CheckBox regexCheckBox;
     private final Button previousButton;
     private final Button nextButton;
     private final TextField findField;
@@ -121,6 +123,18 @@ public class FindPanel extends GridPane
         JavaFXUtil.addChangeListenerPlatform(matchCaseCheckBox.selectedProperty(), cs -> {
             updateFindResult();
         });
+        wholeWordCheckBox = new CheckBox();
+        wholeWordCheckBox.setText(Config.getString("editor.findpanel.wholeWord"));
+        wholeWordCheckBox.setSelected(false);
+        JavaFXUtil.addChangeListenerPlatform(wholeWordCheckBox.selectedProperty(), cs -> {
+            updateFindResult();
+        });
+        regexCheckBox = new CheckBox();
+        regexCheckBox.setText(Config.getString("editor.findpanel.regex"));
+        regexCheckBox.setSelected(false);
+        JavaFXUtil.addChangeListenerPlatform(regexCheckBox.selectedProperty(), cs -> {
+            updateFindResult();
+        });
         Label closeIconLabel = new Label();
         closeIconLabel.setGraphic(makeCloseIcon());
         closeIconLabel.setOnMouseClicked(e -> cancelFind());
@@ -181,8 +195,12 @@ public class FindPanel extends GridPane
         JavaFXUtil.addStyleClass(mcBody, "moe-find-options");
         mcBody.setAlignment(Pos.CENTER);
         matchCaseCheckBox.setAlignment(Pos.CENTER);
+        wholeWordCheckBox.setAlignment(Pos.CENTER);
+        regexCheckBox.setAlignment(Pos.CENTER);
         replaceFoldOutLabel.setAlignment(Pos.CENTER);
         mcBody.getChildren().add(matchCaseCheckBox);
+        mcBody.getChildren().add(wholeWordCheckBox);
+        mcBody.getChildren().add(regexCheckBox);
         mcBody.getChildren().add(replaceFoldOutLabel);
 
         Label replaceLabel = new Label(Config.getString("editor.replacePanel.replaceLabel"));
@@ -284,7 +302,8 @@ public class FindPanel extends GridPane
      */
     private void updateFindResult()
     {
-        setCurrentNavigator(editor.doFind(getSearchString(), !matchCaseCheckBox.isSelected()));
+        setCurrentNavigator(editor.doFind(getSearchString(), !matchCaseCheckBox.isSelected(),
+            regexCheckBox.isSelected(), wholeWordCheckBox.isSelected()));
     }
 
     /**
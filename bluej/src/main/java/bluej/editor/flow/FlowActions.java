@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -925,6 +925,7 @@ public final class FlowActions
                 goToLineAction(),
                 toggleInterfaceAction(),
                 toggleBreakPointAction(),
+                editBreakPointAction(),
                 keyBindingsAction(),
                 preferencesAction(),
 
@@ -2140,6 +2141,11 @@ public final class FlowActions
         return action("toggle-breakpoint", Category.MISC, () -> getClearedEditor().toggleBreakpoint());
     }
     
+    private FlowAbstractAction editBreakPointAction()
+    {
+        return action("edit-breakpoint", Category.MISC, () -> getClearedEditor().editBreakpoint());
+    }
+    
     private FlowAbstractAction keyBindingsAction()
     {
         return action("key-bindings", Category.MISC, () -> getClearedEditor().showPreferences(1)); // 1 is the index of the key bindings pane in the pref dialog
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2019,2020,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -154,6 +154,7 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, FlowEditorPaneListener, SelectionListener, BlueJEventListener, DocumentListener
@@ -196,6 +197,8 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
     private final BooleanProperty viewingHTML = new SimpleBooleanProperty(false); // changing this alters the interface accordingly
     private ErrorDisplay errorDisplay;
     private final BitSet breakpoints = new BitSet();
+    // The condition, hit count and log message of breakpoints which have them, by line index:
+    private final HashMap<Integer, Map<String, String>> breakpointProperties = new HashMap<>();
     private int currentStepLineIndex = -1;
     private ComboBox<String> interfaceToggle;
     private final WebView htmlPane;
@@ -214,8 +217,14 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
     // find functionality
     private final FindPanel finder;
     // The most recent active FindNavigator.  Returns null if there has been no search,
-    // or if the document has been modified since the last search.
+    // or if the document has been modified such that the last search no longer has any results.
     private final ObjectProperty<FindNavigator> currentSearchResult = new SimpleObjectProperty<>(null);
+    // The engine behind currentSearchResult, which keeps the results up to date as the document changes:
+    private FindEngine currentFindEngine;
+    // Whether the results of currentFindEngine should be highlighted:
+    private boolean showingFindResults = false;
+    // How many lines either side of the visible lines we highlight find results for:
+    private static final int FIND_HIGHLIGHT_MARGIN_LINES = 50;
     private String lastSearchString = "";
 
     /** Used to obtain javadoc for arbitrary methods */
@@ -267,6 +276,7 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
     {
         boolean hasBreakpoint = watcher.breakpointToggleEvent(lineIndex + 1, !breakpoints.get(lineIndex));
         breakpoints.set(lineIndex, hasBreakpoint);
+        breakpointProperties.remove(lineIndex);
         if (hasBreakpoint)
         {
             mayHaveBreakpoints = true;
@@ -282,6 +292,43 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         toggleBreakpointForLine(flowEditorPane.getDocument().getLineFromPosition(flowEditorPane.getCaretPosition()));
     }
 
+    /**
+     * Show a dialog to edit the condition, hit count and log message of the breakpoint
+     * on the caret's line, setting the breakpoint if there isn't one already.
+     */
+    public void editBreakpoint()
+    {
+        int lineIndex = flowEditorPane.getDocument().getLineFromPosition(flowEditorPane.getCaretPosition());
+        BreakpointDialog dialog = new BreakpointDialog(fxTabbedEditor.getStage(), lineIndex + 1, breakpointProperties.get(lineIndex));
+        dialog.showAndWait().ifPresent(properties -> {
+            // The debugger has no way to alter an existing breakpoint, so we clear and set it again:
+            if (breakpoints.get(lineIndex))
+            {
+                watcher.breakpointToggleEvent(lineIndex + 1, false);
+            }
+            boolean hasBreakpoint = watcher.breakpointToggleEvent(lineIndex + 1, true, properties);
+            breakpoints.set(lineIndex, hasBreakpoint);
+            if (hasBreakpoint && !properties.isEmpty())
+            {
+                breakpointProperties.put(lineIndex, properties);
+            }
+            else
+            {
+                breakpointProperties.remove(lineIndex);
+            }
+            if (hasBreakpoint)
+            {
+                mayHaveBreakpoints = true;
+            }
+            else
+            {
+                info.message(Config.getString("editor.set.breakpoint.fail"));
+            }
+            flowEditorPane.setLineMarginGraphics(lineIndex, calculateMarginDisplay(lineIndex));
+            flowEditorPane.applyScopeBackgrounds(javaSyntaxView.getScopeBackgrounds());
+        });
+    }
+
     @Override
     public Set<Integer> getBreakpointLines()
     {
@@ -512,7 +559,7 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
                 {
                     flowEditorPane.setLineMarginGraphics(i, FlowEditor.this.calculateMarginDisplay(i));
                 }
-                flowEditorPane.showHighlights(HighlightType.FIND_RESULT, findResults);
+                updateFindHighlights();
                 flowEditorPane.showHighlights(HighlightType.BRACKET_MATCH, bracketMatches);
                 flowEditorPane.showHighlights(HighlightType.IME_INPUT, flowEditorPane.getImeInput());
             }
@@ -711,7 +758,7 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         return List.of(
                 createMenu("class", "save - print - close"),
                 createMenu("edit", "undo redo - cut-to-clipboard copy-to-clipboard paste-from-clipboard - indent-block deindent-block comment-block uncomment-block autoindent - insert-method add-javadoc"),
-                createMenu("tools", "find find-next find-next-backward replace go-to-line - compile toggle-breakpoint - toggle-interface-view"),
+                createMenu("tools", "find find-next find-next-backward replace go-to-line - compile toggle-breakpoint edit-breakpoint - toggle-interface-view"),
                 createMenu("option", "increase-font decrease-font reset-font - key-bindings preferences")
         );
     }
@@ -2012,6 +2059,7 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
     private void setCompileStatus(boolean compiled)
     {
         actions.getActionByName("toggle-breakpoint").setEnabled(compiled && viewingCode());
+        actions.getActionByName("edit-breakpoint").setEnabled(compiled && viewingCode());
         compiledProperty.set(compiled);
     }
 
@@ -2096,6 +2144,7 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         if (mayHaveBreakpoints)
         {
             breakpoints.clear();
+            breakpointProperties.clear();
             for (int lineIndex = 0; lineIndex < document.getLineCount(); lineIndex++)
             {
                 flowEditorPane.setLineMarginGraphics(lineIndex, calculateMarginDisplay(lineIndex));
@@ -2118,8 +2167,12 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
                 {
                     if (watcher != null)
                     {
-                        boolean wasSet = watcher.breakpointToggleEvent(i + 1, true);
+                        boolean wasSet = watcher.breakpointToggleEvent(i + 1, true, breakpointProperties.get(i));
                         breakpoints.set(i, wasSet);
+                        if (!wasSet)
+                        {
+                            breakpointProperties.remove(i);
+                        }
                         if (wasSet)
                         {
                             mayHaveBreakpoints = true;
@@ -2168,8 +2221,15 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         // to be regenerated by RichTextFX, which is unwanted.
         // So we must run those later:
         JavaFXUtil.runAfterCurrent(() -> {
-            removeSearchHighlights();
-            currentSearchResult.setValue(null);
+            // The find results update themselves as the document changes, so only need re-showing:
+            if (currentFindEngine != null && currentFindEngine.getMatchCount() > 0)
+            {
+                updateFindHighlights();
+            }
+            else
+            {
+                clearFindResult();
+            }
             removeErrorHighlights();
             showErrorOverlay(null, 0);
         });
@@ -2968,73 +3028,106 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         fxTab.setErrorStatus(hasErrors);
     }
 
+    /**
+     * Do a find for a plain search term, and highlight all cases.
+     * 
+     * See {@link #doFind(String, boolean, boolean, boolean)}
+     */
+    FindNavigator doFind(String searchFor, boolean ignoreCase)
+    {
+        return doFind(searchFor, ignoreCase, false, false);
+    }
+
     /**
      * Do a find forwards or backwards, and highlight all cases.
      *
      * The case after the cursor (if backwards is false) or before it (if
      * backwards is true) is given a special highlight.
      *
-     * Returns null if nothing was found.  If something was found, gives
-     * you back a class you can use to cycle between search results.  It
-     * becomes invalid next time doFind is called, or if the document is modified.
+     * Returns null if nothing was found (or regex is true and searchFor is not
+     * a valid regex).  If something was found, gives you back a class you can use
+     * to cycle between search results.  The results are kept up to date as the
+     * document is modified.  It becomes invalid next time a different search is
+     * made, or if the document is modified such that there are no results left.
      */
-    FindNavigator doFind(String searchFor, boolean ignoreCase)
+    FindNavigator doFind(String searchFor, boolean ignoreCase, boolean regex, boolean wholeWord)
     {
         removeSearchHighlights();
         // Deselect existing selection in case it's no longer a valid search result.
         // Move back to beginning of selection:
         flowEditorPane.positionCaret(flowEditorPane.getSelectionStart());
         lastSearchString = searchFor;
-        String content = document.getFullContent();
-
-        int curPosition = 0;
-        boolean finished = false;
 
-        List<Integer> foundStarts = new ArrayList<>();
+        // If we are still tracking the same search, there's no need to search again:
+        if (currentSearchResult.get() != null && currentFindEngine != null
+            && currentFindEngine.isSearchFor(searchFor, ignoreCase, regex, wholeWord))
+        {
+            return currentSearchResult.get();
+        }
 
-        while (!finished)
+        clearFindResult();
+        FindEngine engine;
+        try
         {
-            int foundPos = FindNavigator.findSubstring(content, searchFor, ignoreCase, false, curPosition);
-            if (foundPos != -1)
-            {
-                foundStarts.add(foundPos);
-                curPosition = foundPos + searchFor.length();
-            }
-            else
-            {
-                finished = true;
-            }
+            engine = new FindEngine(document, searchFor, ignoreCase, regex, wholeWord);
+        }
+        catch (PatternSyntaxException e)
+        {
+            // Treat invalid regexes as having no results:
+            return null;
         }
-        currentSearchResult.set(foundStarts.isEmpty() ? null : new FindNavigator()
+        if (engine.getMatchCount() == 0)
+        {
+            return null;
+        }
+        engine.attach();
+        currentFindEngine = engine;
+        
+        currentSearchResult.set(new FindNavigator()
         {
             @Override
             public void highlightAll()
             {
-                findResults.clear();
-                findResults.addAll(Utility.mapList(foundStarts, foundPos -> new int[] {foundPos, foundPos + searchFor.length()}));
-                flowEditorPane.showHighlights(HighlightType.FIND_RESULT, findResults);
+                showingFindResults = true;
+                updateFindHighlights();
             }
 
             @Override
             public FindNavigator replaceCurrent(String replacement)
             {
-                if (!flowEditorPane.getSelectedText().equals(searchFor))
+                int[] match = engine.getMatchAt(flowEditorPane.getSelectionStart());
+                if (match == null || match[1] != flowEditorPane.getSelectionEnd())
                 {
                     selectNext(true);
+                    match = engine.getMatchAt(flowEditorPane.getSelectionStart());
+                }
+                if (match != null)
+                {
+                    int pos = match[0];
+                    String replacementText = engine.getReplacementFor(match, replacement);
+                    document.replaceText(pos, match[1], replacementText);
+                    flowEditorPane.positionCaret(pos + replacementText.length());
                 }
-                int pos = flowEditorPane.getSelectionStart();
-                document.replaceText(pos, pos + searchFor.length(), replacement);
-                flowEditorPane.positionCaret(pos + searchFor.length());
-                return doFind(searchFor, ignoreCase);
+                // The engine will have updated its results, so we remain valid unless none are left:
+                if (engine.getMatchCount() == 0)
+                {
+                    clearFindResult();
+                }
+                return currentSearchResult.get();
             }
 
             public void replaceAll(String replacement)
             {
-                // Sort all the found positions in descending order, so we can replace them
+                // No point updating the results after each replacement:
+                engine.detach();
+                // Go through the found positions in descending order, so we can replace them
                 // in order without affecting the later positions in the list (earlier in file):
-                foundStarts.stream().sorted(Comparator.reverseOrder()).forEach(pos ->
-                    document.replaceText(pos, pos + searchFor.length(), replacement)
-                );
+                for (int i = engine.getMatchCount() - 1; i >= 0; i--)
+                {
+                    int[] match = engine.getMatch(i);
+                    document.replaceText(match[0], match[1], engine.getReplacementFor(match, replacement));
+                }
+                clearFindResult();
             }
 
             @Override
@@ -3043,17 +3136,19 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
                 if (validProperty().get())
                 {
                     int selStart = flowEditorPane.getSelectionStart();
-                    int position = foundStarts.stream()
-                        .filter(pos -> pos > selStart || (canBeAtCurrentPos && pos == selStart))
-                        .findFirst()
-                        .orElse(foundStarts.get(0));
-                    select(position);
+                    int index = engine.indexOfFirstMatchFrom(canBeAtCurrentPos ? selStart : selStart + 1);
+                    if (index >= engine.getMatchCount())
+                    {
+                        // Wrap around:
+                        index = 0;
+                    }
+                    select(engine.getMatch(index));
                 }
             }
 
-            private void select(int position)
+            private void select(int[] match)
             {
-                flowEditorPane.select(position, position + searchFor.length());
+                flowEditorPane.select(match[0], match[1]);
             }
 
             @Override
@@ -3062,11 +3157,13 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
                 if (validProperty().get())
                 {
                     int selStart = flowEditorPane.getSelectionStart();
-                    int position = Utility.streamReversed(foundStarts)
-                        .filter(pos -> pos < selStart)
-                        .findFirst()
-                        .orElse(foundStarts.get(foundStarts.size() - 1));
-                    select(position);
+                    int index = engine.indexOfFirstMatchFrom(selStart) - 1;
+                    if (index < 0)
+                    {
+                        // Wrap around:
+                        index = engine.getMatchCount() - 1;
+                    }
+                    select(engine.getMatch(index));
                 }
             }
 
@@ -3079,12 +3176,45 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         return currentSearchResult.get();
     }
 
+    /**
+     * Invalidates the current search result (if any), and stops keeping it up to date.
+     */
+    private void clearFindResult()
+    {
+        removeSearchHighlights();
+        if (currentFindEngine != null)
+        {
+            currentFindEngine.detach();
+            currentFindEngine = null;
+        }
+        currentSearchResult.set(null);
+    }
+
+    /**
+     * Shows the highlights for the current find results which are in or near the
+     * visible lines.  There may be a very large number of results in a large file,
+     * so rather than processing them all, this is called again as lines are rendered.
+     */
+    private void updateFindHighlights()
+    {
+        findResults.clear();
+        if (showingFindResults && currentFindEngine != null)
+        {
+            int[] visibleLines = flowEditorPane.getLineRangeVisible();
+            int firstLine = Math.max(0, visibleLines[0] - FIND_HIGHLIGHT_MARGIN_LINES);
+            int lastLine = Math.min(document.getLineCount() - 1, visibleLines[1] + FIND_HIGHLIGHT_MARGIN_LINES);
+            findResults.addAll(currentFindEngine.getMatchesBetween(document.getLineStart(firstLine), document.getLineEnd(lastLine) + 1));
+        }
+        flowEditorPane.showHighlights(HighlightType.FIND_RESULT, findResults);
+    }
+
     /**
      * Removes the selected highlights (in both the source/doc pane)
      * Note: the other highlights such as the brackets etc remain
      */
     public void removeSearchHighlights()
     {
+        showingFindResults = false;
         findResults.clear();
         flowEditorPane.showHighlights(HighlightType.FIND_RESULT, List.of());
     }
@@ -3206,18 +3336,35 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         
          
             LocatableToken suggestToken = suggests.getSuggestionToken();
-            AssistContent[] possibleCompletions = ParseUtils.getPossibleCompletions(suggests, javadocResolver, null, parser.getContainingMethodOrClassNode(flowEditorPane.getCaretPosition()) instanceof MethodNode m ? m : null, flowEditorPane.getCaretPosition());
-            if (possibleCompletions != null)
-            {
-                Arrays.sort(possibleCompletions, AssistContent.getComparator());
-                completionCandidates.addAll(Arrays.asList(possibleCompletions));
-            }
+            // The members of classes which are not yet in the completion index are found in the
+            // background.  The completions which are available straight away are passed to us
+            // before getPossibleCompletionsAsync returns; any others are added to the suggestion
+            // list as they arrive, while it is still showing:
+            boolean[] listCreated = new boolean[] {false};
+            boolean[] moreExpected = new boolean[] {false};
+            SuggestionList[] suggestionListRef = new SuggestionList[1];
+            ParseUtils.getPossibleCompletionsAsync(suggests, javadocResolver, getProject() == null ? null : getProject().getCompletionIndex(), parser.getContainingMethodOrClassNode(flowEditorPane.getCaretPosition()) instanceof MethodNode m ? m : null, flowEditorPane.getCaretPosition(), (completions, last) -> {
+                completions.sort(AssistContent.getComparator());
+                if (!listCreated[0])
+                {
+                    completionCandidates.addAll(completions);
+                    moreExpected[0] = !last;
+                    return true;
+                }
+                SuggestionList shownList = suggestionListRef[0];
+                if (shownList == null || !shownList.isShowing())
+                {
+                    // Dismissed, or never shown; no need to carry on:
+                    return false;
+                }
+                completionCandidates.addAll(completions);
+                shownList.addChoices(makeSuggestionDetails(completions), !last);
+                return true;
+            });
+            listCreated[0] = true;
             
             // Create suggestions from all the candidates
-            List<SuggestionDetails> suggestionDetails = completionCandidates.stream()
-                    .map(AssistContentThreadSafe::new)
-                    .map(ac -> new SuggestionDetailsWithHTMLDoc(ac.getName(), ExpressionCompletionCalculator.getParamsCompletionDisplay(ac), ac.getType(), SuggestionShown.COMMON, ac.getDocHTML()))
-                    .collect(Collectors.toList());
+            List<SuggestionDetails> suggestionDetails = makeSuggestionDetails(completionCandidates);
 
             // Prepare the suggestions popup
             int originalPosition = suggestToken == null ? flowEditorPane.getCaretPosition() : suggestToken.getPosition();
@@ -3330,6 +3477,8 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
                     flowEditorPane.setFakeCaret(false);
                 }
             });
+            suggestionListRef[0] = suggestionList;
+            suggestionList.setMoreChoicesExpected(moreExpected[0]);
             String prefix = document.getContent(originalPosition, flowEditorPane.getCaretPosition()).toString();
             suggestionList.calculateEligible(prefix, true, false);
             suggestionList.updateVisual(prefix);
@@ -3349,6 +3498,17 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         }
     }
 
+    /**
+     * Make the details to show in the suggestion list for the given completions.
+     */
+    private static List<SuggestionDetails> makeSuggestionDetails(List<AssistContent> completions)
+    {
+        return completions.stream()
+                .map(AssistContentThreadSafe::new)
+                .map(ac -> new SuggestionDetailsWithHTMLDoc(ac.getName(), ExpressionCompletionCalculator.getParamsCompletionDisplay(ac), ac.getType(), SuggestionShown.COMMON, ac.getDocHTML()))
+                .collect(Collectors.toList());
+    }
+
     /**
      * codeComplete prints the selected text in the editor
      */
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2019,2020,2021,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2021,2022,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -947,7 +947,7 @@ public class FlowErrorManager implements ErrorQuery
                 if (editor.getProject() == null)
                     return null;
 
-                AssistContent[] values = ParseUtils.getPossibleCompletions(suggests, editor.getProject().getJavadocResolver(), null, positionNode instanceof MethodNode m ? m : null, -1);
+                AssistContent[] values = ParseUtils.getPossibleCompletions(suggests, editor.getProject().getJavadocResolver(), editor.getProject().getCompletionIndex(), null, positionNode instanceof MethodNode m ? m : null, -1);
                 if (values == null)
                     return null;
 
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2019,2020,2022  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2022,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -29,8 +29,6 @@ import java.io.Reader;
 import java.lang.ref.WeakReference;
 import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 
@@ -46,13 +44,21 @@ public class HoleDocument implements Document
     private int holeStart; // Index of first character in the hole.
     private int holeEnd; // Index of first character in array after the hole
     
-    private final ArrayList<LineInformation> lineInformation = new ArrayList<>();
+    // Line start positions and attributes.  These are not stored as tracked positions,
+    // so that an edit does not need to update every line in the document:
+    private final LineIndex lineIndex = new LineIndex();
 
     /**
      * We need to know all the positions so we can update them all.  But we don't want
      * to retain them and cause a memory leak.  Rather than having a deregistration system,
      * we just keep weak references and thus let them fall out of memory once the caller
      * of trackPosition no longer keeps track of them.
+     *
+     * This is a plain list, updated in full on each edit.  Only a handful of positions are
+     * tracked (the caret and anchor of each editor pane, and the ends of a range while it
+     * is being indented); markers such as breakpoints and errors are kept as line attributes
+     * or in the parsed structure instead.  So a structure ordered by position would cost more
+     * to keep up to date, as the caret moves, than it would save.
      */
     private final ArrayList<WeakReference<TrackedPosition>> trackedPositions = new ArrayList<>();
     private final List<DocumentListener> listeners = new ArrayList<>();
@@ -62,37 +68,16 @@ public class HoleDocument implements Document
         content = new char[128];
         holeStart = 0;
         holeEnd = content.length;
-        lineInformation.add(new LineInformation(null));
     }
 
     @Override
     public void replaceText(int startCharIncl, int endCharExcl, String text)
     {
-        // Get rid of any new line positions that were in removed region:
-        int linesRemoved = 0;
-        int indexToInsertNewNewlines = 1;
-        for (Iterator<LineInformation> iterator = lineInformation.iterator(); iterator.hasNext(); )
-        {
-            LineInformation lineInformation = iterator.next();
-            if (lineInformation.lineStart == null)
-            {
-                // Unremovable first line -- skip
-                continue;
-            }
-            
-            TrackedPosition lineStartPosition = lineInformation.lineStart;
-            if (lineStartPosition.position <= startCharIncl)
-            {
-                indexToInsertNewNewlines++;
-            }
-            else if (lineStartPosition.position > startCharIncl && lineStartPosition.position <= endCharExcl)
-            {
-                linesRemoved += 1;
-                iterator.remove();
-            }
-            
-        }
-        
+        int linesBefore = lineIndex.getLineCount();
+        // Get rid of any new line positions that were in removed region, and add the new ones:
+        int linesRemoved = lineIndex.replace(startCharIncl, endCharExcl, text);
+        int linesAdded = lineIndex.getLineCount() - linesBefore + linesRemoved;
+
         // Start by moving the hole to the modification location:
         if (holeStart < startCharIncl)
         {
@@ -132,7 +117,7 @@ public class HoleDocument implements Document
         }
         
         // Add new content by copying into hole
-        System.arraycopy(text.toCharArray(), 0, content, holeStart, text.length());
+        text.getChars(0, text.length(), content, holeStart);
         holeStart += text.length();
 
         for (Iterator<WeakReference<TrackedPosition>> iterator = trackedPositions.iterator(); iterator.hasNext(); )
@@ -149,18 +134,6 @@ public class HoleDocument implements Document
             }
         }
         
-        int linesAdded = 0;
-        // Now add new positions for the added newlines:
-        for (int i = 0; i < text.length(); i++)
-        {
-            if (text.charAt(i) == '\n')
-            {
-                lineInformation.add(indexToInsertNewNewlines, new LineInformation(trackPosition(i + 1 + startCharIncl, Bias.BACK)));
-                indexToInsertNewNewlines += 1;
-                linesAdded += 1;
-            }
-        }
-
         // Take a copy in case one of the listeners removes themselves
         // (would lead to a concurrent modification exception if we iterated over the original list):
         List<DocumentListener> listenersCopy = new ArrayList<>(this.listeners);
@@ -185,16 +158,7 @@ public class HoleDocument implements Document
     @Override
     public int getLineFromPosition(int position)
     {
-        int index = Collections.binarySearch(getLineStartPositions(), position);
-        if (index >= 0)
-        {
-            // Line begins there exactly:
-            return index;
-        }
-        else
-        {
-            return -2-index;
-        }
+        return lineIndex.getLineFromPosition(position);
     }
 
     /**
@@ -208,20 +172,13 @@ public class HoleDocument implements Document
             @Override
             public int size()
             {
-                return lineInformation.size();
+                return lineIndex.getLineCount();
             }
 
             @Override
             public Integer get(int index)
             {
-                if (index == 0)
-                {
-                    return 0;
-                }
-                else
-                {
-                    return lineInformation.get(index).lineStart.position;
-                }
+                return lineIndex.getLineStart(index);
             }
         };
     }
@@ -229,16 +186,7 @@ public class HoleDocument implements Document
     @Override
     public int getColumnFromPosition(int position)
     {
-        int lineStartIndex = getLineFromPosition(position);
-        if (lineStartIndex <= 0)
-        {
-            // First line:
-            return position;
-        }
-        else
-        {
-            return position - lineInformation.get(lineStartIndex).lineStart.position;
-        }
+        return position - lineIndex.getLineStart(lineIndex.getLineFromPosition(position));
     }
 
     @Override
@@ -340,15 +288,15 @@ public class HoleDocument implements Document
     @Override
     public int getLineStart(int lineNumber)
     {
-        return getLineStartPositions().get(lineNumber);
+        return lineIndex.getLineStart(lineNumber);
     }
 
     @Override
     public int getLineEnd(int lineNumber)
     {
-        if (lineNumber + 1 < lineInformation.size())
+        if (lineNumber + 1 < lineIndex.getLineCount())
         {
-            return getLineStartPositions().get(lineNumber + 1) - 1;
+            return lineIndex.getLineStart(lineNumber + 1) - 1;
         }
         else
         {
@@ -359,7 +307,7 @@ public class HoleDocument implements Document
     @Override
     public int getLineCount()
     {
-        return lineInformation.size();
+        return lineIndex.getLineCount();
     }
 
     @Override
@@ -381,9 +329,9 @@ public class HoleDocument implements Document
 
     public boolean hasLineAttribute(int lineIndex, Object attributeKey)
     {
-        if (lineIndex >= 0 && lineIndex < lineInformation.size())
+        if (lineIndex >= 0 && lineIndex < this.lineIndex.getLineCount())
         {
-            return lineInformation.get(lineIndex).lineAttributes.containsKey(attributeKey);
+            return this.lineIndex.hasLineAttribute(lineIndex, attributeKey);
         }
         else
         {
@@ -393,18 +341,15 @@ public class HoleDocument implements Document
     
     public void addLineAttribute(int lineIndex, Object key, Object value)
     {
-        if (lineIndex >= 0 && lineIndex < lineInformation.size())
+        if (lineIndex >= 0 && lineIndex < this.lineIndex.getLineCount())
         {
-            lineInformation.get(lineIndex).lineAttributes.put(key, value);
+            this.lineIndex.addLineAttribute(lineIndex, key, value);
         }
     }
     
     public void removeLineAttributeThroughout(Object key)
     {
-        for (LineInformation information : lineInformation)
-        {
-            information.lineAttributes.remove(key);
-        }
+        lineIndex.removeLineAttributeThroughout(key);
     }
 
     @Override
@@ -433,17 +378,6 @@ public class HoleDocument implements Document
         return getLines().get(longestIndex).toString();
     }
 
-    private static class LineInformation
-    {
-        private final TrackedPosition lineStart;
-        private final HashMap<Object, Object> lineAttributes = new HashMap<>();
-
-        public LineInformation(TrackedPosition lineStart)
-        {
-            this.lineStart = lineStart;
-        }
-    }
-    
     // Adapted from StringReader
     @OnThread(value = Tag.FXPlatform, ignoreParent = true)
     private class HoleReader extends Reader
@@ -0,0 +1,220 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import java.util.HashMap;
+
+/**
+ * An index of line start positions (plus per-line attributes) for HoleDocument.
+ *
+ * Like the document content itself, this is stored in an array with a hole in it.
+ * The hole sits just after the line most recently edited, so that typing (which tends
+ * to happen in one place) only has to touch the lines near the hole.  Entries before
+ * the hole store their absolute start position.  Entries after the hole store their
+ * distance from the end of the document, which means that they do not need updating
+ * at all when an edit is made earlier in the document.
+ *
+ * Finding the line for a position is a binary search, and an edit costs time proportional
+ * to the number of lines added or removed plus the distance the hole has to move,
+ * rather than the number of lines in the document.
+ */
+class LineIndex
+{
+    // How much extra should we grow the arrays by when needed?
+    private static final int GROWTH_MARGIN = 64;
+
+    // Start positions, see class comment for how they are stored either side of the hole:
+    private int[] starts;
+    // Line attributes, in the same layout as starts.  Null if a line has no attributes.
+    private HashMap<Object, Object>[] attributes;
+    private int holeStart; // Index of first entry in the hole.
+    private int holeEnd; // Index of first entry after the hole.
+    // The current length of the document, needed to decode entries after the hole:
+    private int documentLength;
+
+    @SuppressWarnings("unchecked")
+    LineIndex()
+    {
+        starts = new int[GROWTH_MARGIN];
+        attributes = new HashMap[GROWTH_MARGIN];
+        // The first line always starts at zero:
+        starts[0] = 0;
+        holeStart = 1;
+        holeEnd = starts.length;
+        documentLength = 0;
+    }
+
+    /**
+     * The number of lines.  Always at least one.
+     */
+    int getLineCount()
+    {
+        return starts.length - (holeEnd - holeStart);
+    }
+
+    /**
+     * Gets the start position of the given line (zero-based).
+     */
+    int getLineStart(int line)
+    {
+        if (line < holeStart)
+            return starts[line];
+        else
+            return documentLength - starts[line + holeEnd - holeStart];
+    }
+
+    /**
+     * Gets the (zero-based) line which contains the given position.  A position
+     * which is exactly at the start of a line is counted as being in that line.
+     */
+    int getLineFromPosition(int position)
+    {
+        // Binary search for the last line which starts at or before position.
+        // Line zero always starts at zero, so lo is always a valid answer:
+        int lo = 0;
+        int hi = getLineCount() - 1;
+        while (lo < hi)
+        {
+            int mid = (lo + hi + 1) >>> 1;
+            if (getLineStart(mid) <= position)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Updates the index for the replacement of the given range with the given text.
+     * Lines which started inside the replaced range are removed (along with their
+     * attributes), and a new line is added for each newline in the inserted text.
+     *
+     * @return The number of lines removed.
+     */
+    int replace(int startCharIncl, int endCharExcl, CharSequence text)
+    {
+        int firstLine = getLineFromPosition(startCharIncl);
+        int lastRemovedLine = getLineFromPosition(endCharExcl);
+
+        // Move the hole to just after the first line, where new lines would be inserted:
+        moveHoleTo(firstLine + 1);
+
+        // Remove lines which started in the removed region by absorbing them into the hole:
+        int linesRemoved = lastRemovedLine - firstLine;
+        for (int i = 0; i < linesRemoved; i++)
+        {
+            attributes[holeEnd + i] = null;
+        }
+        holeEnd += linesRemoved;
+
+        // Entries after the hole are relative to the end, so now implicitly adjust:
+        documentLength += text.length() - (endCharExcl - startCharIncl);
+
+        // Add the new lines at the start of the hole:
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (text.charAt(i) == '\n')
+            {
+                if (holeStart == holeEnd)
+                {
+                    growHole();
+                }
+                starts[holeStart] = startCharIncl + i + 1;
+                attributes[holeStart] = null;
+                holeStart += 1;
+            }
+        }
+        return linesRemoved;
+    }
+
+    /**
+     * Moves the hole so that it starts at the given line index.
+     */
+    private void moveHoleTo(int lineIndex)
+    {
+        while (holeStart > lineIndex)
+        {
+            // Move last entry before hole to be just after it:
+            holeStart -= 1;
+            holeEnd -= 1;
+            starts[holeEnd] = documentLength - starts[holeStart];
+            attributes[holeEnd] = attributes[holeStart];
+            attributes[holeStart] = null;
+        }
+        while (holeStart < lineIndex)
+        {
+            // Move first entry after hole to be just before it:
+            starts[holeStart] = documentLength - starts[holeEnd];
+            attributes[holeStart] = attributes[holeEnd];
+            attributes[holeEnd] = null;
+            holeStart += 1;
+            holeEnd += 1;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void growHole()
+    {
+        int extraLength = starts.length / 2 + GROWTH_MARGIN;
+        int[] newStarts = new int[starts.length + extraLength];
+        HashMap<Object, Object>[] newAttributes = new HashMap[starts.length + extraLength];
+        System.arraycopy(starts, 0, newStarts, 0, holeStart);
+        System.arraycopy(attributes, 0, newAttributes, 0, holeStart);
+        System.arraycopy(starts, holeEnd, newStarts, holeEnd + extraLength, starts.length - holeEnd);
+        System.arraycopy(attributes, holeEnd, newAttributes, holeEnd + extraLength, starts.length - holeEnd);
+        starts = newStarts;
+        attributes = newAttributes;
+        holeEnd += extraLength;
+    }
+
+    private int arrayIndex(int line)
+    {
+        return line < holeStart ? line : line + holeEnd - holeStart;
+    }
+
+    boolean hasLineAttribute(int line, Object key)
+    {
+        HashMap<Object, Object> lineAttributes = attributes[arrayIndex(line)];
+        return lineAttributes != null && lineAttributes.containsKey(key);
+    }
+
+    void addLineAttribute(int line, Object key, Object value)
+    {
+        int index = arrayIndex(line);
+        if (attributes[index] == null)
+        {
+            attributes[index] = new HashMap<>();
+        }
+        attributes[index].put(key, value);
+    }
+
+    void removeLineAttributeThroughout(Object key)
+    {
+        for (HashMap<Object, Object> lineAttributes : attributes)
+        {
+            if (lineAttributes != null)
+            {
+                lineAttributes.remove(key);
+            }
+        }
+    }
+}
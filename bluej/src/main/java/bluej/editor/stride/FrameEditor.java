@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2017,2018,2019,2020,2021,2022,2024 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2017,2018,2019,2020,2021,2022,2024,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -58,7 +58,6 @@ import bluej.stride.framedjava.elements.CodeElement.LocalParamInfo;
 import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
 import bluej.stride.framedjava.elements.NormalMethodElement;
 import bluej.stride.framedjava.elements.TopLevelCodeElement;
-import bluej.stride.framedjava.errors.DirectSlotError;
 import bluej.stride.framedjava.errors.SyntaxCodeError;
 import bluej.stride.framedjava.frames.DebugInfo;
 import bluej.stride.framedjava.frames.LocalCompletion;
@@ -86,7 +85,6 @@ import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -167,6 +165,9 @@ public class FrameEditor implements Editor
      * errors to be associated with the most recent compile which triggered them.
      */
     private int mostRecentCompileIdentifier = -1;
+    /** Runs the late error checks, reusing results from the previous check where possible */
+    @OnThread(Tag.FXPlatform)
+    private final LateErrorChecker lateErrorChecker = new LateErrorChecker();
 
     @OnThread(Tag.Any)
     public synchronized List<Integer> getBreakpoints()
@@ -429,7 +430,7 @@ public class FrameEditor implements Editor
         // to make sure all the source positions have been recorded.
         javaSource.set(js);
 
-        return new SaveJavaResult(js, javaString, source.toXML().buildLocationMap());
+        return new SaveJavaResult(js, javaString, source.getLocationMap());
     }
 
     /**
@@ -1190,38 +1191,23 @@ public class FrameEditor implements Editor
     @OnThread(Tag.FXPlatform)
     private void findLateErrors(int compilationIdentifier)
     {
-        panel.removeOldErrors();
         TopLevelCodeElement el = panel.getSource();
         if (el == null)
+        {
+            panel.removeOldErrors();
             return;
-        Stream<CodeElement> allElements = Stream.concat(Stream.of((CodeElement)el), el.streamContained());
-        LocationMap rootPathMap = el.toXML().buildLocationMap();
-        // We must start these futures going on the FX thread
-        List<Future<List<DirectSlotError>>> futures = allElements.flatMap(e -> e.findDirectLateErrors(panel, rootPathMap)).collect(Collectors.toList());
-        // Then wait for them on another thread
-        new Thread("Slot error finder") {
-            @Override
-            @OnThread(Tag.Worker)
-            public void run()
-            {
-                ArrayList<DirectSlotError> allLates = new ArrayList<>();
-                try
-                {
-                    // Wait for all futures:
-                    for (Future<List<DirectSlotError>> f : futures)
-                        allLates.addAll(f.get());
-                }
-                catch (ExecutionException | InterruptedException e)
-                {
-                    Debug.reportError(e);
-                }
-                Platform.runLater(() -> {
-                    panel.updateErrorOverviewBar(false);
-                    List<DiagnosticWithShown> diagnostics = Utility.mapList(allLates, e -> e.toDiagnostic(javaFilename.getName(), frameFilename));
-                    watcher.recordLateErrors(diagnostics, compilationIdentifier);
-                });
-            }
-        }.start();
+        }
+        List<String> localTypes = Utility.mapList(getLocalTypes(null, Kind.all()), AssistContentThreadSafe::getName);
+        // Includes members inherited from other classes, which may have changed since the last check:
+        List<AssistContent> members = getAvailableMembers(el, el.getPosInsideClass(), EnumSet.of(CompletionKind.FIELD, CompletionKind.METHOD), true);
+        // Any previous check which is still running is cancelled:
+        lateErrorChecker.check(el, panel, localTypes, members, allLates -> {
+            panel.updateErrorOverviewBar(false);
+            List<DiagnosticWithShown> diagnostics = Utility.mapList(allLates, e -> e.toDiagnostic(javaFilename.getName(), frameFilename));
+            watcher.recordLateErrors(diagnostics, compilationIdentifier);
+        });
+        // Late errors which are still valid have been kept by the checker, so this won't remove them:
+        panel.removeOldErrors();
     }
         
     @Override
@@ -1233,6 +1219,10 @@ public class FrameEditor implements Editor
             panel.flagErrorsAsOld();
         else
             queuedErrors.clear();
+        // Slots from unmodified frames are kept between compilations, so must forget the old compile errors:
+        Stream.concat(Stream.of((CodeElement)lastSource), lastSource.streamContained())
+            .flatMap(CodeElement::getLateErrorSlots)
+            .forEach(JavaFragment::clearCompileErrorMessage);
         // Note lastSourceRef may refer to a stale source, but this shouldn't cause any
         // significant issues.  In fact, it probably makes sense to use the source at
         // point of last save, rather than any modifications in the window since.
@@ -1252,25 +1242,24 @@ public class FrameEditor implements Editor
         return !earlyList.isEmpty();
     }
 
-    public AssistContent[] getCompletions(TopLevelCodeElement allCode, PosInSourceDoc pos, ExpressionSlot<?> completing, CodeElement codeEl)
+    /**
+     * Find the code completions at the given position, and pass them to the handler.  The members
+     * of classes which are not yet in the project's completion index are found in the background,
+     * so the handler may be called after this method returns (but always on the FX thread).
+     */
+    public void withCompletions(TopLevelCodeElement allCode, PosInSourceDoc pos, ExpressionSlot<?> completing, CodeElement codeEl, FXPlatformConsumer<List<AssistContent>> handler)
     {
         ExpressionTypeInfo suggests = allCode.getCodeSuggestions(pos, completing);
         
-        ArrayList<AssistContent> joined = new ArrayList<>();
-        if (suggests != null)
-        {
-            AssistContent[] assists = ParseUtils.getPossibleCompletions(suggests, javadocResolver, null, null, -1);
-            if (assists != null)
-                joined.addAll(Arrays.asList(assists));
-        }
-        
         // We only want to add Greenfoot. suggestions and local var suggestions
         // when they are completing having written only a simple string prefix,
         // not a compound type (like "this.pre" or "Greenfoot.pre" or "getWorld().pre").
+        // These are found now, while the code is as it was when completion was asked for:
+        ArrayList<AssistContent> plain = new ArrayList<>();
         if (suggests != null && suggests.isPlain())
         {    
             // Get static classes code completion suggestions
-            SuggestionList.getStaticClassesCompletion(joined,
+            SuggestionList.getStaticClassesCompletion(plain,
                 (containsImport("greenfoot.*") || containsImport("greenfoot.Greenfoot")),
                 pkg,
                 javadocResolver);
@@ -1279,10 +1268,24 @@ public class FrameEditor implements Editor
             {
                 AssistContent c = LocalCompletion.getCompletion(v.getType(), v.getName(), v.isParam());
                 if (c != null)
-                    joined.add(c);
+                    plain.add(c);
+            }
+        }
+        
+        ArrayList<AssistContent> joined = new ArrayList<>();
+        boolean possible = suggests != null && ParseUtils.getPossibleCompletionsAsync(suggests, javadocResolver, pkg.getProject().getCompletionIndex(), null, -1, (assists, last) -> {
+            joined.addAll(assists);
+            if (last)
+            {
+                joined.addAll(plain);
+                handler.accept(joined);
             }
+            return true;
+        });
+        if (!possible)
+        {
+            handler.accept(plain);
         }
-        return joined.toArray(new AssistContent[0]);
     }
     
     // Gets the available fields in this class (i.e. those in this class and all superclasses)
@@ -1296,11 +1299,11 @@ public class FrameEditor implements Editor
         {
             members = new ArrayList<>();
             // Add it whether overridden or not:
-            ParseUtils.getPossibleCompletions(suggests, javadocResolver, (ac, isOverridden) -> members.add(ac), null, -1);
+            ParseUtils.getPossibleCompletions(suggests, javadocResolver, pkg.getProject().getCompletionIndex(), (ac, isOverridden) -> members.add(ac), null, -1);
         }
         else
         {
-            AssistContent[] result = ParseUtils.getPossibleCompletions(suggests, javadocResolver, null, null, -1);
+            AssistContent[] result = ParseUtils.getPossibleCompletions(suggests, javadocResolver, pkg.getProject().getCompletionIndex(), null, null, -1);
             if (result == null)
                 members = Collections.emptyList();
             else
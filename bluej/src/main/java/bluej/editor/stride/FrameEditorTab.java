@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -139,6 +139,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -221,6 +222,14 @@ public class FrameEditorTab extends FXTab implements InteractionManager, Suggest
     private StringBinding strideFontSizeAsString;
     private StringExpression strideFontCSS;
     private final SimpleObjectProperty<Image> imageProperty = new SimpleObjectProperty<>(null);
+    /**
+     * All the available types, as calculated by withTypes(handler).  These are reused (e.g. by
+     * every slot in a late error check, and by consecutive checks) until the imports or local
+     * types change, which are recorded in allTypesImports and allTypesLocals.
+     */
+    private CompletableFuture<Map<String, AssistContentThreadSafe>> allTypes;
+    private List<Future<List<AssistContentThreadSafe>>> allTypesImports;
+    private List<String> allTypesLocals;
 
     @OnThread(Tag.FXPlatform)
     public FrameEditorTab(Project project, EntityResolver resolver, FrameEditor editor, TopLevelCodeElement initialSource)
@@ -1699,8 +1708,9 @@ public class FrameEditorTab extends FXTab implements InteractionManager, Suggest
     
     private void regenerateCode()
     {
+        // Only the frames which have been modified since the last time are regenerated:
         if (getTopLevelFrame() != null)
-            getTopLevelFrame().regenerateCode();
+            getTopLevelFrame().regenerateCodeIfDirty();
     }
 
     // Flag existing errors as old, generally happens just prior to compilation
@@ -1793,7 +1803,15 @@ public class FrameEditorTab extends FXTab implements InteractionManager, Suggest
     public void modifiedFrame(Frame f, boolean force)
     {
         if (f != null)
+        {
             f.trackBlank(); // Do this even if loading
+            f.markCodeDirty();
+        }
+        else if (force && getTopLevelFrame() != null)
+        {
+            // We don't know what changed, so regenerate everything next time:
+            getTopLevelFrame().markAllCodeDirty();
+        }
 
 
         // If we are loading, we'll thread hop
@@ -1841,9 +1859,8 @@ public class FrameEditorTab extends FXTab implements InteractionManager, Suggest
     {
         withTopLevelFrame(_frame -> JavaFXUtil.runNowOrLater(() -> {
             TopLevelCodeElement allCode = getSource();
-            handler.accept(Utility.mapList(Arrays.asList(
-                editor.getCompletions(allCode, pos, completing, codeEl)
-            ), AssistContentThreadSafe::copy));
+            editor.withCompletions(allCode, pos, completing, codeEl,
+                assists -> handler.accept(Utility.mapList(assists, AssistContentThreadSafe::copy)));
         }));
     }
 
@@ -1915,6 +1932,7 @@ public class FrameEditorTab extends FXTab implements InteractionManager, Suggest
             final ClassElement classElement = state.getClassElement(projectResolver,
                     editor.getPackage().getQualifiedName());
             getTopLevelFrame().restoreCast(classElement);
+            getTopLevelFrame().markAllCodeDirty();
             getTopLevelFrame().regenerateCode();
             Node n = state.recallFocus(getTopLevelFrame());
             if (n != null)
@@ -2151,7 +2169,18 @@ public class FrameEditorTab extends FXTab implements InteractionManager, Suggest
     @OnThread(Tag.FXPlatform)
     public void withTypes(BackgroundConsumer<Map<String, AssistContentThreadSafe>> handler)
     {
-        withTypes(null, true, Kind.all(), handler);
+        List<Future<List<AssistContentThreadSafe>>> imports = getFrameEditor().getEditorFixesManager().getImportedTypesSnapshot();
+        List<String> locals = Utility.mapList(editor.getLocalTypes(null, Kind.all()), AssistContentThreadSafe::getName);
+        if (allTypes == null || !imports.equals(allTypesImports) || !locals.equals(allTypesLocals))
+        {
+            CompletableFuture<Map<String, AssistContentThreadSafe>> types = new CompletableFuture<>();
+            withTypes(null, true, Kind.all(), r -> types.complete(Collections.unmodifiableMap(r)));
+            allTypes = types;
+            allTypesImports = imports;
+            allTypesLocals = locals;
+        }
+        // The handler must run on a background thread, even if the types are already available:
+        allTypes.thenAccept(r -> Utility.runBackground(() -> handler.accept(r)));
     }
     
     @OnThread(Tag.FXPlatform)
@@ -2936,14 +2965,14 @@ public class FrameEditorTab extends FXTab implements InteractionManager, Suggest
     }
 
     /**
-     * It invokes the buildLocationMap method in the LocatableElement to build a location map.
-     * This location map is dependent on the latest version of the code, and will invalid as soon as the code changes in future.
+     * Gets the location map for the current version of the code.  The map is cached on the top-level
+     * element, so it is only rebuilt when the code has been regenerated following a change.
      *
      * @return A map from JavaFragment to XPath String identifying the location of that fragment.
      */
     private LocationMap getLocationMap()
     {
-        return getTopLevelFrame().getCode().toXML().buildLocationMap();
+        return getTopLevelFrame().getCode().getLocationMap();
     }
 
     /**
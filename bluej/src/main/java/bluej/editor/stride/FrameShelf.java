@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program.
- Copyright (C) 2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or
  modify it under the terms of the GNU General Public License
@@ -324,7 +324,9 @@ public class FrameShelf implements InteractionManager, CanvasParent, FrameTypeCh
     @Override
     public void modifiedFrame(Frame f, boolean force)
     {
-        // Not applicable
+        // Frames on the shelf only regenerate their modified parts when saved:
+        if (f != null)
+            f.markCodeDirty();
     }
 
     @Override
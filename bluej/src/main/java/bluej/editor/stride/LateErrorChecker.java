@@ -0,0 +1,302 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.stride;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import bluej.parser.AssistContent;
+import bluej.parser.AssistContent.ParamInfo;
+import bluej.stride.framedjava.ast.ASTUtility;
+import bluej.stride.framedjava.ast.SlotFragment;
+import bluej.stride.framedjava.elements.CodeElement;
+import bluej.stride.framedjava.elements.CodeElement.LocalParamInfo;
+import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
+import bluej.stride.framedjava.elements.TopLevelCodeElement;
+import bluej.stride.framedjava.errors.DirectSlotError;
+import bluej.stride.generic.InteractionManager;
+import bluej.utility.Debug;
+import bluej.utility.javafx.FXPlatformConsumer;
+import bluej.utility.javafx.FXPlatformSupplier;
+import javafx.application.Platform;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Runs the late error checks (see SlotFragment.findLateErrors) for one Stride editor.
+ *
+ * The results of the individual slot checks are gathered on a single thread which is shared
+ * by all editors.  Only a few slot checks are run at once: starting a new check cancels the
+ * editor's previous check if it is still running, and skips the slot checks which that
+ * check had not yet started, so that they don't hold up the new one.  The results of a
+ * superseded check are never reported.
+ *
+ * Each check remembers the errors it found for each slot.  Since the frames that have not been
+ * modified keep their code (and thus their slot fragments) when the class is regenerated, the
+ * next check can reuse the previous errors for a slot if it is the same fragment and nothing
+ * it depends on has changed: the variables in scope, any compile error message for the slot,
+ * and the outline of the class (the slots of the class and its members, such as method
+ * signatures, the available local types, and the signatures of the fields and methods
+ * inherited from other classes).
+ */
+@OnThread(Tag.FXPlatform)
+class LateErrorChecker
+{
+    @OnThread(Tag.Any)
+    private static final ExecutorService resultGatherer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Slot error finder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // The most slot checks we run at once for one editor:
+    private static final int MAX_RUNNING_SLOT_CHECKS = 8;
+
+    // Incremented for each check, so that we can ignore the results of superseded checks:
+    private int checkCount = 0;
+    private CompletableFuture<List<DirectSlotError>> currentCheck;
+    // The outline of the class at the last completed check:
+    private String previousOutline;
+    // The results for each slot at the last completed check:
+    private IdentityHashMap<SlotFragment, SlotResult> previousResults = new IdentityHashMap<>();
+
+    /**
+     * The errors found for a slot, along with the context in which they were found.
+     */
+    private static class SlotResult
+    {
+        private final String context;
+        private final List<DirectSlotError> errors;
+
+        private SlotResult(String context, List<DirectSlotError> errors)
+        {
+            this.context = context;
+            this.errors = errors;
+        }
+    }
+
+    /**
+     * The slot checks for one call to check, which are started a few at a time.
+     */
+    private class SlotChecks
+    {
+        private final int check;
+        private final ArrayDeque<FXPlatformSupplier<CompletableFuture<List<DirectSlotError>>>> toStart = new ArrayDeque<>();
+        private final ArrayDeque<CompletableFuture<List<DirectSlotError>>> results = new ArrayDeque<>();
+        private int running = 0;
+
+        private SlotChecks(int check)
+        {
+            this.check = check;
+        }
+
+        /**
+         * Adds a slot check to be started later.
+         *
+         * @return The future for the slot's errors.  If the check is superseded before
+         *         the slot check is started, this is completed with no errors.
+         */
+        private CompletableFuture<List<DirectSlotError>> add(FXPlatformSupplier<CompletableFuture<List<DirectSlotError>>> start)
+        {
+            CompletableFuture<List<DirectSlotError>> result = new CompletableFuture<>();
+            toStart.add(start);
+            results.add(result);
+            return result;
+        }
+
+        /**
+         * Starts as many waiting slot checks as we are allowed to run at once.
+         */
+        private void startMore()
+        {
+            while (running < MAX_RUNNING_SLOT_CHECKS && !toStart.isEmpty())
+            {
+                FXPlatformSupplier<CompletableFuture<List<DirectSlotError>>> start = toStart.removeFirst();
+                CompletableFuture<List<DirectSlotError>> result = results.removeFirst();
+                // If a later check has started, no-one will see the result:
+                CompletableFuture<List<DirectSlotError>> future = check == checkCount ? start.get() : null;
+                if (future == null)
+                {
+                    result.complete(Collections.emptyList());
+                }
+                else if (future.isDone())
+                {
+                    future.whenComplete((errors, t) -> complete(result, errors, t));
+                }
+                else
+                {
+                    running += 1;
+                    future.whenComplete((errors, t) -> {
+                        complete(result, errors, t);
+                        Platform.runLater(() -> {
+                            running -= 1;
+                            startMore();
+                        });
+                    });
+                }
+            }
+        }
+
+        @OnThread(Tag.Any)
+        private void complete(CompletableFuture<List<DirectSlotError>> result, List<DirectSlotError> errors, Throwable t)
+        {
+            if (t != null)
+                result.completeExceptionally(t);
+            else
+                result.complete(errors);
+        }
+    }
+
+    /**
+     * Starts checking the given code for late errors.  Errors reused from the previous
+     * check are un-flagged as old before this method returns, so the caller may remove
+     * the remaining old errors straight afterwards.
+     *
+     * @param code The code to check.
+     * @param editor The editor which the code is in.
+     * @param localTypes The names of the types available in the package.
+     * @param members The fields and methods accessible in the class, including those
+     *                inherited from other classes.
+     * @param callback Called with all the late errors once the check is complete, unless
+     *                 another check has been started in the mean time.
+     */
+    public void check(TopLevelCodeElement code, InteractionManager editor, List<String> localTypes, List<AssistContent> members,
+                      FXPlatformConsumer<List<DirectSlotError>> callback)
+    {
+        int thisCheck = ++checkCount;
+        if (currentCheck != null)
+            currentCheck.cancel(false);
+
+        String outline = makeOutline(code, localTypes, members);
+        IdentityHashMap<SlotFragment, SlotResult> reusable = outline.equals(previousOutline) ? previousResults : new IdentityHashMap<>();
+        LocationMap rootPathMap = code.getLocationMap();
+
+        List<SlotFragment> slots = new ArrayList<>();
+        List<String> contexts = new ArrayList<>();
+        List<CompletableFuture<List<DirectSlotError>>> futures = new ArrayList<>();
+        IdentityHashMap<SlotFragment, SlotResult> kept = new IdentityHashMap<>();
+        SlotChecks slotChecks = new SlotChecks(thisCheck);
+        for (CodeElement element : (Iterable<CodeElement>)Stream.concat(Stream.of((CodeElement)code), code.streamContained())::iterator)
+        {
+            for (SlotFragment slot : (Iterable<SlotFragment>)element.getLateErrorSlots()::iterator)
+            {
+                String context = makeContext(element, slot);
+                SlotResult previous = reusable.get(slot);
+                CompletableFuture<List<DirectSlotError>> future;
+                if (previous != null && previous.context.equals(context))
+                {
+                    // Nothing has changed, so the previous errors still apply:
+                    for (DirectSlotError error : previous.errors)
+                    {
+                        error.unflagAsOld();
+                        // The slot may have moved, if frames before it were added or removed:
+                        error.recordPath(rootPathMap.locationFor(slot));
+                    }
+                    future = CompletableFuture.completedFuture(previous.errors);
+                    kept.put(slot, previous);
+                }
+                else
+                {
+                    // Started by startMore, on the FX thread:
+                    future = slotChecks.add(() -> slot.findLateErrors(editor, element, rootPathMap));
+                }
+                slots.add(slot);
+                contexts.add(context);
+                futures.add(future.exceptionally(t -> {
+                    Debug.reportError("Problem finding late errors", t);
+                    return Collections.emptyList();
+                }));
+            }
+        }
+        // The caller will remove all the errors we haven't kept, so only those kept can
+        // be reused if this check is superseded before it completes:
+        previousResults = kept;
+        previousOutline = outline;
+        slotChecks.startMore();
+
+        CompletableFuture<List<DirectSlotError>> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenApplyAsync(v -> futures.stream().flatMap(f -> f.join().stream()).collect(Collectors.toList()), resultGatherer);
+        currentCheck = all;
+        all.thenAccept(allLates -> Platform.runLater(() -> {
+            // Ignore if another check has been started since:
+            if (thisCheck != checkCount)
+                return;
+            IdentityHashMap<SlotFragment, SlotResult> results = new IdentityHashMap<>();
+            for (int i = 0; i < slots.size(); i++)
+            {
+                results.put(slots.get(i), new SlotResult(contexts.get(i), futures.get(i).join()));
+            }
+            previousResults = results;
+            previousOutline = outline;
+            currentCheck = null;
+            callback.accept(allLates);
+        }));
+    }
+
+    /**
+     * Makes the outline of the class: everything outside a particular slot's own element which
+     * could affect its late errors, apart from the variables in scope (see makeContext).
+     * The accessible members are included because expression slots check their field and
+     * method names against them, and members inherited from another class can change without
+     * this class changing.
+     */
+    static String makeOutline(TopLevelCodeElement code, List<String> localTypes, List<AssistContent> members)
+    {
+        Stream<CodeElement> elements = Stream.<CodeElement>concat(code.getImports().stream(),
+            code.streamContained().filter(e -> e.getParent() == code));
+        return Stream.concat(Stream.of((CodeElement)code), elements)
+            .map(CodeElement::getDirectSlotsCode)
+            .collect(Collectors.joining("\n"))
+            + "\n" + String.join(",", localTypes)
+            + "\n" + members.stream().map(LateErrorChecker::makeSignature).sorted().collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Makes the signature of an accessible member, for the outline.
+     */
+    private static String makeSignature(AssistContent member)
+    {
+        List<ParamInfo> params = member.getParams();
+        return member.getKind() + " " + member.getAccessPermission() + " " + member.getDeclaringClass() + "." + member.getName()
+            + (params == null ? "" : params.stream().map(ParamInfo::getQualifiedType).collect(Collectors.joining(",", "(", ")")))
+            + " " + member.getType();
+    }
+
+    /**
+     * Makes the context of a slot: the variables in scope, and any compile error message
+     * for the slot.
+     */
+    static String makeContext(CodeElement element, SlotFragment slot)
+    {
+        List<LocalParamInfo> vars = ASTUtility.findLocalsAndParamsInScopeAt(element, true, true);
+        return vars.stream().map(v -> v.getType() + " " + v.getName()).collect(Collectors.joining(","))
+            + "\n" + slot.getErrorMessage();
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.extmgr;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+import bluej.Config;
+import bluej.extensions2.event.ExtensionEvent;
+import bluej.utility.Debug;
+import javafx.application.Platform;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The queue of events waiting to be delivered to one extension.
+ *
+ * <p>Events can be posted from any thread, and are delivered in order on the JavaFX thread
+ * (which the extension API promises to listeners), one event per hop to the FX thread.  So
+ * the code raising an event does not wait for the extensions' listeners, and other GUI work
+ * can carry on in between events.  All extensions' listeners still run on the one FX thread,
+ * though, so a slow listener delays the delivery of every extension's events (and the GUI)
+ * while it runs.
+ *
+ * <p>Each queue is bounded (bluej.extensions.eventQueueSize); what happens when it is full
+ * is set by bluej.extensions.eventOverflow.  By default the code raising the event waits, so
+ * that no events are lost; dropping events must be asked for.  Some extensions may rely on the old behaviour of
+ * events being delivered synchronously; bluej.extensions.synchronousEvents can restore that
+ * for all extensions, or for particular extension classes.
+ */
+@OnThread(Tag.Any)
+class ExtensionEventQueue
+{
+    private static final String QUEUE_SIZE_PROPERTY = "bluej.extensions.eventQueueSize";
+    private static final String OVERFLOW_PROPERTY = "bluej.extensions.eventOverflow";
+    private static final String SYNCHRONOUS_PROPERTY = "bluej.extensions.synchronousEvents";
+    private static final int DEFAULT_QUEUE_SIZE = 256;
+
+    /**
+     * What to do when an event is posted to a full queue.
+     */
+    enum OverflowPolicy
+    {
+        /** Discard the oldest undelivered event */
+        DROP_OLDEST,
+        /** Discard the new event */
+        DROP_NEWEST,
+        /**
+         * Wait for space in the queue.  Events posted from the FX thread (which delivers the
+         * events, so cannot wait) are instead delivered immediately, after those queued.
+         */
+        BLOCK;
+
+        static OverflowPolicy fromConfig(String value)
+        {
+            // Only drop events if asked to, since existing extensions do not expect to miss any:
+            switch (value)
+            {
+                case "dropOldest": return DROP_OLDEST;
+                case "dropNewest": return DROP_NEWEST;
+                default: return BLOCK;
+            }
+        }
+    }
+
+    /**
+     * An event waiting in the queue, and when it was posted.
+     */
+    private static class Pending
+    {
+        private final ExtensionEvent event;
+        private final long postedAt;
+
+        private Pending(ExtensionEvent event)
+        {
+            this.event = event;
+            this.postedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Delivery statistics for an extension, for display in the installed extensions dialog.
+     */
+    static class Statistics
+    {
+        final long delivered;
+        final long dropped;
+        final long averageListenerMillis;
+        final long maxListenerMillis;
+        final long maxWaitMillis;
+
+        private Statistics(long delivered, long dropped, long totalListenerNanos, long maxListenerNanos, long maxWaitNanos)
+        {
+            this.delivered = delivered;
+            this.dropped = dropped;
+            this.averageListenerMillis = delivered == 0 ? 0 : totalListenerNanos / delivered / 1_000_000;
+            this.maxListenerMillis = maxListenerNanos / 1_000_000;
+            this.maxWaitMillis = maxWaitNanos / 1_000_000;
+        }
+    }
+
+    private final String extensionName;
+    private final Consumer<ExtensionEvent> listener;
+    private final boolean synchronous;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    // All the following are guarded by this:
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    // Whether a delivery has been scheduled on the FX thread:
+    private boolean scheduled = false;
+    private boolean shutdown = false;
+    private long delivered = 0;
+    private long dropped = 0;
+    private long totalListenerNanos = 0;
+    private long maxListenerNanos = 0;
+    private long maxWaitNanos = 0;
+
+    /**
+     * Makes a queue for the given extension, configured from the BlueJ properties.
+     *
+     * @param extensionClassName The name of the extension class.
+     * @param listener Delivers an event to the extension.
+     */
+    ExtensionEventQueue(String extensionClassName, Consumer<ExtensionEvent> listener)
+    {
+        this(extensionClassName, listener, isSynchronous(extensionClassName),
+            Math.max(1, Config.getPropInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE)),
+            OverflowPolicy.fromConfig(Config.getPropString(OVERFLOW_PROPERTY, "block")));
+    }
+
+    ExtensionEventQueue(String extensionName, Consumer<ExtensionEvent> listener, boolean synchronous, int capacity, OverflowPolicy overflowPolicy)
+    {
+        this.extensionName = extensionName;
+        this.listener = listener;
+        this.synchronous = synchronous;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Whether the given extension should have its events delivered synchronously.
+     */
+    private static boolean isSynchronous(String extensionClassName)
+    {
+        String setting = Config.getPropString(SYNCHRONOUS_PROPERTY, "").trim();
+        if (setting.equals("true"))
+            return true;
+        for (String className : setting.split(","))
+        {
+            if (className.trim().equals(extensionClassName))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Posts an event to be delivered to the extension.  Unless the extension is set to
+     * receive events synchronously, this returns without waiting for the delivery
+     * (except with the BLOCK overflow policy, when the queue is full).
+     */
+    void post(ExtensionEvent event)
+    {
+        if (synchronous)
+        {
+            deliver(new Pending(event));
+            return;
+        }
+
+        synchronized (this)
+        {
+            if (shutdown)
+                return;
+            if (queue.size() >= capacity)
+            {
+                switch (overflowPolicy)
+                {
+                    case DROP_NEWEST:
+                        dropped += 1;
+                        logDropped();
+                        return;
+                    case DROP_OLDEST:
+                        queue.removeFirst();
+                        dropped += 1;
+                        logDropped();
+                        break;
+                    case BLOCK:
+                        if (Platform.isFxApplicationThread())
+                        {
+                            // We are the thread which would make space, so can't wait:
+                            queue.addLast(new Pending(event));
+                            flushOnFX();
+                            return;
+                        }
+                        while (queue.size() >= capacity && !shutdown)
+                        {
+                            try
+                            {
+                                wait();
+                            }
+                            catch (InterruptedException e)
+                            {
+                                Thread.currentThread().interrupt();
+                                return;
+                            }
+                        }
+                        if (shutdown)
+                            return;
+                        break;
+                }
+            }
+            queue.addLast(new Pending(event));
+            scheduleDelivery();
+        }
+    }
+
+    /**
+     * Delivers the given event now, on the FX thread, after any events already queued.
+     * Used for events which the extension must see before BlueJ carries on, such as a
+     * package closing.
+     */
+    @OnThread(Tag.FXPlatform)
+    void postAndFlush(ExtensionEvent event)
+    {
+        if (synchronous)
+        {
+            deliver(new Pending(event));
+            return;
+        }
+        synchronized (this)
+        {
+            if (shutdown)
+                return;
+            queue.addLast(new Pending(event));
+        }
+        flushOnFX();
+    }
+
+    /**
+     * Discards any undelivered events, and stops accepting new ones.
+     */
+    synchronized void shutdown()
+    {
+        shutdown = true;
+        queue.clear();
+        notifyAll();
+    }
+
+    /**
+     * Gets the statistics on event delivery so far.
+     */
+    synchronized Statistics getStatistics()
+    {
+        return new Statistics(delivered, dropped, totalListenerNanos, maxListenerNanos, maxWaitNanos);
+    }
+
+    private void logDropped()
+    {
+        // Only log the first, and then every hundredth, to avoid filling the log:
+        if (dropped % 100 == 1)
+            Debug.log("Extension " + extensionName + " is not keeping up with events; " + dropped + " dropped so far");
+    }
+
+    // Must be called while synchronized on this.
+    private void scheduleDelivery()
+    {
+        if (!scheduled)
+        {
+            scheduled = true;
+            Platform.runLater(this::deliverNext);
+        }
+    }
+
+    /**
+     * Delivers the next event in the queue, then schedules delivery of the one after (if any).
+     * Taking only one event at a time lets other work on the FX thread run in between.
+     */
+    @OnThread(Tag.FXPlatform)
+    private void deliverNext()
+    {
+        Pending next;
+        synchronized (this)
+        {
+            scheduled = false;
+            next = queue.pollFirst();
+            notifyAll();
+            if (next == null)
+                return;
+        }
+        deliver(next);
+        synchronized (this)
+        {
+            if (!queue.isEmpty())
+                scheduleDelivery();
+        }
+    }
+
+    /**
+     * Delivers all the queued events, on the FX thread.
+     */
+    @OnThread(Tag.FXPlatform)
+    private void flushOnFX()
+    {
+        while (true)
+        {
+            Pending next;
+            synchronized (this)
+            {
+                next = queue.pollFirst();
+                notifyAll();
+            }
+            if (next == null)
+                return;
+            deliver(next);
+        }
+    }
+
+    @SuppressWarnings("threadchecker") // Called on the FX thread, except in synchronous mode where it is the caller's thread
+    private void deliver(Pending pending)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            listener.accept(pending.event);
+        }
+        finally
+        {
+            long end = System.nanoTime();
+            synchronized (this)
+            {
+                delivered += 1;
+                totalListenerNanos += end - start;
+                maxListenerNanos = Math.max(maxListenerNanos, end - start);
+                maxWaitNanos = Math.max(maxWaitNanos, start - pending.postedAt);
+            }
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2013,2014,2016,2018,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2012,2013,2014,2016,2018,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -75,6 +75,9 @@ public class ExtensionWrapper
     private String  extensionStatusString;
     private Project project;
 
+    // The events waiting to be delivered to the extension; null if the jar is not valid.
+    private ExtensionEventQueue eventQueue;
+
     /**
      * Construct a new ExtensionWrapper for the given jar file.
      * 
@@ -93,6 +96,7 @@ public class ExtensionWrapper
         }
 
         extensionJarFileName  = jarFile;
+        eventQueue = new ExtensionEventQueue(extensionClass.getName(), this::deliverEvent);
     }
 
 
@@ -264,6 +268,11 @@ public class ExtensionWrapper
     {
         safeTerminate();
 
+        // Any events still waiting are no longer of interest:
+        if (eventQueue != null) {
+            eventQueue.shutdown();
+        }
+
         // Needed to signal to the revalidate (below) that this instance is no longer here.            
         extensionInstance = null;
 
@@ -407,6 +416,8 @@ public class ExtensionWrapper
 
     /**
      * Informs any registered listeners that an event has occurred.
+     * The event is queued, and delivered later on the FX thread (unless the
+     * extension has been configured to receive events synchronously).
      */
     public void safeEventOccurred(ExtensionEvent event)
     {
@@ -414,6 +425,42 @@ public class ExtensionWrapper
             return;
         }
 
+        eventQueue.post(event);
+    }
+
+    /**
+     * Informs any registered listeners that an event has occurred, delivering
+     * it (after any events already queued) before returning.
+     */
+    @OnThread(Tag.FXPlatform)
+    public void safeEventOccurredNow(ExtensionEvent event)
+    {
+        if (!isValid()) {
+            return;
+        }
+
+        eventQueue.postAndFlush(event);
+    }
+
+    /**
+     * Gets the statistics on delivery of events to this extension, or null
+     * if the extension jar was not valid.
+     */
+    ExtensionEventQueue.Statistics getEventStatistics()
+    {
+        return eventQueue == null ? null : eventQueue.getStatistics();
+    }
+
+    /**
+     * Delivers an event from the queue to the extension.
+     */
+    private void deliverEvent(ExtensionEvent event)
+    {
+        // The extension may have been terminated while the event was queued:
+        if (!isValid()) {
+            return;
+        }
+
         try {
             ExtensionBridge.delegateEvent(extensionBluej,event);
         }
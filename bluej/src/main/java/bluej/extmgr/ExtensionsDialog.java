@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2016,2019,2020,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2016,2019,2020,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -97,8 +97,9 @@ public class ExtensionsDialog
                 boolean isProject = wrapper.getProject() != null;
                 String extensionFileName = wrapper.getExtensionFileName();
                 URL url = wrapper.safeGetURL();
+                ExtensionEventQueue.Statistics eventStatistics = wrapper.getEventStatistics();
                 // But create the TitledPane on the FX thread:
-                extensionsVBox.getChildren().add(makeDisplay(extensionName, extensionStatus, extensionVersion, extensionDescription, isProject, extensionFileName, url));
+                extensionsVBox.getChildren().add(makeDisplay(extensionName, extensionStatus, extensionVersion, extensionDescription, isProject, extensionFileName, url, eventStatistics));
             });
         }
     }
@@ -108,7 +109,7 @@ public class ExtensionsDialog
         mainFrame.showAndWait();
     }
 
-    private TitledPane makeDisplay(String extensionName, String extensionStatus, String extensionVersion, String extensionDescription, boolean isProject, String extensionFileName, URL url)
+    private TitledPane makeDisplay(String extensionName, String extensionStatus, String extensionVersion, String extensionDescription, boolean isProject, String extensionFileName, URL url, ExtensionEventQueue.Statistics eventStatistics)
     {
         String typeShort = isProject ? projectString : systemString;
         String typeLong = isProject ? projectLongString : systemLongString;
@@ -124,6 +125,14 @@ public class ExtensionsDialog
         mainPanel.getChildren().add(new Label(locationTag + " " + extensionFileName +
             " (" + extensionStatus +')'));
 
+        if (eventStatistics != null)
+        {
+            mainPanel.getChildren().add(new Label(Utility.mergeStrings(Config.getString("extmgr.details.events"),
+                new String[] {Long.toString(eventStatistics.delivered), Long.toString(eventStatistics.dropped),
+                    Long.toString(eventStatistics.averageListenerMillis), Long.toString(eventStatistics.maxListenerMillis),
+                    Long.toString(eventStatistics.maxWaitMillis)})));
+        }
+
         Text description = new Text(extensionDescription);
         mainPanel.getChildren().add(new TextFlow(description));
         if (url != null)
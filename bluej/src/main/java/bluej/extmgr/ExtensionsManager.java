@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2013,2016,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2012,2013,2016,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -38,6 +38,8 @@ import bluej.utility.javafx.FXPlatformSupplier;
 import javafx.application.Platform;
 import javafx.scene.control.MenuItem;
 import javafx.stage.Window;
+import threadchecker.OnThread;
+import threadchecker.Tag;
 
 import java.io.File;
 import java.util.*;
@@ -260,10 +262,12 @@ public class ExtensionsManager
      * This package frame is about to be closed. The issue here is to remove the
      * extension if this is the right time to do it.
      */
+    @OnThread(Tag.FXPlatform)
     public void packageClosing(Package pkg)
     {
-        // Before removing the extension, signal that this package is closing
-        delegateEvent(new PackageEvent(PackageEvent.EventType.PACKAGE_CLOSING, pkg));
+        // Before removing the extension, signal that this package is closing.
+        // Extensions must see this before the package goes, so it is not left in the queue:
+        delegateEventNow(new PackageEvent(PackageEvent.EventType.PACKAGE_CLOSING, pkg));
 
         // Let's assume we are NOT going to delete the extension...
         boolean invalidateExtension = false;
@@ -376,14 +380,36 @@ public class ExtensionsManager
     }
 
     /**
-     * Delegates an event to all known extensions.
+     * Delegates an event to all known extensions.  The event is queued for each
+     * extension, so this does not wait for the extensions to handle it.
      */
     public void delegateEvent(ExtensionEvent event)
     {
-        synchronized(extensions) {            
-            for (ExtensionWrapper wrapper : extensions) {
-                wrapper.safeEventOccurred(event);
-            }
+        List<ExtensionWrapper> wrappers;
+        synchronized(extensions) {
+            wrappers = new ArrayList<>(extensions);
+        }
+        // Post outside the lock: with the "block" overflow policy, posting may wait for
+        // the FX thread to deliver events, and the FX thread may need the lock meanwhile:
+        for (ExtensionWrapper wrapper : wrappers) {
+            wrapper.safeEventOccurred(event);
+        }
+    }
+
+    /**
+     * Delegates an event to all known extensions, returning only once they
+     * have all handled it (and any events queued before it).
+     */
+    @OnThread(Tag.FXPlatform)
+    public void delegateEventNow(ExtensionEvent event)
+    {
+        List<ExtensionWrapper> wrappers;
+        synchronized(extensions) {
+            wrappers = new ArrayList<>(extensions);
+        }
+        // Deliver outside the lock, as the listeners may call back into BlueJ:
+        for (ExtensionWrapper wrapper : wrappers) {
+            wrapper.safeEventOccurredNow(event);
         }
     }
 
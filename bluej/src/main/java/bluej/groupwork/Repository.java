@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2016,2018  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2010,2012,2016,2018,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -104,9 +104,13 @@ public interface Repository
     
     /**
      * Get the history of the repository - all commits, including file, date,
-     * revision, user, and comment.
+     * revision, user, and comment.  Commits are passed to the listener as they
+     * are found, newest first.
+     * 
+     * @param path  if not null, only commits changing this path (relative to the
+     *              project, with "/" separators) are included
      */
-    public TeamworkCommand getLogHistory(LogHistoryListener listener);
+    public TeamworkCommand getLogHistory(LogHistoryListener listener, String path);
     
     /**
      * Prepare for the deletion of a directory. For CVS, this involves moving
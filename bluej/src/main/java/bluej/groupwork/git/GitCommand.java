@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2015,2016,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2015,2016,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -35,7 +35,7 @@ import threadchecker.Tag;
 public abstract class GitCommand implements TeamworkCommand
 {
 
-    private boolean cancelled = false;
+    private volatile boolean cancelled = false;
     private final GitRepository repository;
 
     @OnThread(Tag.Any)
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2016,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2016,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -30,13 +30,26 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import threadchecker.OnThread;
+import threadchecker.Tag;
 
 /**
  * A Git history command.
+ * 
+ * <p>Commits are walked newest first, and passed to the listener as they are found, so
+ * that the history can be shown before the whole of it has been read.  The history for a
+ * given HEAD commit (and path) is kept by the repository, so that viewing it again does
+ * not need another walk.
  *
  * @author Fabio Heday
  */
@@ -44,19 +57,51 @@ public class GitHistoryCommand extends GitCommand
 {
 
     private final LogHistoryListener listener;
+    // Only commits which change this path are included; null for all commits:
+    private final String path;
 
-    public GitHistoryCommand(GitRepository repository, LogHistoryListener listener)
+    public GitHistoryCommand(GitRepository repository, LogHistoryListener listener, String path)
     {
         super(repository);
         this.listener = listener;
+        this.path = path;
     }
 
     @Override
+    @OnThread(Tag.Worker)
     public TeamworkCommandResult getResult()
     {
-        try (Git repo = Git.open(this.getRepository().getProjectPath())) {
-            Iterable<RevCommit> logs = repo.log().call();
-            logs.forEach((RevCommit rev) -> {
+        try (Git repo = Git.open(this.getRepository().getProjectPath());
+             RevWalk walk = new RevWalk(repo.getRepository())) {
+            ObjectId head = repo.getRepository().resolve("HEAD");
+            if (head == null) {
+                // No commits yet, so no history:
+                return new TeamworkCommandResult();
+            }
+
+            List<HistoryInfo> cached = getRepository().getCachedHistory(head, path);
+            if (cached != null) {
+                cached.forEach(listener::logInfoAvailable);
+                return new TeamworkCommandResult();
+            }
+
+            walk.sort(RevSort.COMMIT_TIME_DESC);
+            if (path != null) {
+                // Let the walk skip commits which don't touch the path, rather than
+                // examining every commit's files:
+                walk.setTreeFilter(AndTreeFilter.create(PathFilter.create(path), TreeFilter.ANY_DIFF));
+                // But keep the real parents, to list each commit's changed files against:
+                walk.setRewriteParents(false);
+            }
+            walk.markStart(walk.parseCommit(head));
+
+            List<HistoryInfo> history = new ArrayList<>();
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            for (RevCommit rev : walk) {
+                if (isCancelled()) {
+                    return new TeamworkCommandResult();
+                }
+
                 ArrayList<String> files = new ArrayList<>();
                 //every commit generates a revision with the commiter information
                 //e.g.: name, e-mail, date and time of commit
@@ -66,8 +111,10 @@ public class GitHistoryCommand extends GitCommand
                     treeWalk.addTree(rev.getTree());
                     // We now look for all the parent commits and add those trees:
                     for (RevCommit parent : rev.getParents()) {
-                        treeWalk.addTree(parent.getTree());
+                        treeWalk.addTree(walk.parseCommit(parent).getTree());
                     }
+                    // Skip entries which are the same in all the trees:
+                    treeWalk.setFilter(TreeFilter.ANY_DIFF);
 
                     while (treeWalk.next()) {
                         // For each file in the tree walk, we compare its file mode and hash to the
@@ -87,13 +134,16 @@ public class GitHistoryCommand extends GitCommand
                 //Jgit returns the date by seconds after epoch, but Java works in
                 //milliseconds. conversion is needed.
                 Date date = new Date(rev.getCommitTime() * 1000L);
-                String dateString = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(date);
+                String dateString = dateFormat.format(date);
 
                 HistoryInfo info = new HistoryInfo(files.toArray(new String[files.size()]), "", dateString, rev.getAuthorIdent().getName(), rev.getFullMessage());
+                history.add(info);
                 listener.logInfoAvailable(info);
-            });
+            }
+
+            getRepository().cacheHistory(head, path, history);
 
-        } catch (GitAPIException | IOException ex) {
+        } catch (IOException ex) {
             return new TeamworkCommandError(ex.getMessage(), ex.getLocalizedMessage());
         }
         return new TeamworkCommandResult();
@@ -0,0 +1,127 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.groupwork.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import bluej.groupwork.HistoryInfo;
+import org.eclipse.jgit.lib.ObjectId;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The caches kept for a project's Git repository.
+ *
+ * <p>GitRepository objects can be short-lived: when no password is known, a temporary one
+ * is made for each command.  So the caches are kept here, by project directory, and shared
+ * by all the GitRepository objects for the same project.  Only the caches of the most
+ * recently used projects are kept.
+ */
+@OnThread(Tag.Any)
+class GitProjectCaches
+{
+    // The number of projects to keep caches for:
+    private static final int MAX_PROJECTS = 8;
+    // Keyed by canonical project directory, least recently used first:
+    private static final Map<File, GitProjectCaches> caches =
+        new LinkedHashMap<File, GitProjectCaches>(MAX_PROJECTS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, GitProjectCaches> eldest)
+            {
+                return size() > MAX_PROJECTS;
+            }
+        };
+
+    // Results of earlier status commands, to save repeating work:
+    private final GitStatusCache statusCache = new GitStatusCache();
+
+    // The number of histories to keep in historyCache:
+    private static final int MAX_CACHED_HISTORIES = 8;
+    // Recently viewed histories, keyed by (HEAD commit, path or null), least recently viewed first:
+    private final Map<List<Object>, List<HistoryInfo>> historyCache =
+        new LinkedHashMap<List<Object>, List<HistoryInfo>>(MAX_CACHED_HISTORIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, List<HistoryInfo>> eldest)
+            {
+                return size() > MAX_CACHED_HISTORIES;
+            }
+        };
+
+    private GitProjectCaches()
+    {
+    }
+
+    /**
+     * Gets the caches for the project in the given directory.
+     */
+    static GitProjectCaches forProject(File projectDir)
+    {
+        File key;
+        try
+        {
+            key = projectDir.getCanonicalFile();
+        }
+        catch (IOException e)
+        {
+            key = projectDir.getAbsoluteFile();
+        }
+        synchronized (caches)
+        {
+            return caches.computeIfAbsent(key, k -> new GitProjectCaches());
+        }
+    }
+
+    GitStatusCache getStatusCache()
+    {
+        return statusCache;
+    }
+
+    /**
+     * Gets the history previously found for the given HEAD commit and path, or null if
+     * it is not cached.
+     */
+    List<HistoryInfo> getCachedHistory(ObjectId head, String path)
+    {
+        synchronized (historyCache)
+        {
+            return historyCache.get(Arrays.asList(head.copy(), path));
+        }
+    }
+
+    /**
+     * Records the complete history for the given HEAD commit and path.
+     */
+    void cacheHistory(ObjectId head, String path, List<HistoryInfo> history)
+    {
+        synchronized (historyCache)
+        {
+            historyCache.put(Arrays.asList(head.copy(), path), Collections.unmodifiableList(history));
+        }
+    }
+}
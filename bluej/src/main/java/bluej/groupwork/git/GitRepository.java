@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2015,2016,2017,2019,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2015,2016,2017,2019,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,6 +21,7 @@
  */
 package bluej.groupwork.git;
 
+import bluej.groupwork.HistoryInfo;
 import bluej.groupwork.LogHistoryListener;
 import bluej.groupwork.Repository;
 import bluej.groupwork.StatusListener;
@@ -63,6 +64,9 @@ public class GitRepository implements Repository
     private final String yourEmail;
     private final String branch;
 
+    // Shared by all the GitRepository objects for the project:
+    private final GitProjectCaches caches;
+
     /**
      * Create a Git repository when all fields are known. Usually when cloning a
      * repository.
@@ -85,6 +89,7 @@ public class GitRepository implements Repository
         this.password = password;
         this.yourName = yourName;
         this.yourEmail = yourEmail;
+        this.caches = GitProjectCaches.forProject(projectPath);
     }
 
     public String getReposUrl() 
@@ -144,9 +149,9 @@ public class GitRepository implements Repository
     }
 
     @Override
-    public TeamworkCommand getLogHistory(LogHistoryListener listener) 
+    public TeamworkCommand getLogHistory(LogHistoryListener listener, String path) 
     {
-        return new GitHistoryCommand(this, listener);
+        return new GitHistoryCommand(this, listener, path);
     }
 
     @Override
@@ -230,6 +235,28 @@ public class GitRepository implements Repository
         return this.projectPath;
     }
 
+    GitStatusCache getStatusCache()
+    {
+        return caches.getStatusCache();
+    }
+
+    /**
+     * Gets the history previously found for the given HEAD commit and path, or null if
+     * it is not cached.
+     */
+    List<HistoryInfo> getCachedHistory(ObjectId head, String path)
+    {
+        return caches.getCachedHistory(head, path);
+    }
+
+    /**
+     * Records the complete history for the given HEAD commit and path.
+     */
+    void cacheHistory(ObjectId head, String path, List<HistoryInfo> history)
+    {
+        caches.cacheHistory(head, path, history);
+    }
+
     public String getBranch(){
         return branch;
     }
@@ -0,0 +1,351 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.groupwork.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Caches the results of the expensive parts of working out the status of a Git repository,
+ * so that opening the status or commit window again does not repeat them all.
+ *
+ * <p>The working tree is tracked with an index of the modification time and size of each file,
+ * rather than a WatchService (which on some platforms just polls, and so may not have seen
+ * a recent change).  If nothing has changed since the last status (including the Git index and
+ * HEAD), the previous status is reused; if only a few files have changed, only those files are
+ * re-examined.  The fork point between HEAD and the remote branch, and the diffs from it, depend
+ * only on the commits involved, so are cached per pair of commits.
+ *
+ * <p>One cache is kept per project (see {@link GitProjectCaches}).  All methods are synchronized.
+ */
+@OnThread(Tag.Worker)
+class GitStatusCache
+{
+    // Beyond this many changed files, it is quicker to get the whole status:
+    private static final int MAX_PARTIAL_PATHS = 200;
+    // Files modified this close to the last snapshot may have changed again since, within the
+    // resolution of the file system's timestamps, so are always re-examined:
+    private static final long RACY_MILLIS = 2000;
+    // The number of commit pairs to remember fork points and diffs for:
+    private static final int MAX_COMMIT_PAIRS = 16;
+
+    /**
+     * The local status of the files in the repository: the parts of JGit's {@link Status}
+     * which the status command uses, in a form we can update.  Paths are relative to the
+     * top of the working tree, with "/" separators.
+     */
+    static class StatusSnapshot
+    {
+        private final Set<String> missing;
+        private final Set<String> removed;
+        private final Set<String> uncommittedChanges;
+        private final Set<String> untracked;
+        private final Set<String> untrackedFolders;
+        private final Set<String> conflicting;
+        private final Map<String, IndexDiff.StageState> conflictingStageState;
+
+        private StatusSnapshot(Status s)
+        {
+            missing = new HashSet<>(s.getMissing());
+            removed = new HashSet<>(s.getRemoved());
+            uncommittedChanges = new HashSet<>(s.getUncommittedChanges());
+            untracked = new HashSet<>(s.getUntracked());
+            untrackedFolders = new HashSet<>(s.getUntrackedFolders());
+            conflicting = new HashSet<>(s.getConflicting());
+            conflictingStageState = new HashMap<>(s.getConflictingStageState());
+        }
+
+        private StatusSnapshot(StatusSnapshot s)
+        {
+            missing = new HashSet<>(s.missing);
+            removed = new HashSet<>(s.removed);
+            uncommittedChanges = new HashSet<>(s.uncommittedChanges);
+            untracked = new HashSet<>(s.untracked);
+            untrackedFolders = new HashSet<>(s.untrackedFolders);
+            conflicting = new HashSet<>(s.conflicting);
+            conflictingStageState = new HashMap<>(s.conflictingStageState);
+        }
+
+        /**
+         * Replaces the status of the given paths with that in the given (partial) status.
+         */
+        private void update(Set<String> paths, Status s)
+        {
+            for (Set<String> set : Arrays.asList(missing, removed, uncommittedChanges, untracked, conflicting))
+            {
+                set.removeAll(paths);
+            }
+            conflictingStageState.keySet().removeAll(paths);
+
+            missing.addAll(s.getMissing());
+            removed.addAll(s.getRemoved());
+            uncommittedChanges.addAll(s.getUncommittedChanges());
+            untracked.addAll(s.getUntracked());
+            conflicting.addAll(s.getConflicting());
+            conflictingStageState.putAll(s.getConflictingStageState());
+        }
+
+        public Set<String> getMissing() { return Collections.unmodifiableSet(missing); }
+        public Set<String> getRemoved() { return Collections.unmodifiableSet(removed); }
+        public Set<String> getUncommittedChanges() { return Collections.unmodifiableSet(uncommittedChanges); }
+        public Set<String> getUntracked() { return Collections.unmodifiableSet(untracked); }
+        public Set<String> getUntrackedFolders() { return Collections.unmodifiableSet(untrackedFolders); }
+        public Set<String> getConflicting() { return Collections.unmodifiableSet(conflicting); }
+        public Map<String, IndexDiff.StageState> getConflictingStageState() { return Collections.unmodifiableMap(conflictingStageState); }
+    }
+
+    /**
+     * The modification time and size of every file in the working tree (outside .git),
+     * and the set of directories.
+     */
+    private static class TreeSnapshot
+    {
+        private final long takenAt = System.currentTimeMillis();
+        private final Map<String, List<Long>> files = new TreeMap<>();
+        private final Set<String> directories = new HashSet<>();
+    }
+
+    // The state the last status was taken in, or null if there is none:
+    private TreeSnapshot lastTree;
+    private StatusSnapshot lastStatus;
+    private ObjectId lastHead;
+    private List<Long> lastIndexState;
+
+    // Keyed by (base, tip) commit ids; the fork point may be null:
+    private final Map<List<ObjectId>, RevCommit> forkPoints = makeLRU();
+    // Keyed by (revision, fork point) commit ids:
+    private final Map<List<ObjectId>, List<DiffEntry>> diffs = makeLRU();
+
+    private static <V> Map<List<ObjectId>, V> makeLRU()
+    {
+        return new LinkedHashMap<List<ObjectId>, V>(MAX_COMMIT_PAIRS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<ObjectId>, V> eldest)
+            {
+                return size() > MAX_COMMIT_PAIRS;
+            }
+        };
+    }
+
+    /**
+     * Gets the local status of the repository, re-examining only what has changed since the
+     * last call where possible.
+     */
+    synchronized StatusSnapshot getStatus(Git repo) throws IOException, GitAPIException
+    {
+        File workTree = repo.getRepository().getWorkTree();
+        TreeSnapshot tree = snapshotTree(workTree.toPath());
+        ObjectId head = repo.getRepository().resolve("HEAD");
+        List<Long> indexState = getFileState(repo.getRepository().getIndexFile());
+
+        Set<String> changed = null;
+        if (lastStatus != null && Objects.equals(head, lastHead) && indexState.equals(lastIndexState))
+        {
+            changed = findChangedFiles(lastTree, tree);
+        }
+
+        if (changed == null || changed.size() > MAX_PARTIAL_PATHS)
+        {
+            lastStatus = new StatusSnapshot(repo.status().call());
+        }
+        else if (!changed.isEmpty())
+        {
+            StatusCommand partial = repo.status();
+            changed.forEach(partial::addPath);
+            lastStatus.update(changed, partial.call());
+        }
+
+        lastTree = tree;
+        lastHead = head;
+        lastIndexState = indexState;
+        // A copy, as we may update ours while the caller is still using it:
+        return new StatusSnapshot(lastStatus);
+    }
+
+    /**
+     * Gets the files in the working tree (outside .git) as of the last call to getStatus.
+     */
+    synchronized List<File> getWorkingTreeFiles(File workTree)
+    {
+        if (lastTree == null)
+        {
+            return Collections.emptyList();
+        }
+        return lastTree.files.keySet().stream().map(p -> new File(workTree, p)).collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the files which have changed between two snapshots, or returns null if the
+     * change cannot be handled by re-examining individual files (e.g. directories have been
+     * added or removed, or ignore rules have changed).
+     */
+    private Set<String> findChangedFiles(TreeSnapshot before, TreeSnapshot after)
+    {
+        if (!before.directories.equals(after.directories))
+        {
+            return null;
+        }
+
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, List<Long>> file : after.files.entrySet())
+        {
+            List<Long> previous = before.files.get(file.getKey());
+            if (previous == null || !previous.equals(file.getValue()) || file.getValue().get(0) >= before.takenAt - RACY_MILLIS)
+            {
+                changed.add(file.getKey());
+            }
+        }
+        for (String path : before.files.keySet())
+        {
+            if (!after.files.containsKey(path))
+            {
+                changed.add(path);
+            }
+        }
+
+        for (String path : changed)
+        {
+            if (path.equals(".gitignore") || path.endsWith("/.gitignore"))
+            {
+                return null;
+            }
+            // Files in untracked folders are reported by folder, which a status of
+            // individual files would not do:
+            for (String folder : lastStatus.getUntrackedFolders())
+            {
+                if (path.startsWith(folder + "/"))
+                {
+                    return null;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static TreeSnapshot snapshotTree(Path root) throws IOException
+    {
+        TreeSnapshot snapshot = new TreeSnapshot();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+            {
+                if (dir.getFileName() != null && dir.getFileName().toString().equals(".git"))
+                {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                snapshot.directories.add(GitUtilities.getRelativeFileName(root, dir.toFile()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+            {
+                snapshot.files.put(GitUtilities.getRelativeFileName(root, file.toFile()),
+                        Arrays.asList(attrs.lastModifiedTime().toMillis(), attrs.size()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc)
+            {
+                // e.g. deleted while we walk; the next status will notice
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return snapshot;
+    }
+
+    private static List<Long> getFileState(File file)
+    {
+        return Arrays.asList(file.lastModified(), file.length());
+    }
+
+    /**
+     * Finds the fork point of two revisions, as {@link GitUtilities#findForkPoint}, but
+     * reusing the result if the revisions refer to the same commits as before.
+     */
+    synchronized RevCommit findForkPoint(Repository repository, String base, String tip) throws IOException
+    {
+        ObjectId baseId = repository.resolve(base);
+        ObjectId tipId = repository.resolve(tip);
+        if (baseId == null || tipId == null)
+        {
+            return GitUtilities.findForkPoint(repository, base, tip);
+        }
+        List<ObjectId> key = Arrays.asList(baseId, tipId);
+        if (!forkPoints.containsKey(key))
+        {
+            forkPoints.put(key, GitUtilities.findForkPoint(repository, base, tip));
+        }
+        return forkPoints.get(key);
+    }
+
+    /**
+     * Gets the diffs between a fork point and a revision, as {@link GitUtilities#getDiffs},
+     * but reusing the result if the revision refers to the same commit as before.
+     */
+    synchronized List<DiffEntry> getDiffs(Git repo, String revId, RevCommit forkPoint) throws IOException
+    {
+        ObjectId id = repo.getRepository().resolve(revId);
+        if (forkPoint == null || id == null)
+        {
+            return GitUtilities.getDiffs(repo, revId, forkPoint);
+        }
+        List<ObjectId> key = Arrays.asList(id, forkPoint.copy());
+        List<DiffEntry> result = diffs.get(key);
+        if (result == null)
+        {
+            result = Collections.unmodifiableList(GitUtilities.getDiffs(repo, revId, forkPoint));
+            diffs.put(key, result);
+        }
+        return result;
+    }
+}
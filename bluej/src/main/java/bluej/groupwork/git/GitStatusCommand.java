@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2015,2016,2017,2018,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2015,2016,2017,2018,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -26,9 +26,7 @@ import bluej.groupwork.TeamStatusInfo;
 import bluej.groupwork.TeamStatusInfo.Status;
 import bluej.groupwork.TeamworkCommandError;
 import bluej.groupwork.TeamworkCommandResult;
-import static bluej.groupwork.git.GitUtilities.findForkPoint;
 import static bluej.groupwork.git.GitUtilities.getBehindCount;
-import static bluej.groupwork.git.GitUtilities.getDiffs;
 import static bluej.groupwork.git.GitUtilities.getFileNameFromDiff;
 import static bluej.groupwork.git.GitUtilities.isAheadOnly;
 import bluej.utility.Debug;
@@ -40,6 +38,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -77,11 +77,12 @@ public class GitStatusCommand extends GitCommand
         boolean didFilesChange = true;
         LinkedList<TeamStatusInfo> returnInfo = new LinkedList<>();
         File gitPath = this.getRepository().getProjectPath();
+        GitStatusCache cache = this.getRepository().getStatusCache();
 
         try (Git repo = Git.open(this.getRepository().getProjectPath()))
         {
-            //check local status
-            org.eclipse.jgit.api.Status s = repo.status().call();
+            //check local status (only re-examining what has changed since last time)
+            GitStatusCache.StatusSnapshot s = cache.getStatus(repo);
 
             // A file which has had changes merged as a result of a pull will be in a "unmerged"
             // state, and will appear in "uncommitted changes" as well as "conflicting" (with
@@ -175,12 +176,12 @@ public class GitStatusCommand extends GitCommand
             }
 
             String defaultBranchName = repo.getRepository().getBranch();
-            RevCommit forkPoint = findForkPoint(repo.getRepository(), "origin/"+defaultBranchName, "HEAD");
+            RevCommit forkPoint = cache.findForkPoint(repo.getRepository(), "origin/"+defaultBranchName, "HEAD");
             
             //find diffs between <default branch>/head and the forkpoint.
-            listOfDiffsLocal = getDiffs(repo, "HEAD", forkPoint);
+            listOfDiffsLocal = cache.getDiffs(repo, "HEAD", forkPoint);
             //check for differences between forkpoint and remote repo head.
-            listOfDiffsRemote = getDiffs(repo, "origin/"+defaultBranchName, forkPoint);
+            listOfDiffsRemote = cache.getDiffs(repo, "origin/"+defaultBranchName, forkPoint);
             updateRemoteStatus(gitPath, listOfDiffsLocal, listOfDiffsRemote, returnInfo);
             
             if (returnInfo.isEmpty()){
@@ -189,7 +190,7 @@ public class GitStatusCommand extends GitCommand
 
             if (listener != null) {
                 // Git does not show any add up-to-date file. We need to add them manually to returnInfo.
-                addUpToDateFiles(returnInfo, gitPath);
+                addUpToDateFiles(returnInfo, gitPath, cache);
                 
                 while (!returnInfo.isEmpty()) {
                     TeamStatusInfo teamInfo = returnInfo.removeFirst();
@@ -208,32 +209,38 @@ public class GitStatusCommand extends GitCommand
     }
 
     /**
-     * Search a directory (recursively). For all files with no status currently recorded, add an
-     * "unchanged" status entry.
+     * For all files in the working tree (as found by the status cache) which are accepted by
+     * the filter, and have no status currently recorded, add an "unchanged" status entry.
      * 
      * @param returnInfo  list of file status
-     * @param path        path to search
+     * @param gitPath     the top of the working tree
+     * @param cache       the status cache, which has just been used to get the status
      */
-    private void addUpToDateFiles(LinkedList<TeamStatusInfo> returnInfo, File path)
+    private void addUpToDateFiles(LinkedList<TeamStatusInfo> returnInfo, File gitPath, GitStatusCache cache)
     {
-        if(!path.isDirectory())
-            return;
+        Set<File> recorded = returnInfo.stream().map(TeamStatusInfo::getFile).collect(Collectors.toSet());
         
-        for (File item : path.listFiles()) {
-            if (filter.accept(item)) {
-                if (item.isDirectory()) {
-                    addUpToDateFiles(returnInfo, item);
-                }
-                else {
-                    TeamStatusInfo itemStatus = getTeamStatusInfo(returnInfo, item);
-                    if (itemStatus == null) {
-                        //file does not exist in the list, therefore it is up-to-date.
-                        returnInfo.add(new TeamStatusInfo(item, "", null,
-                                Status.UP_TO_DATE, Status.UP_TO_DATE));
-                    }
-                }
+        for (File item : cache.getWorkingTreeFiles(gitPath)) {
+            if (!recorded.contains(item) && isAccepted(item, gitPath)) {
+                //file does not exist in the list, therefore it is up-to-date.
+                returnInfo.add(new TeamStatusInfo(item, "", null,
+                        Status.UP_TO_DATE, Status.UP_TO_DATE));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the filter accepts a file and all the directories it is within,
+     * up to (but not including) the given top directory.
+     */
+    private boolean isAccepted(File file, File top)
+    {
+        for (File f = file; f != null && !f.equals(top); f = f.getParentFile()) {
+            if (!filter.accept(f)) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2014,2016,2017,2019  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2012,2014,2016,2017,2019,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -22,12 +22,9 @@
 package bluej.groupwork.ui;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -73,9 +70,16 @@ import threadchecker.Tag;
 public class HistoryFrame extends FXCustomizedDialog<Void>
 {
     private Project project;
+    private Repository repository;
+    // Finds the history of all files:
     private HistoryWorker worker;
+    // Finds the history of the file selected in the file filter (if any):
+    private HistoryWorker fileWorker;
 
-    private List<HistoryInfo> historyInfoList;
+    // All the history found so far, newest first:
+    private final List<HistoryInfo> historyInfoList = new ArrayList<>();
+    // The history of the file selected in the file filter, newest first; null if all files are selected:
+    private List<HistoryInfo> fileHistoryList;
     private ObservableList<HistoryInfo> listModel = FXCollections.observableArrayList();
 
     private ListView<HistoryInfo> historyList = new ListView<>(listModel);
@@ -135,108 +139,164 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
             if (worker != null) {
                 worker.abort();
             }
+            if (fileWorker != null) {
+                fileWorker.abort();
+            }
         });
     }
 
     private void prepareData()
     {
-        Repository repository = project.getTeamSettingsController().trytoEstablishRepository(false);
+        fileFilterCombo.getItems().add(Config.getString("team.history.allFiles"));
+        fileFilterCombo.getSelectionModel().selectFirst();
+        fileFilterCombo.setOnAction(e -> fileFilterChanged());
+
+        userFilterCombo.getItems().add(Config.getString("team.history.allUsers"));
+        userFilterCombo.getSelectionModel().selectFirst();
+        userFilterCombo.setOnAction(e -> refilter());
+
+        repository = project.getTeamSettingsController().trytoEstablishRepository(false);
 
         if (repository != null) {
-            worker = new HistoryWorker(repository);
+            worker = new HistoryWorker(repository, null);
             worker.start();
-            activityBar.setRunning(true);
+            updateActivity();
         }
     }
 
     /**
-     * Filter the history info list according to the selected file and user
-     * filters. The filtered list is then displayed.
+     * Show the activity indicator if either worker is still running.
      */
-    private void refilter()
+    private void updateActivity()
+    {
+        activityBar.setRunning((worker != null && worker.isRunning()) || (fileWorker != null && fileWorker.isRunning()));
+    }
+
+    /**
+     * Gets the user selected in the user filter, or null for all users.
+     */
+    private String getSelectedUser()
     {
-        String user = null;
         if (userFilterCombo.getSelectionModel().getSelectedIndex() > 0) {
-            user = userFilterCombo.getSelectionModel().getSelectedItem();
+            return userFilterCombo.getSelectionModel().getSelectedItem();
         }
+        return null;
+    }
 
-        String file = null;
-        if (fileFilterCombo.getSelectionModel().getSelectedIndex() > 0) {
-            file = fileFilterCombo.getSelectionModel().getSelectedItem();
+    /**
+     * The file filter has changed.  The history of a file is found by a separate walk
+     * of the repository, which only visits the commits that change it.
+     */
+    private void fileFilterChanged()
+    {
+        if (fileWorker != null) {
+            fileWorker.abort();
+            fileWorker = null;
         }
 
-        List<HistoryInfo> displayList;
-        if (user == null && file == null) {
-            displayList = historyInfoList;
+        if (fileFilterCombo.getSelectionModel().getSelectedIndex() > 0 && repository != null) {
+            fileHistoryList = new ArrayList<>();
+            fileWorker = new HistoryWorker(repository, fileFilterCombo.getSelectionModel().getSelectedItem());
+            fileWorker.start();
         }
         else {
-            displayList = new ArrayList<>();
-            for (HistoryInfo info : historyInfoList) {
-                if (user != null && !info.getUser().equals(user)) {
-                    continue;
-                }
-                if (file != null && !historyInfoHasFile(info, file)) {
-                    continue;
-                }
-
-                displayList.add(info);
-            }
+            fileHistoryList = null;
         }
 
-        listModel.setAll(displayList);
+        updateActivity();
+        refilter();
     }
 
     /**
-     * Check whether a history item pertains at all to a particular file
+     * Filter the history info list according to the selected file and user
+     * filters. The filtered list is then displayed.
      */
-    private boolean historyInfoHasFile(HistoryInfo info, String file)
+    private void refilter()
     {
-        return Arrays.stream(info.getFiles()).anyMatch(f -> f.equals(file));
+        String user = getSelectedUser();
+        List<HistoryInfo> source = fileHistoryList != null ? fileHistoryList : historyInfoList;
+
+        if (user == null) {
+            listModel.setAll(source);
+        }
+        else {
+            listModel.setAll(source.stream().filter(info -> info.getUser().equals(user)).collect(Collectors.toList()));
+        }
     }
 
     /**
-     * Reset the filter boxes (user filter and file filter), adding a complete list
-     * of all users and files.
+     * Some more history has been found by one of the workers.  Record it, and show
+     * it if it matches the current filters.
      */
-    private void resetFilterBoxes()
+    private void historyAvailable(HistoryWorker from, List<HistoryInfo> page)
     {
-        SortedSet<String> files = new TreeSet<>();
-        SortedSet<String> users = new TreeSet<>();
+        boolean shown;
+        if (from == worker) {
+            historyInfoList.addAll(page);
+            addFilterChoices(page);
+            shown = fileHistoryList == null;
+        }
+        else if (from == fileWorker) {
+            fileHistoryList.addAll(page);
+            shown = true;
+        }
+        else {
+            return;
+        }
 
-        for (HistoryInfo info : historyInfoList) {
-            users.add(info.getUser());
-            Collections.addAll(files, info.getFiles());
+        if (shown) {
+            // History arrives newest first, so new items go at the end:
+            String user = getSelectedUser();
+            listModel.addAll(user == null ? page : page.stream().filter(info -> info.getUser().equals(user)).collect(Collectors.toList()));
         }
+    }
 
-        fileFilterCombo.getItems().clear();
-        fileFilterCombo.getItems().add(Config.getString("team.history.allFiles"));
-        fileFilterCombo.getItems().addAll(files);
-        fileFilterCombo.getSelectionModel().selectFirst();
-        fileFilterCombo.setOnAction(e -> refilter());
+    /**
+     * Add any new users and files to the filter boxes, keeping them sorted (after
+     * the "all" item at the top) and keeping the current selections.
+     */
+    private void addFilterChoices(List<HistoryInfo> page)
+    {
+        for (HistoryInfo info : page) {
+            addFilterChoice(userFilterCombo, info.getUser());
+            for (String file : info.getFiles()) {
+                addFilterChoice(fileFilterCombo, file);
+            }
+        }
+    }
 
-        userFilterCombo.getItems().clear();
-        userFilterCombo.getItems().add(Config.getString("team.history.allUsers"));
-        userFilterCombo.getItems().addAll(users);
-        userFilterCombo.getSelectionModel().selectFirst();
-        userFilterCombo.setOnAction(e -> refilter());
+    private static void addFilterChoice(ComboBox<String> combo, String choice)
+    {
+        List<String> choices = combo.getItems().subList(1, combo.getItems().size());
+        int pos = Collections.binarySearch(choices, choice);
+        if (pos < 0) {
+            // Allow for the "all" item before the sub-list:
+            combo.getItems().add(1 + (-pos - 1), choice);
+        }
     }
 
     /**
      * A worker class to fetch the required information from the repository
-     * in the background.
+     * in the background.  History is passed to the frame in pages as it is found.
      */
     private class HistoryWorker extends FXWorker implements LogHistoryListener
     {
-        private List<HistoryInfo> responseList;
         private Repository repository;
+        private final String path;
         private TeamworkCommand command;
         private TeamworkCommandResult response;
-
-        public HistoryWorker(Repository repository)
+        // History found but not yet passed to the frame; guarded by itself:
+        private final List<HistoryInfo> pending = new ArrayList<>();
+        private boolean flushScheduled = false;
+
+        /**
+         * @param path  the file to show the history of, or null for all files
+         */
+        public HistoryWorker(Repository repository, String path)
         {
-            this.responseList = new ArrayList<>();
-            command = repository.getLogHistory(this);
+            command = repository.getLogHistory(this, path);
             this.repository = repository;
+            this.path = path;
         }
 
         @OnThread(Tag.Worker)
@@ -249,30 +309,47 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
         @OnThread(Tag.Any)
         public void logInfoAvailable(HistoryInfo hInfo)
         {
-            responseList.add(hInfo);
+            synchronized (pending) {
+                pending.add(hInfo);
+                // Everything found before the FX thread gets round to it goes in one page:
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    JavaFXUtil.runPlatformLater(this::flush);
+                }
+            }
+        }
+
+        /**
+         * Pass the history found so far to the frame.
+         */
+        private void flush()
+        {
+            List<HistoryInfo> page;
+            synchronized (pending) {
+                page = new ArrayList<>(pending);
+                pending.clear();
+                flushScheduled = false;
+            }
+            if (command != null && !page.isEmpty()) {
+                historyAvailable(this, page);
+            }
+        }
+
+        public boolean isRunning()
+        {
+            return command != null;
         }
 
         public void finished()
         {
             if (command != null) {
-                activityBar.setRunning(false);
+                flush();
                 command = null; // marks the command as finished
+                updateActivity();
                 if (response.isError()) {
                     HistoryFrame.this.dialogThenHide(() -> TeamUtils.handleServerResponseFX(response, HistoryFrame.this.asWindow()));
                 }
-                else {
-                    responseList.sort(new DateCompare());
-
-                    // Make the history list forget the preferred size that was forced
-                    // upon it when we built the frame.
-                    // TODO Maybe not needed in FX
-                    historyList.setPrefSize(-1, -1);
-
-                    listModel.setAll(responseList);
-                    historyInfoList = responseList;
-
-                    resetFilterBoxes();
-
+                else if (path == null) {
                     DataCollector.teamHistoryProject(project, repository);
                 }
             }
@@ -280,24 +357,11 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
 
         public void abort()
         {
-            activityBar.setRunning(false);
             if (command != null) {
                 command.cancel();
                 command = null;
             }
+            updateActivity();
         }
     }
 }
-
-/**
- * A comparator to sort HistoryInfo objects by date.
- *
- * @author Davin McCall
- */
-class DateCompare implements Comparator<HistoryInfo>
-{
-    public int compare(HistoryInfo hi0, HistoryInfo hi1)
-    {
-        return hi1.getDate().compareTo(hi0.getDate());
-    }
-}
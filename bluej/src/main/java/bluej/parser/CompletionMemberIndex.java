@@ -0,0 +1,291 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.parser;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import bluej.Config;
+import bluej.debugger.gentype.FieldReflective;
+import bluej.debugger.gentype.GenTypeClass;
+import bluej.debugger.gentype.MethodReflective;
+import bluej.debugger.gentype.Reflective;
+import bluej.utility.Debug;
+import bluej.utility.JavaReflective;
+import bluej.utility.Utility;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A per-project index of the members (methods, fields and super types) of compiled classes,
+ * used for code completion.
+ * 
+ * Finding the members of a class by reflection, and building the MethodReflective objects
+ * for them, is slow for large types such as String or List, and code completion used to do
+ * it on every popup.  The index keeps the member tables of each class, keyed by the class
+ * name and the generation of the project class loader which loaded it.  Classes from the
+ * JDK are kept across class loader generations; all others are dropped when the project
+ * class loader is replaced.  Since the MethodReflective objects are kept, Javadoc which
+ * has been resolved for them is kept too.
+ * 
+ * Only classes seen through a JavaReflective are indexed: reflectives for classes which
+ * are being edited change as the source does, and so are always looked up afresh.
+ * 
+ * Classes which are not yet indexed can be indexed in the background (see indexAsync), so
+ * that code completion need not do the reflection on the FX thread.
+ */
+@OnThread(Tag.Any)
+public class CompletionMemberIndex
+{
+    // JDK types which are commonly used for code completion, indexed in the background:
+    private static final List<String> CORE_TYPES = List.of(
+            "java.lang.Object", "java.lang.String", "java.lang.StringBuilder", "java.lang.System",
+            "java.lang.Math", "java.lang.Integer", "java.lang.Double", "java.lang.Character",
+            "java.io.PrintStream", "java.util.List", "java.util.ArrayList", "java.util.Map",
+            "java.util.HashMap", "java.util.Set", "java.util.HashSet", "java.util.Arrays",
+            "java.util.Collections", "java.util.Scanner", "java.util.Random");
+
+    // Greenfoot types which are commonly used for code completion, indexed in the background:
+    private static final List<String> GREENFOOT_TYPES = List.of(
+            "greenfoot.Actor", "greenfoot.World", "greenfoot.Greenfoot", "greenfoot.GreenfootImage");
+
+    private final ConcurrentHashMap<Key, Members> members = new ConcurrentHashMap<>();
+    // The generation of the project class loader; incremented when it is replaced:
+    private volatile int generation = 1;
+
+    /**
+     * The members of a single class, as returned by its Reflective.
+     */
+    public static class Members
+    {
+        private final Class<?> cl;
+        private final Map<String, Set<MethodReflective>> methods;
+        private final Map<String, FieldReflective> fields;
+        private final List<GenTypeClass> superTypes;
+
+        @SuppressWarnings("threadchecker") // JavaReflective only uses core reflection, which is thread-safe
+        private Members(JavaReflective reflective)
+        {
+            this.cl = reflective.getUnderlyingClass();
+            this.methods = Collections.unmodifiableMap(reflective.getDeclaredMethods());
+            this.fields = Collections.unmodifiableMap(reflective.getDeclaredFields());
+            this.superTypes = Collections.unmodifiableList(reflective.getSuperTypes());
+        }
+
+        public Map<String, Set<MethodReflective>> getDeclaredMethods()
+        {
+            return methods;
+        }
+
+        public Map<String, FieldReflective> getDeclaredFields()
+        {
+            return fields;
+        }
+
+        public List<GenTypeClass> getSuperTypes()
+        {
+            return superTypes;
+        }
+    }
+
+    /**
+     * Gets the members of the given class.  Returns null if the reflective is not
+     * one which can be indexed (in which case the caller should ask the reflective itself).
+     */
+    public Members getMembers(Reflective reflective)
+    {
+        if (!(reflective instanceof JavaReflective))
+        {
+            return null;
+        }
+        JavaReflective javaReflective = (JavaReflective) reflective;
+        Class<?> cl = javaReflective.getUnderlyingClass();
+        Key key = keyFor(cl);
+        Members m = members.get(key);
+        // The class should always match, but check in case a class from an old loader is still in use:
+        if (m == null || m.cl != cl)
+        {
+            m = new Members(javaReflective);
+            members.put(key, m);
+        }
+        return m;
+    }
+
+    /**
+     * Checks whether getMembers can return the members of the given class without finding
+     * them by reflection: either they are already indexed, or the reflective is not one which
+     * can be indexed (and so is quick to ask directly).
+     */
+    public boolean isIndexed(Reflective reflective)
+    {
+        if (!(reflective instanceof JavaReflective))
+        {
+            return true;
+        }
+        Class<?> cl = ((JavaReflective) reflective).getUnderlyingClass();
+        Members m = members.get(keyFor(cl));
+        return m != null && m.cl == cl;
+    }
+
+    /**
+     * Index the members of the given class in the background, if they are not already indexed.
+     * The returned future completes (on an arbitrary thread) once they are, or exceptionally if
+     * they could not be found.
+     */
+    public CompletableFuture<Void> indexAsync(Reflective reflective)
+    {
+        if (isIndexed(reflective))
+        {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> indexed = new CompletableFuture<>();
+        Utility.runBackground(() -> {
+            try
+            {
+                getMembers(reflective);
+                indexed.complete(null);
+            }
+            catch (Throwable t)
+            {
+                indexed.completeExceptionally(t);
+            }
+        });
+        return indexed;
+    }
+
+    /**
+     * Drop the members of all classes from the project class loader, which is being replaced.
+     */
+    public void invalidate()
+    {
+        generation += 1;
+        members.keySet().removeIf(k -> k.generation != 0);
+    }
+
+    /**
+     * The project class loader has been replaced.  Drop the members of all classes from the
+     * old loader, and index the commonly used types from the new one in the background.
+     */
+    public void newClassLoader(ClassLoader loader)
+    {
+        invalidate();
+        prewarm(loader);
+    }
+
+    /**
+     * Index the commonly used JDK (and, in Greenfoot, Greenfoot) types in the background,
+     * so that the first code completion on them is quick.
+     */
+    public void prewarm(ClassLoader loader)
+    {
+        Utility.runBackground(() -> {
+            long start = System.currentTimeMillis();
+            int before = members.size();
+            for (String typeName : CORE_TYPES)
+            {
+                prewarm(loader, typeName);
+            }
+            if (Config.isGreenfoot())
+            {
+                for (String typeName : GREENFOOT_TYPES)
+                {
+                    prewarm(loader, typeName);
+                }
+            }
+            Debug.log("Completion index: indexed " + (members.size() - before) + " types in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        });
+    }
+
+    /**
+     * Index the given type, and all its super types.
+     */
+    private void prewarm(ClassLoader loader, String typeName)
+    {
+        try
+        {
+            indexWithSuperTypes(new JavaReflective(Class.forName(typeName, false, loader)));
+        }
+        catch (ClassNotFoundException | LinkageError e)
+        {
+            // Not available in this project; nothing to index.
+        }
+    }
+
+    private void indexWithSuperTypes(Reflective reflective)
+    {
+        Members m = getMembers(reflective);
+        if (m != null)
+        {
+            for (GenTypeClass superType : m.getSuperTypes())
+            {
+                indexWithSuperTypes(superType.getReflective());
+            }
+        }
+    }
+
+    private Key keyFor(Class<?> cl)
+    {
+        return new Key(cl.getName(), isJDKClass(cl) ? 0 : generation);
+    }
+
+    /**
+     * Checks whether the class comes from the JDK, rather than from the project class loader.
+     */
+    private static boolean isJDKClass(Class<?> cl)
+    {
+        ClassLoader loader = cl.getClassLoader();
+        return loader == null || loader == ClassLoader.getPlatformClassLoader();
+    }
+
+    private static class Key
+    {
+        private final String className;
+        private final int generation;
+
+        private Key(String className, int generation)
+        {
+            this.className = className;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return generation == k.generation && className.equals(k.className);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(className, generation);
+        }
+    }
+}
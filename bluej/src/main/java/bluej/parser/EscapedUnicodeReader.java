@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2012,2013,2015,2022  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2012,2013,2015,2022,2026  Michael Kolling and John Rosenberg 
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -26,7 +26,6 @@ import threadchecker.OnThread;
 import threadchecker.Tag;
 
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
 
 /**
@@ -38,26 +37,37 @@ import java.io.Reader;
  * to correctly recognize keywords, identifiers etc. which have embedded unicode escape
  * sequences.
  * 
+ * <p>The position within the source stream is kept as plain ints, since it is updated
+ * for every character read; a LineColPos is only created when asked for.
+ * 
  * @author Davin McCall
  */
 @OnThread(Tag.Any)
 public final class EscapedUnicodeReader extends Reader
 {
-    private final PushbackReader sourceReader;
+    private final Reader sourceReader;
+    // Content pushed back by pushBack(), to be read before any more of the source:
+    private String pushedBack = null;
+    private int pushedBackIndex;
 
     private boolean charIsBuffered;
     private int bufferedChar;
     
-    private LineColPos lineColPos = new LineColPos(1, 1, 0); // position within source stream
+    // position within source stream:
+    private int line = 1;
+    private int column = 1;
+    private int position = 0;
     
     public EscapedUnicodeReader(Reader source)
     {
-        sourceReader = new PushbackReader(source, 65536);
+        sourceReader = source;
     }
     
     public void setLineColPos(LineColPos lineColPos)
     {
-        this.lineColPos = lineColPos;
+        line = lineColPos.line();
+        column = lineColPos.column();
+        position = lineColPos.position();
     }
 
     @Override
@@ -115,10 +125,11 @@ public final class EscapedUnicodeReader extends Reader
         if (rchar == '\\') {
             // This could be the beginning of an escaped unicode sequence,
             // \\uXXXX (with only a single backslash)
-            int nchar = sourceReader.read();
+            int nchar = readRawChar();
 
             if (nchar == 'u') {
-                lineColPos = lineColPos.offsetSameLineBy(1);
+                column += 1;
+                position += 1;
                 return readEscapedUnicodeSequence();
             }
             putBuffer(nchar);             
@@ -138,10 +149,10 @@ public final class EscapedUnicodeReader extends Reader
     {
         // The Java Language Spec specifies that any number of 'u' characters may appear in sequence
         // as part of a unicode escape.
-        int uc = sourceReader.read();
+        int uc = readRawChar();
         while (uc == 'u') {
             processChar((char)uc);
-            uc = sourceReader.read();
+            uc = readRawChar();
         }
         
         int val = Character.digit((char) uc, 16);
@@ -154,7 +165,7 @@ public final class EscapedUnicodeReader extends Reader
         int i = 0;
         do {
             val *= 0x10;
-            uc = sourceReader.read();
+            uc = readRawChar();
             int digitVal = Character.digit((char) uc, 16);
             if (digitVal == -1) {
                 putBuffer(uc);
@@ -170,26 +181,67 @@ public final class EscapedUnicodeReader extends Reader
 
     private int readSourceChar() throws IOException
     {
-        int rchar = sourceReader.read();
+        int rchar = readRawChar();
         if (rchar != -1) {
             processChar((char) rchar);
         }
         return rchar;
     }
     
+    /**
+     * Read a character from the pushed back content if there is any, otherwise from the source.
+     */
+    private int readRawChar() throws IOException
+    {
+        if (pushedBack != null) {
+            char c = pushedBack.charAt(pushedBackIndex++);
+            if (pushedBackIndex >= pushedBack.length()) {
+                pushedBack = null;
+            }
+            return c;
+        }
+        return sourceReader.read();
+    }
+    
     private void processChar(char ch)
     {
         if (ch == '\n') {
-            lineColPos = new LineColPos(lineColPos.line() + 1, 1, lineColPos.position() + 1);
+            line += 1;
+            column = 1;
         }
         else {
-            lineColPos = lineColPos.offsetSameLineBy(1);
+            column += 1;
         }
+        position += 1;
     }
         
     public LineColPos getLineColPos()
     {
-        return lineColPos;
+        return new LineColPos(line, column, position);
+    }
+    
+    /**
+     * Get the line of the current position (as in getLineColPos(), but without creating an object).
+     */
+    public int getLine()
+    {
+        return line;
+    }
+    
+    /**
+     * Get the column of the current position (as in getLineColPos(), but without creating an object).
+     */
+    public int getColumn()
+    {
+        return column;
+    }
+    
+    /**
+     * Get the current position in the source (as in getLineColPos(), but without creating an object).
+     */
+    public int getPosition()
+    {
+        return position;
     }
 
     @Override
@@ -204,7 +256,13 @@ public final class EscapedUnicodeReader extends Reader
      */
     public void pushBack(String content, LineColPos lineColPos) throws IOException
     {
-        sourceReader.unread(content.toCharArray());
-        this.lineColPos = lineColPos;
+        if (!content.isEmpty()) {
+            if (pushedBack != null) {
+                content = content + pushedBack.substring(pushedBackIndex);
+            }
+            pushedBack = content;
+            pushedBackIndex = 0;
+        }
+        setLineColPos(lineColPos);
     }
 }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2013,2014,2015,2017,2018,2019,2020,2021,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2013,2014,2015,2017,2018,2019,2020,2021,2022,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -55,6 +55,7 @@ import bluej.parser.lexer.LocatableToken;
 import bluej.pkgmgr.JavadocResolver;
 import bluej.utility.JavaReflective;
 import bluej.utility.JavaUtils;
+import javafx.application.Platform;
 
 /**
  * Utilities for parsers.
@@ -76,6 +77,24 @@ public class ParseUtils
         public void consume(AssistContent ac, boolean overridden);
     }
 
+    /**
+     * Interface for receiving code completions in batches, as they are found
+     */
+    public interface CompletionBatchHandler
+    {
+        /**
+         * Receive the next batch of completions.
+         * 
+         * @param completions The completions (sorted by name, apart from any local variables
+         *                    which come at the end of the last batch).  May be empty.
+         * @param last        Whether this is the last batch.
+         * @return true to carry on finding completions, false to stop (e.g. because the
+         *         completions are no longer wanted).  Ignored for the last batch.
+         */
+        @OnThread(Tag.FXPlatform)
+        public boolean gotCompletions(List<AssistContent> completions, boolean last);
+    }
+
 
     /**
      * Get the possible code completions, based on the provided suggestions context.
@@ -83,22 +102,53 @@ public class ParseUtils
      * 
      * @param suggests        Information about the code suggestions
      * @param javadocResolver Resolver for fetching Javadoc
+     * @param memberIndex     The index of class members to use (may be null, in which case members are always found afresh)
      * @param consumer        The consumer to be called with each AssistContent, if non-null (may be null)
      * @param surroundingMethod  The method node in which the editor cursors is currently in, or null if not in a method
      * @param ourPos          The position in the file to use to filter our local variable declarations that are after this position, or -1 if you don't want/need to filter 
      */
     @OnThread(Tag.FXPlatform)
-    public static AssistContent[] getPossibleCompletions(ExpressionTypeInfo suggests, JavadocResolver javadocResolver, AssistContentConsumer consumer, MethodNode surroundingMethod, int ourPos)
+    public static AssistContent[] getPossibleCompletions(ExpressionTypeInfo suggests, JavadocResolver javadocResolver, CompletionMemberIndex memberIndex, AssistContentConsumer consumer, MethodNode surroundingMethod, int ourPos)
     {
         GenTypeClass exprType = initGetPossibleCompletions(suggests);
         if (exprType != null)
         {
-            List<AssistContent> completions = getCompletionsForTarget(exprType, suggests, javadocResolver, consumer, surroundingMethod, ourPos);
+            List<AssistContent> completions = new CompletionSearch(exprType, suggests, javadocResolver, memberIndex, consumer, surroundingMethod, ourPos).run();
             return completions.toArray(new AssistContent[completions.size()]);
         }
         return null;
     }
 
+    /**
+     * Get the possible code completions, as for getPossibleCompletions, but without finding
+     * the members of classes by reflection on the FX thread.  Members of classes which are
+     * already in the member index are found straight away; others are indexed in the
+     * background, and the completions are passed to the handler in batches as they are found.
+     * The handler is always called at least once before this method returns, with the
+     * completions which were available straight away (which may be all of them).
+     * 
+     * @param suggests        Information about the code suggestions
+     * @param javadocResolver Resolver for fetching Javadoc
+     * @param memberIndex     The index of class members to use (may be null, in which case all
+     *                        completions are found straight away)
+     * @param surroundingMethod  The method node in which the editor cursors is currently in, or null if not in a method
+     * @param ourPos          The position in the file to use to filter our local variable declarations that are after this position, or -1 if you don't want/need to filter
+     * @param handler         The handler for each batch of completions
+     * @return false if there can be no valid completions in the given context (in which case
+     *         the handler is not called), true otherwise.
+     */
+    @OnThread(Tag.FXPlatform)
+    public static boolean getPossibleCompletionsAsync(ExpressionTypeInfo suggests, JavadocResolver javadocResolver, CompletionMemberIndex memberIndex, MethodNode surroundingMethod, int ourPos, CompletionBatchHandler handler)
+    {
+        GenTypeClass exprType = initGetPossibleCompletions(suggests);
+        if (exprType == null)
+        {
+            return false;
+        }
+        new CompletionSearch(exprType, suggests, javadocResolver, memberIndex, null, surroundingMethod, ourPos).runAsync(new ArrayList<>(), handler);
+        return true;
+    }
+
     @OnThread(Tag.FXPlatform)
     public static List<AssistContentThreadSafe> getLocalTypes(Package pkg, Class<?> superType, Set<Kind> kinds)
     {
@@ -208,43 +258,158 @@ public class ParseUtils
     }
 
     /**
-     * Gets the available completions for a given target: methods and fields (not constructors)
-     *
-     * @param exprType        The target type from which to get completions.  This class and all super-types are scanned.
-     * @param suggests        Information about the code suggestions
-     * @param javadocResolver Resolver for fetching Javadoc
-     * @param consumer        The consumer to be called with each AssistContent, if non-null (may be null)
-     * @param surroundingMethod  The method node in which the editor cursors is currently in, or null if not in a method
-     *
-     * @return The list of found completions.
+     * A search for the available completions for a given target: methods and fields (not constructors)
+     * of the target type and all its super types, and the local variables in scope if applicable.
+     * The search can be run all at once (run), or such that the members of classes which have not been
+     * indexed yet are found in the background (runAsync).
      */
     @OnThread(Tag.FXPlatform)
-    private static List<AssistContent> getCompletionsForTarget(GenTypeClass exprType, ExpressionTypeInfo suggests,
-                                                               JavadocResolver javadocResolver, AssistContentConsumer consumer, MethodNode surroundingMethod, int ourPos)
+    private static class CompletionSearch
     {
-        GenTypeClass accessType = suggests.getAccessType();
-        Reflective accessReflective = (accessType != null) ? accessType.getReflective() : null;
+        private final ExpressionTypeInfo suggests;
+        private final JavadocResolver javadocResolver;
+        private final CompletionMemberIndex memberIndex;
+        private final AssistContentConsumer consumer;
+        private final GenTypeClass origExprType;
+        private final Reflective accessReflective;
 
         // Use two sets, one to keep track of which types we have already processed,
         // another for individual methods.
-        Set<String> contentSigs = new HashSet<String>();
-        Set<String> typesDone = new HashSet<String>();
-        List<AssistContent> completions = new ArrayList<AssistContent>();
+        private final Set<String> contentSigs = new HashSet<String>();
+        private final Set<String> typesDone = new HashSet<String>();
+        private final LinkedList<GenTypeClass> typeQueue = new LinkedList<GenTypeClass>();
+
+        // The local variables and parameters in scope, and their names (fields with the
+        // same names are shadowed, and so are completed as "this.{field}"):
+        private final List<AssistContent> locals = new ArrayList<>();
+        private final Set<String> localNames = new HashSet<>();
+
+        /**
+         * @param exprType        The target type from which to get completions.  This class and all super-types are scanned.
+         * @param suggests        Information about the code suggestions
+         * @param javadocResolver Resolver for fetching Javadoc
+         * @param memberIndex     The index of class members to use (may be null)
+         * @param consumer        The consumer to be called with each AssistContent, if non-null (may be null)
+         * @param surroundingMethod  The method node in which the editor cursors is currently in, or null if not in a method
+         */
+        private CompletionSearch(GenTypeClass exprType, ExpressionTypeInfo suggests, JavadocResolver javadocResolver,
+                                 CompletionMemberIndex memberIndex, AssistContentConsumer consumer, MethodNode surroundingMethod, int ourPos)
+        {
+            this.suggests = suggests;
+            this.javadocResolver = javadocResolver;
+            this.memberIndex = memberIndex;
+            this.consumer = consumer;
+            this.origExprType = exprType;
+            GenTypeClass accessType = suggests.getAccessType();
+            this.accessReflective = (accessType != null) ? accessType.getReflective() : null;
+            typeQueue.add(exprType);
+
+            if (surroundingMethod != null && suggests.isPlain())
+            {
+                // Find the local variables:
+                findLocalVariables(findInnerMostNode(ourPos - surroundingMethod.getAbsoluteEditorPosition(), surroundingMethod), surroundingMethod, ourPos - (suggests.getSuggestionToken() == null ? 0 : suggests.getSuggestionToken().getLength())).forEach(var -> {
+                    AssistContent completion = LocalCompletion.getCompletion(var.getFieldTypeAsPlainString(), var.getName(), false);
+                    if (completion != null)
+                    {
+                        localNames.add(var.getName());
+                        locals.add(completion);
+                    }
+                });
 
-        LinkedList<GenTypeClass> typeQueue = new LinkedList<GenTypeClass>();
-        typeQueue.add(exprType);
-        GenTypeClass origExprType = exprType;
+                for (int i = 0; i < surroundingMethod.getParamNames().size(); i++)
+                {
+                    String name = surroundingMethod.getParamNames().get(i);
+                    AssistContent completion = LocalCompletion.getCompletion(surroundingMethod.getParamTypes().get(i).getName(), name, true);
+                    if (completion != null)
+                    {
+                        localNames.add(name);
+                        locals.add(completion);
+                    }
+                }
+            }
+        }
 
-        while (!typeQueue.isEmpty())
+        /**
+         * Run the whole search, finding the members of any classes which are not yet indexed
+         * on this thread.
+         *
+         * @return The list of found completions.
+         */
+        private List<AssistContent> run()
         {
-            exprType = typeQueue.removeFirst();
+            List<AssistContent> completions = new ArrayList<AssistContent>();
+            while (!typeQueue.isEmpty())
+            {
+                GenTypeClass exprType = typeQueue.removeFirst();
+                if (typesDone.add(exprType.getReflective().getName()))
+                {
+                    addCompletions(exprType, memberIndex == null ? null : memberIndex.getMembers(exprType.getReflective()), completions);
+                }
+            }
+            // Sort the completions by name
+            Collections.sort(completions, (o1, o2) -> o1.getName().compareTo(o2.getName()));
+            completions.addAll(locals);
+            return completions;
+        }
 
-            if (!typesDone.add(exprType.getReflective().getName()))
+        /**
+         * Run the search, passing completions to the handler as they are found.  When the next
+         * type's members are not yet indexed, the completions found so far are passed to the
+         * handler, and the search continues (on the FX thread) once the members have been
+         * indexed in the background.
+         *
+         * @param completions The completions found so far, which have not been passed to the handler.
+         */
+        private void runAsync(List<AssistContent> completions, CompletionBatchHandler handler)
+        {
+            while (!typeQueue.isEmpty())
             {
-                // we've already done this type...
-                continue;
+                GenTypeClass exprType = typeQueue.getFirst();
+                Reflective reflective = exprType.getReflective();
+                if (typesDone.contains(reflective.getName()))
+                {
+                    // we've already done this type...
+                    typeQueue.removeFirst();
+                }
+                else if (memberIndex != null && !memberIndex.isIndexed(reflective))
+                {
+                    Collections.sort(completions, (o1, o2) -> o1.getName().compareTo(o2.getName()));
+                    if (!handler.gotCompletions(completions, false))
+                    {
+                        return;
+                    }
+                    memberIndex.indexAsync(reflective).whenComplete((v, ex) -> Platform.runLater(() -> {
+                        typeQueue.removeFirst();
+                        typesDone.add(reflective.getName());
+                        List<AssistContent> next = new ArrayList<>();
+                        // If indexing failed, ask the reflective itself:
+                        addCompletions(exprType, ex == null ? memberIndex.getMembers(reflective) : null, next);
+                        runAsync(next, handler);
+                    }));
+                    return;
+                }
+                else
+                {
+                    typeQueue.removeFirst();
+                    typesDone.add(reflective.getName());
+                    addCompletions(exprType, memberIndex == null ? null : memberIndex.getMembers(reflective), completions);
+                }
             }
-            Map<String, Set<MethodReflective>> methods = exprType.getReflective().getDeclaredMethods();
+            Collections.sort(completions, (o1, o2) -> o1.getName().compareTo(o2.getName()));
+            completions.addAll(locals);
+            handler.gotCompletions(completions, true);
+        }
+
+        /**
+         * Add the completions for the given type (which is removed from the queue) to the list,
+         * and queue its super types and outer class.
+         *
+         * @param members The members of the type, or null to ask its reflective.
+         */
+        private void addCompletions(GenTypeClass exprType, CompletionMemberIndex.Members members, List<AssistContent> completions)
+        {
+            Reflective reflective = exprType.getReflective();
+            Map<String, Set<MethodReflective>> methods = members != null ? members.getDeclaredMethods() : reflective.getDeclaredMethods();
             Map<String, GenTypeParameter> typeArgs = exprType.getMap();
 
             for (String name : methods.keySet())
@@ -259,7 +424,7 @@ public class ParseUtils
                     typeArgs, mset, consumer));
             }
 
-            Map<String, FieldReflective> fields = exprType.getReflective().getDeclaredFields();
+            Map<String, FieldReflective> fields = members != null ? members.getDeclaredFields() : reflective.getDeclaredFields();
             for (String name : fields.keySet())
             {
                 FieldReflective field = fields.get(name);
@@ -280,7 +445,8 @@ public class ParseUtils
                 FieldCompletion completion = new FieldCompletion(fieldType.toString(true), field.getName(),
                     field.getModifiers(), field.getDeclaringType().getName());
 
-                completions.add(completion);
+                // A field shadowed by a local variable is completed as "this.{field}":
+                completions.add(localNames.contains(field.getName()) ? new PrefixCompletionWrapper(completion, "this.") : completion);
 
                 if (consumer != null)
                 {
@@ -288,7 +454,7 @@ public class ParseUtils
                 }
             }
 
-            for (GenTypeClass stype : exprType.getReflective().getSuperTypes())
+            for (GenTypeClass stype : members != null ? members.getSuperTypes() : reflective.getSuperTypes())
             {
                 if (typeArgs != null)
                 {
@@ -300,53 +466,11 @@ public class ParseUtils
                 }
             }
 
-            // Sort the completions by name
-            Collections.sort(completions, (o1, o2) -> o1.getName().compareTo(o2.getName()));
-            Reflective outer = exprType.getReflective().getOuterClass();
+            Reflective outer = reflective.getOuterClass();
             if (outer != null)
             {
                 typeQueue.add(new GenTypeClass(outer));
             }
-
-        }
-
-        if (surroundingMethod != null && suggests.isPlain())
-        {
-            // Find and add the local variables:
-            findLocalVariables(findInnerMostNode(ourPos - surroundingMethod.getAbsoluteEditorPosition(), surroundingMethod), surroundingMethod, ourPos - (suggests.getSuggestionToken() == null ? 0 : suggests.getSuggestionToken().getLength())).forEach(var -> {
-                AssistContent completion = LocalCompletion.getCompletion(var.getFieldTypeAsPlainString(), var.getName(), false);
-                if (completion != null)
-                {
-                    scopeField(completions, var.getName());
-                    completions.add(completion);
-                }
-            });
-            
-            for (int i = 0; i < surroundingMethod.getParamNames().size(); i++)
-            {
-                String name = surroundingMethod.getParamNames().get(i);
-                AssistContent completion = LocalCompletion.getCompletion(surroundingMethod.getParamTypes().get(i).getName(), name, true);
-                if (completion != null)
-                {
-                    scopeField(completions, name);
-                    completions.add(completion);
-                }
-            }
-        }
-        
-        return completions;
-    }
-
-    private static void scopeField(List<AssistContent> completions, String name)
-    {
-        // Checks for any fields with the given name, and renames them to "this.{field}"
-        for (ListIterator<AssistContent> iterator = completions.listIterator(); iterator.hasNext(); )
-        {
-            AssistContent completion = iterator.next();
-            if (completion.getName().equals(name) && completion.getKind() == AssistContent.CompletionKind.FIELD)
-            {
-                iterator.set(new PrefixCompletionWrapper(completion, "this."));
-            }
         }
     }
 
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2009,2010,2011,2012,2014,2016,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2009,2010,2011,2012,2014,2016,2022,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -37,22 +37,39 @@ import bluej.parser.TokenStream;
 /**
  * A Java lexer. Breaks up a source stream into tokens.
  * 
+ * <p>Tokens can be retrieved either as LocatableToken objects, using nextToken(), or
+ * with nextTokenType(), which avoids creating any objects per token: the details of
+ * the current token are then available from the getToken...() methods, and its text
+ * is only turned into a String if getTokenText() is called.
+ * 
  * @author Marion Zalk
  */
 public final class JavaLexer implements TokenStream
 {
-    private StringBuffer textBuffer = new StringBuffer(); // text of current token
+    private final StringBuilder textBuffer = new StringBuilder(); // text of current token
     private EscapedUnicodeReader reader;
     private int rChar; 
     // Only used in one frequently-called method, but stored as field to avoid recreating object each call:
     private final TreeMap<Integer, LineColPos> minusPositions = new TreeMap<>();
-    private LineColPos begin;
-    private LineColPos end;
+    // The beginning of the token being read, and the end of the text read so far.  These are
+    // updated for every character, so we keep them as ints rather than LineColPos objects:
+    private int beginLine, beginColumn, beginPosition;
+    private int endLine, endColumn, endPosition;
+    // The details of the token most recently returned by nextTokenType():
+    private int tokenType = JavaTokenTypes.EOF;
+    private int tokenLine, tokenColumn, tokenPosition;
+    private int tokenEndLine, tokenEndColumn, tokenEndPosition;
     private boolean generateWhitespaceTokens = false;
     private boolean handleComments = true; // When false, doesn't recognise /*..*/ or //..\n as comments (for frames)
     private boolean handleMultilineStrings = true; // When false, treats """ as a single token rather than trying to match start/end
     
     private static Map<String,Integer> keywords = new HashMap<String,Integer>();
+    // An open-addressed copy of the keywords map, which we can look up in
+    // directly from the text buffer, without making a String:
+    private static final int KEYWORD_TABLE_SIZE = 256;
+    private static final String[] keywordTable = new String[KEYWORD_TABLE_SIZE];
+    private static final int[] keywordTableTypes = new int[KEYWORD_TABLE_SIZE];
+    private static final int MAX_KEYWORD_LENGTH = "synchronized".length();
     
     static {
         keywords.put("abstract", JavaTokenTypes.ABSTRACT);
@@ -113,8 +130,20 @@ public final class JavaLexer implements TokenStream
         keywords.put("while", JavaTokenTypes.LITERAL_while);
         keywords.put("void", JavaTokenTypes.LITERAL_void);
         keywords.put("yield", JavaTokenTypes.LITERAL_yield);
+
+        for (Map.Entry<String, Integer> keyword : keywords.entrySet())
+        {
+            int slot = keywordHash(keyword.getKey()) & (KEYWORD_TABLE_SIZE - 1);
+            while (keywordTable[slot] != null)
+            {
+                slot = (slot + 1) & (KEYWORD_TABLE_SIZE - 1);
+            }
+            keywordTable[slot] = keyword.getKey();
+            keywordTableTypes[slot] = keyword.getValue();
+        }
     }
 
+
     /**
      * Construct a lexer which readers from the given Reader.
      */
@@ -141,9 +170,10 @@ public final class JavaLexer implements TokenStream
     public JavaLexer(Reader in, int line, int col, int position)
     {
         reader = new EscapedUnicodeReader(in);
-        LineColPos lineColPos = new LineColPos(line, col, position);
-        reader.setLineColPos(lineColPos);
-        end = begin = lineColPos;
+        reader.setLineColPos(new LineColPos(line, col, position));
+        beginLine = endLine = line;
+        beginColumn = endColumn = col;
+        beginPosition = endPosition = position;
         try {
             rChar = reader.read();
         }
@@ -157,57 +187,137 @@ public final class JavaLexer implements TokenStream
      */
     public LocatableToken nextToken()
     {  
+        nextTokenType();
+        return createToken();
+    }
+    
+    /**
+     * Move on to the next token, and return its type, without creating a LocatableToken
+     * (or the String for its text).  The details of the token are available from
+     * getTokenText(), getTokenPosition() etc until the next call to nextTokenType()
+     * or nextToken().
+     */
+    public int nextTokenType()
+    {
         textBuffer.setLength(0);
         
         if (generateWhitespaceTokens && Character.isWhitespace((char)rChar))
         {
-            StringBuilder whitespaceBuffer = new StringBuilder();
             while (Character.isWhitespace((char)rChar))
             {
-                whitespaceBuffer.append((char)rChar);                
+                textBuffer.append((char)rChar);                
                 readNextChar();
             }
-            return makeToken(JavaTokenTypes.WHITESPACE, whitespaceBuffer.toString());
+            return setToken(JavaTokenTypes.WHITESPACE);
         }
         else
         {        
             while (Character.isWhitespace((char)rChar)) {
-                begin = reader.getLineColPos();
+                beginLine = reader.getLine();
+                beginColumn = reader.getColumn();
+                beginPosition = reader.getPosition();
                 readNextChar();
             }
         }
 
         if (rChar == -1) {
             // EOF
-            return makeToken(JavaTokenTypes.EOF, null); 
+            return setToken(JavaTokenTypes.EOF);
         }
         
         char nextChar = (char) rChar;
         if (Character.isJavaIdentifierStart(nextChar)) {
-            return createWordToken(nextChar); 
+            populateTextBuffer(nextChar);
+            return setToken(getWordType());
         }
         if (Character.isDigit(nextChar)) {
-            return makeToken(readDigitToken(nextChar, false), textBuffer.toString());
+            return setToken(readDigitToken(nextChar, false));
         }
-        return makeToken(getSymbolType(nextChar), textBuffer.toString());
+        return setToken(getSymbolType(nextChar));
     }
     
     /**
-     * Make a token of the given type, with the given text. The token
+     * Record the details of the current token, which is of the given type. The token
      * begins where the previous token ended, and ends at the current
      * position (as found in endLine and endColumn).
      */
-    private LocatableToken makeToken(int type, String txt)
-    {           
-        LocatableToken tok = new LocatableToken(type, txt, begin, end);
-        begin = end;
-        return tok;
+    private int setToken(int type)
+    {
+        tokenType = type;
+        tokenLine = beginLine;
+        tokenColumn = beginColumn;
+        tokenPosition = beginPosition;
+        tokenEndLine = endLine;
+        tokenEndColumn = endColumn;
+        tokenEndPosition = endPosition;
+        beginLine = endLine;
+        beginColumn = endColumn;
+        beginPosition = endPosition;
+        return type;
     }
-
-    private LocatableToken createWordToken(char nextChar)
+    
+    /**
+     * Create a LocatableToken for the token most recently returned by nextTokenType().
+     */
+    public LocatableToken createToken()
+    {
+        return new LocatableToken(tokenType, getTokenText(),
+            new LineColPos(tokenLine, tokenColumn, tokenPosition),
+            new LineColPos(tokenEndLine, tokenEndColumn, tokenEndPosition));
+    }
+    
+    /**
+     * Get the text of the current token (see nextTokenType()), with any unicode escapes
+     * taken care of.  Returns null for the EOF token.
+     */
+    public String getTokenText()
     {
-        populateTextBuffer(nextChar);
-        return makeToken(getWordType(), textBuffer.toString());
+        return tokenType == JavaTokenTypes.EOF ? null : textBuffer.toString();
+    }
+    
+    /**
+     * Check whether the text of the current token (see nextTokenType()) is equal
+     * to the given String, without creating a String for the token text.
+     */
+    public boolean tokenTextEquals(String text)
+    {
+        return tokenType != JavaTokenTypes.EOF && text.contentEquals(textBuffer);
+    }
+    
+    /**
+     * Get the position in the source of the beginning of the current token (see nextTokenType()).
+     */
+    public int getTokenPosition()
+    {
+        return tokenPosition;
+    }
+    
+    /**
+     * Get the position in the source of the end of the current token (see nextTokenType()).
+     */
+    public int getTokenEndPosition()
+    {
+        return tokenEndPosition;
+    }
+    
+    public int getTokenLine()
+    {
+        return tokenLine;
+    }
+    
+    public int getTokenColumn()
+    {
+        return tokenColumn;
+    }
+    
+    public int getTokenEndLine()
+    {
+        return tokenEndLine;
+    }
+    
+    public int getTokenEndColumn()
+    {
+        return tokenEndColumn;
     }
 
     /**
@@ -235,11 +345,17 @@ public final class JavaLexer implements TokenStream
             if (rval == '-')
             {
                 // Record when we see a minus for faster processing below:
-                minusPositions.put(textBuffer.length(), end);
+                minusPositions.put(textBuffer.length(), new LineColPos(endLine, endColumn, endPosition));
             }
             thisChar=(char)rval;
         } while (Character.isJavaIdentifierPart(thisChar) || thisChar == '-');
 
+        if (minusPositions.isEmpty())
+        {
+            // The common case; nothing to push back:
+            return;
+        }
+
         // We look for the first minus where the text before that minus matches a known keyword.
         // So e.g. if we consumed "non-sealed-pipe" we'd pick out the second minus as the first
         // one that is after a known keyword ("non-sealed").
@@ -250,13 +366,16 @@ public final class JavaLexer implements TokenStream
             IntStream.concat(minusPositions.keySet().stream().mapToInt(Integer::intValue).sorted(), IntStream.of(textBuffer.length()))
                 .filter(index -> keywords.containsKey(textBuffer.substring(0, index))).findFirst();
         
-        if (!minusPositions.isEmpty() && keywordEnd.orElse(-1) < textBuffer.length())
+        if (keywordEnd.orElse(-1) < textBuffer.length())
         {
             // We have found a minus but there either is not a keyword (keywordEnd will be empty)
             // or there are further minuses after the content (keywordEnd will be present,
             // but less than the full length of the string).
             int minusToPushBackFrom = keywordEnd.orElse(minusPositions.firstKey().intValue());
-            end = minusPositions.get(minusToPushBackFrom);
+            LineColPos end = minusPositions.get(minusToPushBackFrom);
+            endLine = end.line();
+            endColumn = end.column();
+            endPosition = end.position();
             try
             {
                 // If we found EOF then thisChar is already handled and we shouldn't push it back
@@ -269,7 +388,7 @@ public final class JavaLexer implements TokenStream
             }
             catch (IOException e)
             {
-                // If this happens, we have a hyphenated identifier longer than 65536 characters (the EscapedUnicodeReader buffer size).  Ignore?
+                // Pushing back cannot currently fail, as EscapedUnicodeReader has no pushback limit.  Ignore?
             }
             textBuffer.delete(minusToPushBackFrom, textBuffer.length());
         }
@@ -975,7 +1094,9 @@ public final class JavaLexer implements TokenStream
 
     private int readNextChar()
     {
-        end = reader.getLineColPos();
+        endLine = reader.getLine();
+        endColumn = reader.getColumn();
+        endPosition = reader.getPosition();
         try{
             rChar = reader.read();
         } catch(IOException e) {
@@ -987,12 +1108,26 @@ public final class JavaLexer implements TokenStream
 
     private int getWordType()
     {
-        String text=textBuffer.toString();
-        Integer i = keywords.get(text);
-        if (i == null) {
+        if (textBuffer.length() > MAX_KEYWORD_LENGTH) {
             return JavaTokenTypes.IDENT;
         }
-        return i;
+        int slot = keywordHash(textBuffer) & (KEYWORD_TABLE_SIZE - 1);
+        while (keywordTable[slot] != null) {
+            if (keywordTable[slot].contentEquals(textBuffer)) {
+                return keywordTableTypes[slot];
+            }
+            slot = (slot + 1) & (KEYWORD_TABLE_SIZE - 1);
+        }
+        return JavaTokenTypes.IDENT;
+    }
+    
+    private static int keywordHash(CharSequence text)
+    {
+        int hash = 0;
+        for (int i = 0; i < text.length(); i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash ^ (hash >>> 8);
     }
 
     public void setGenerateWhitespaceTokens(boolean generateWhitespaceTokens)
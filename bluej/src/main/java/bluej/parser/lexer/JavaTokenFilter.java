@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2011,2016,2017  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2011,2016,2017,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -37,6 +37,9 @@ import bluej.parser.TokenStream;
 public final class JavaTokenFilter implements TokenStream
 {
     private TokenStream sourceStream;
+    // The source stream, if it is a JavaLexer (in which case we can skip unwanted tokens
+    // without creating token objects for them); null otherwise.
+    private JavaLexer lexer;
     private LocatableToken lastComment;
     private LocatableToken cachedToken;
     private List<LocatableToken> buffer = new LinkedList<LocatableToken>();
@@ -46,6 +49,7 @@ public final class JavaTokenFilter implements TokenStream
     public JavaTokenFilter(TokenStream source)
     {
         sourceStream = source;
+        lexer = source instanceof JavaLexer ? (JavaLexer) source : null;
         lastComment = null;
     }
     
@@ -139,7 +143,17 @@ public final class JavaTokenFilter implements TokenStream
         
         // Repeatedly read tokens until we find a non-comment, non-whitespace token.
         while (true) {
-            t = (LocatableToken) sourceStream.nextToken();
+            if (lexer != null && parser == null) {
+                // Nobody is interested in single-line comments, so skip them without making tokens:
+                int ttype;
+                do {
+                    ttype = lexer.nextTokenType();
+                } while (ttype == JavaTokenTypes.SL_COMMENT);
+                t = lexer.createToken();
+            }
+            else {
+                t = (LocatableToken) sourceStream.nextToken();
+            }
             
             int ttype = t.getType();
             if (ttype == JavaTokenTypes.ML_COMMENT) {
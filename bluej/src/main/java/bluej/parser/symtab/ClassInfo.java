@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2013,2014,2016,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2013,2014,2016,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,8 +21,13 @@
  */
 package bluej.parser.symtab;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
+import bluej.parser.SourceLocation;
+import bluej.parser.SourceSpan;
 import bluej.utility.JavaUtils;
 import bluej.utility.SortedProperties;
 
@@ -529,4 +534,142 @@ public final class ClassInfo
     {
         return hadParseError;
     }
+
+    /**
+     * Write this information to the given output, so that it can be read back
+     * later (by readFrom) without parsing the source again.
+     */
+    public void writeTo(DataOutput out) throws IOException
+    {
+        out.writeBoolean(foundPublicClass);
+        writeString(out, name);
+        writeString(out, superclass);
+        writeStrings(out, implemented);
+        writeStrings(out, used);
+        writeStrings(out, permits);
+        out.writeInt(comments.size());
+        for (SavedComment c : comments) {
+            out.writeUTF(c.target);
+            writeString(out, c.comment);
+            writeString(out, c.paramnames);
+        }
+        writeStrings(out, typeParameterTexts);
+        writeSelection(out, typeParametersSelection);
+        writeSelection(out, extendsReplaceSelection);
+        writeSelection(out, superReplaceSelection);
+        writeSelection(out, extendsInsertSelection);
+        writeSelection(out, implementsInsertSelection);
+        out.writeBoolean(interfaceSelections != null);
+        if (interfaceSelections != null) {
+            out.writeInt(interfaceSelections.size());
+            for (Selection s : interfaceSelections) {
+                writeSelection(out, s);
+            }
+        }
+        out.writeBoolean(packageStatementExists);
+        writeSelection(out, packageStatementSelection);
+        writeSelection(out, packageNameSelection);
+        writeSelection(out, packageSemiSelection);
+        out.writeUTF(packageName);
+        out.writeBoolean(isInterface);
+        out.writeBoolean(isAbstract);
+        out.writeBoolean(isUnitTest);
+        out.writeBoolean(isEnum);
+        out.writeBoolean(hadParseError);
+    }
+
+    /**
+     * Read information previously written by writeTo.
+     */
+    public static ClassInfo readFrom(DataInput in) throws IOException
+    {
+        ClassInfo info = new ClassInfo();
+        info.foundPublicClass = in.readBoolean();
+        info.name = readString(in);
+        info.superclass = readString(in);
+        readStrings(in, info.implemented);
+        readStrings(in, info.used);
+        readStrings(in, info.permits);
+        int numComments = in.readInt();
+        for (int i = 0; i < numComments; i++) {
+            String target = in.readUTF();
+            String comment = readString(in);
+            String paramnames = readString(in);
+            info.comments.add(info.new SavedComment(target, comment, paramnames));
+        }
+        readStrings(in, info.typeParameterTexts);
+        info.typeParametersSelection = readSelection(in);
+        info.extendsReplaceSelection = readSelection(in);
+        info.superReplaceSelection = readSelection(in);
+        info.extendsInsertSelection = readSelection(in);
+        info.implementsInsertSelection = readSelection(in);
+        if (in.readBoolean()) {
+            int numSelections = in.readInt();
+            info.interfaceSelections = new ArrayList<Selection>(numSelections);
+            for (int i = 0; i < numSelections; i++) {
+                info.interfaceSelections.add(readSelection(in));
+            }
+        }
+        info.packageStatementExists = in.readBoolean();
+        info.packageStatementSelection = readSelection(in);
+        info.packageNameSelection = readSelection(in);
+        info.packageSemiSelection = readSelection(in);
+        info.packageName = in.readUTF();
+        info.isInterface = in.readBoolean();
+        info.isAbstract = in.readBoolean();
+        info.isUnitTest = in.readBoolean();
+        info.isEnum = in.readBoolean();
+        info.hadParseError = in.readBoolean();
+        return info;
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException
+    {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutput out, List<String> strings) throws IOException
+    {
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static void readStrings(DataInput in, List<String> strings) throws IOException
+    {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+    }
+
+    private static void writeSelection(DataOutput out, Selection s) throws IOException
+    {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeInt(s.getLine());
+            out.writeInt(s.getColumn());
+            out.writeInt(s.getEndLine());
+            out.writeInt(s.getEndColumn());
+        }
+    }
+
+    private static Selection readSelection(DataInput in) throws IOException
+    {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        SourceLocation start = new SourceLocation(in.readInt(), in.readInt());
+        SourceLocation end = new SourceLocation(in.readInt(), in.readInt());
+        return new Selection(new SourceSpan(start, end));
+    }
 }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2015,2016,2019,2021,2022,2023  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2015,2016,2019,2021,2022,2023,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -36,6 +36,7 @@ import javax.tools.DocumentationTool;
 import javax.tools.ToolProvider;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
@@ -44,9 +45,16 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 /**
  * This class handles documentation generation from inside BlueJ.
@@ -91,6 +99,11 @@ public class DocuGenerator
      */
     private static String tmpJavadocParams = " -noindex -notree -nohelp -nonavbar";
 
+    /** The file in the documentation directory which records the javadoc command and
+     * a hash of each source file used for the last successful project documentation run.
+     */
+    private static final String stateFileName = "doc-state.properties";
+
     /** The project this generator belongs to. */
     private Project project;
     /** The project directory. */
@@ -110,12 +123,16 @@ public class DocuGenerator
      * will be shown in a web browser.
      * @param call the call to the documentation generating tool.
      * @param url the URL to be shown after successful completion.
+     * @param sources the source files documented by the call, by package name,
+     *        if the call should be skipped when they have not changed since the
+     *        last run (see stateFileName); null to always run the call.
      */
     private static void generateDoc(String[] call, File result, File log, 
-                                    String header, boolean openBrowser)
+                                    String header, boolean openBrowser,
+                                    Map<String, List<File>> sources)
     {
         // start the call in a separate thread to allow fast return to GUI.
-        Thread starterThread = new DocuRunStarter(call, result, log, header, openBrowser);
+        Thread starterThread = new DocuRunStarter(call, result, log, header, openBrowser, sources);
         starterThread.setPriority(Thread.MIN_PRIORITY);
         starterThread.start();
         BlueJEvent.raiseEvent(BlueJEvent.GENERATING_DOCU, null);
@@ -137,10 +154,12 @@ public class DocuGenerator
         private File logFile;
         private String logHeader;
         private boolean openBrowser;
+        private Map<String, List<File>> sources;
         private static final Object mutex = new Object();
 
         public DocuRunStarter(String[] call, File result, File log, 
-                              String header, boolean browse)
+                              String header, boolean browse,
+                              Map<String, List<File>> sources)
         {
             super("DocuRun");
             docuCall = call;
@@ -148,6 +167,7 @@ public class DocuGenerator
             logFile = log;
             logHeader = header;
             openBrowser = browse;
+            this.sources = sources;
         }
 
         /**
@@ -161,11 +181,34 @@ public class DocuGenerator
             // Process docuRun;
             PrintWriter logWriter = null;
             int exitValue = -1;
+            long startTime = System.currentTimeMillis();
             try {
                 synchronized (mutex) {
                     // We synchronize because Javadoc can run into problems if several
                     // instances are running at the same time. Also, this prevents the
                     // logfile from being written by two threads at once.
+                    File stateFile = new File(logFile.getParentFile(), stateFileName);
+                    Properties state = null;
+                    if (sources != null) {
+                        state = getSourceState(docuCall, sources);
+                        if (isUpToDate(state, stateFile, showFile)) {
+                            // Nothing has changed since the documentation was generated:
+                            Platform.runLater(() -> {
+                                BlueJEvent.raiseEvent(BlueJEvent.DOCU_GENERATED,
+                                        Config.getString("pkgmgr.docuUpToDate"));
+                                if (openBrowser) {
+                                    Utility.openWebBrowser(showFile.getPath());
+                                }
+                            });
+                            return;
+                        }
+                        Debug.log("Generating documentation: " + countChanged(loadState(stateFile), state)
+                                + " of " + (state.size() - 1) + " classes changed");
+                        // Until this run succeeds, the documentation is not up to date:
+                        stateFile.delete();
+                    }
+                    removeStylesheet(logFile.getParentFile());
+                    
                     OutputStream logStream = new FileOutputStream(logFile);
                     logWriter = new PrintWriter(logStream,true);
                     
@@ -215,13 +258,19 @@ public class DocuGenerator
                             logWriter.println("Interrupted while waiting for javadoc process to complete.");
                         }
                     }
+                    
+                    if (exitValue == 0 && state != null) {
+                        saveState(stateFile, state);
+                    }
                 }
                 
                 final int finalExitValue = exitValue;
+                final String seconds = String.format("%.1f", (System.currentTimeMillis() - startTime) / 1000.0);
                 Platform.runLater(new Runnable() {
                     public void run() {
                         if (finalExitValue == 0) {
-                            BlueJEvent.raiseEvent(BlueJEvent.DOCU_GENERATED, null);
+                            BlueJEvent.raiseEvent(BlueJEvent.DOCU_GENERATED,
+                                    Config.getString("pkgmgr.docuGeneratedTime").replace("$", seconds));
                             if (!showFile.exists()) {
                                 Debug.message("showfile does not exist - searching");
                                 showFile = FileUtility.findFile(showFile.getParentFile(),
@@ -252,6 +301,103 @@ public class DocuGenerator
         }
     }
 
+    /**
+     * Gets the state of the sources for a documentation run: the javadoc call,
+     * and a hash of each source file, keyed by class name.
+     */
+    @OnThread(Tag.Worker)
+    static Properties getSourceState(String[] call, Map<String, List<File>> sources)
+    {
+        Properties state = new Properties();
+        state.setProperty("javadoc.call", String.join(" ", call));
+        for (Map.Entry<String, List<File>> pkg : sources.entrySet()) {
+            String prefix = pkg.getKey().isEmpty() ? "" : pkg.getKey() + ".";
+            for (File sourceFile : pkg.getValue()) {
+                String name = sourceFile.getName();
+                name = name.substring(0, name.lastIndexOf('.'));
+                try {
+                    state.setProperty(prefix + name, hash(Files.readAllBytes(sourceFile.toPath())));
+                }
+                catch (IOException e) {
+                    // Leave it out; javadoc will report the problem.
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Checks whether the documentation from the last successful project documentation
+     * run is still up to date: the javadoc call and the sources are the same as they
+     * were then (see getSourceState), and the documentation has not been removed.
+     */
+    @OnThread(Tag.Any)
+    static boolean isUpToDate(Properties state, File stateFile, File showFile)
+    {
+        return state.equals(loadState(stateFile)) && showFile.exists();
+    }
+
+    /**
+     * Gets the number of classes in the new state which are not in the old state
+     * with the same hash.
+     */
+    @OnThread(Tag.Any)
+    private static long countChanged(Properties oldState, Properties newState)
+    {
+        return newState.stringPropertyNames().stream()
+                .filter(k -> !k.equals("javadoc.call"))
+                .filter(k -> oldState == null || !newState.getProperty(k).equals(oldState.getProperty(k)))
+                .count();
+    }
+
+    @OnThread(Tag.Any)
+    private static String hash(byte[] contents)
+    {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(contents);
+            StringBuilder s = new StringBuilder();
+            for (byte b : digest) {
+                s.append(String.format("%02x", b));
+            }
+            return s.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every Java platform must support SHA-256; fall back to something weaker:
+            return Integer.toHexString(Arrays.hashCode(contents));
+        }
+    }
+
+    /**
+     * Loads the state saved by the last successful project documentation run.
+     * @return The state, or null if there is none.
+     */
+    @OnThread(Tag.Any)
+    private static Properties loadState(File stateFile)
+    {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        Properties state = new Properties();
+        try (InputStream in = new FileInputStream(stateFile)) {
+            state.load(in);
+            return state;
+        }
+        catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @OnThread(Tag.Any)
+    static void saveState(File stateFile, Properties state)
+    {
+        try (OutputStream out = new FileOutputStream(stateFile)) {
+            state.store(out, "BlueJ documentation state");
+        }
+        catch (IOException e) {
+            Debug.reportError("Could not save documentation state", e);
+        }
+    }
+
     /**
      * A thread which reads from an InputStream and echoes everything read
      * to an OutputStream. 
@@ -353,7 +499,10 @@ public class DocuGenerator
         // documentation to the API documentation
         addLinkParam(call);
 
-        // add the names of all the targets for the documentation tool.
+        // add the names of all the targets for the documentation tool, and
+        // record the source files which javadoc will read for each package.
+        String javaSuffix = "." + SourceType.Java.toString().toLowerCase();
+        Map<String, List<File>> sources = new LinkedHashMap<>();
         // first: get the names of all packages that contain java sources.
         List<String> packageNames = project.getPackageNames();
         for (Iterator<String> names = packageNames.iterator(); names.hasNext(); )
@@ -362,26 +511,28 @@ public class DocuGenerator
             // as javadoc doesn't like packages with no java-files, we have to
             // pass only names of packages that really contain java files.
             Package pack = project.getPackage(packageName);
-            if (FileUtility.containsFile(pack.getPath(), "." + SourceType.Java.toString().toLowerCase()))
+            File[] javaFiles = pack.getPath().listFiles((dir, name) -> name.endsWith(javaSuffix));
+            if (packageName.length() > 0 && javaFiles != null && javaFiles.length > 0)
             {
-                if (packageName.length() > 0)
-                {
-                    call.add(packageName);
-                }
+                call.add(packageName);
+                sources.put(packageName, Arrays.asList(javaFiles));
             }
         }
 
         // second: get class names of classes in unnamed package, if any
         List<String> classNames = project.getPackage("").getAllClassnamesWithSource();
         String dirName = project.getProjectDir().getAbsolutePath();
+        List<File> unnamedSources = new ArrayList<>();
         for (Iterator<String> names = classNames.iterator(); names.hasNext(); )
         {
-            call.add(dirName + "/" + names.next() + "." + SourceType.Java.toString().toLowerCase());
+            String fileName = dirName + "/" + names.next() + javaSuffix;
+            call.add(fileName);
+            unnamedSources.add(new File(fileName));
         }
+        sources.put("", unnamedSources);
         String[] javadocCall = call.toArray(new String[0]);
 
-        removeStylesheet();
-        generateDoc(javadocCall, startPage, logFile, projectLogHeader, true);
+        generateDoc(javadocCall, startPage, logFile, projectLogHeader, true, sources);
 
         return "";
     }
@@ -421,8 +572,10 @@ public class DocuGenerator
         File htmlFile = new File(getDocuPath(filename));
         File logFile = new File(docDir, "logfile.txt");
 
-        removeStylesheet();
-        generateDoc(javadocCall, htmlFile, logFile, classLogHeader, false);
+        // This overwrites the class's page in the project documentation, so that is
+        // no longer up to date:
+        new File(docDir, stateFileName).delete();
+        generateDoc(javadocCall, htmlFile, logFile, classLogHeader, false, null);
     }
 
     /**
@@ -432,9 +585,10 @@ public class DocuGenerator
      * even though it may needs to replace the pre-4.1.0 version.  We just delete it every
      * time to make sure the stylesheet.css is up-to-date.
      */
-    private void removeStylesheet()
+    @OnThread(Tag.Any)
+    private static void removeStylesheet(File docDir)
     {
-        File stylesheet = new File(projectDir, "doc/stylesheet.css");
+        File stylesheet = new File(docDir, "stylesheet.css");
         if (stylesheet.exists())
         {
             stylesheet.delete();
@@ -0,0 +1,146 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.util.List;
+
+import javafx.application.Platform;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Window;
+
+import bluej.Config;
+import bluej.pkgmgr.ProjectSourceIndex.Occurrence;
+import bluej.utility.JavaNames;
+import bluej.utility.Utility;
+import bluej.utility.javafx.JavaFXUtil;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The "Find in Project" dialog.  Searches the project's source index as the user types,
+ * and opens the editor at a result when it is double-clicked (or Enter is pressed).
+ */
+@OnThread(Tag.FXPlatform)
+public class FindInProjectDialog extends Dialog<Void>
+{
+    private final Project project;
+    private final ListView<Occurrence> results = new ListView<>();
+    private final Label status = new Label();
+    // Incremented for each search, so that we can ignore results of out-of-date searches:
+    private int searchCount = 0;
+
+    public FindInProjectDialog(Window parent, Project project)
+    {
+        this.project = project;
+        initOwner(parent);
+        initModality(Modality.NONE);
+        setTitle(Config.getString("pkgmgr.findInProject.title"));
+        Config.addDialogStylesheets(getDialogPane());
+        setResizable(true);
+        getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        TextField searchField = new TextField();
+        searchField.setPromptText(Config.getString("pkgmgr.findInProject.prompt"));
+        JavaFXUtil.addChangeListenerPlatform(searchField.textProperty(), this::search);
+
+        results.setCellFactory(lv -> new ListCell<Occurrence>() {
+            @Override
+            @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+            protected void updateItem(Occurrence item, boolean empty)
+            {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : describe(item));
+            }
+        });
+        results.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2)
+                showSelected();
+        });
+        results.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ENTER)
+                showSelected();
+        });
+
+        VBox content = new VBox(searchField, results, status);
+        JavaFXUtil.addStyleClass(content, "find-in-project-dialog-content");
+        getDialogPane().setContent(content);
+        setOnShown(e -> searchField.requestFocus());
+    }
+
+    /**
+     * Searches the index for the given text, in the background, and shows the results.
+     */
+    private void search(String text)
+    {
+        int thisSearch = ++searchCount;
+        ProjectSourceIndex index = project.getSourceIndex();
+        if (!index.isBuilt())
+            status.setText(Config.getString("pkgmgr.findInProject.indexing"));
+        Utility.runBackground(() -> {
+            List<Occurrence> found = index.find(text);
+            Platform.runLater(() -> {
+                // Ignore if another search has been started since:
+                if (thisSearch == searchCount)
+                {
+                    results.getItems().setAll(found);
+                    status.setText(found.isEmpty() && !text.isBlank() ? Config.getString("pkgmgr.findInProject.noResults") : "");
+                }
+            });
+        });
+    }
+
+    /**
+     * Gets the text to display for the given occurrence.
+     */
+    private String describe(Occurrence occurrence)
+    {
+        String className = project.convertPathToPackageName(occurrence.getFile().getPath());
+        return (className == null ? occurrence.getFile().getName() : className)
+            + ":" + occurrence.getLine() + ":" + occurrence.getColumn();
+    }
+
+    /**
+     * Opens the editor at the selected result.
+     */
+    private void showSelected()
+    {
+        Occurrence selected = results.getSelectionModel().getSelectedItem();
+        if (selected == null)
+            return;
+        String className = project.convertPathToPackageName(selected.getFile().getPath());
+        if (className == null)
+            return;
+        Package pkg = project.getPackage(JavaNames.getPrefix(className));
+        if (pkg != null)
+        {
+            pkg.showSource(selected.getFile().getName(), selected.getLine());
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2023,2024 Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2023,2024,2026 Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -50,6 +50,7 @@ import bluej.pkgmgr.target.CSSTarget;
 import bluej.pkgmgr.target.DependentTarget.State;
 import bluej.utility.javafx.JavaFXUtil;
 import bluej.Config;
+import bluej.classmgr.ClassFileAnalyser;
 import bluej.collect.DataCollectionCompileObserverWrapper;
 import bluej.collect.DataCollector;
 import bluej.compiler.*;
@@ -739,6 +740,7 @@ public final class Package
     {
         if(!hasPackageTargetsLoaded)
         {
+            long start = System.currentTimeMillis();
             // read in all the targets contained in this package
             // into this temporary map
             Map<String,Target> propTargets = new HashMap<String,Target>();
@@ -936,6 +938,7 @@ public final class Package
                 }
                 addTarget(target);
             }
+            long targetsLoaded = System.currentTimeMillis();
 
             if (!recorded)
             {
@@ -1005,6 +1008,17 @@ public final class Package
                 }
             }
 
+            long statesUpdated = System.currentTimeMillis();
+
+            // Analyse all the compiled class files up front, in parallel:
+            List<File> classFiles = new ArrayList<>();
+            for (Target target : targetsCopy) {
+                if (target instanceof ClassTarget && ((ClassTarget) target).isCompiled()) {
+                    classFiles.add(((ClassTarget) target).getClassFile());
+                }
+            }
+            Map<File, ClassFileAnalyser.Result> classFileResults = getProject().getClassFileAnalyser().analyseAll(classFiles);
+
             // Update class roles
             for (Target target : targetsCopy) {
 
@@ -1013,8 +1027,11 @@ public final class Package
                     if (ct.isCompiled()) {
                         Class<?> cl = loadClass(ct.getQualifiedName());
                         ct.determineRole(cl);
-                        ct.analyseDependencies(cl);
-                        ct.analyseTypeParams(cl);
+                        ClassFileAnalyser.Result classFileResult = classFileResults.get(ct.getClassFile());
+                        if (classFileResult != null) {
+                            ct.analyseDependencies(classFileResult.getInfo());
+                            ct.analyseTypeParams(classFileResult.getInfo());
+                        }
                         if (cl == null) {
                             ct.setState(State.NEEDS_COMPILE);
                         }
@@ -1050,6 +1067,12 @@ public final class Package
 
             // update the flag
             hasPackageTargetsLoaded = true;
+
+            long end = System.currentTimeMillis();
+            Debug.log("Loaded package \"" + getQualifiedName() + "\": targets " + (targetsLoaded - start)
+                    + "ms, dependencies and states " + (statesUpdated - targetsLoaded)
+                    + "ms, class analysis " + (end - statesUpdated) + "ms ("
+                    + getProject().getParseCache().getStatistics() + " in project so far)");
         }
         else
         {
@@ -1916,6 +1939,8 @@ public final class Package
             throw new IllegalArgumentException();
 
         targets.add(t.getIdentifierName(), t);
+        if (hasPackageTargetsLoaded && t instanceof ClassTarget)
+            getProject().getParseCache().classesChanged();
         fireChangedEvent();
     }
 
@@ -1923,6 +1948,8 @@ public final class Package
     {
         targets.remove(t.getIdentifierName());
         t.setRemoved();
+        if (t instanceof ClassTarget)
+            getProject().getParseCache().classesChanged();
         fireChangedEvent();
     }
 
@@ -1939,6 +1966,8 @@ public final class Package
         }
         targets.remove(oldIdentifier);
         targets.add(newIdentifier, t);
+        if (t instanceof ClassTarget)
+            getProject().getParseCache().classesChanged();
     }
 
     /**
@@ -2789,9 +2818,12 @@ public final class Package
             // Compile the classes that have no direct/indirect dependencies that have compile errors
             doCompile(readyToCompileList, this, CompileReason.USER, CompileType.EXPLICIT_USER_COMPILE);
 
+            // Analyse the class files in parallel, then update the targets:
+            Map<File, ClassFileAnalyser.Result> classFileResults = getProject().getClassFileAnalyser()
+                    .analyseAll(Utility.mapList(targetsToAnalyse, ClassTarget::getClassFile));
             for (ClassTarget classTarget : targetsToAnalyse)
             {
-                classTarget.analyseAfterCompile();
+                classTarget.analyseAfterCompile(classFileResults.get(classTarget.getClassFile()));
             }
 
             if (type.keepClasses())
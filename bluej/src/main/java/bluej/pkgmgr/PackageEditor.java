@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2012,2013,2014,2016,2017,2018,2019,2020,2021,2022,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2012,2013,2014,2016,2017,2018,2019,2020,2021,2022,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -43,6 +43,8 @@ import bluej.utility.javafx.ResizableCanvas;
 import bluej.views.CallableView;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Node;
@@ -51,6 +53,7 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
@@ -108,6 +111,21 @@ public final class PackageEditor extends StackPane
     private final Canvas arrowLayer = new ResizableCanvas();
     // Boolean remembering whether we've already scheduled a repaint.
     private boolean aboutToRepaint = false;
+    // Whether the next repaint must redraw all of the visible area, not just what has changed:
+    private boolean repaintAll = true;
+    // The cached geometry of each arrow on the arrow layer, and an index of their bounds,
+    // so that a repaint only needs to recompute the arrows whose ends have moved, and
+    // redraw the arrows which overlap the changed region:
+    private final IdentityHashMap<Dependency, ArrowShape> arrowShapes = new IdentityHashMap<>();
+    private final SpatialIndex<ArrowShape> arrowIndex = new SpatialIndex<>(ARROW_INDEX_CELL_SIZE);
+    // The arrow currently being created, if any (not cached, since it follows the mouse):
+    private ArrowShape creatingArrowShape;
+    // The area of the arrow layer which was up to date after the last repaint (only the visible area
+    // is painted; anything outside may be out of date).  Null if nothing has been painted yet.
+    private Rectangle2D paintedArea;
+    // The scroll pane we are shown in (if any), whose viewport determines the area we paint:
+    private ScrollPane scrollPane;
+    private final ChangeListener<Bounds> viewportListener = (a, b, c) -> repaint();
     // The ContextMenu that is currently being shown on screen (null if not visible)
     @OnThread(Tag.FXPlatform)
     private ContextMenu showingContextMenu;
@@ -164,8 +182,10 @@ public final class PackageEditor extends StackPane
         // in order to click on the back layer:
         frontClassLayer.setPickOnBounds(false);
 
-        JavaFXUtil.addChangeListenerPlatform(arrowLayer.widthProperty(), s -> repaint());
-        JavaFXUtil.addChangeListenerPlatform(arrowLayer.heightProperty(), s -> repaint());
+        JavaFXUtil.addChangeListenerPlatform(arrowLayer.widthProperty(), s -> repaintAll());
+        JavaFXUtil.addChangeListenerPlatform(arrowLayer.heightProperty(), s -> repaintAll());
+        // We only paint the visible part of the arrow layer, so we need to repaint when scrolled:
+        JavaFXUtil.addChangeListenerPlatform(sceneProperty(), s -> watchScrollPane());
         // The mouse events occur on us not on the selection layer.
         // We don't want the display getting in the way of mouse events:
         selectionLayer.setMouseTransparent(true);
@@ -345,15 +365,14 @@ public final class PackageEditor extends StackPane
      */
     public void findSpaceForVertex(Target t)
     {
-        ArrayList<Rectangle2D> a = new ArrayList<>();
+        SpatialIndex<Target> occupied = new SpatialIndex<>(ARROW_INDEX_CELL_SIZE);
 
         for (Target vertex : pkg.getVertices())
         {
             // lets discount the vertex we are adding from the space
             // calculations
             if (vertex != t) {
-                Rectangle2D vr = new Rectangle2D(vertex.getX(), vertex.getY(), (int)vertex.getWidth(), (int)vertex.getHeight());
-                a.add(vr);
+                occupied.put(vertex, vertex.getX(), vertex.getY(), vertex.getX() + vertex.getWidth(), vertex.getY() + vertex.getHeight());
             }
         }
         
@@ -367,8 +386,7 @@ public final class PackageEditor extends StackPane
 
         for (int y = 0; y < (2 * minHeight); y += 10) {
             for (int x = 0; x < (minWidth - t.getWidth() - 2 * WHITESPACE_SIZE); x += 10) {
-                final Rectangle2D targetRectMoved = new Rectangle2D(x, y, targetRect.getWidth(), targetRect.getHeight());
-                if (a.stream().noneMatch(r -> r.intersects(targetRectMoved))) {
+                if (occupied.query(x, y, x + targetRect.getWidth(), y + targetRect.getHeight()).isEmpty()) {
                     t.setPos(x + 10, y + 10);
                     return;
                 }
@@ -439,6 +457,7 @@ public final class PackageEditor extends StackPane
     private static final int ARROW_SIZE = 18; // pixels
     private static final double ARROW_ANGLE = Math.PI / 6; // radians
     private static final double DASHES[] = {5.0f, 2.0f};
+    private static final double ARROW_INDEX_CELL_SIZE = 200; // pixels
 
     /**
      * Schedules a repaint.  The repaint is done with a runLater,
@@ -455,6 +474,42 @@ public final class PackageEditor extends StackPane
         }
     }
 
+    /**
+     * Schedules a repaint of the whole visible area, rather than just the parts
+     * which have changed.
+     */
+    private void repaintAll()
+    {
+        repaintAll = true;
+        repaint();
+    }
+
+    /**
+     * Starts listening to the viewport of the scroll pane we are in (if any), after
+     * we have been added to or removed from a scene.
+     */
+    private void watchScrollPane()
+    {
+        if (scrollPane != null)
+        {
+            scrollPane.viewportBoundsProperty().removeListener(viewportListener);
+            scrollPane = null;
+        }
+        if (getScene() != null)
+        {
+            for (Node n = getParent(); n != null; n = n.getParent())
+            {
+                if (n instanceof ScrollPane)
+                {
+                    scrollPane = (ScrollPane) n;
+                    scrollPane.viewportBoundsProperty().addListener(viewportListener);
+                    break;
+                }
+            }
+        }
+        repaintAll();
+    }
+
     /** Records that the mouse is now hovering over the given target */
     public void setMouseIn(Target target)
     {
@@ -594,65 +649,242 @@ public final class PackageEditor extends StackPane
     }
 
     /**
-     * Does the actual repaint of the arrowLayer (do not call directly;
-     * see repaint method).
+     * The geometry of an arrow, ready to draw: its lines and (for extends arrows) arrowhead.
+     * The key holds the positions which the geometry was computed from; if they change,
+     * the geometry must be computed again.
      */
-    private void actualRepaint()
+    @OnThread(Tag.FXPlatform)
+    private static class ArrowShape
     {
-        aboutToRepaint = false;
-        List<Dependency> extendsDeps = isShowExtends() ? new ArrayList<>(pkg.getExtendsArrows()) : Collections.emptyList();;
-        List<UsesDependency> usesDeps = isShowUses() ? new ArrayList<>(pkg.getUsesArrows()) : Collections.emptyList();
-
-        List<ExtendsDepInfo> extendsLines = new ArrayList<>(Utility.mapList(extendsDeps, ExtendsDepInfo::new));
-        if (extendsSubClass != null)
+        private final double[] key;
+        private final boolean extendsArrow;
+        private final Color stroke;
+        private final double lineWidth;
+        // The arrowhead polygon, or null if none:
+        private final double[] headX;
+        private final double[] headY;
+        // Lines, each as four consecutive values: x1, y1, x2, y2
+        private final double[] solidLines;
+        private final double[] dashedLines;
+        // Bounds of everything drawn, including the line width:
+        private double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        private double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+        private ArrowShape(double[] key, boolean extendsArrow, Color stroke, double lineWidth,
+                           double[] headX, double[] headY, double[] solidLines, double[] dashedLines)
         {
-            if (extendsSuperClassHover != null)
+            this.key = key;
+            this.extendsArrow = extendsArrow;
+            this.stroke = stroke;
+            this.lineWidth = lineWidth;
+            this.headX = headX;
+            this.headY = headY;
+            this.solidLines = solidLines;
+            this.dashedLines = dashedLines;
+            if (headX != null)
             {
-                extendsLines.add(new ExtendsDepInfo(extendsSubClass, extendsSuperClassHover));
+                for (int i = 0; i < headX.length; i++)
+                    include(headX[i], headY[i]);
             }
-            else
+            for (double[] lines : new double[][] {solidLines, dashedLines})
             {
-                Point2D p = arrowLayer.sceneToLocal(newExtendsDestX, newExtendsDestY);
-                extendsLines.add(new ExtendsDepInfo(extendsSubClass, p.getX(), p.getY()));
+                for (int i = 0; i < lines.length; i += 2)
+                    include(lines[i], lines[i + 1]);
             }
+            // Allow for the line width and anti-aliasing:
+            double margin = lineWidth + 2;
+            minX -= margin;
+            minY -= margin;
+            maxX += margin;
+            maxY += margin;
         }
-        
-        
-        GraphicsContext g = arrowLayer.getGraphicsContext2D();
-        g.clearRect(0, 0, arrowLayer.getWidth(), arrowLayer.getHeight());
 
-        for (ExtendsDepInfo d : extendsLines)
+        private void include(double x, double y)
         {
-            g.setStroke(d.creating ? Color.BLUE : Color.BLACK);
-            g.setLineWidth(d.selected ? 3.0 : 1.0);
-            Dependency.Line line = d.line;
-            double fromY = line.from.getY();
-            double fromX = line.from.getX();
-            double toY = line.to.getY();
-            double toX = line.to.getX();
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        private void draw(GraphicsContext g)
+        {
+            g.setStroke(stroke);
+            g.setLineWidth(lineWidth);
+            g.setLineDashes();
+            if (headX != null)
+            {
+                g.strokePolygon(headX, headY, headX.length);
+            }
+            for (int i = 0; i < solidLines.length; i += 4)
+            {
+                g.strokeLine(solidLines[i], solidLines[i + 1], solidLines[i + 2], solidLines[i + 3]);
+            }
+            g.setLineDashes(DASHES);
+            for (int i = 0; i < dashedLines.length; i += 4)
+            {
+                g.strokeLine(dashedLines[i], dashedLines[i + 1], dashedLines[i + 2], dashedLines[i + 3]);
+            }
+        }
+    }
+
+    /**
+     * Gets the positions which the geometry of an extends arrow depends on.
+     */
+    private static double[] extendsKey(Dependency d)
+    {
+        Target from = d.getFrom();
+        Target to = d.getTo();
+        return new double[] {from.getX(), from.getY(), from.getWidth(), from.getHeight(),
+            to.getX(), to.getY(), to.getWidth(), to.getHeight(), d.isSelected() ? 1 : 0, d.getType().ordinal()};
+    }
 
+    /**
+     * Gets the positions which the geometry of a uses arrow depends on.
+     */
+    private static double[] usesKey(UsesDependency d)
+    {
+        return new double[] {d.getSourceX(), d.getSourceY(), d.getDestX(), d.getDestY(),
+            d.isStartTop() ? 1 : 0, d.isEndLeft() ? 1 : 0};
+    }
 
-            double angle = Math.atan2(-(fromY - toY), fromX - toX);
+    /**
+     * Computes the geometry of an extends arrow (including one being created).
+     */
+    private static ArrowShape makeExtendsShape(ExtendsDepInfo d, double[] key)
+    {
+        Dependency.Line line = d.line;
+        double fromY = line.from.getY();
+        double fromX = line.from.getX();
+        double toY = line.to.getY();
+        double toX = line.to.getX();
+
+        double angle = Math.atan2(-(fromY - toY), fromX - toX);
+
+        double arrowJoinX = toX + ((ARROW_SIZE - 2) * Math.cos(angle));
+        double arrowJoinY = toY - ((ARROW_SIZE - 2) * Math.sin(angle));
+
+        // the arrow head
+        double[] xPoints = {toX, toX + ((ARROW_SIZE) * Math.cos(angle + ARROW_ANGLE)),
+                toX + (ARROW_SIZE * Math.cos(angle - ARROW_ANGLE))};
+        double[] yPoints = {toY, toY - ((ARROW_SIZE) * Math.sin(angle + ARROW_ANGLE)),
+                toY - (ARROW_SIZE * Math.sin(angle - ARROW_ANGLE))};
+        double[] shaft = {fromX, fromY, arrowJoinX, arrowJoinY};
+        boolean dashed = d.type == Dependency.Type.IMPLEMENTS;
+        return new ArrowShape(key, true, d.creating ? Color.BLUE : Color.BLACK, d.selected ? 3.0 : 1.0,
+            xPoints, yPoints, dashed ? new double[0] : shaft, dashed ? shaft : new double[0]);
+    }
 
-            double arrowJoinX = toX + ((ARROW_SIZE - 2) * Math.cos(angle));
-            double arrowJoinY = toY - ((ARROW_SIZE - 2) * Math.sin(angle));
+    /**
+     * Computes the geometry of a uses arrow.
+     */
+    private static ArrowShape makeUsesShape(UsesDependency d, double[] key)
+    {
+        double[] lines = new double[4 * 8];
+        int n = 0;
+        // These should all be rounded to the nearest integer+0.5 value:
+        double src_x = d.getSourceX();
+        double src_y = d.getSourceY();
+        double dst_x = d.getDestX();
+        double dst_y = d.getDestY();
+
+        // The end arrow
+        int delta_x = d.isEndLeft() ? -10 : 10;
+        n = addLine(lines, n, dst_x, dst_y, dst_x + delta_x, dst_y + 4);
+        n = addLine(lines, n, dst_x, dst_y, dst_x + delta_x, dst_y - 4);
+
+        // The start
+        double corner_y = src_y + (d.isStartTop() ? -15 : 15);
+        n = addLine(lines, n, src_x, corner_y, src_x, src_y);
+        src_y = corner_y;
+
+        // The last line segment
+        double corner_x = dst_x + (d.isEndLeft() ? -15 : 15);
+        n = addLine(lines, n, corner_x, dst_y, dst_x, dst_y);
+        dst_x = corner_x;
+
+        // if arrow vertical corner, first segment up to corner
+        if ((src_y != dst_y) && (d.isStartTop() == (src_y < dst_y))) {
+            corner_x = Utility.roundHalf(((src_x + dst_x) / 2) + (d.isEndLeft() ? 15 : -15));
+            corner_x = (d.isEndLeft() ? Math.min(dst_x, corner_x) : Math.max(dst_x, corner_x));
+            n = addLine(lines, n, src_x, src_y, corner_x, src_y);
+            src_x = corner_x;
+        }
 
-            // draw the arrow head
-            double[] xPoints = {toX, toX + ((ARROW_SIZE) * Math.cos(angle + ARROW_ANGLE)),
-                    toX + (ARROW_SIZE * Math.cos(angle - ARROW_ANGLE))};
-            double[] yPoints = {toY, toY - ((ARROW_SIZE) * Math.sin(angle + ARROW_ANGLE)),
-                    toY - (ARROW_SIZE * Math.sin(angle - ARROW_ANGLE))};
-            g.setLineDashes();
-            g.strokePolygon(xPoints, yPoints, 3);
-            if (d.type==Dependency.Type.IMPLEMENTS)
+        // if arrow horiz. corner, first segment up to corner
+        if ((src_x != dst_x) && (d.isEndLeft() == (src_x > dst_x))) {
+            corner_y = Utility.roundHalf(((src_y + dst_y) / 2) + (d.isStartTop() ? 15 : -15));
+            corner_y = (d.isStartTop() ? Math.min(src_y, corner_y) : Math.max(src_y, corner_y));
+            n = addLine(lines, n, dst_x, corner_y, dst_x, dst_y);
+            dst_y = corner_y;
+        }
+
+        // the middle bit
+        n = addLine(lines, n, src_x, src_y, src_x, dst_y);
+        n = addLine(lines, n, src_x, dst_y, dst_x, dst_y);
+
+        return new ArrowShape(key, false, Color.BLACK, 1.0, null, null, new double[0], Arrays.copyOf(lines, n));
+    }
+
+    private static int addLine(double[] lines, int n, double x1, double y1, double x2, double y2)
+    {
+        lines[n] = x1;
+        lines[n + 1] = y1;
+        lines[n + 2] = x2;
+        lines[n + 3] = y2;
+        return n + 4;
+    }
+
+    /**
+     * Gets the part of the arrow layer which is currently visible in our scroll pane
+     * (or all of it, if we are not in a scroll pane).
+     */
+    private Rectangle2D getVisibleArea()
+    {
+        double width = arrowLayer.getWidth();
+        double height = arrowLayer.getHeight();
+        if (scrollPane != null)
+        {
+            // The viewport bounds are relative to the content (us), which the arrow layer fills:
+            Bounds viewport = scrollPane.getViewportBounds();
+            double minX = Math.max(0, -viewport.getMinX());
+            double minY = Math.max(0, -viewport.getMinY());
+            double maxX = Math.min(width, minX + viewport.getWidth());
+            double maxY = Math.min(height, minY + viewport.getHeight());
+            if (maxX > minX && maxY > minY)
             {
-                g.setLineDashes(DASHES);
+                return new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
             }
-            else
+        }
+        return new Rectangle2D(0, 0, Math.max(0, width), Math.max(0, height));
+    }
+
+    /**
+     * Does the actual repaint of the arrowLayer (do not call directly;
+     * see repaint method).
+     *
+     * Only the arrows whose ends have moved are computed again, and only the region
+     * they cover (before and after), clipped to the visible area, is redrawn.
+     */
+    private void actualRepaint()
+    {
+        aboutToRepaint = false;
+        List<Dependency> extendsDeps = isShowExtends() ? new ArrayList<>(pkg.getExtendsArrows()) : Collections.emptyList();
+        List<UsesDependency> usesDeps = isShowUses() ? new ArrayList<>(pkg.getUsesArrows()) : Collections.emptyList();
+
+        // The region which needs redrawing: minX, minY, maxX, maxY
+        double[] dirty = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        Set<Dependency> present = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (Dependency d : extendsDeps)
+        {
+            present.add(d);
+            double[] key = extendsKey(d);
+            ArrowShape old = arrowShapes.get(d);
+            if (old == null || !Arrays.equals(old.key, key))
             {
-                g.setLineDashes();
+                updateArrowShape(d, old, makeExtendsShape(new ExtendsDepInfo(d), key), dirty);
             }
-            g.strokeLine(fromX, fromY, arrowJoinX, arrowJoinY);
         }
 
         for (UsesDependency d : usesDeps)
@@ -660,55 +892,116 @@ public final class PackageEditor extends StackPane
             // Special case - don't draw a dependency line between a Foo class and the FooTest class:
             if (d.to instanceof DependentTarget && ((DependentTarget)d.to).getAssociation() == d.from)
                 continue;
-            
-            g.setLineWidth(1.0);
-            g.setLineDashes(DASHES);
-            // These should all be rounded to the nearest integer+0.5 value:
-            double src_x = d.getSourceX();
-            double src_y = d.getSourceY();
-            double dst_x = d.getDestX();
-            double dst_y = d.getDestY();
-
-            g.setStroke(Color.BLACK);
-            // Draw the end arrow
-            int delta_x = d.isEndLeft() ? -10 : 10;
-
-            g.strokeLine(dst_x, dst_y, dst_x + delta_x, dst_y + 4);
-            g.strokeLine(dst_x, dst_y, dst_x + delta_x, dst_y - 4);
-            g.setLineDashes(DASHES);
+            present.add(d);
+            double[] key = usesKey(d);
+            ArrowShape old = arrowShapes.get(d);
+            if (old == null || !Arrays.equals(old.key, key))
+            {
+                updateArrowShape(d, old, makeUsesShape(d, key), dirty);
+            }
+        }
 
-            // Draw the start
-            double corner_y = src_y + (d.isStartTop() ? -15 : 15);
-            g.strokeLine(src_x, corner_y, src_x, src_y);
-            src_y = corner_y;
-
-            // Draw the last line segment
-            double corner_x = dst_x + (d.isEndLeft() ? -15 : 15);
-            g.strokeLine(corner_x, dst_y, dst_x, dst_y);
-            dst_x = corner_x;
-
-            // if arrow vertical corner, draw first segment up to corner
-            if ((src_y != dst_y) && (d.isStartTop() == (src_y < dst_y))) {
-                corner_x = Utility.roundHalf(((src_x + dst_x) / 2) + (d.isEndLeft() ? 15 : -15));
-                corner_x = (d.isEndLeft() ? Math.min(dst_x, corner_x) : Math.max(dst_x, corner_x));
-                g.strokeLine(src_x, src_y, corner_x, src_y);
-                src_x = corner_x;
+        // Remove arrows which are no longer shown:
+        for (Iterator<Map.Entry<Dependency, ArrowShape>> it = arrowShapes.entrySet().iterator(); it.hasNext(); )
+        {
+            Map.Entry<Dependency, ArrowShape> entry = it.next();
+            if (!present.contains(entry.getKey()))
+            {
+                addToDirty(dirty, entry.getValue());
+                arrowIndex.remove(entry.getValue());
+                it.remove();
             }
+        }
 
-            // if arrow horiz. corner, draw first segment up to corner
-            if ((src_x != dst_x) && (d.isEndLeft() == (src_x > dst_x))) {
-                corner_y = Utility.roundHalf(((src_y + dst_y) / 2) + (d.isStartTop() ? 15 : -15));
-                corner_y = (d.isStartTop() ? Math.min(src_y, corner_y) : Math.max(src_y, corner_y));
-                g.strokeLine(dst_x, corner_y, dst_x, dst_y);
-                dst_y = corner_y;
+        // The arrow being created follows the mouse, so always redraw it:
+        if (creatingArrowShape != null)
+        {
+            addToDirty(dirty, creatingArrowShape);
+            creatingArrowShape = null;
+        }
+        if (extendsSubClass != null)
+        {
+            ExtendsDepInfo info;
+            if (extendsSuperClassHover != null)
+            {
+                info = new ExtendsDepInfo(extendsSubClass, extendsSuperClassHover);
             }
+            else
+            {
+                Point2D p = arrowLayer.sceneToLocal(newExtendsDestX, newExtendsDestY);
+                info = new ExtendsDepInfo(extendsSubClass, p.getX(), p.getY());
+            }
+            creatingArrowShape = makeExtendsShape(info, null);
+            addToDirty(dirty, creatingArrowShape);
+        }
+
+        // If we've scrolled to show an area which we haven't painted, we must paint all of it:
+        Rectangle2D visible = getVisibleArea();
+        if (repaintAll || paintedArea == null || !paintedArea.contains(visible))
+        {
+            dirty = new double[] {visible.getMinX(), visible.getMinY(), visible.getMaxX(), visible.getMaxY()};
+            repaintAll = false;
+        }
+        // Changes outside the visible area are not painted, so after this only the visible area is up to date:
+        paintedArea = visible;
 
-            // draw the middle bit
-            g.strokeLine(src_x, src_y, src_x, dst_y);
-            g.strokeLine(src_x, dst_y, dst_x, dst_y);
+        // We don't paint anything outside the visible area:
+        double minX = Math.max(dirty[0], visible.getMinX());
+        double minY = Math.max(dirty[1], visible.getMinY());
+        double maxX = Math.min(dirty[2], visible.getMaxX());
+        double maxY = Math.min(dirty[3], visible.getMaxY());
+        if (maxX <= minX || maxY <= minY)
+            return;
+
+        GraphicsContext g = arrowLayer.getGraphicsContext2D();
+        g.save();
+        g.beginPath();
+        g.rect(minX, minY, maxX - minX, maxY - minY);
+        g.clip();
+        g.clearRect(minX, minY, maxX - minX, maxY - minY);
+
+        List<ArrowShape> toDraw = arrowIndex.query(minX, minY, maxX, maxY);
+        // Extends arrows first, then uses arrows on top, then the arrow being created:
+        for (ArrowShape shape : toDraw)
+        {
+            if (shape.extendsArrow)
+                shape.draw(g);
+        }
+        for (ArrowShape shape : toDraw)
+        {
+            if (!shape.extendsArrow)
+                shape.draw(g);
+        }
+        if (creatingArrowShape != null)
+        {
+            creatingArrowShape.draw(g);
+        }
+        g.restore();
+    }
+
+    /**
+     * Replaces the cached shape of the given dependency, marking the old
+     * and new positions of the arrow as needing to be redrawn.
+     */
+    private void updateArrowShape(Dependency d, ArrowShape oldShape, ArrowShape newShape, double[] dirty)
+    {
+        if (oldShape != null)
+        {
+            addToDirty(dirty, oldShape);
+            arrowIndex.remove(oldShape);
         }
+        addToDirty(dirty, newShape);
+        arrowShapes.put(d, newShape);
+        arrowIndex.put(newShape, newShape.minX, newShape.minY, newShape.maxX, newShape.maxY);
     }
 
+    private static void addToDirty(double[] dirty, ArrowShape shape)
+    {
+        dirty[0] = Math.min(dirty[0], shape.minX);
+        dirty[1] = Math.min(dirty[1], shape.minY);
+        dirty[2] = Math.max(dirty[2], shape.maxX);
+        dirty[3] = Math.max(dirty[3], shape.maxY);
+    }
 
     /**
      * Clear the set of selected classes. (Nothing will be selected after this.)
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -183,6 +183,7 @@ public class PkgMgrFrame
     private final PkgMgrAction newCSSAction = new NewCSSAction(this);
     private final PkgMgrAction addClassAction = new AddClassAction(this);
     private final PkgMgrAction removeAction = new RemoveAction(this);
+    private final PkgMgrAction findInProjectAction = new FindInProjectAction(this);
     @OnThread(Tag.Any)
     private final PkgMgrAction newInheritsAction = new NewInheritsAction(this);
     @OnThread(Tag.Any)
@@ -191,6 +192,7 @@ public class PkgMgrFrame
     private final PkgMgrAction rebuildAction = new RebuildAction(this);
     @OnThread(Tag.Any)
     private final RestartVMAction restartVMAction = new RestartVMAction(this);
+    private final PkgMgrAction profileAction = new ProfileAction(this);
     private final PkgMgrAction useLibraryAction = new UseLibraryAction(this);
     private final PkgMgrAction generateDocsAction = new GenerateDocsAction(this);
     @OnThread(Tag.Any)
@@ -1791,6 +1793,8 @@ public class PkgMgrFrame
             p = getProject().getProjectPropertiesCopy();
             getProject().saveEditorLocations(p);
             getProject().getImportScanner().saveCachedImports();
+            Utility.runBackground(getProject().getSourceIndex()::save);
+            getProject().getParseCache().save();
         }
         else {
             p = new Properties();
@@ -2590,6 +2594,14 @@ public class PkgMgrFrame
         });
     }
 
+    /**
+     * User function "Find in Project...".
+     */
+    public void findInProject()
+    {
+        new FindInProjectDialog(getWindow(), getProject()).show();
+    }
+
     /**
      * User function "Generate Documentation...".
      */
@@ -2627,6 +2639,17 @@ public class PkgMgrFrame
         }
     }
 
+    /**
+     * User function "Profile...". Shows the profiler window.
+     */
+    public void showProfiler()
+    {
+        if (!isEmptyFrame())
+        {
+            getProject().getProfilerWindow().show();
+        }
+    }
+
     /**
      * Notify the frame that the "shared" status of the project has changed,
      * i.e. the project has become shared or unshared.
@@ -2705,7 +2728,8 @@ public class PkgMgrFrame
                 setStatus(Config.getString("pkgmgr.generatingDocu"));
                 break;
             case BlueJEvent.DOCU_GENERATED :
-                setStatus(Config.getString("pkgmgr.docuGenerated"));
+                // The argument, if any, is a message with the time taken:
+                setStatus(arg instanceof String ? (String)arg : Config.getString("pkgmgr.docuGenerated"));
                 break;
             case BlueJEvent.DOCU_ABORTED :
                 setStatus(Config.getString("pkgmgr.docuAborted"));
@@ -3014,6 +3038,9 @@ public class PkgMgrFrame
             menu.getItems().add(removeAction.makeMenuItem());
             menu.getItems().add(new SeparatorMenuItem());
 
+            menu.getItems().add(findInProjectAction.makeMenuItem());
+            menu.getItems().add(new SeparatorMenuItem());
+
             menu.getItems().add(newInheritsAction.makeMenuItem());
         }
 
@@ -3026,6 +3053,7 @@ public class PkgMgrFrame
             toolsMenu.getItems().add(compileSelectedAction.makeMenuItem());
             toolsMenu.getItems().add(rebuildAction.makeMenuItem());
             toolsMenu.getItems().add(restartVMAction.makeMenuItem());
+            toolsMenu.getItems().add(profileAction.makeMenuItem());
             toolsMenu.getItems().add(new SeparatorMenuItem());
             toolsMenu.getItems().add(useLibraryAction.makeMenuItem());
             toolsMenu.getItems().add(generateDocsAction.makeMenuItem());
@@ -3179,11 +3207,13 @@ public class PkgMgrFrame
         actionsToDisable.add(newCSSAction);
         actionsToDisable.add(addClassAction);
         actionsToDisable.add(removeAction);
+        actionsToDisable.add(findInProjectAction);
         actionsToDisable.add(newInheritsAction);
         actionsToDisable.add(compileAction);
         actionsToDisable.add(compileSelectedAction);
         actionsToDisable.add(rebuildAction);
         actionsToDisable.add(restartVMAction);
+        actionsToDisable.add(profileAction);
         actionsToDisable.add(useLibraryAction);
         actionsToDisable.add(generateDocsAction);
         actionsToDisable.add(runTestsAction);
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -25,13 +25,16 @@ import bluej.BlueJEvent;
 import bluej.Boot;
 import bluej.Config;
 import bluej.classmgr.BPClassLoader;
+import bluej.classmgr.ClassFileAnalyser;
 import bluej.classmgr.ClassMgrPrefPanel;
 import bluej.collect.DataCollector;
 import bluej.compiler.CompileReason;
 import bluej.compiler.CompileType;
+import bluej.compiler.JobQueue;
 import bluej.debugger.*;
 import bluej.debugmgr.ExecControls;
 import bluej.debugmgr.ExpressionInformation;
+import bluej.debugmgr.ProfilerWindow;
 import bluej.debugmgr.inspector.*;
 import bluej.debugmgr.objectbench.ObjectBench;
 import bluej.debugmgr.objectbench.ObjectWrapper;
@@ -50,6 +53,7 @@ import bluej.groupwork.ui.CommitAndPushFrame;
 import bluej.groupwork.ui.StatusFrame;
 import bluej.groupwork.ui.TeamSettingsDialog;
 import bluej.groupwork.ui.UpdateFilesFrame;
+import bluej.parser.CompletionMemberIndex;
 import bluej.parser.entity.EntityResolver;
 import bluej.pkgmgr.target.ClassTarget;
 import bluej.pkgmgr.target.Target;
@@ -139,6 +143,8 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
     private final Debugger debugger;
     /** the ExecControls for this project */
     private ExecControls execControls = null;
+    /** the profiler window for this project, created when first needed */
+    private ProfilerWindow profilerWindow = null;
     /** the Terminal for this project */
     private Terminal terminal = null;
     /** the documentation generator for this project. */
@@ -217,6 +223,18 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
     /** The scanner for available imports.  May be null if not requested yet. */
     @OnThread(value = Tag.Any,requireSynchronized = true)
     private ImportScanner importScanner;
+    /** The index of project sources for Find in Project.  May be null if not requested yet. */
+    @OnThread(value = Tag.Any,requireSynchronized = true)
+    private ProjectSourceIndex sourceIndex;
+    /** The saved parse results of the project's sources.  May be null if not requested yet. */
+    @OnThread(value = Tag.Any,requireSynchronized = true)
+    private ProjectParseCache parseCache;
+    /** The cache of class file analysis results.  May be null if not requested yet. */
+    @OnThread(value = Tag.Any,requireSynchronized = true)
+    private ClassFileAnalyser classFileAnalyser;
+    /** The member tables for code completion.  May be null if not requested yet. */
+    @OnThread(value = Tag.Any,requireSynchronized = true)
+    private CompletionMemberIndex completionIndex;
 
     /** check if the project is a dvcs project**/
     private final FrameShelfStorage shelfStorage;
@@ -308,6 +326,8 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
 
         this.projectDir = projectDir;
         libraryUrls = getLibrariesClasspath();
+        // Load the saved parse results while we set everything else up:
+        getParseCache().startLoading(libraryUrls);
         inspectors = new HashMap<Object,Inspector>();
         packages = new TreeMap<String, Package>();
         docuGenerator = new DocuGenerator(this);
@@ -327,6 +347,7 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         debugger = Debugger.getDebuggerImpl(getProjectDir(), getTerminal(), this);
         debugger.setUserLibraries(libraryUrls.toArray(new URL[libraryUrls.size()]));
         debugger.newClassLoader(getClassLoader());
+        getCompletionIndex().prewarm(getClassLoader());
         debugger.addDebuggerListener(this);
         // Note: this line must come after loadProjectProperties (currently above):
         debugger.setRunOnThread(getRunOnThread() == null ? RunOnThread.DEFAULT : getRunOnThread());
@@ -582,6 +603,7 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         DataCollector.projectOpened(proj, ExtensionsManager.getInstance().getLoadedExtensions(proj));
 
         proj.getImportScanner().startScanning();
+        proj.getSourceIndex().startIndexing(proj.getProjectCharset());
 
         PrefMgr.addRecentProject(proj.getProjectDir());
 
@@ -613,6 +635,10 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
             project.getExecControls().hide();
         }
 
+        if (project.profilerWindow != null) {
+            project.profilerWindow.hide();
+        }
+
         if (project.terminal != null) {
             project.terminal.cleanup();
             project.terminal.dispose();
@@ -625,6 +651,7 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         project.removeAllInspectors();
         project.getDebugger().removeDebuggerListener(project);
         project.getDebugger().close(false);
+        JobQueue.getJobQueue().projectClosed(project.getProjectDir());
 
         projects.remove(project.getProjectDir());
     }
@@ -1643,7 +1670,12 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         // will be installed as soon as the VM has restarted).
         newRemoteClassLoader();
 
-        libraryUrls = getLibrariesClasspath();
+        List<URL> newLibraryUrls = getLibrariesClasspath();
+        if (!newLibraryUrls.toString().equals(libraryUrls.toString())) {
+            // Names may now resolve differently, so earlier parse results can't be reused:
+            getParseCache().classesChanged();
+        }
+        libraryUrls = newLibraryUrls;
         debugger.setUserLibraries(libraryUrls.toArray(new URL[libraryUrls.size()]));
 
         // Breakpoints will be re-initialized once the new VM has
@@ -1670,6 +1702,8 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
 
         // remove views for classes loaded by this classloader
         View.removeAll(currentClassLoader);
+        // and the code completion members of those classes
+        getCompletionIndex().invalidate();
 
         if (! Config.isGreenfoot()) {
             // dispose windows for local classes. Should not run user code
@@ -1709,6 +1743,7 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
     public void newRemoteClassLoader()
     {
         getDebugger().newClassLoader(getClassLoader());
+        getCompletionIndex().newClassLoader(getClassLoader());
     }
 
     /**
@@ -1717,6 +1752,7 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
     public void newRemoteClassLoaderLeavingBreakpoints()
     {
         getDebugger().newClassLoader(getClassLoader());
+        getCompletionIndex().newClassLoader(getClassLoader());
         packages.values().forEach(Package::reInitBreakpoints);
     }
 
@@ -1741,6 +1777,14 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         return execControls;
     }
 
+    public ProfilerWindow getProfilerWindow()
+    {
+        if (profilerWindow == null) {
+            profilerWindow = new ProfilerWindow(this);
+        }
+        return profilerWindow;
+    }
+
     public boolean hasTerminal()
     {
         return terminal != null;
@@ -1971,6 +2015,9 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
                         (newState == Debugger.NOTREADY))
                 {
                     removeStepMarks();
+                    if (profilerWindow != null) {
+                        profilerWindow.vmClosed();
+                    }
                     vmClosed();
                 }
 
@@ -2453,6 +2500,38 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         return importScanner;
     }
 
+    @OnThread(Tag.Any)
+    public synchronized ProjectSourceIndex getSourceIndex()
+    {
+        if (sourceIndex == null)
+            sourceIndex = new ProjectSourceIndex(getProjectDir());
+        return sourceIndex;
+    }
+
+    @OnThread(Tag.Any)
+    public synchronized ProjectParseCache getParseCache()
+    {
+        if (parseCache == null)
+            parseCache = new ProjectParseCache(getProjectDir());
+        return parseCache;
+    }
+
+    @OnThread(Tag.Any)
+    public synchronized CompletionMemberIndex getCompletionIndex()
+    {
+        if (completionIndex == null)
+            completionIndex = new CompletionMemberIndex();
+        return completionIndex;
+    }
+
+    @OnThread(Tag.Any)
+    public synchronized ClassFileAnalyser getClassFileAnalyser()
+    {
+        if (classFileAnalyser == null)
+            classFileAnalyser = new ClassFileAnalyser();
+        return classFileAnalyser;
+    }
+
     @OnThread(Tag.FXPlatform)
     public FXTabbedEditor createNewFXTabbedEditor()
     {
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2010,2011,2014,2015,2016,2017,2019  Michael Kolling and John Rosenberg
+ Copyright (C) 2010,2011,2014,2015,2016,2017,2019,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,12 +21,14 @@
  */
 package bluej.pkgmgr;
 
+import bluej.Config;
 import bluej.debugger.gentype.JavaType;
 import bluej.debugger.gentype.MethodReflective;
 import bluej.debugger.gentype.Reflective;
 import bluej.extensions2.SourceType;
 import bluej.parser.ConstructorOrMethodReflective;
 import bluej.parser.JavadocParser;
+import bluej.parser.entity.ClassLoaderResolver;
 import bluej.parser.entity.EntityResolver;
 import bluej.parser.entity.PackageResolver;
 import bluej.parser.symtab.ClassInfo;
@@ -36,14 +38,14 @@ import bluej.utility.Utility;
 import bluej.views.CallableView;
 import bluej.views.Comment;
 import bluej.views.View;
+import threadchecker.OnThread;
+import threadchecker.Tag;
 
 import java.io.*;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * Resolves javadoc from classes within a project.
@@ -52,6 +54,9 @@ import java.util.zip.ZipFile;
  */
 public class ProjectJavadocResolver implements JavadocResolver
 {
+    // The source jars which we have started indexing in the background this session:
+    private static final Set<SourceJar> precomputed = Collections.newSetFromMap(new WeakHashMap<>());
+
     private Project project;
     private CommentCache commentCache = new CommentCache();
     
@@ -116,9 +121,7 @@ public class ProjectJavadocResolver implements JavadocResolver
         
         Properties comments = commentCache.get(declName);
         if (comments == null) {
-            ClassInfo classInfo = getClassInfoFromSource(declaring.getModuleName(), declName);
-            if (classInfo != null)
-                comments = classInfo.getComments(); 
+            comments = getCommentsFromSource(declaring.getModuleName(), declName);
             if (comments == null) {
                 // Record a blank so we don't bother looking next time:
                 commentCache.put(declName, new Properties());
@@ -196,7 +199,7 @@ public class ProjectJavadocResolver implements JavadocResolver
                 //@OnThread(value = Tag.Worker, ignoreParent = true)
                 //public void run()
                 //{
-                    comments = getCommentsFromSource(declName);
+                    comments = getCommentsFromSource(declaring.getModuleName(), declName);
                     if (comments == null) {
                         //Platform.runLater(() -> {
                             // Javadoc not available; must notify callback.
@@ -259,117 +262,6 @@ public class ProjectJavadocResolver implements JavadocResolver
         }
     }
 
-    /**
-     * Find the javadoc for a given class (target) by searching the project source path.
-     * In particular, this normally includes the JDK source. When source for the required
-     * class is found, it is parsed to extract comments.
-     * 
-     * @param moduleName The module name if known and applicable.  May be null.
-     * @param target The fully-qualified class name.
-     * @return The discovered class info, or null if not found.
-     */
-    private ClassInfo getClassInfoFromSource(String moduleName, String target)
-    {
-        List<DocPathEntry> sourcePath = project.getSourcePath();
-        String pkg = JavaNames.getPrefix(target);
-        String entName = target.replace('.', '/') + "." + SourceType.Java.toString().toLowerCase();
-        String entNameFs = target.replace('.', File.separatorChar) + "." + SourceType.Java.toString().toLowerCase();
-        EntityResolver resolver = new PackageResolver(project.getEntityResolver(), pkg);
-        
-        for (DocPathEntry pathEntry : sourcePath) {
-            File jarFile = pathEntry.getFile();
-            if (jarFile.isFile()) {
-                String fullEntryName = pathEntry.getPathPrefix();
-                if (fullEntryName.length() != 0 && !fullEntryName.endsWith("/")) {
-                    fullEntryName += "/";
-                }
-                fullEntryName += entName;
-                Reader r = null;
-                try (ZipFile zipFile = new ZipFile(jarFile)) {
-                    List<String> possibleEntries = new ArrayList<>();
-                    possibleEntries.add(fullEntryName);
-                    if (moduleName != null)
-                    {
-                        possibleEntries.add(moduleName + "/" + fullEntryName);
-                    }
-                    for (String entryName : possibleEntries)
-                    {
-                        ZipEntry zipEnt = zipFile.getEntry(entryName);
-                        if (zipEnt != null)
-                        {
-                            InputStream zeis = zipFile.getInputStream(zipEnt);
-                            r = new InputStreamReader(zeis, project.getProjectCharset());
-                            ClassInfo info = JavadocParser.parse(r, resolver, null);
-                            if (info == null)
-                            {
-                                return null;
-                            }
-                            return info;
-                        }
-                    }
-                }
-                catch (IOException ioe) {}
-                finally {
-                    if (r != null) {
-                        try {
-                            r.close();
-                        }
-                        catch (IOException e) {}
-                    }
-                }
-            }
-            else if (jarFile.isDirectory()) {
-                File base = jarFile;
-                String prefix = pathEntry.getPathPrefix();
-                if (prefix != null && !prefix.isEmpty()) {
-                    base = new File(base, prefix);
-                }
-                
-                File srcFile = new File(base, entNameFs);
-                FileInputStream fis = null;
-                try {
-                    if (srcFile.canRead()) {
-                        fis = new FileInputStream(srcFile);
-                        Reader r = new InputStreamReader(fis, project.getProjectCharset());
-                        ClassInfo info = JavadocParser.parse(r, resolver, null);
-                        r.close();
-                        if (info == null) {
-                            return null;
-                        }
-                        return info;
-                    }
-                }
-                catch (IOException ioe) {
-                    if (fis != null) {
-                        try {
-                            fis.close();
-                        }
-                        catch (IOException e) {}
-                    }
-                }
-            }
-        }
-        
-        // Try and load the source from the class path. This allows source to be bundled in
-        // with the classes.
-        String targetName = target.replace('.', '/') + "." + SourceType.Java.toString().toLowerCase();
-        URL srcUrl = project.getClassLoader().findResource(targetName);
-        if (srcUrl != null) {
-            try {
-                Reader r = new InputStreamReader(srcUrl.openStream(), project.getProjectCharset());
-                ClassInfo info = JavadocParser.parse(r, resolver, null);
-                if (info != null) {
-                    return info;
-                }
-            }
-            catch (IOException ioe) {
-                Debug.message("I/O exception while trying to retrieve javadoc for " + target);
-            }
-        }
-        
-        return null;
-    }
-    
     /**
      * Build a method signature from a MethodReflective.
      */
@@ -410,14 +302,19 @@ public class ProjectJavadocResolver implements JavadocResolver
     /**
      * Find the javadoc for a given class (target) by searching the project source path.
      * In particular, this normally includes the JDK source. When source for the required
-     * class is found, it is parsed to extract comments.
+     * class is found, it is parsed to extract comments.  Comments from source jars are
+     * kept in a persistent index (see SourceJar), so each source file is only parsed once.
+     * 
+     * @param moduleName The module name if known and applicable.  May be null.
+     * @param target The fully-qualified class name.
+     * @return The comments (as per ClassInfo.getComments()), or null if not found.
      */
-    private Properties getCommentsFromSource(String target)
+    private Properties getCommentsFromSource(String moduleName, String target)
     {
         List<DocPathEntry> sourcePath = project.getSourcePath();
         String pkg = JavaNames.getPrefix(target);
-        String entName = target.replace('.', '/') + ".java";
-        String entNameFs = target.replace('.', File.separatorChar) + ".java";
+        String entName = target.replace('.', '/') + "." + SourceType.Java.toString().toLowerCase();
+        String entNameFs = target.replace('.', File.separatorChar) + "." + SourceType.Java.toString().toLowerCase();
         EntityResolver resolver = new PackageResolver(project.getEntityResolver(), pkg);
         
         for (DocPathEntry pathEntry : sourcePath) {
@@ -428,28 +325,22 @@ public class ProjectJavadocResolver implements JavadocResolver
                     fullEntryName += "/";
                 }
                 fullEntryName += entName;
-                Reader r = null;
-                try (ZipFile zipFile = new ZipFile(jarFile)) {
-                    ZipEntry zipEnt = zipFile.getEntry(fullEntryName);
-                    if (zipEnt != null) {
-                        InputStream zeis = zipFile.getInputStream(zipEnt);
-                        r = new InputStreamReader(zeis, project.getProjectCharset());
-                        ClassInfo info = JavadocParser.parse(r, resolver, null);
-                        if (info == null) {
-                            return null;
-                        }
-                        return info.getComments();
-                    }
+                List<String> possibleEntries = new ArrayList<>();
+                possibleEntries.add(fullEntryName);
+                if (moduleName != null) {
+                    possibleEntries.add(moduleName + "/" + fullEntryName);
                 }
-                catch (IOException ioe) {}
-                finally {
-                    if (r != null) {
-                        try {
-                            r.close();
+                try {
+                    SourceJar sourceJar = SourceJar.get(jarFile);
+                    precompute(sourceJar, pathEntry);
+                    for (String entryName : possibleEntries) {
+                        Properties comments = sourceJar.getComments(entryName, r -> parseComments(r, resolver));
+                        if (comments != null) {
+                            return comments;
                         }
-                        catch (IOException e) {}
                     }
                 }
+                catch (IOException ioe) {}
             }
             else if (jarFile.isDirectory()) {
                 File base = jarFile;
@@ -459,41 +350,21 @@ public class ProjectJavadocResolver implements JavadocResolver
                 }
                 
                 File srcFile = new File(base, entNameFs);
-                FileInputStream fis = null;
-                try {
-                    if (srcFile.canRead()) {
-                        fis = new FileInputStream(srcFile);
-                        Reader r = new InputStreamReader(fis, project.getProjectCharset());
-                        ClassInfo info = JavadocParser.parse(r, resolver, null);
-                        r.close();
-                        if (info == null) {
-                            return null;
-                        }
-                        return info.getComments();
-                    }
-                }
-                catch (IOException ioe) {
-                    if (fis != null) {
-                        try {
-                            fis.close();
-                        }
-                        catch (IOException e) {}
+                if (srcFile.canRead()) {
+                    try (Reader r = new InputStreamReader(new FileInputStream(srcFile), project.getProjectCharset())) {
+                        return parseComments(r, resolver);
                     }
+                    catch (IOException ioe) {}
                 }
             }
         }
         
         // Try and load the source from the class path. This allows source to be bundled in
         // with the classes.
-        String targetName = target.replace('.', '/') + ".java";
-        URL srcUrl = project.getClassLoader().findResource(targetName);
+        URL srcUrl = project.getClassLoader().findResource(entName);
         if (srcUrl != null) {
-            try {
-                Reader r = new InputStreamReader(srcUrl.openStream(), project.getProjectCharset());
-                ClassInfo info = JavadocParser.parse(r, resolver, null);
-                if (info != null) {
-                    return info.getComments();
-                }
+            try (Reader r = new InputStreamReader(srcUrl.openStream(), project.getProjectCharset())) {
+                return parseComments(r, resolver);
             }
             catch (IOException ioe) {
                 Debug.message("I/O exception while trying to retrieve javadoc for " + target);
@@ -502,19 +373,95 @@ public class ProjectJavadocResolver implements JavadocResolver
         
         return null;
     }
+
+    /**
+     * Parse a source file and extract its comments.  (Source jars are read as UTF-8 by
+     * SourceJar, since their index is shared by all projects; other source is read in
+     * the project's character set.)
+     * 
+     * @return The comments (as per ClassInfo.getComments()), or null if the source couldn't be parsed.
+     */
+    private static Properties parseComments(Reader source, EntityResolver resolver)
+    {
+        ClassInfo info = JavadocParser.parse(source, resolver, null);
+        return info == null ? null : info.getComments();
+    }
+
+    /**
+     * Start indexing the commonly used JDK packages (bluej.javadoc.precompute) in the given
+     * source jar, in the background, if that hasn't been done this session.  Later lookups
+     * of those classes are then just a read from the index.
+     */
+    private static void precompute(SourceJar sourceJar, DocPathEntry pathEntry)
+    {
+        synchronized (precomputed) {
+            if (!precomputed.add(sourceJar)) {
+                return;
+            }
+        }
+        
+        String packages = Config.getPropString("bluej.javadoc.precompute", "java.lang,java.util,java.io");
+        if (packages.isBlank()) {
+            return;
+        }
+        String prefix = pathEntry.getPathPrefix();
+        if (prefix.length() != 0 && !prefix.endsWith("/")) {
+            prefix += "/";
+        }
+        String pathPrefix = prefix;
+        
+        Thread thread = new Thread("Javadoc index: " + pathEntry.getFile().getName()) {
+            @Override
+            @OnThread(value = Tag.Worker, ignoreParent = true)
+            public void run()
+            {
+                int count = 0;
+                for (String pkg : packages.split(",")) {
+                    pkg = pkg.trim();
+                    if (pkg.isEmpty()) {
+                        continue;
+                    }
+                    EntityResolver resolver = new PackageResolver(new ClassLoaderResolver(
+                            ProjectJavadocResolver.class.getClassLoader()), pkg);
+                    for (String entryName : sourceJar.getSourceEntries(pathPrefix + pkg.replace('.', '/') + "/")) {
+                        if (!sourceJar.isIndexed(entryName)) {
+                            sourceJar.getComments(entryName, r -> parseComments(r, resolver));
+                            count++;
+                        }
+                    }
+                }
+                if (count > 0) {
+                    Debug.log("Indexed Javadoc for " + count + " classes in " + pathEntry.getFile());
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
     
     @Override
     public String getJavadoc(String moduleName, String className)
     {
-        ClassInfo ci = getClassInfoFromSource(moduleName, className);
-        
-        if (ci == null)
-            return null;
+        Properties comments = commentCache.get(className);
+        if (comments == null) {
+            comments = getCommentsFromSource(moduleName, className);
+            if (comments == null) {
+                return null;
+            }
+            commentCache.put(className, comments);
+        }
         
-        return ci.getCommentsAsList().stream()
-                    .filter(sc -> ci.getName().equals(sc.target))
-                    .map(sc -> sc.comment)
-                    .filter(c -> c != null)
-                    .findFirst().orElse(null);
+        // The class comment is the one whose target is a name rather than a method signature:
+        for (int i = 0; ; i++) {
+            String comtarget = comments.getProperty("comment" + i + ".target");
+            if (comtarget == null) {
+                return null;
+            }
+            String text = comments.getProperty("comment" + i + ".text");
+            if (comtarget.indexOf('(') == -1 && text != null) {
+                return text;
+            }
+        }
    }
 }
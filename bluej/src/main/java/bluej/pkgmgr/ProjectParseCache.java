@@ -0,0 +1,446 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import bluej.Config;
+import bluej.extensions2.SourceType;
+import bluej.parser.InfoParser;
+import bluej.parser.symtab.ClassInfo;
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A cache of the results of parsing (with InfoParser) the Java sources of a project.
+ *
+ * The cache is saved to the user config directory, keyed by project location.  When the
+ * project is opened, the saved cache is loaded in the background: the project directory
+ * is scanned and the saved entries are checked and decoded in parallel, while the rest of
+ * the project is being set up.  Sources which have not changed since they were last parsed
+ * (same modification time and length) then do not need parsing again when their package
+ * is loaded.
+ *
+ * The result of parsing depends not only on the source file but on how names are resolved,
+ * which depends on the other classes in the project and on its libraries.  So the saved cache
+ * is only used if the set of source files in the project, and the library classpath, are the
+ * same as when it was saved.  Once a class is added or removed (or the libraries change) while
+ * the project is open, the cache is no longer used at all for the rest of the session.
+ * Compiled class files are not considered: they come and go with compilation, but don't
+ * change the classes which the sources define.
+ */
+@OnThread(Tag.Any)
+public class ProjectParseCache
+{
+    // Increment this if the file format (including ClassInfo.writeTo) changes:
+    private static final int FORMAT_VERSION = 1;
+
+    private final File projectDir;
+    private final File cacheFile;
+    // The cached information for each source file, keyed by the (absolute) source file:
+    private final ConcurrentHashMap<File, Entry> entries = new ConcurrentHashMap<>();
+    // Completes once the saved cache has been loaded (or failed to load):
+    private final CompletableFuture<Boolean> loaded = new CompletableFuture<>();
+    // The library classpath of the project, as given when loading starts:
+    private List<URL> classpath = List.of();
+    // A hash of the names of the source files in the project, and of the library classpath,
+    // as found when opening:
+    private volatile long context;
+    // Set once the classes in the project have changed since opening:
+    private volatile boolean contextChanged = false;
+    // Whether the cache has changed since it was last saved:
+    private volatile boolean modified = false;
+    private boolean started = false;
+    // Counts of cache hits and misses, for reporting:
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * The cached parse result for a single source file.
+     */
+    private static class Entry
+    {
+        // The modification time and length of the file when it was parsed:
+        private final long lastModified;
+        private final long length;
+        // The parse result, as written by ClassInfo.writeTo:
+        private final byte[] data;
+        // The decoded parse result, if decoded in advance.  Each ClassInfo is only handed
+        // out once, since the caller may modify it:
+        private volatile ClassInfo decoded;
+
+        private Entry(long lastModified, long length, byte[] data)
+        {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.data = data;
+        }
+
+        private boolean isUpToDate(long lastModified, long length)
+        {
+            return this.lastModified == lastModified && this.length == length;
+        }
+
+        private synchronized ClassInfo takeInfo() throws IOException
+        {
+            ClassInfo info = decoded;
+            decoded = null;
+            return info != null ? info : decode(data);
+        }
+    }
+
+    public ProjectParseCache(File projectDir)
+    {
+        this.projectDir = projectDir.getAbsoluteFile();
+        String key = Integer.toHexString(this.projectDir.getPath().hashCode());
+        this.cacheFile = new File(new File(Config.getUserConfigDir(), "project-index"), key + ".parse");
+    }
+
+    /**
+     * Starts loading the saved cache in the background, if it has not already been started.
+     * 
+     * @param classpath The library classpath of the project (not including the project itself).
+     */
+    public void startLoading(List<URL> classpath)
+    {
+        synchronized (this)
+        {
+            if (started)
+                return;
+            started = true;
+            this.classpath = List.copyOf(classpath);
+        }
+        new Thread("Project parse cache loader") {
+            @OnThread(value = Tag.Worker, ignoreParent = true)
+            public void run()
+            {
+                try
+                {
+                    load();
+                }
+                catch (Throwable t)
+                {
+                    Debug.reportError("Error loading project parse cache", t);
+                    entries.clear();
+                }
+                finally
+                {
+                    loaded.complete(true);
+                }
+            }
+        }.start();
+    }
+
+    /**
+     * Gets the information for the given source file, in the given package.  If the cache has
+     * up-to-date information for the file, that is returned, otherwise the file is parsed
+     * (and the result cached).  If loading of the saved cache is still in progress, this
+     * waits for it to finish.
+     *
+     * @return The information, or null if the source could not be parsed.
+     * @throws FileNotFoundException if the source file does not exist.
+     */
+    @OnThread(Tag.FXPlatform)
+    public ClassInfo getInfo(File sourceFile, Package pkg) throws FileNotFoundException
+    {
+        File f = sourceFile.getAbsoluteFile();
+        // Note the file details before parsing, in case it is modified while we parse:
+        long lastModified = f.lastModified();
+        long length = f.length();
+
+        if (isUsable())
+        {
+            Entry entry = entries.get(f);
+            if (entry != null && entry.isUpToDate(lastModified, length))
+            {
+                try
+                {
+                    ClassInfo info = entry.takeInfo();
+                    hits.incrementAndGet();
+                    return info;
+                }
+                catch (IOException e)
+                {
+                    // Corrupt entry; fall through to parse it again
+                    entries.remove(f, entry);
+                }
+            }
+        }
+
+        ClassInfo info = InfoParser.parseWithPkg(sourceFile, pkg);
+        misses.incrementAndGet();
+        if (info != null && lastModified != 0 && !contextChanged)
+        {
+            try
+            {
+                entries.put(f, new Entry(lastModified, length, encode(info)));
+                modified = true;
+            }
+            catch (IOException e)
+            {
+                // Can happen for very long comments, which writeUTF cannot handle.  We just
+                // don't cache the information for that file:
+                entries.remove(f);
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Notifies the cache that a class has been added to or removed from the project, or that
+     * its libraries have changed, which may change how names are resolved in other classes.  The cache is not used after this.
+     */
+    public void classesChanged()
+    {
+        if (!contextChanged)
+        {
+            contextChanged = true;
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets a description of the cache hits and misses so far, for logging.
+     */
+    public String getStatistics()
+    {
+        return hits.get() + " cached, " + misses.get() + " parsed";
+    }
+
+    /**
+     * Saves the cache to disk, if it has been modified since it was loaded or last saved.
+     * Does nothing if the cache has not finished loading, or the classes in the project
+     * have changed since it was opened.
+     */
+    public void save()
+    {
+        if (!loaded.isDone() || !modified || contextChanged)
+            return;
+        modified = false;
+        // Take a copy to avoid problems with concurrent updates while we save:
+        Map<File, Entry> toSave = new HashMap<>(entries);
+        try
+        {
+            cacheFile.getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile))))
+            {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(projectDir.getPath());
+                out.writeLong(context);
+                out.writeInt(toSave.size());
+                for (Map.Entry<File, Entry> fileEntry : toSave.entrySet())
+                {
+                    Entry entry = fileEntry.getValue();
+                    out.writeUTF(fileEntry.getKey().getPath());
+                    out.writeLong(entry.lastModified);
+                    out.writeLong(entry.length);
+                    out.writeInt(entry.data.length);
+                    out.write(entry.data);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Could not save project parse cache", e);
+        }
+    }
+
+    /**
+     * Waits for loading to finish, and returns whether the cache may be used.
+     */
+    private boolean isUsable()
+    {
+        if (!started || contextChanged)
+            return false;
+        try
+        {
+            loaded.get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            Debug.reportError(e);
+            return false;
+        }
+        return !contextChanged;
+    }
+
+    /**
+     * Scans the project, then loads the saved cache and decodes the entries which are
+     * still up-to-date.  The scanning and decoding are done in parallel.
+     */
+    @OnThread(Tag.Worker)
+    private void load()
+    {
+        long start = System.currentTimeMillis();
+        List<File> dirs = new ArrayList<>();
+        findPackageDirs(projectDir, dirs);
+        // List the package directories in parallel, collecting the source names which affect resolution:
+        String prefixToRemove = projectDir.getPath();
+        List<String> names = dirs.parallelStream().flatMap(dir -> {
+            String[] dirNames = dir.list((d, name) -> name.endsWith("." + SourceType.Java.getExtension())
+                    || name.endsWith("." + SourceType.Stride.getExtension()));
+            String prefix = dir.getPath().substring(prefixToRemove.length()) + "/";
+            return dirNames == null ? Stream.<String>empty() : Arrays.stream(dirNames).map(name -> prefix + name);
+        }).sorted().collect(Collectors.toList());
+        long hash = FORMAT_VERSION;
+        for (String name : names)
+        {
+            hash = hash * 31 + name.hashCode();
+        }
+        // The libraries, including their modification time and size in case a jar is replaced:
+        for (URL url : classpath)
+        {
+            hash = hash * 31 + url.toExternalForm().hashCode();
+            try
+            {
+                File lib = new File(url.toURI());
+                hash = hash * 31 + Long.hashCode(lib.lastModified());
+                hash = hash * 31 + Long.hashCode(lib.length());
+            }
+            catch (URISyntaxException | IllegalArgumentException e)
+            {
+                // Not a local file; the URL alone will have to do
+            }
+        }
+        context = hash;
+        long scanned = System.currentTimeMillis();
+
+        Map<File, Entry> saved = loadSaved();
+        saved.entrySet().parallelStream().forEach(e -> {
+            File f = e.getKey();
+            Entry entry = e.getValue();
+            if (entry.isUpToDate(f.lastModified(), f.length()))
+            {
+                try
+                {
+                    entry.decoded = decode(entry.data);
+                    entries.putIfAbsent(f, entry);
+                }
+                catch (IOException ex)
+                {
+                    // Leave it out; the file will be parsed again.
+                }
+            }
+        });
+        // If any were out of date, we will need to save again:
+        if (entries.size() != saved.size())
+        {
+            modified = true;
+        }
+        Debug.log("Project parse cache: scanned " + dirs.size() + " packages in " + (scanned - start)
+                + "ms, loaded " + entries.size() + " of " + saved.size() + " entries in "
+                + (System.currentTimeMillis() - scanned) + "ms");
+    }
+
+    /**
+     * Adds the given directory, and all its subdirectories, if they are packages, to the list.
+     */
+    @OnThread(Tag.Worker)
+    private static void findPackageDirs(File dir, List<File> dirs)
+    {
+        if (!Package.isPackage(dir))
+            return;
+        dirs.add(dir);
+        File[] subDirs = dir.listFiles(File::isDirectory);
+        if (subDirs == null)
+            return;
+        for (File subDir : subDirs)
+        {
+            findPackageDirs(subDir, dirs);
+        }
+    }
+
+    /**
+     * Loads the cache previously saved for this project.  Returns an empty map if there
+     * is no saved cache, or it cannot be read, or the project's classes have changed since.
+     */
+    @OnThread(Tag.Worker)
+    private Map<File, Entry> loadSaved()
+    {
+        Map<File, Entry> r = new HashMap<>();
+        if (!cacheFile.isFile())
+            return r;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile))))
+        {
+            // Ignore the saved cache if it is from a different version, or a different project
+            // (which may just be a hash collision), or if the project's classes have changed:
+            if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(projectDir.getPath())
+                    || in.readLong() != context)
+                return r;
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++)
+            {
+                File f = new File(in.readUTF());
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                r.put(f, new Entry(lastModified, length, data));
+            }
+        }
+        catch (IOException e)
+        {
+            Debug.message("Could not read project parse cache: " + e.getMessage());
+            r.clear();
+        }
+        return r;
+    }
+
+    private static byte[] encode(ClassInfo info) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            info.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ClassInfo decode(byte[] data) throws IOException
+    {
+        return ClassInfo.readFrom(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+
+import bluej.Config;
+import bluej.extensions2.SourceType;
+import bluej.parser.lexer.JavaLexer;
+import bluej.parser.lexer.JavaTokenTypes;
+import bluej.utility.Debug;
+import bluej.utility.Utility;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * An index of the identifiers and string literal words in all the Java sources of a project,
+ * used for "Find in Project".
+ *
+ * The index is built in the background when the project is opened, lexing the source files
+ * in parallel.  It is saved to the user config directory, keyed by project location, so that
+ * when the project is next opened only the files which have changed since need lexing again.
+ * While the project is open, the index is updated whenever a class is saved.
+ *
+ * Stride classes are indexed via their generated Java source.
+ */
+@OnThread(Tag.Any)
+public class ProjectSourceIndex
+{
+    // Increment this if the file format changes:
+    private static final int FORMAT_VERSION = 2;
+    // The maximum number of occurrences returned by a single search:
+    private static final int MAX_RESULTS = 1000;
+
+    private final File projectDir;
+    private final File indexFile;
+    // The index for each source file, keyed by the (absolute) source file:
+    private final ConcurrentHashMap<File, FileEntry> files = new ConcurrentHashMap<>();
+    // The inverted index: the files which contain each (lower-case) token.  Sorted so
+    // that we can search by prefix:
+    private final ConcurrentSkipListMap<String, Set<File>> tokenFiles = new ConcurrentSkipListMap<>();
+    // Completes once the initial index has been built:
+    private final CompletableFuture<Boolean> built = new CompletableFuture<>();
+    // The character set used to read the sources:
+    private volatile Charset charset = Charset.defaultCharset();
+    // Whether the index has changed since it was last saved:
+    private volatile boolean modified = false;
+    private boolean started = false;
+
+    /**
+     * The index of a single source file.
+     */
+    private static class FileEntry
+    {
+        // The modification time and length of the file when it was indexed:
+        private final long lastModified;
+        private final long length;
+        // Maps lower-case token to its positions in the file, as consecutive (line, column) pairs:
+        private final Map<String, int[]> tokens;
+
+        private FileEntry(long lastModified, long length, Map<String, int[]> tokens)
+        {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.tokens = tokens;
+        }
+
+        private boolean isUpToDate(File f)
+        {
+            return f.lastModified() == lastModified && f.length() == length;
+        }
+    }
+
+    /**
+     * An occurrence of a token in a source file.
+     */
+    @OnThread(Tag.Any)
+    public static class Occurrence
+    {
+        private final File file;
+        private final int line;
+        private final int column;
+
+        private Occurrence(File file, int line, int column)
+        {
+            this.file = file;
+            this.line = line;
+            this.column = column;
+        }
+
+        /** The source file containing the occurrence. */
+        public File getFile()
+        {
+            return file;
+        }
+
+        /** The line of the occurrence (first line is 1). */
+        public int getLine()
+        {
+            return line;
+        }
+
+        /** The column of the occurrence (first column is 1). */
+        public int getColumn()
+        {
+            return column;
+        }
+    }
+
+    public ProjectSourceIndex(File projectDir)
+    {
+        this.projectDir = projectDir.getAbsoluteFile();
+        String key = Integer.toHexString(this.projectDir.getPath().hashCode());
+        this.indexFile = new File(new File(Config.getUserConfigDir(), "project-index"), key + ".idx");
+    }
+
+    /**
+     * Starts building the index in the background, if it has not already been started.
+     *
+     * @param charset The character set of the project's source files.
+     */
+    public void startIndexing(Charset charset)
+    {
+        synchronized (this)
+        {
+            if (started)
+                return;
+            started = true;
+        }
+        this.charset = charset;
+        new Thread("Project source indexer") {
+            @OnThread(value = Tag.Worker, ignoreParent = true)
+            public void run()
+            {
+                try
+                {
+                    buildIndex();
+                }
+                catch (Throwable t)
+                {
+                    Debug.reportError("Error indexing project sources", t);
+                }
+                finally
+                {
+                    built.complete(true);
+                }
+            }
+        }.start();
+    }
+
+    /**
+     * Checks whether the initial build of the index has finished.
+     */
+    public boolean isBuilt()
+    {
+        return built.isDone();
+    }
+
+    /**
+     * Notifies the index that the given source file has been saved (or removed), so that
+     * it can be indexed again.  The update happens in the background.
+     */
+    public void sourceChanged(File sourceFile)
+    {
+        File f = sourceFile.getAbsoluteFile();
+        Utility.runBackground(() -> {
+            if (f.isFile())
+            {
+                indexFile(f);
+            }
+            else
+            {
+                putEntry(f, null);
+            }
+        });
+    }
+
+    /**
+     * Finds all the occurrences of tokens which begin with the given text (ignoring case).
+     * If the index is still being built, this waits until it is done, so this should not
+     * be called from the FX thread.
+     *
+     * @return The occurrences, ordered by file then position.  At most MAX_RESULTS are returned.
+     */
+    @OnThread(Tag.Worker)
+    public List<Occurrence> find(String prefix)
+    {
+        String lower = prefix.trim().toLowerCase();
+        if (lower.isEmpty())
+            return Collections.emptyList();
+        try
+        {
+            built.get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            Debug.reportError(e);
+        }
+
+        List<Occurrence> r = new ArrayList<>();
+        for (Map.Entry<String, Set<File>> tokenEntry : tokenFiles.subMap(lower, true, lower + Character.MAX_VALUE, true).entrySet())
+        {
+            for (File f : tokenEntry.getValue())
+            {
+                FileEntry entry = files.get(f);
+                int[] positions = entry == null ? null : entry.tokens.get(tokenEntry.getKey());
+                if (positions == null)
+                    continue;
+                for (int i = 0; i < positions.length; i += 2)
+                {
+                    r.add(new Occurrence(f, positions[i], positions[i + 1]));
+                }
+            }
+            if (r.size() >= MAX_RESULTS)
+                break;
+        }
+        r.sort(Comparator.comparing((Occurrence o) -> o.file.getPath())
+            .thenComparingInt(o -> o.line).thenComparingInt(o -> o.column));
+        return r.size() > MAX_RESULTS ? new ArrayList<>(r.subList(0, MAX_RESULTS)) : r;
+    }
+
+    /**
+     * Saves the index to disk, if it has been modified since it was loaded or last saved.
+     * Does nothing if the index has not finished building.  Entries for source files which
+     * no longer exist are dropped.
+     *
+     * The index is written to a temporary file which then replaces the old index, so that
+     * a failed save doesn't leave a partial index behind.  This writes the whole index, so
+     * it should not be called from the FX thread.
+     */
+    @OnThread(Tag.Worker)
+    public synchronized void save()
+    {
+        if (!built.isDone() || !modified)
+            return;
+        // Drop files which have been deleted (or moved) without us being told:
+        for (File f : new ArrayList<>(files.keySet()))
+        {
+            if (!f.isFile())
+                putEntry(f, null);
+        }
+        modified = false;
+        // Take a copy to avoid problems with concurrent updates while we save:
+        Map<File, FileEntry> toSave = new HashMap<>(files);
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try
+        {
+            indexFile.getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+            {
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, projectDir.getPath());
+                out.writeInt(toSave.size());
+                for (Map.Entry<File, FileEntry> fileEntry : toSave.entrySet())
+                {
+                    FileEntry entry = fileEntry.getValue();
+                    writeString(out, fileEntry.getKey().getPath());
+                    out.writeLong(entry.lastModified);
+                    out.writeLong(entry.length);
+                    out.writeInt(entry.tokens.size());
+                    for (Map.Entry<String, int[]> token : entry.tokens.entrySet())
+                    {
+                        writeString(out, token.getKey());
+                        out.writeInt(token.getValue().length);
+                        for (int n : token.getValue())
+                        {
+                            out.writeInt(n);
+                        }
+                    }
+                }
+            }
+            try
+            {
+                Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Could not save project source index", e);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 encoding.  (Unlike
+     * writeUTF, this has no limit on the length, so long string literals are fine.)
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     */
+    private String readString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[readLength(in, 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the length of an array which follows in the index file, and checks that the
+     * file is big enough to hold that many items.  This stops a corrupt file making us
+     * allocate a huge array.
+     *
+     * @param itemSize The size in bytes of each item in the array.
+     * @throws IOException if the length is invalid.
+     */
+    private int readLength(DataInputStream in, int itemSize) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0 || length > indexFile.length() / itemSize)
+            throw new IOException("Invalid array length: " + length);
+        return length;
+    }
+
+    /**
+     * Builds the index: loads the saved index, then lexes all source files in the project
+     * which are not already up-to-date in the saved index.
+     */
+    @OnThread(Tag.Worker)
+    private void buildIndex()
+    {
+        long start = System.currentTimeMillis();
+        Map<File, FileEntry> saved = loadSavedIndex();
+        List<File> sources = new ArrayList<>();
+        findSources(projectDir, sources);
+
+        sources.parallelStream().forEach(f -> {
+            FileEntry entry = saved.get(f);
+            if (entry != null && entry.isUpToDate(f))
+            {
+                putEntry(f, entry);
+            }
+            else
+            {
+                indexFile(f);
+            }
+        });
+        // If any were removed since last save, we need to save again:
+        if (saved.size() != files.size())
+        {
+            modified = true;
+        }
+        Debug.message("Indexed " + sources.size() + " source files in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Finds all the Java source files in the given directory (and its subdirectories)
+     * if it is a package, and adds them to the given list.
+     */
+    @OnThread(Tag.Worker)
+    private static void findSources(File dir, List<File> sources)
+    {
+        if (!Package.isPackage(dir))
+            return;
+        File[] dirFiles = dir.listFiles();
+        if (dirFiles == null)
+            return;
+        for (File f : dirFiles)
+        {
+            if (f.isDirectory())
+            {
+                findSources(f, sources);
+            }
+            else if (f.getName().endsWith("." + SourceType.Java.getExtension()))
+            {
+                sources.add(f.getAbsoluteFile());
+            }
+        }
+    }
+
+    /**
+     * Lexes the given source file and puts the result in the index.
+     */
+    @OnThread(Tag.Worker)
+    private void indexFile(File f)
+    {
+        long lastModified = f.lastModified();
+        long length = f.length();
+        Map<String, List<Integer>> positions = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), charset)))
+        {
+            JavaLexer lexer = new JavaLexer(reader);
+            // We only need the text of a few token types, so avoid making token objects for all of them:
+            for (int type = lexer.nextTokenType(); type != JavaTokenTypes.EOF; type = lexer.nextTokenType())
+            {
+                if (type == JavaTokenTypes.IDENT)
+                {
+                    addPosition(positions, lexer.getTokenText(), lexer.getTokenLine(), lexer.getTokenColumn());
+                }
+                else if (type == JavaTokenTypes.STRING_LITERAL || type == JavaTokenTypes.STRING_LITERAL_MULTILINE)
+                {
+                    // We index the words in the literal, all at the position of the literal:
+                    for (String word : lexer.getTokenText().split("[^\\p{javaJavaIdentifierPart}]+"))
+                    {
+                        if (!word.isEmpty())
+                        {
+                            addPosition(positions, word, lexer.getTokenLine(), lexer.getTokenColumn());
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            // File may have been removed since we found it; treat as having no content:
+            positions.clear();
+        }
+
+        Map<String, int[]> tokens = new HashMap<>();
+        positions.forEach((token, list) -> tokens.put(token, list.stream().mapToInt(Integer::intValue).toArray()));
+        putEntry(f, new FileEntry(lastModified, length, tokens));
+        modified = true;
+    }
+
+    private static void addPosition(Map<String, List<Integer>> positions, String token, int line, int column)
+    {
+        List<Integer> list = positions.computeIfAbsent(token.toLowerCase(), k -> new ArrayList<>());
+        list.add(line);
+        list.add(column);
+    }
+
+    /**
+     * Replaces the entry for the given file in the index (null to remove the file).
+     * Synchronized so that the file map and inverted index are updated consistently.
+     */
+    private synchronized void putEntry(File f, FileEntry entry)
+    {
+        FileEntry old = entry == null ? files.remove(f) : files.put(f, entry);
+        if (old != null)
+        {
+            for (String token : old.tokens.keySet())
+            {
+                Set<File> containing = tokenFiles.get(token);
+                if (containing != null)
+                {
+                    containing.remove(f);
+                    if (containing.isEmpty())
+                        tokenFiles.remove(token);
+                }
+            }
+        }
+        if (entry != null)
+        {
+            for (String token : entry.tokens.keySet())
+            {
+                tokenFiles.computeIfAbsent(token, k -> ConcurrentHashMap.newKeySet()).add(f);
+            }
+        }
+        else if (old != null)
+        {
+            modified = true;
+        }
+    }
+
+    /**
+     * Loads the index previously saved for this project.  Returns an empty map if there
+     * is no saved index, or it cannot be read.
+     */
+    @OnThread(Tag.Worker)
+    private Map<File, FileEntry> loadSavedIndex()
+    {
+        Map<File, FileEntry> r = new HashMap<>();
+        if (!indexFile.isFile())
+            return r;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile))))
+        {
+            // Ignore the saved index if it is from a different version, or a different project
+            // (which may just be a hash collision):
+            if (in.readInt() != FORMAT_VERSION || !readString(in).equals(projectDir.getPath()))
+                return r;
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++)
+            {
+                File f = new File(readString(in));
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                int tokenCount = in.readInt();
+                Map<String, int[]> tokens = new HashMap<>();
+                for (int j = 0; j < tokenCount; j++)
+                {
+                    String token = readString(in);
+                    int[] positions = new int[readLength(in, 4)];
+                    for (int k = 0; k < positions.length; k++)
+                    {
+                        positions[k] = in.readInt();
+                    }
+                    tokens.put(token, positions);
+                }
+                r.put(f, new FileEntry(lastModified, length, tokens));
+            }
+        }
+        catch (IOException e)
+        {
+            Debug.message("Could not read project source index: " + e.getMessage());
+            r.clear();
+        }
+        return r;
+    }
+}
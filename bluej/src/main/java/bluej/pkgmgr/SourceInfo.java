@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2014,2016  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2014,2016,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -24,7 +24,6 @@ package bluej.pkgmgr;
 import java.io.File;
 import java.io.FileNotFoundException;
 
-import bluej.parser.InfoParser;
 import bluej.parser.symtab.ClassInfo;
 
 /**
@@ -55,7 +54,7 @@ public final class SourceInfo
         {
             try
             {
-                info = InfoParser.parseWithPkg(sourceFile, pkg);
+                info = pkg.getProject().getParseCache().getInfo(sourceFile, pkg);
             }
             catch (FileNotFoundException fnfe)
             {
@@ -0,0 +1,479 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import bluej.Config;
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * An open source jar (such as the JDK's src.zip), with a persistent index of the
+ * comments which have been extracted from the source files in it.
+ * 
+ * <p>The index file (in the user config directory) holds one record per source file:
+ * the entry name, then the byte length of the rest of the record, which holds the
+ * targets (method signatures, or the class name), text and parameter names of its
+ * comments, as given by ClassInfo.getComments().  When the index is first used, it is
+ * read through once (skipping the comments, using the length) to find the offset of each
+ * record; comments are read from the file when they are asked for.  New records are
+ * appended.  If the jar has changed since the index was written, the index is started
+ * again.
+ * 
+ * <p>Since the index is shared by all projects, source files in the jar are always read
+ * as UTF-8 (as the JDK's src.zip is), whatever the project's character set.
+ * 
+ * <p>Open jars are pooled, so that the zip file is not re-opened for every lookup, and are
+ * shared by all projects.  All access to a jar is synchronized on it.
+ */
+@OnThread(Tag.Any)
+class SourceJar
+{
+    private static final int MAGIC = 0x424a4349; // "BJCI"
+    private static final int FORMAT_VERSION = 2;
+    // The number of jars to keep open:
+    private static final int POOL_SIZE = 8;
+
+    private static final Map<File, SourceJar> pool = new LinkedHashMap<File, SourceJar>(POOL_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, SourceJar> eldest)
+        {
+            if (size() > POOL_SIZE)
+            {
+                eldest.getValue().close();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Parses a source file to extract its comments.
+     */
+    interface CommentParser
+    {
+        /**
+         * @return The comments (as ClassInfo.getComments()), or null if the source
+         *         could not be parsed.
+         */
+        Properties parse(Reader source) throws IOException;
+    }
+
+    private final File jarFile;
+    private final File indexFile;
+    private final long lastModified;
+    private final long length;
+    private ZipFile zipFile;
+    // Whether we have tried to open the index (it is null if that failed):
+    private boolean indexOpened = false;
+    private RandomAccessFile index;
+    // The offset in the index file of the comments length for each entry name:
+    private final Map<String, Long> offsets = new HashMap<>();
+
+    /**
+     * Gets the open jar for the given file, opening it if necessary.
+     */
+    static SourceJar get(File jarFile) throws IOException
+    {
+        synchronized (pool)
+        {
+            SourceJar jar = pool.get(jarFile);
+            if (jar != null && (jar.lastModified != jarFile.lastModified() || jar.length != jarFile.length()))
+            {
+                // The jar has changed (e.g. JDK updated in place):
+                pool.remove(jarFile);
+                jar.close();
+                jar = null;
+            }
+            if (jar == null)
+            {
+                String path = jarFile.getAbsolutePath();
+                File dir = Config.getUserConfigFile("javadoc-index");
+                File indexFile = new File(dir, jarFile.getName() + "-" + Integer.toHexString(path.hashCode()) + ".bin");
+                jar = new SourceJar(jarFile, indexFile);
+                pool.put(jarFile, jar);
+            }
+            return jar;
+        }
+    }
+
+    /**
+     * Opens the given jar.  The index is not read until it is first needed, so that this
+     * is quick (it is called with the pool locked).
+     * 
+     * @param indexFile The index file to use (created if it does not exist).
+     */
+    SourceJar(File jarFile, File indexFile) throws IOException
+    {
+        this.jarFile = jarFile;
+        this.indexFile = indexFile;
+        this.lastModified = jarFile.lastModified();
+        this.length = jarFile.length();
+        this.zipFile = new ZipFile(jarFile);
+    }
+
+    /**
+     * Opens the index file if that hasn't been tried yet, reading the offsets of the
+     * records in it.  If there is a problem with the index, we carry on without one.
+     */
+    private void openIndex()
+    {
+        if (indexOpened)
+        {
+            return;
+        }
+        indexOpened = true;
+        indexFile.getParentFile().mkdirs();
+        String path = jarFile.getAbsolutePath();
+        try
+        {
+            index = new RandomAccessFile(indexFile, "rw");
+            long fileLength = index.length();
+            boolean valid = false;
+            if (fileLength > 0)
+            {
+                long recordStart = -1;
+                // Read through a buffer; the index holds thousands of records:
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile))))
+                {
+                    long pos = 8;
+                    if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION)
+                    {
+                        String indexedPath = readString(in, fileLength - pos);
+                        pos += stringSize(indexedPath);
+                        // (Only valid once the whole header has been read; if it is
+                        // incomplete, we start again)
+                        valid = path.equals(indexedPath)
+                            && in.readLong() == lastModified && in.readLong() == length;
+                        pos += 16;
+                    }
+                    recordStart = pos;
+                    while (valid && recordStart < fileLength)
+                    {
+                        String entryName = readString(in, fileLength - pos);
+                        pos += stringSize(entryName);
+                        long commentsStart = pos;
+                        int commentsLength = in.readInt();
+                        pos += 4;
+                        if (entryName == null || commentsLength < 0 || commentsLength > fileLength - pos)
+                        {
+                            throw new EOFException();
+                        }
+                        skipFully(in, commentsLength);
+                        pos += commentsLength;
+                        offsets.put(entryName, commentsStart);
+                        recordStart = pos;
+                    }
+                }
+                catch (IOException | IllegalArgumentException e)
+                {
+                    // Incomplete record at the end (e.g. BlueJ was killed while writing);
+                    // keep the records before it:
+                    Debug.message("Javadoc index for " + jarFile + " was incomplete");
+                }
+                if (valid)
+                {
+                    index.setLength(recordStart);
+                }
+            }
+            if (!valid)
+            {
+                offsets.clear();
+                index.setLength(0);
+                ByteArrayOutputStream header = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(header);
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, path);
+                out.writeLong(lastModified);
+                out.writeLong(length);
+                index.write(header.toByteArray());
+            }
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Could not open Javadoc index for " + jarFile, e);
+            closeIndex();
+        }
+    }
+
+    /**
+     * Gets the comments for the given entry in the jar, from the index if they are in it,
+     * or otherwise by parsing the source (and then adding them to the index).
+     * 
+     * @return The comments, or null if there is no such entry in the jar.  If the source
+     *         could not be parsed, the result is empty (so we don't try again).
+     */
+    synchronized Properties getComments(String entryName, CommentParser parser)
+    {
+        if (zipFile == null)
+        {
+            return null;
+        }
+        openIndex();
+
+        Long offset = offsets.get(entryName);
+        if (offset != null)
+        {
+            try
+            {
+                return readRecord(offset);
+            }
+            catch (IOException | IllegalArgumentException e)
+            {
+                Debug.reportError("Problem reading Javadoc index for " + jarFile, e);
+                closeIndex();
+            }
+        }
+
+        ZipEntry entry = zipFile.getEntry(entryName);
+        if (entry == null)
+        {
+            return null;
+        }
+
+        Properties comments = null;
+        try (Reader r = new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))
+        {
+            comments = parser.parse(r);
+        }
+        catch (IOException e)
+        {
+            Debug.message("Problem reading " + entryName + " from " + jarFile + ": " + e.getMessage());
+        }
+        if (comments == null)
+        {
+            comments = new Properties();
+        }
+        addRecord(entryName, comments);
+        return comments;
+    }
+
+    /**
+     * Checks whether the comments for the given entry are in the index already.
+     */
+    synchronized boolean isIndexed(String entryName)
+    {
+        openIndex();
+        return offsets.containsKey(entryName);
+    }
+
+    /**
+     * Gets the names of the .java entries directly in the given directory of the jar
+     * (which should end with "/"), in any module (i.e. with any single directory before it).
+     */
+    synchronized List<String> getSourceEntries(String directory)
+    {
+        List<String> result = new ArrayList<>();
+        if (zipFile == null)
+        {
+            return result;
+        }
+        zipFile.stream().map(ZipEntry::getName).filter(name -> {
+            int start = name.startsWith(directory) ? 0 : name.indexOf('/') + 1;
+            return start >= 0 && name.startsWith(directory, start) && name.endsWith(".java")
+                && name.indexOf('/', start + directory.length()) == -1;
+        }).forEach(result::add);
+        return result;
+    }
+
+    private Properties readRecord(long offset) throws IOException
+    {
+        index.seek(offset);
+        int commentsLength = index.readInt();
+        if (commentsLength < 0 || commentsLength > index.length() - index.getFilePointer())
+        {
+            throw new IllegalArgumentException("Corrupt record length: " + commentsLength);
+        }
+        // Read the whole record at once, rather than a few bytes at a time:
+        byte[] bytes = new byte[commentsLength];
+        index.readFully(bytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int count = in.readInt();
+        Properties comments = new Properties();
+        comments.setProperty("numComments", String.valueOf(count));
+        for (int i = 0; i < count; i++)
+        {
+            String prefix = "comment" + i;
+            comments.setProperty(prefix + ".target", readString(in, in.available()));
+            String text = readString(in, in.available());
+            if (text != null)
+            {
+                comments.setProperty(prefix + ".text", text);
+            }
+            String params = readString(in, in.available());
+            if (params != null)
+            {
+                comments.setProperty(prefix + ".params", params);
+            }
+        }
+        return comments;
+    }
+
+    private void addRecord(String entryName, Properties comments)
+    {
+        if (index == null)
+        {
+            return;
+        }
+        try
+        {
+            int count = Integer.parseInt(comments.getProperty("numComments", "0"));
+            ByteArrayOutputStream commentBytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(commentBytes);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++)
+            {
+                String prefix = "comment" + i;
+                writeString(out, comments.getProperty(prefix + ".target", ""));
+                writeString(out, comments.getProperty(prefix + ".text"));
+                writeString(out, comments.getProperty(prefix + ".params"));
+            }
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            out = new DataOutputStream(record);
+            writeString(out, entryName);
+            out.writeInt(commentBytes.size());
+            commentBytes.writeTo(out);
+            long offset = index.length();
+            index.seek(offset);
+            index.write(record.toByteArray());
+            offsets.put(entryName, offset + stringSize(entryName));
+        }
+        catch (IOException | NumberFormatException e)
+        {
+            Debug.reportError("Problem writing Javadoc index for " + jarFile, e);
+            closeIndex();
+        }
+    }
+
+    synchronized void close()
+    {
+        closeIndex();
+        if (zipFile != null)
+        {
+            try
+            {
+                zipFile.close();
+            }
+            catch (IOException e)
+            {
+                // Nothing useful we can do
+            }
+            zipFile = null;
+        }
+    }
+
+    private void closeIndex()
+    {
+        if (index != null)
+        {
+            try
+            {
+                index.close();
+            }
+            catch (IOException e)
+            {
+                // Nothing useful we can do
+            }
+            index = null;
+        }
+        offsets.clear();
+    }
+
+    // Strings are stored as a byte count (-1 for null) followed by UTF-8 bytes:
+
+    /**
+     * Reads a string, checking that its length is within the given number of remaining
+     * bytes (which includes the length itself).
+     */
+    private static String readString(DataInput in, long remaining) throws IOException
+    {
+        int length = in.readInt();
+        if (length == -1)
+        {
+            return null;
+        }
+        if (length < 0 || length > remaining - 4)
+        {
+            throw new IllegalArgumentException("Corrupt string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the number of bytes that writeString writes for the given string.
+     */
+    private static int stringSize(String s)
+    {
+        return 4 + (s == null ? 0 : s.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException
+    {
+        while (length > 0)
+        {
+            int skipped = in.skipBytes(length);
+            if (skipped <= 0)
+            {
+                throw new EOFException();
+            }
+            length -= skipped;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        if (s == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A spatial index of items in the class diagram (targets, or the bounding boxes of
+ * dependency arrows), for quickly finding the items which overlap a given rectangle.
+ *
+ * The diagram is divided into a uniform grid of square cells, and each item is listed in
+ * every cell its bounds overlap.  Items which would cover a great many cells (e.g. the
+ * bounding box of a long arrow across the diagram) are instead kept in a separate list
+ * which is always checked, so that adding and moving them stays cheap.
+ *
+ * Items are compared by identity.  Overlap is strict: rectangles which only touch along
+ * an edge do not overlap (as in Rectangle2D.intersects).
+ */
+class SpatialIndex<T>
+{
+    // Items covering more cells than this go in the large list:
+    private static final int MAX_CELLS_PER_ITEM = 64;
+
+    private final double cellSize;
+    private final HashMap<Long, List<T>> cells = new HashMap<>();
+    private final List<T> largeItems = new ArrayList<>();
+    // The bounds of each item: minX, minY, maxX, maxY
+    private final IdentityHashMap<T, double[]> bounds = new IdentityHashMap<>();
+
+    SpatialIndex(double cellSize)
+    {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Adds the item with the given bounds, replacing its previous bounds if it is
+     * already in the index.
+     */
+    void put(T item, double minX, double minY, double maxX, double maxY)
+    {
+        remove(item);
+        double[] b = new double[] {minX, minY, maxX, maxY};
+        bounds.put(item, b);
+        if (isLarge(b))
+        {
+            largeItems.add(item);
+            return;
+        }
+        for (int cx = cell(minX); cx <= cell(maxX); cx++)
+        {
+            for (int cy = cell(minY); cy <= cell(maxY); cy++)
+            {
+                cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(item);
+            }
+        }
+    }
+
+    /**
+     * Removes the item, if it is in the index.
+     */
+    void remove(T item)
+    {
+        double[] b = bounds.remove(item);
+        if (b == null)
+            return;
+        if (isLarge(b))
+        {
+            removeByIdentity(largeItems, item);
+            return;
+        }
+        for (int cx = cell(b[0]); cx <= cell(b[2]); cx++)
+        {
+            for (int cy = cell(b[1]); cy <= cell(b[3]); cy++)
+            {
+                Long key = key(cx, cy);
+                List<T> cellItems = cells.get(key);
+                if (cellItems != null)
+                {
+                    removeByIdentity(cellItems, item);
+                    if (cellItems.isEmpty())
+                        cells.remove(key);
+                }
+            }
+        }
+    }
+
+    void clear()
+    {
+        cells.clear();
+        largeItems.clear();
+        bounds.clear();
+    }
+
+    int size()
+    {
+        return bounds.size();
+    }
+
+    /**
+     * Gets the items whose bounds overlap the given rectangle.  Each item is returned
+     * once, in no particular order.
+     */
+    List<T> query(double minX, double minY, double maxX, double maxY)
+    {
+        List<T> r = new ArrayList<>();
+        Set<T> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int cx = cell(minX); cx <= cell(maxX); cx++)
+        {
+            for (int cy = cell(minY); cy <= cell(maxY); cy++)
+            {
+                List<T> cellItems = cells.get(key(cx, cy));
+                if (cellItems != null)
+                {
+                    for (T item : cellItems)
+                    {
+                        if (overlaps(bounds.get(item), minX, minY, maxX, maxY) && found.add(item))
+                            r.add(item);
+                    }
+                }
+            }
+        }
+        for (T item : largeItems)
+        {
+            if (overlaps(bounds.get(item), minX, minY, maxX, maxY))
+                r.add(item);
+        }
+        return r;
+    }
+
+    private boolean isLarge(double[] b)
+    {
+        long width = cell(b[2]) - cell(b[0]) + 1;
+        long height = cell(b[3]) - cell(b[1]) + 1;
+        return width * height > MAX_CELLS_PER_ITEM;
+    }
+
+    private static boolean overlaps(double[] b, double minX, double minY, double maxX, double maxY)
+    {
+        return b[0] < maxX && b[2] > minX && b[1] < maxY && b[3] > minY;
+    }
+
+    private int cell(double coord)
+    {
+        return (int)Math.floor(coord / cellSize);
+    }
+
+    private static Long key(int cx, int cy)
+    {
+        return ((long)cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static <T> void removeByIdentity(List<T> list, T item)
+    {
+        for (int i = 0; i < list.size(); i++)
+        {
+            if (list.get(i) == item)
+            {
+                list.remove(i);
+                return;
+            }
+        }
+    }
+}
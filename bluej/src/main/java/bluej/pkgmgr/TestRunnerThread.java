@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2014,2016,2018,2019,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2012,2014,2016,2018,2019,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -34,7 +34,6 @@ import threadchecker.OnThread;
 import threadchecker.Tag;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -63,6 +62,9 @@ public class TestRunnerThread extends Thread
     private int state;
     private final Project project;
 
+    // Whether to run test classes in parallel when running all tests:
+    private static final String PARALLEL_PROPERTY = "bluej.testrunner.parallel";
+
     /**
      * Construct a test runner thread for running multiple tests.
      */
@@ -95,54 +97,66 @@ public class TestRunnerThread extends Thread
     @OnThread(value = Tag.Worker, ignoreParent = true)
     public void run()
     {
-        while (testIterator.hasNext()) 
+        if (methodName == null)
         {
+            runAllTests();
+            return;
+        }
 
+        while (testIterator.hasNext()) 
+        {
             ClassTarget ct = testIterator.next();
 
-            List<String> allMethods;
-            if (methodName == null)
-            {
-                // Run all tests for a target, so find out what they are:
-                CompletableFuture<List<String>> methodsFuture = new CompletableFuture<>();
-                Platform.runLater(() -> startTestFindMethods(ct, methodsFuture));
-                try
-                {
-                    allMethods = methodsFuture.get();
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    Debug.reportError(e);
-                    allMethods = Collections.emptyList();
-                }
-            }
-            else 
+            // Run only a single test.
+            // With JUnit 5, a method does not always match to 1 test (parameterized),
+            // so we should not rely on this to assume there are no more than 1 result for 1 single method of test.
+            TestResultsWithRunTime lastResults = project.getDebugger().runTestMethod(ct.getQualifiedName(), methodName);
+            // Add all test results to the test display frame:
+            for (DebuggerTestResult result : lastResults.getResults())
             {
-                // Run only a single test.
-                allMethods = Arrays.asList(methodName);
+                Platform.runLater(() -> showNextResult(result));
             }
+            Platform.runLater(() -> TestDisplayFrame.getTestDisplay()
+                    .updateTotalTimeMs(lastResults.getTotalRunTime()));
+        }
+    }
 
-            // State 1 has given us the tests we need to run. Now run them:
-            // With JUnit 5, a method does not always match to 1 test (parameterized),
-            // so we should not rely on this to assume there are no more than 1 result for 1 single method of test.
-            if (allMethods.size() > 0)
+    /**
+     * Run all the tests in all the test classes as one test run, so that the test classes
+     * can run in parallel, and show each result as soon as it arrives.
+     */
+    @OnThread(Tag.Worker)
+    private void runAllTests()
+    {
+        List<String> classNames = new ArrayList<>();
+        while (testIterator.hasNext())
+        {
+            ClassTarget ct = testIterator.next();
+            CompletableFuture<List<String>> methodsFuture = new CompletableFuture<>();
+            Platform.runLater(() -> startTestFindMethods(ct, methodsFuture));
+            try
             {
-                TestResultsWithRunTime lastResults = project.getDebugger().runTestMethod(ct.getQualifiedName(), (allMethods.size() == 1) ? methodName : null);
-                // Add all test results to the test display frame:
-                for (DebuggerTestResult result : lastResults.getResults())
+                if (!methodsFuture.get().isEmpty())
                 {
-                    Platform.runLater(() -> showNextResult(result));
+                    classNames.add(ct.getQualifiedName());
                 }
-                Platform.runLater(() -> TestDisplayFrame.getTestDisplay()
-                        .updateTotalTimeMs(lastResults.getTotalRunTime()));
             }
+            catch (InterruptedException | ExecutionException e)
+            {
+                Debug.reportError(e);
+            }
+        }
+
+        if (!classNames.isEmpty())
+        {
+            boolean parallel = Config.getPropBoolean(PARALLEL_PROPERTY, false);
+            TestResultsWithRunTime results = project.getDebugger().runAllTests(classNames, parallel,
+                    result -> Platform.runLater(() -> showNextResult(result)));
+            Platform.runLater(() -> TestDisplayFrame.getTestDisplay()
+                    .updateTotalTimeMs(results.getTotalRunTime()));
         }
 
-        // Finally, tell the PkgMgrFrame that we're done:
-        Platform.runLater(() -> {
-            if (methodName == null)
-                pmf.endTestRun();
-        });
+        Platform.runLater(() -> pmf.endTestRun());
     }
 
     @OnThread(Tag.FXPlatform)
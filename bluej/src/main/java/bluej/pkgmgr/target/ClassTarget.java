@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,6 +23,8 @@ package bluej.pkgmgr.target;
 
 
 import bluej.Config;
+import bluej.classmgr.ClassFileAnalyser;
+import bluej.classmgr.ClassFileInfo;
 import bluej.collect.DataCollector;
 import bluej.collect.DiagnosticWithShown;
 import bluej.collect.StrideEditReason;
@@ -102,7 +104,6 @@ import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.TypeVariable;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.time.Instant;
@@ -1441,13 +1442,20 @@ public class ClassTarget extends DependentTarget
             updateTargetFile(info);
         }
         determineRole(null);
+        getPackage().getProject().getSourceIndex().sourceChanged(getJavaSourceFile());
     }
 
     @Override
     public boolean breakpointToggleEvent(int lineNo, boolean set)
+    {
+        return breakpointToggleEvent(lineNo, set, null);
+    }
+
+    @Override
+    public boolean breakpointToggleEvent(int lineNo, boolean set, Map<String, String> properties)
     {
         if (isCompiled()) {
-            boolean nowSet = getPackage().getDebugger().toggleBreakpoint(getQualifiedName(), lineNo, set, null);
+            boolean nowSet = getPackage().getDebugger().toggleBreakpoint(getQualifiedName(), lineNo, set, properties);
 
             if (nowSet == set && getPackage() != null)
             {
@@ -1549,15 +1557,21 @@ public class ClassTarget extends DependentTarget
      * Called when this class target has just been successfully compiled.
      * 
      * We load the compiled class if possible and check if the compilation has
-     * resulted in it taking a different role (ie abstract to applet)
+     * resulted in it taking a different role (ie abstract to applet).  Dependencies
+     * and type parameters are updated from the analysis of the class file, unless
+     * the class file is unchanged since it was last analysed.
+     *
+     * @param classFileResult  the analysis of the class file (may be null if it could not be analysed)
      */
-    public void analyseAfterCompile()
+    public void analyseAfterCompile(ClassFileAnalyser.Result classFileResult)
     {
         Class<?> cl = getPackage().loadClass(getQualifiedName());
 
         determineRole(cl);
-        analyseDependencies(cl);
-        analyseTypeParams(cl);
+        if (classFileResult != null && classFileResult.isChanged()) {
+            analyseDependencies(classFileResult.getInfo());
+            analyseTypeParams(classFileResult.getInfo());
+        }
     }
 
     /**
@@ -1859,49 +1873,77 @@ public class ClassTarget extends DependentTarget
     }
 
     /**
-     * Analyse the current dependencies in the compiled class and update the
+     * Analyse the current dependencies in the compiled class file and update the
      * dependencies in the graphical display accordingly.
+     * 
+     * If there is no source, the uses dependencies are also taken from the class
+     * file (otherwise they come from the source analysis).
      */
-    public void analyseDependencies(Class<?> cl)
+    public void analyseDependencies(ClassFileInfo info)
     {
-        if (cl != null) {
-            removeInheritDependencies();
+        if (info != null) {
+            if (hasSourceCode()) {
+                removeInheritDependencies();
+            }
+            else {
+                removeAllOutDependencies();
+                addUsesDependencies(info);
+            }
+
+            if (info.getSuperclass() != null) {
+                setSuperClass(info.getSuperclass());
+            }
+
+            for (String interfaceName : info.getInterfaces()) {
+                addInterface(interfaceName);
+            }
+        }
+    }
 
-            Class<?> superClass = cl.getSuperclass();
-            if (superClass != null) {
-                setSuperClass(superClass.getName());
+    /**
+     * Add uses dependencies to the classes in this package which are referred to
+     * by the given class file.
+     */
+    private void addUsesDependencies(ClassFileInfo info)
+    {
+        String pkgPrefix = getPackage().getQualifiedName();
+        pkgPrefix = (pkgPrefix.length() == 0) ? pkgPrefix : pkgPrefix + ".";
+        Set<String> usedNames = new HashSet<>();
+        for (String name : info.getUsed()) {
+            // As for source analysis, the superclass is not counted as used:
+            if (name.equals(info.getSuperclass())) {
+                continue;
+            }
+            if (name.startsWith(pkgPrefix) && name.indexOf('.', pkgPrefix.length()) == -1) {
+                // A nested class counts as a use of its top-level class:
+                String baseName = name.substring(pkgPrefix.length());
+                int dollar = baseName.indexOf('$');
+                usedNames.add(dollar == -1 ? baseName : baseName.substring(0, dollar));
             }
+        }
+        usedNames.remove(getBaseName());
 
-            Class<?> [] interfaces = cl.getInterfaces();
-            for (int i = 0; i < interfaces.length; i++) {
-                addInterface(interfaces[i].getName());
+        for (String name : usedNames) {
+            DependentTarget used = getPackage().getDependentTarget(name);
+            if (used != null) {
+                getPackage().addDependency(new UsesDependency(getPackage(), this, used));
             }
         }
     }
     
     /**
-     * Analyse the type parameters from the compiled class and update the display name.
+     * Analyse the type parameters from the compiled class file and update the display name.
      */
-    public <T> void analyseTypeParams(Class<T> cl)
+    public void analyseTypeParams(ClassFileInfo info)
     {
-        if (cl != null) {
+        if (info != null) {
             String oldTypeParams = typeParameters;
-            TypeVariable<Class<T>> [] tvars = cl.getTypeParameters();
-            if (tvars.length == 0) {
+            List<String> tvars = info.getTypeParameters();
+            if (tvars.isEmpty()) {
                 typeParameters = "";
             }
-            else
-            {
-                boolean isFirst = true;
-                typeParameters = "<";
-                for (TypeVariable<?> tvar : tvars) {
-                    if (! isFirst) {
-                        typeParameters += ",";
-                    }
-                    isFirst = false;
-                    typeParameters += tvar.getName();
-                }
-                typeParameters += ">";
+            else {
+                typeParameters = "<" + String.join(",", tvars) + ">";
             }
             
             if (! typeParameters.equals(oldTypeParams)) {
@@ -2431,7 +2473,7 @@ public class ClassTarget extends DependentTarget
         // We must remove after the above, because it might involve saving, 
         // and thus recording edits to the file
         DataCollector.removeClass(pkg, frameSourceFile, javaSourceFile);
-
+        pkg.getProject().getSourceIndex().sourceChanged(javaSourceFile);
 
         // In Greenfoot we don't do detailed dependency tracking, so we just recompile the whole
         // package if any class is removed:
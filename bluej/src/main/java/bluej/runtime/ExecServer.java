@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2016,2017,2018,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2016,2017,2018,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -40,9 +40,12 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -55,8 +58,12 @@ import javafx.embed.swing.JFXPanel;
 import javafx.stage.Stage;
 
 import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.platform.engine.DiscoverySelector;
 import org.junit.platform.engine.TestExecutionResult;
 import org.junit.platform.engine.TestExecutionResult.Status;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.engine.support.descriptor.MethodSource;
 import org.junit.platform.launcher.Launcher;
 import org.junit.platform.launcher.LauncherDiscoveryRequest;
 import org.junit.platform.launcher.TestIdentifier;
@@ -113,6 +120,7 @@ public class ExecServer
     public static String [] parameterTypes;
     public static Object [] arguments;
     public static int execAction = -1;   // EXEC_SHELL, TEST_SETUP or TEST_RUN
+    public static boolean runTestsInParallel; // for TEST_RUN_ALL
     
     public static Object methodReturn;
     public static Class<?> executedClass;
@@ -128,6 +136,7 @@ public class ExecServer
     public static final String METHOD_RETURN_NAME = "methodReturn";
     public static final String EXCEPTION_NAME = "exception";
     public static final String EXECUTED_CLASS_NAME = "executedClass";
+    public static final String RUN_TESTS_IN_PARALLEL_NAME = "runTestsInParallel";
 
     // Possible actions for the main thread
     public static final int EXEC_SHELL = 0;  // Execute a shell class
@@ -140,6 +149,7 @@ public class ExecServer
     public static final int INSTANTIATE_CLASS_ARGS = 7; // use constructor
         // with specified parameter types and arguments
     public static final int LAUNCH_FX_APP = 8;
+    public static final int TEST_RUN_ALL = 9; // run all tests in several classes, streaming the results
 
     // Parameter for worker thread actions
     public static int workerAction = EXIT_VM;
@@ -149,6 +159,8 @@ public class ExecServer
     public static String className;
     public static String scopeId;
     public static ClassLoader classLoader = null; // null to use current loader.
+    public static byte[] classBytes;
+    public static int profileInterval;
     
     public static Object workerReturn;
     
@@ -161,6 +173,8 @@ public class ExecServer
     public static final String WORKER_RETURN_NAME = "workerReturn";
     public static final String SCOPE_ID_NAME = "scopeId";
     public static final String CLASSLOADER_NAME = "classLoader";
+    public static final String CLASS_BYTES_NAME = "classBytes";
+    public static final String PROFILE_INTERVAL_NAME = "profileInterval";
     
     // possible actions for worker thread
     public static final int REMOVE_OBJECT = 0;
@@ -169,6 +183,16 @@ public class ExecServer
     public static final int NEW_LOADER    = 3;
     // EXIT_VM ( = 4) is also used in the worker thread
     public static final int LOAD_ALL      = 5; // load class and inner classes
+    public static final int DEFINE_CLASS  = 6; // make class bytes available to the current loader
+    public static final int START_PROFILING = 7; // start the sampling profiler
+    public static final int STOP_PROFILING  = 8; // stop the sampling profiler and return its results
+    public static final int POLL_TEST_RESULTS = 9; // collect the results so far of a TEST_RUN_ALL
+
+    // Separators used to encode the streamed test results (see runAllTests) into a single string:
+    public static final char TEST_FIELD_SEPARATOR = '\u001F';
+    public static final char TEST_RECORD_SEPARATOR = '\u001E';
+    // The encoded results of TEST_RUN_ALL which have not yet been collected:
+    private static final Queue<String> testResultQueue = new ConcurrentLinkedQueue<>();
 
     // the current class loader
     private static ClassLoader currentLoader;
@@ -255,6 +279,28 @@ public class ExecServer
                             System.exit(0);
                         case LOAD_ALL:
                             workerReturn = loadAllClasses(className);
+                            break;
+                        case DEFINE_CLASS:
+                            // We don't define the class yet, as that could run user code (via the
+                            // loading of its superclass, for instance). It is defined when it is loaded:
+                            if (currentLoader instanceof UserClassLoader) {
+                                ((UserClassLoader) currentLoader).addClassBytes(className, classBytes);
+                                workerReturn = Boolean.TRUE;
+                            }
+                            else {
+                                workerReturn = null;
+                            }
+                            classBytes = null;
+                            break;
+                        case START_PROFILING:
+                            Sampler.startSampling(profileInterval);
+                            break;
+                        case STOP_PROFILING:
+                            workerReturn = Sampler.stopSampling();
+                            break;
+                        case POLL_TEST_RESULTS:
+                            workerReturn = pollTestResults();
+                            break;
                     }
                     // After any action, set the next action to exit. If connection to
                     // primary VM is lost, the secondary VM (i.e. this VM) will then exit.
@@ -409,7 +455,7 @@ public class ExecServer
             System.err.println("ExecServer.newLoader() Malformed URL=" + splits[index]);
         }
 
-        currentLoader = new URLClassLoader(urls);
+        currentLoader = new UserClassLoader(urls);
         
         synchronized (objectMaps) {
             objectMaps.clear();
@@ -648,13 +694,26 @@ public class ExecServer
 
     /**
      * A class to record successes and failures during a JUnit test run.
+     * 
+     * If streaming, each result is encoded and added to the testResultQueue as soon as
+     * the test finishes, rather than being kept in testDetails.  Tests may run in parallel,
+     * so the listener methods may be called from several threads at once.
      */
     private static class TestRecorder implements TestExecutionListener
     {
-        private final List<Object[]> testDetails = new ArrayList<>();
+        private final List<Object[]> testDetails = Collections.synchronizedList(new ArrayList<>());
+        private final boolean streaming;
+        // The start times of the tests currently running, by unique id:
+        private final Map<String, Long> testStartTimes = new ConcurrentHashMap<>();
+        private final AtomicLong totalTestTime = new AtomicLong();
         private long executionStartTime;
         private long executionRunTime = -1;
 
+        public TestRecorder(boolean streaming)
+        {
+            this.streaming = streaming;
+        }
+
         public void testPlanExecutionStarted(TestPlan testPlan)
         {
             executionStartTime = System.currentTimeMillis();
@@ -670,11 +729,34 @@ public class ExecServer
             return executionRunTime;
         }
 
+        /**
+         * Gets the sum of the run times of the individual tests.  If the tests ran one at a
+         * time, this will be a little less than the execution run time.
+         */
+        public long getTotalTestTime()
+        {
+            return totalTestTime.get();
+        }
+
+        public void executionStarted(TestIdentifier testIdentifier)
+        {
+            if (testIdentifier.isTest())
+            {
+                testStartTimes.put(testIdentifier.getUniqueId(), System.currentTimeMillis());
+            }
+        }
+
         public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult)
         {
             // Retrieved tests (not container)
             if (testIdentifier.isTest())
             {
+                Long startTime = testStartTimes.remove(testIdentifier.getUniqueId());
+                if (startTime != null)
+                {
+                    totalTestTime.addAndGet(System.currentTimeMillis() - startTime);
+                }
+
                 Object[] r = new Object[9];
                 // The name of the method: we remove anything added by JUnit after the arguments brackets
                 // as for Junit 5 the framework may add the index of the test iteration
@@ -732,9 +814,67 @@ public class ExecServer
                         r[2] = r[3] = r[4] = r[5] = r[6] = r[7] = "";
                     }
                 }
-                testDetails.add(r);
+                if (streaming)
+                {
+                    testResultQueue.add(encodeTestResult(getClassName(testIdentifier), r));
+                }
+                else
+                {
+                    testDetails.add(r);
+                }
             }
         }
+
+        /**
+         * Gets the name of the class containing the given test, or "" if it cannot be determined.
+         */
+        private static String getClassName(TestIdentifier testIdentifier)
+        {
+            TestSource source = testIdentifier.getSource().orElse(null);
+            if (source instanceof MethodSource)
+                return ((MethodSource) source).getClassName();
+            else if (source instanceof ClassSource)
+                return ((ClassSource) source).getClassName();
+            else
+                return "";
+        }
+    }
+
+    /**
+     * Encodes a test result for the testResultQueue: the class name followed by the
+     * fields of the result (as described in runTestMethod), separated by TEST_FIELD_SEPARATOR.
+     */
+    private static String encodeTestResult(String className, Object[] result)
+    {
+        StringBuilder encoded = new StringBuilder(className);
+        for (Object field : result)
+        {
+            encoded.append(TEST_FIELD_SEPARATOR);
+            // Make sure the separators cannot appear in the fields:
+            encoded.append(field.toString().replace(TEST_FIELD_SEPARATOR, ' ').replace(TEST_RECORD_SEPARATOR, ' '));
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Removes all the test results from the testResultQueue, and returns them as a single string,
+     * separated by TEST_RECORD_SEPARATOR.  Returns null if there are no results.
+     * 
+     * This is run on the worker thread, while the tests are running on the main thread.
+     * Joining the results together means that the debugger only needs to fetch one
+     * string from this VM to collect all the results so far.
+     */
+    private static String pollTestResults()
+    {
+        StringBuilder results = null;
+        for (String result = testResultQueue.poll(); result != null; result = testResultQueue.poll())
+        {
+            if (results == null)
+                results = new StringBuilder(result);
+            else
+                results.append(TEST_RECORD_SEPARATOR).append(result);
+        }
+        return results == null ? null : results.toString();
     }
 
     /**
@@ -768,13 +908,48 @@ public class ExecServer
         ServiceLoader.load(InvocationInterceptor.class);
 
         Launcher launcher = LauncherFactory.create();
-        TestRecorder recorder = new TestRecorder();
+        TestRecorder recorder = new TestRecorder(false);
         launcher.registerTestExecutionListeners(recorder);
         launcher.execute(request);
         return Stream.concat(Stream.of(String.valueOf(recorder.getExecutionRunTime())),
                 recorder.testDetails.stream().flatMap(t -> Arrays.stream(t))).toArray();
     }
 
+    /**
+     * Execute all the JUnit tests in the given classes, as a single test plan.  Rather than being
+     * returned, the results are streamed: each is added to the testResultQueue as soon as the test
+     * finishes, to be collected (while the tests are still running) by POLL_TEST_RESULTS.
+     * 
+     * @param classNames  the names of the test classes, separated by commas
+     * @param parallel    whether to run the test classes in parallel (the tests within each
+     *                    class are still run one at a time, so that they can share fixtures)
+     * @return an array of two strings: the total time taken to run the tests, and the sum
+     *         of the times taken by each test, both in milliseconds expressed as decimal integers
+     */
+    private static Object[] runAllTests(String classNames, boolean parallel)
+    {
+        testResultQueue.clear();
+        LauncherDiscoveryRequestBuilder builder = LauncherDiscoveryRequestBuilder.request()
+                .selectors(Arrays.stream(classNames.split(",")).map(c -> selectClass(c)).toArray(DiscoverySelector[]::new))
+                .configurationParameter("junit.jupiter.extensions.autodetection.enabled", "true"); //required to use our extension
+        if (parallel)
+        {
+            builder.configurationParameter("junit.jupiter.execution.parallel.enabled", "true")
+                .configurationParameter("junit.jupiter.execution.parallel.mode.default", "same_thread")
+                .configurationParameter("junit.jupiter.execution.parallel.mode.classes.default", "concurrent")
+                .configurationParameter("junit.jupiter.execution.parallel.config.strategy", "dynamic");
+        }
+
+        // Load the implementation of InvocationInterceptor with Java ServiceLoader.
+        ServiceLoader.load(InvocationInterceptor.class);
+
+        Launcher launcher = LauncherFactory.create();
+        TestRecorder recorder = new TestRecorder(true);
+        launcher.registerTestExecutionListeners(recorder);
+        launcher.execute(builder.build());
+        return new Object[] {String.valueOf(recorder.getExecutionRunTime()), String.valueOf(recorder.getTotalTestTime())};
+    }
+
     /**
      * Remove an object from the scope.
      */
@@ -950,6 +1125,9 @@ public class ExecServer
                         case TEST_RUN:
                             methodReturn = runTestMethod(classToRun, methodToRun);
                             break;
+                        case TEST_RUN_ALL:
+                            methodReturn = runAllTests(classToRun, runTestsInParallel);
+                            break;
                         case DISPOSE_WINDOWS:
                             disposeWindows();
                             break;
@@ -1112,6 +1290,37 @@ public class ExecServer
         return currentLoader;
     }
 
+    /**
+     * The class loader for user classes.  As well as loading classes from its URLs, it can
+     * load classes whose contents have been sent directly from BlueJ (see DEFINE_CLASS),
+     * which is used for shell classes so that they need not be written to disk.
+     */
+    private static class UserClassLoader extends URLClassLoader
+    {
+        // Class contents, by binary class name, which have been sent but not yet loaded:
+        private final Map<String, byte[]> pendingClasses = new ConcurrentHashMap<>();
+        
+        public UserClassLoader(URL[] urls)
+        {
+            super(urls);
+        }
+        
+        public void addClassBytes(String name, byte[] bytes)
+        {
+            pendingClasses.put(name, bytes);
+        }
+        
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException
+        {
+            byte[] bytes = pendingClasses.remove(name);
+            if (bytes != null) {
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+            return super.findClass(name);
+        }
+    }
+
     // A preloader for FX, only used to find out the reference of the Application instance.
     public static class FXPreloader extends Preloader
     {
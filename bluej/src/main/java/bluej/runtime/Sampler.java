@@ -0,0 +1,218 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A sampling profiler which runs in the debug VM.  While running, it takes the stack of
+ * each runnable thread at a fixed interval, and counts how many times each distinct stack
+ * has been seen.  BlueJ starts and stops it via the ExecServer worker thread, and collects
+ * the counts when it stops.
+ * 
+ * <p>Taking the stacks here is much cheaper than suspending and walking each thread over
+ * JDI: at the default interval the program being profiled runs only a few percent slower.
+ * 
+ * <p>The counts are returned as a string with one line per distinct stack: the count,
+ * then each frame (outermost first) preceded by FRAME_SEPARATOR.  A frame is the class name,
+ * method name, source file name (empty if unknown) and line number, separated by
+ * FIELD_SEPARATOR.  Stacks deeper than MAX_DEPTH keep only their innermost frames, where
+ * the time is actually being spent.
+ */
+public class Sampler extends Thread
+{
+    public static final char FRAME_SEPARATOR = '\u001e';
+    public static final char FIELD_SEPARATOR = '\u001f';
+
+    // The most frames we keep from a stack (the innermost ones):
+    static final int MAX_DEPTH = 256;
+
+    // The running sampler, if any:
+    private static Sampler current;
+
+    private final long intervalMillis;
+    // The number of times each stack has been seen, keyed by the stack in the format described above:
+    private final Map<String, int[]> counts = new HashMap<>();
+    private volatile boolean stopping = false;
+
+    private Sampler(long intervalMillis)
+    {
+        super("BlueJ profiler");
+        this.intervalMillis = intervalMillis;
+        setDaemon(true);
+        // Make sure we get to take our samples even while user code keeps the CPU busy:
+        setPriority(Thread.MAX_PRIORITY);
+    }
+
+    /**
+     * Start sampling, replacing any samples from previous runs.
+     * 
+     * @param intervalMillis  The time between samples, in milliseconds
+     */
+    static synchronized void startSampling(int intervalMillis)
+    {
+        stopSampling();
+        current = new Sampler(Math.max(1, intervalMillis));
+        current.start();
+    }
+
+    /**
+     * Stop sampling, and get the counts in the format described in the class comment.
+     * Returns null if sampling was not running.
+     */
+    static synchronized String stopSampling()
+    {
+        if (current == null) {
+            return null;
+        }
+        Sampler sampler = current;
+        current = null;
+        sampler.stopping = true;
+        sampler.interrupt();
+        try {
+            sampler.join();
+        }
+        catch (InterruptedException ie) {
+            // Carry on, the counts are consistent as we synchronize on them
+        }
+        return sampler.getResult();
+    }
+
+    @Override
+    public void run()
+    {
+        StringBuilder key = new StringBuilder();
+        ThreadGroup rootGroup = Thread.currentThread().getThreadGroup();
+        while (rootGroup.getParent() != null) {
+            rootGroup = rootGroup.getParent();
+        }
+        Thread[] threads = new Thread[16];
+        while (!stopping) {
+            try {
+                Thread.sleep(intervalMillis);
+            }
+            catch (InterruptedException ie) {
+                continue;
+            }
+
+            // Thread.getAllStackTraces() would stop every thread at once, which is slow when a
+            // thread is busy; instead we take the stack of each runnable thread in turn:
+            int threadCount = rootGroup.enumerate(threads);
+            while (threadCount == threads.length) {
+                threads = new Thread[threads.length * 2];
+                threadCount = rootGroup.enumerate(threads);
+            }
+            synchronized (counts) {
+                for (int i = 0; i < threadCount; i++) {
+                    Thread thread = threads[i];
+                    threads[i] = null;
+                    if (thread == this || thread == ExecServer.workerThread
+                            || thread.getState() != Thread.State.RUNNABLE) {
+                        continue;
+                    }
+                    key.setLength(0);
+                    if (makeKey(thread.getStackTrace(), key)) {
+                        int[] count = counts.get(key.toString());
+                        if (count == null) {
+                            counts.put(key.toString(), new int[] {1});
+                        }
+                        else {
+                            count[0]++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Make the key for a stack (innermost frame first, as given by getStackTrace()).
+     * Frames at the bottom of the stack which belong to BlueJ or the reflection machinery
+     * are left out, so that the stack starts at the user's code.  If the stack is still
+     * deeper than MAX_DEPTH, only the innermost MAX_DEPTH frames are kept.
+     * 
+     * <p>A thread in native code (reading input, printing, and so on) is counted like any
+     * other, as that is time the user's program spends; but a thread with no frames of
+     * user code at all, such as the AWT or JavaFX event loop waiting for events, is not.
+     * 
+     * @return false if the stack should not be counted.
+     */
+    static boolean makeKey(StackTraceElement[] stack, StringBuilder key)
+    {
+        int outermost = stack.length - 1;
+        while (outermost >= 0 && isInternal(stack[outermost].getClassName())) {
+            outermost--;
+        }
+        boolean hasUserCode = false;
+        for (int i = 0; i <= outermost && !hasUserCode; i++) {
+            hasUserCode = !isLibrary(stack[i].getClassName());
+        }
+        if (!hasUserCode) {
+            return false;
+        }
+        for (int i = Math.min(outermost, MAX_DEPTH - 1); i >= 0; i--) {
+            StackTraceElement frame = stack[i];
+            key.append(FRAME_SEPARATOR).append(frame.getClassName());
+            key.append(FIELD_SEPARATOR).append(frame.getMethodName());
+            key.append(FIELD_SEPARATOR).append(frame.getFileName() == null ? "" : frame.getFileName());
+            key.append(FIELD_SEPARATOR).append(frame.getLineNumber());
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a class is part of BlueJ's (or Java's) machinery for running user code.
+     */
+    private static boolean isInternal(String className)
+    {
+        return className.startsWith("bluej.runtime.")
+            || className.startsWith("java.lang.reflect.")
+            || className.startsWith("jdk.internal.reflect.")
+            || className.startsWith("java.lang.invoke.")
+            || className.equals("java.lang.Thread");
+    }
+
+    /**
+     * Check whether a class is part of the Java runtime rather than the user's program.
+     */
+    private static boolean isLibrary(String className)
+    {
+        return className.startsWith("java.")
+            || className.startsWith("javax.")
+            || className.startsWith("javafx.")
+            || className.startsWith("jdk.")
+            || className.startsWith("sun.")
+            || className.startsWith("com.sun.");
+    }
+
+    private String getResult()
+    {
+        StringBuilder result = new StringBuilder();
+        synchronized (counts) {
+            for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+                result.append(entry.getValue()[0]).append(entry.getKey()).append('\n');
+            }
+        }
+        return result.toString();
+    }
+}
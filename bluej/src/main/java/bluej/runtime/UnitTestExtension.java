@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program.
- Copyright (C) 2019  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or
  modify it under the terms of the GNU General Public License
@@ -39,12 +39,15 @@ import java.util.List;
  */
 public class UnitTestExtension implements InvocationInterceptor
 {
-    // The method parameters are listed in this list to be read by other classes
-    private static ArrayList<String> argsAsStrList = new ArrayList<String>();
+    // The method parameters are listed in this list to be read by other classes.  Tests
+    // may run in parallel, so each thread has its own list (the results for a test are
+    // reported on the thread which ran it):
+    private static final ThreadLocal<ArrayList<String>> argsAsStrList = ThreadLocal.withInitial(ArrayList::new);
 
     private void doIntereceptionMethod(InvocationInterceptor.Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable
     {
         // First we clear the list from potential previous calls
+        ArrayList<String> argsAsStrList = UnitTestExtension.argsAsStrList.get();
         argsAsStrList.clear();
 
         // Retrieve the method's parameter so we can show something meaningful in BlueJ's tests list.
@@ -125,6 +128,6 @@ public class UnitTestExtension implements InvocationInterceptor
 
     public static ArrayList<String> getArgsAsStrList()
     {
-        return argsAsStrList;
+        return argsAsStrList.get();
     }
 }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2020 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2020,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -184,11 +184,25 @@ public abstract class JavaFragment
         }
     }
 
-    protected String getErrorMessage()
+    /**
+     * Gets the message of the compile error last shown on this fragment (see showCompileError),
+     * or null if there has not been one since the last call to clearCompileErrorMessage.
+     */
+    public String getErrorMessage()
     {
         return errorMessage;
     }
 
+    /**
+     * Forgets the message of the compile error last shown on this fragment, ready for a new
+     * compilation.  Needed because fragments of unmodified frames are kept between compilations.
+     */
+    @OnThread(Tag.FX)
+    public final void clearCompileErrorMessage()
+    {
+        errorMessage = null;
+    }
+
     protected int getErrorStartPos()
     {
         return startErrorPos;
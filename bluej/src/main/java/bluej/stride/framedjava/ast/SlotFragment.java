@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2015,2016 Michael Kölling and John Rosenberg 
+ Copyright (C) 2015,2016,2026 Michael Kölling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -30,7 +30,7 @@ import threadchecker.OnThread;
 import threadchecker.Tag;
 
 import java.util.List;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
@@ -52,8 +52,17 @@ public abstract class SlotFragment extends JavaFragment
      * @return Null if no future, otherwise a future to complete for errors
      */
     @OnThread(Tag.FXPlatform)
-    public Future<List<DirectSlotError>> findLateErrors(InteractionManager editor, CodeElement parent, LocationMap rootPathMap)
+    public CompletableFuture<List<DirectSlotError>> findLateErrors(InteractionManager editor, CodeElement parent, LocationMap rootPathMap)
     {
         return null;
     }
+
+    /**
+     * Gets the Java code for this slot, without recording any source positions.
+     */
+    @OnThread(Tag.FXPlatform)
+    public final String getTemporaryJavaCode()
+    {
+        return getJavaCode(Destination.TEMPORARY, null, new Parser.DummyNameGenerator());
+    }
 }
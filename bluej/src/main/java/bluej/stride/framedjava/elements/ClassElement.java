@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2018,2019,2020,2021 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2018,2019,2020,2021,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -47,6 +47,7 @@ import bluej.stride.framedjava.ast.NameDefSlotFragment;
 import bluej.stride.framedjava.ast.Parser;
 import bluej.stride.framedjava.ast.SlotFragment;
 import bluej.stride.framedjava.ast.TypeSlotFragment;
+import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
 import bluej.stride.framedjava.errors.CodeError;
 import bluej.stride.framedjava.errors.ErrorShower;
 import bluej.stride.framedjava.errors.SyntaxCodeError;
@@ -129,6 +130,12 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
      * (each ClassElement is immutable).
      */
     private final HashMap<String, DocAndPositions> documentCache = new HashMap<>();
+    /**
+     * The location map for this element's XML, built on first request.  Since each
+     * ClassElement is immutable, it never needs to be rebuilt; and when the class is
+     * regenerated, the new element reuses the maps of its unmodified members.
+     */
+    private LocationMap locationMap;
 
     /**
      * Creates a class element from the given frame (when generating code elements for
@@ -384,6 +391,7 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
         return frame;
     }
     
+    @Override
     public PosInSourceDoc getPosInsideClass()
     {
         return openingCurly.getPosInSourceDoc(+1);
@@ -655,6 +663,22 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
     @OnThread(Tag.FXPlatform)
     public Stream<SyntaxCodeError> findEarlyErrors()
     {
-        return findEarlyErrors(toXML().buildLocationMap());
+        return findEarlyErrors(getLocationMap());
+    }
+
+    @Override
+    public synchronized LocationMap getLocationMap()
+    {
+        if (locationMap == null)
+            locationMap = toXML().buildLocationMap(this::isMember);
+        return locationMap;
+    }
+
+    /**
+     * Checks whether the given element is one of our fields, constructors or methods.
+     */
+    private boolean isMember(CodeElement element)
+    {
+        return element.getParent() == this;
     }
 }
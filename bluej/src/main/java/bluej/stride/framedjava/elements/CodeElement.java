@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -25,13 +25,11 @@ package bluej.stride.framedjava.elements;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
-import bluej.stride.framedjava.errors.DirectSlotError;
 import bluej.stride.generic.InteractionManager;
 import nu.xom.Attribute;
 import nu.xom.Element;
@@ -49,6 +47,8 @@ import bluej.stride.generic.Frame.ShowReason;
 public abstract class CodeElement
 {
     protected boolean enable = true;
+    // The location map of this element's own XML, built on first request (see getOwnLocationMap):
+    private LocationMap ownLocationMap;
     
     public boolean isEnable()
     {
@@ -64,6 +64,21 @@ public abstract class CodeElement
     {
         element.addAttribute(new Attribute("enable", String.valueOf(enable)));
     }
+
+    /**
+     * Gets the location map for this element's XML, with this element at the root (see
+     * LocatableElement.buildLocationMap).  The locations within an element don't change once
+     * it has been made, so the map is built only once; a class which is regenerated after an
+     * edit can then reuse the maps of the members which were not modified.
+     *
+     * @param xml This element's XML if the caller already has it, or null to generate it.
+     */
+    public final synchronized LocationMap getOwnLocationMap(LocatableElement xml)
+    {
+        if (ownLocationMap == null)
+            ownLocationMap = (xml != null ? xml : toXML()).buildLocationMap();
+        return ownLocationMap;
+    }
     
     /**
      * Finds any errors in this element, including syntax errors.
@@ -80,12 +95,26 @@ public abstract class CodeElement
         return toJavaSource().getAllFragments().flatMap(fragment -> fragment.findEarlyErrors().peek(e -> e.recordPath(rootPathMap.locationFor(fragment))));
     }
 
+    /**
+     * Gets the slots to check for late errors (see SlotFragment.findLateErrors): this element's
+     * own slots, not those of any contained elements.  Disabled elements have none.
+     */
     @OnThread(Tag.FXPlatform)
-    public final Stream<Future<List<DirectSlotError>>> findDirectLateErrors(InteractionManager editor, LocationMap rootPathMap)
+    public final Stream<SlotFragment> getLateErrorSlots()
     {
         if (!isEnable())
             return Stream.empty();
-        return getDirectSlotFragments().map(g -> g.findLateErrors(editor, this, rootPathMap)).filter(x -> x != null);
+        return getDirectSlotFragments();
+    }
+
+    /**
+     * Gets the Java code of this element's own slots (not those of any contained elements),
+     * so for example a method's signature but not its body.  Disabled elements give an empty string.
+     */
+    @OnThread(Tag.FXPlatform)
+    public final String getDirectSlotsCode()
+    {
+        return getLateErrorSlots().map(SlotFragment::getTemporaryJavaCode).collect(Collectors.joining(" "));
     }
     
     protected abstract Stream<SlotFragment> getDirectSlotFragments();
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program.
- Copyright (C) 2014,2015,2016,2019,2020 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2019,2020,2026 Michael Kölling and John Rosenberg
 
  This program is free software; you can redistribute it and/or
  modify it under the terms of the GNU General Public License
@@ -36,6 +36,7 @@ import bluej.stride.framedjava.ast.JavadocUnit;
 import bluej.stride.framedjava.ast.NameDefSlotFragment;
 import bluej.stride.framedjava.ast.SlotFragment;
 import bluej.stride.framedjava.ast.TypeSlotFragment;
+import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
 import bluej.stride.framedjava.errors.SyntaxCodeError;
 import bluej.stride.framedjava.frames.InterfaceFrame;
 import bluej.stride.framedjava.frames.TopLevelFrame;
@@ -98,6 +99,12 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
      * (each InterfaceElement is immutable).
      */
     private final HashMap<String, DocAndPositions> documentCache = new HashMap<>();
+    /**
+     * The location map for this element's XML, built on first request.  Since each
+     * InterfaceElement is immutable, it never needs to be rebuilt; and when the class is
+     * regenerated, the new element reuses the maps of its unmodified members.
+     */
+    private LocationMap locationMap;
     public InterfaceElement(InterfaceFrame frame, EntityResolver projectResolver, NameDefSlotFragment interfaceName,
                 List<TypeSlotFragment> extendsTypes, List<CodeElement> fields, List<CodeElement> methods,
                 JavadocUnit documentation, String packageName, List<ImportElement> imports, boolean enabled)
@@ -154,6 +161,12 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
                 Collections.emptyList(), null, packageName, Collections.emptyList(), true);
     }
 
+    @Override
+    public PosInSourceDoc getPosInsideClass()
+    {
+        return openingCurly.getPosInSourceDoc(+1);
+    }
+
     @Override
     public ExpressionTypeInfo getCodeSuggestions(PosInSourceDoc pos, ExpressionSlot<?> completing)
     {
@@ -417,6 +430,22 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
     @Override
     public Stream<SyntaxCodeError> findEarlyErrors()
     {
-        return findEarlyErrors(toXML().buildLocationMap());
+        return findEarlyErrors(getLocationMap());
+    }
+
+    @Override
+    public synchronized LocationMap getLocationMap()
+    {
+        if (locationMap == null)
+            locationMap = toXML().buildLocationMap(this::isMember);
+        return locationMap;
+    }
+
+    /**
+     * Checks whether the given element is one of our fields or methods.
+     */
+    private boolean isMember(CodeElement element)
+    {
+        return element.getParent() == this;
     }
 }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program.
- Copyright (C) 2016,2020 Michael Kölling and John Rosenberg
+ Copyright (C) 2016,2020,2026 Michael Kölling and John Rosenberg
 
  This program is free software; you can redistribute it and/or
  modify it under the terms of the GNU General Public License
@@ -33,10 +33,14 @@ import nu.xom.Attribute;
 import nu.xom.Element;
 import nu.xom.Elements;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * An extension of the XML Element class which also keeps track of enough information
@@ -116,11 +120,26 @@ public class LocatableElement extends Element
      * @return A map from JavaFragment to XPath String identifying the location of that fragment.
      */
     public LocationMap buildLocationMap()
+    {
+        return buildLocationMap(element -> false);
+    }
+
+    /**
+     * Builds a location map as buildLocationMap() does, except that for the descendants which
+     * came from the given code elements, it uses their own location maps (see
+     * CodeElement.getOwnLocationMap) rather than adding all their contents again.  Code
+     * elements which have not been modified are kept when the code is regenerated, so this
+     * means that only the map for the modified parts has to be built.
+     *
+     * @param reuse Whether to use the own location map of a descendant's code element.
+     */
+    public LocationMap buildLocationMap(Predicate<CodeElement> reuse)
     {
         IdentityHashMap<JavaFragment, String> map = new IdentityHashMap<>();
         IdentityHashMap<CodeElement, String> elementMap = new IdentityHashMap<>();
+        List<ReusedLocations> reused = new ArrayList<>();
 
-        addToLocationMap(new HashMap<>(), map::put, elementMap::put);
+        addToLocationMap(new HashMap<>(), reuse, map::put, elementMap::put, reused::add);
 
         return new LocationMap()
         {
@@ -131,38 +150,91 @@ public class LocatableElement extends Element
                 {
                     return map.get(fragment);
                 }
-                else if (fragment instanceof FrameFragment)
+                else if (fragment instanceof FrameFragment && elementMap.containsKey(((FrameFragment)fragment).getElement()))
                 {
                     FrameFragment ff = (FrameFragment)fragment;
                     return elementMap.get(ff.getElement());
                 }
-                else
-                    return null;
+                for (ReusedLocations r : reused)
+                {
+                    String path = r.adjust(r.map.locationFor(fragment));
+                    if (path != null)
+                        return path;
+                }
+                return null;
             }
 
             @Override
             public String locationFor(CodeElement element)
             {
-                return elementMap.get(element);
+                if (elementMap.containsKey(element))
+                    return elementMap.get(element);
+                for (ReusedLocations r : reused)
+                {
+                    String path = r.adjust(r.map.locationFor(element));
+                    if (path != null)
+                        return path;
+                }
+                return null;
             }
         };
     }
 
-    private void addToLocationMap(Map<String, Integer> siblingCounts, BiConsumer<JavaFragment, String> map, BiConsumer<CodeElement, String> elementMap)
+    /**
+     * The own location map of a descendant's code element, and where that descendant is.
+     */
+    private static class ReusedLocations
+    {
+        // The XPath of the descendant:
+        private final String path;
+        // The length of the root step of the paths in the descendant's map, such as "/method[1]":
+        private final int rootLength;
+        private final LocationMap map;
+
+        private ReusedLocations(String path, int rootLength, LocationMap map)
+        {
+            this.path = path;
+            this.rootLength = rootLength;
+            this.map = map;
+        }
+
+        /**
+         * Turns a path from the descendant's map into a path from our root (or null if null).
+         */
+        private String adjust(String pathInDescendant)
+        {
+            return pathInDescendant == null ? null : path + pathInDescendant.substring(rootLength);
+        }
+
+        private ReusedLocations withPrefix(String prefix)
+        {
+            return new ReusedLocations(prefix + path, rootLength, map);
+        }
+    }
+
+    private void addToLocationMap(Map<String, Integer> siblingCounts, Predicate<CodeElement> reuse, BiConsumer<JavaFragment, String> map,
+                                  BiConsumer<CodeElement, String> elementMap, Consumer<ReusedLocations> reused)
     {
         // Form an XPath like "/method[2]" for us, and update counts:
         String me = "/" + getLocalName() + "[" + siblingCounts.getOrDefault(getLocalName(), 1) + "]";
         siblingCounts.put(getLocalName(), siblingCounts.getOrDefault(getLocalName(), 1) + 1);
 
+        if (origin != null && reuse.test(origin))
+        {
+            String root = "/" + getLocalName() + "[1]";
+            reused.accept(new ReusedLocations(me, root.length(), origin.getOwnLocationMap(this)));
+            return;
+        }
         if (origin != null)
             elementMap.accept(origin, me);
         attrNames.forEach((attrName, fragment) -> map.accept(fragment, me + "/@" + attrName));
-        processChildren(map, elementMap, getChildElements(), me);
+        processChildren(reuse, map, elementMap, reused, getChildElements(), me);
     }
 
 
 
-    private static void processChildren(BiConsumer<JavaFragment, String> map, BiConsumer<CodeElement, String> elementMap, Elements childElements, String me)
+    private static void processChildren(Predicate<CodeElement> reuse, BiConsumer<JavaFragment, String> map, BiConsumer<CodeElement, String> elementMap,
+                                        Consumer<ReusedLocations> reused, Elements childElements, String me)
     {
         Map<String, Integer> childCounts = new HashMap<>();
         for (int i = 0; i < childElements.size(); i++)
@@ -170,9 +242,10 @@ public class LocatableElement extends Element
             Element child = childElements.get(i);
             if (child instanceof LocatableElement)
             {
-                ((LocatableElement)child).addToLocationMap(childCounts,
+                ((LocatableElement)child).addToLocationMap(childCounts, reuse,
                         (frag, path) -> map.accept(frag, me + path),
-                        (el, path) -> elementMap.accept(el, me + path));
+                        (el, path) -> elementMap.accept(el, me + path),
+                        r -> reused.accept(r.withPrefix(me)));
             }
             else
             {
@@ -181,7 +254,7 @@ public class LocatableElement extends Element
                 childCounts.put(child.getLocalName(), childCounts.getOrDefault(child.getLocalName(), 1) + 1);
                 // Can't record the attributes of plain elements
                 // For grandchildren, recurse:
-                processChildren(map, elementMap, child.getChildElements(), me + them);
+                processChildren(reuse, map, elementMap, reused, child.getChildElements(), me + them);
             }
         }
     }
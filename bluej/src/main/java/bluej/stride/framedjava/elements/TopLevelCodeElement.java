@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2019,2020 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2019,2020,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -41,6 +41,7 @@ import bluej.parser.entity.EntityResolver;
 import bluej.stride.framedjava.ast.JavaFragment.PosInSourceDoc;
 import bluej.stride.framedjava.ast.JavaSource;
 import bluej.stride.framedjava.ast.Loader;
+import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
 import bluej.stride.framedjava.errors.SyntaxCodeError;
 import bluej.stride.framedjava.frames.TopLevelFrame;
 import bluej.stride.framedjava.slots.ExpressionSlot;
@@ -111,6 +112,11 @@ public interface TopLevelCodeElement
 
     public List<ImportElement> getImports();
 
+    /**
+     * Gets a position just inside the body of the class or interface.
+     */
+    public PosInSourceDoc getPosInsideClass();
+
     public String getName();
     
     // Used to help style the tab:
@@ -124,6 +130,13 @@ public interface TopLevelCodeElement
     // Methods mirroring CodeElement:
     public LocatableElement toXML();
 
+    /**
+     * Gets the location map for this element's XML (see LocatableElement.buildLocationMap).
+     * Since each top-level element is immutable, the map is built at most once per element
+     * and shared between error finding, saving and the editor's source mapping.
+     */
+    public LocationMap getLocationMap();
+
     public TopLevelFrame getFrame();
 
     public Stream<CodeElement> streamContained();
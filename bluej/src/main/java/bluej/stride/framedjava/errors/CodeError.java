@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2018,2019,2020 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2018,2019,2020,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -114,6 +114,15 @@ public abstract class CodeError
         flaggedAsOld = true;
     }
 
+    /**
+     * Clear the old flag, for an error which is known to still apply to the latest
+     * compilation, so that it is not removed along with the other old errors.
+     */
+    public void unflagAsOld()
+    {
+        flaggedAsOld = false;
+    }
+
     /**
      * Check if the error has been flagged as old (i.e. from a compilation which
      * is no longer the latest compilation).
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015 Michael Kölling and John Rosenberg 
+ Copyright (C) 2014,2015,2026 Michael Kölling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -22,6 +22,7 @@
 package bluej.stride.framedjava.frames;
 
 import bluej.stride.framedjava.elements.CodeElement;
+import bluej.stride.generic.Frame;
 
 public interface CodeFrame<T extends CodeElement>
 {   
@@ -29,6 +30,18 @@ public interface CodeFrame<T extends CodeElement>
      * Regenerates the AST.  The next return of getCode() may well be different afterwards.
      */
     void regenerateCode();
+
+    /**
+     * Regenerates the AST only if this frame, or a frame within it, has been modified
+     * since it was last regenerated (see Frame.markCodeDirty).  Otherwise, getCode()
+     * keeps returning the existing code, which saves regenerating all of a large class
+     * after each edit.
+     */
+    default void regenerateCodeIfDirty()
+    {
+        if (!(this instanceof Frame) || ((Frame)this).takeCodeDirty() || getCode() == null)
+            regenerateCode();
+    }
     
     /**
      * Gets the latest code.  Should not change unless regenerateCode is called.
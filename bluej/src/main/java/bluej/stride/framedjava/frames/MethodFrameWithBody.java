@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
-  Copyright (C) 2014,2015,2016,2020,2021 Michael Kölling and John Rosenberg
+  Copyright (C) 2014,2015,2016,2020,2021,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -375,7 +375,7 @@ public abstract class MethodFrameWithBody<T extends MethodWithBodyElement>
     {
         List<CodeElement> contents = new ArrayList<CodeElement>();
         getMembersFrames().forEach(f -> {
-            f.regenerateCode();
+            f.regenerateCodeIfDirty();
             contents.add(f.getCode());
         });
         return contents;
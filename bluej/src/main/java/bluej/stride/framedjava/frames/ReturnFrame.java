@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2017,2021,2022 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2017,2021,2022,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -82,6 +82,7 @@ public class ReturnFrame extends SingleLineFrame
         JavaFXUtil.addChangeListener(showingValue, showing -> {
             if (!showing)
                 value.cleanup();
+            markCodeDirty();
         });
 
         spacer.setOnMouseClicked(e -> {
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2021,2022,2024 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2021,2022,2024,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -288,7 +288,7 @@ public class SwitchFrame extends MultiCanvasFrame
     {
         List<CodeElement> casesContents = new ArrayList<>();
         casesCanvas.getBlocksSubtype(CodeFrame.class).forEach(f -> {
-            f.regenerateCode();
+            f.regenerateCodeIfDirty();
             casesContents.add(f.getCode());
         });
 
@@ -296,7 +296,7 @@ public class SwitchFrame extends MultiCanvasFrame
         if (defaultCanvas != null) {
             defaultContents = new ArrayList<>();
             for (CodeFrame<?> f : defaultCanvas.getBlocksSubtype(CodeFrame.class)) {
-                f.regenerateCode();
+                f.regenerateCodeIfDirty();
                 defaultContents.add(f.getCode());
             }
         }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -85,6 +85,7 @@ public interface TopLevelFrame<T extends CodeElement & TopLevelCodeElement> exte
     }
     public Stream<RecallableFocus> getFocusables();
     public Stream<Frame> getAllFrames();
+    public void markAllCodeDirty();
     
     public void restore(T target);
     default public void restoreCast(TopLevelCodeElement target)
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2017,2018,2019,2020,2021,2024 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2017,2018,2019,2020,2021,2024,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -796,7 +796,10 @@ public abstract class StructuredSlot<SLOT_FRAGMENT extends StructuredSlotFragmen
         }
         else {
             currentlyCompleting = true;
-            // TODO we shouldn't need to regen whole code repeatedly if they only modify this slot:
+            // The generated code differs while completing, so our frame must be regenerated
+            // (frames which haven't been modified keep their existing code):
+            if (parentFrame != null)
+                parentFrame.markCodeDirty();
             editor.afterRegenerateAndReparse(() -> {
                 final int stringPos = topLevel.caretPosToStringPos(topLevel.getCurrentPos(), true);
                 PosInSourceDoc posInFile = getSlotElement().getPosInSourceDoc(stringPos);
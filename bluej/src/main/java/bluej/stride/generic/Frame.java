@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2017,2018,2019,2020,2021,2022 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2017,2018,2019,2020,2021,2022,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -255,6 +255,13 @@ public abstract class Frame implements CursorFinder, FocusParent<FrameContentIte
      */
     private FrameCanvas parentCanvas = null;
 
+    /**
+     * Whether the code for this frame (see CodeFrame.getCode) needs to be regenerated,
+     * because this frame or a frame within it has been modified since the code was
+     * last generated.  New frames always need their code generating.
+     */
+    private boolean codeDirty = true;
+
     /**
      * Keep track of whether a frame has always been blank (or near-blank).  Frames which have
      * had no content inserted yet can be removed by pressing the escape key.
@@ -580,6 +587,9 @@ public abstract class Frame implements CursorFinder, FocusParent<FrameContentIte
     {
         FrameCanvas oldCanvas = this.parentCanvas;
         this.parentCanvas = parentCanvas;
+        // Our code may depend on where we are (e.g. fields vs local variables):
+        if (parentCanvas != null)
+            markCodeDirty();
         // We update all frames in the old and new canvas
         // Only way to make var frames update and hide/show caption correctly
         if (oldCanvas != null)
@@ -1166,6 +1176,38 @@ public abstract class Frame implements CursorFinder, FocusParent<FrameContentIte
             .collect(Utility.<List<Frame>>intersperse(() -> Arrays.<Frame>asList(new BlankFrame(editor)))).toArray(new List[0])));
     }
 
+    /**
+     * Marks the code of this frame as needing to be regenerated, along with the code of
+     * all the frames which enclose it (since their code includes ours).
+     */
+    public void markCodeDirty()
+    {
+        for (Frame f = this; f != null; f = f.getParentCanvas() == null ? null : f.getParentCanvas().getParent().getFrame())
+        {
+            f.codeDirty = true;
+        }
+    }
+
+    /**
+     * Marks the code of this frame, and of all frames within it, as needing to be regenerated.
+     */
+    public void markAllCodeDirty()
+    {
+        getAllFrames().forEach(f -> f.codeDirty = true);
+        markCodeDirty();
+    }
+
+    /**
+     * Checks whether the code of this frame needs to be regenerated, and clears
+     * the flag, on the basis that the caller is about to regenerate it.
+     */
+    public boolean takeCodeDirty()
+    {
+        boolean dirty = codeDirty;
+        codeDirty = false;
+        return dirty;
+    }
+
     /**
      * Gets all frames contained within, to unlimited depth
      */
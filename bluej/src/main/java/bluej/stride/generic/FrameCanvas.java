@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2017,2018,2021 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2017,2018,2021,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -801,6 +801,10 @@ public class FrameCanvas implements FrameContentItem
                 JavaFXUtil.setPseudoclass("bj-empty", empty, canvas);
                 JavaFXUtil.setPseudoclass("bj-non-empty", !empty, canvas);
 
+                // The enclosing frame's code includes our contents, so must be regenerated:
+                Frame owner = parent.getFrame();
+                if (owner != null)
+                    owner.markCodeDirty();
                 //Notify parent:
                 parent.modifiedCanvasContent();
         });
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2016,2017,2021,2022 Michael Kölling and John Rosenberg
+ Copyright (C) 2016,2017,2021,2022,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -288,7 +288,7 @@ public abstract class TopLevelDocumentMultiCanvasFrame<ELEMENT extends CodeEleme
     {
         List<CodeElement> members = new ArrayList<>();
         for (CodeFrame<?> c : frameCanvas.getBlocksSubtype(CodeFrame.class)) {
-            c.regenerateCode();
+            c.regenerateCodeIfDirty();
             members.add(c.getCode());
         }
         return members;
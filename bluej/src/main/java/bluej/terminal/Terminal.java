@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2013,2014,2015,2016,2017,2018,2019,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2013,2014,2015,2016,2017,2018,2019,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -49,6 +49,7 @@ import bluej.utility.FileUtility;
 import bluej.utility.JavaNames;
 import bluej.utility.Utility;
 import bluej.utility.javafx.JavaFXUtil;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyDoubleWrapper;
@@ -75,6 +76,7 @@ import org.fxmisc.wellbehaved.event.Nodes;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -84,11 +86,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -103,7 +100,11 @@ import java.util.regex.Pattern;
 public final class Terminal
     implements BlueJEventListener, DebuggerTerminal
 {
-    private static final int MAX_BUFFER_LINES = 200;
+    // The number of lines kept in the stdout pane when unlimited buffering is off:
+    private static final int MAX_BUFFER_LINES = Config.getPropInteger("bluej.terminal.bufferLines", 200);
+    // The number of characters of output which may be waiting to be shown before the
+    // debug VM's output is held up:
+    private static final int MAX_PENDING_OUTPUT = Config.getPropInteger("bluej.terminal.outputBudget", 1 << 20);
 
     // The style for text in the stdout pane: was it output by the program, or input by the user?
     // Or third option: details about method recording
@@ -139,11 +140,27 @@ public final class Terminal
             Config.getPropBooleanProperty(UNLIMITEDBUFFERINGCALLPROPNAME);
     private boolean newMethodCall = true;
     private boolean errorShown = false;
+    // The first line of the error pane which may not yet have been scanned for stack traces:
+    private int stackTraceScanLine = 0;
     private final InputBuffer buffer;
     private final BooleanProperty showingProperty = new SimpleBooleanProperty(false);
 
+    // Output from the debug VM which has not yet been shown:
+    @OnThread(Tag.Any) private final TerminalOutputQueue outputQueue =
+            new TerminalOutputQueue(MAX_PENDING_OUTPUT, () -> Platform.runLater(() -> startOutputTimer()));
+    // Shows the queued output, at most once per frame:
+    private final AnimationTimer outputTimer = new AnimationTimer()
+    {
+        @Override
+        @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+        public void handle(long now)
+        {
+            showQueuedOutput();
+        }
+    };
+
     @OnThread(Tag.Any) private final Reader in = new TerminalReader();
-    @OnThread(Tag.Any) private final TerminalWriter out = new TerminalWriter(false);
+    @OnThread(Tag.Any) private final Writer out = new TerminalWriter(false);
     @OnThread(Tag.Any) private final Writer err = new TerminalWriter(true);
 
     private Stage window;
@@ -378,9 +395,14 @@ public final class Terminal
 
             try
             {
-                FileWriter writer = new FileWriter(fileName);
-                String output = String.join(System.lineSeparator(), text.getLines());
-                writer.write(output);
+                // Write a line at a time, as older lines may need to be read back from disk:
+                BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
+                for (int i = 0; i < text.getLineCount(); i++)
+                {
+                    if (i > 0)
+                        writer.write(System.lineSeparator());
+                    writer.write(text.getLineText(i));
+                }
                 writer.close();
             }
             catch (IOException ex)
@@ -400,7 +422,8 @@ public final class Terminal
         }
         else if (job.showPrintDialog(window))
         {
-            List<List<TextLine.StyledSegment>> lines = text.getStyledLines();
+            // Take a copy, as the printing happens on another thread:
+            List<List<TextLine.StyledSegment>> lines = new ArrayList<>(text.getStyledLines());
                         
             BorderPane root = new BorderPane();
             Scene scene = new Scene(root);
@@ -455,19 +478,27 @@ public final class Terminal
             clear();
             s = s.substring(n + 1);
         }
-        // Split up into lines for filtering:
-        ArrayList<String> lines = new ArrayList<>(Arrays.asList(s.split("\n")));
-        // Try to remove lines like these two:
-        //     Jan 23, 2023 12:09:30 PM com.sun.javafx.application.PlatformImpl startup
-        //     WARNING: Unsupported JavaFX configuration: classes were loaded from 'unnamed module @18be7add'
-        //     WARNUNG: Unsupported JavaFX configuration: classes were loaded from 'unnamed module @28f3d2a1'
-        if (paneType == PaneType.STDERR && lines.removeIf(l -> l.trim().endsWith("com.sun.javafx.application.PlatformImpl startup") ||
-            l.contains("Unsupported JavaFX configuration: classes were loaded from")))
+        if (paneType == PaneType.STDERR)
         {
-            // No need to continue (and thus show the terminal window) if there's no new output to add:
-            if (lines.isEmpty())
-                return;
-            s = String.join("\n", lines);
+            // Split up into lines for filtering:
+            ArrayList<String> lines = new ArrayList<>(Arrays.asList(s.split("\n")));
+            // Try to remove lines like these two:
+            //     Jan 23, 2023 12:09:30 PM com.sun.javafx.application.PlatformImpl startup
+            //     WARNING: Unsupported JavaFX configuration: classes were loaded from 'unnamed module @18be7add'
+            //     WARNUNG: Unsupported JavaFX configuration: classes were loaded from 'unnamed module @28f3d2a1'
+            if (lines.removeIf(l -> l.trim().endsWith("com.sun.javafx.application.PlatformImpl startup") ||
+                l.contains("Unsupported JavaFX configuration: classes were loaded from")))
+            {
+                // No need to continue (and thus show the terminal window) if there's no new output to add:
+                if (lines.isEmpty())
+                    return;
+                s = String.join("\n", lines);
+            }
+        }
+        else if (!unlimitedBufferingCall.get())
+        {
+            // Lines which would be trimmed again straight away need not be added at all:
+            s = dropExcessLines(s, MAX_BUFFER_LINES);
         }
         // Only show the error pane once we know there's something to add:
         if (paneType == PaneType.STDERR)
@@ -490,6 +521,67 @@ public final class Terminal
         JavaFXUtil.runAfterCurrent(pane::scrollToEnd);
     }
 
+    /**
+     * If the given text has more than maxLines complete lines, removes all but the last
+     * maxLines of them.  The result starts with the newline which ended the last removed
+     * line, so that any unfinished line already in the pane is ended as it would have been.
+     */
+    private static String dropExcessLines(String s, int maxLines)
+    {
+        int newlines = 0;
+        for (int i = s.length() - 1; i >= 0; i--)
+        {
+            if (s.charAt(i) == '\n')
+            {
+                newlines += 1;
+                if (newlines > maxLines)
+                {
+                    return s.substring(i);
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Starts showing the queued output (if not already doing so).
+     */
+    private void startOutputTimer()
+    {
+        outputTimer.start();
+    }
+
+    /**
+     * Shows all the output queued since the last call.  Once the queue is empty,
+     * stops the timer which calls this.
+     */
+    private void showQueuedOutput()
+    {
+        List<TerminalOutputQueue.Chunk> output = outputQueue.drain();
+        if (output.isEmpty())
+        {
+            if (outputQueue.stopIfEmpty())
+            {
+                outputTimer.stop();
+            }
+            return;
+        }
+        for (TerminalOutputQueue.Chunk chunk : output)
+        {
+            try
+            {
+                if (chunk.isError())
+                    writeToPane(PaneType.STDERR, chunk.text(), STDERR_NORMAL);
+                else
+                    writeToPane(PaneType.STDOUT, chunk.text(), STDOUT_OUTPUT);
+            }
+            catch (Throwable t)
+            {
+                Debug.reportError(t);
+            }
+        }
+    }
+
     /**
      * Prepare the terminal for I/O.
      */
@@ -596,18 +688,21 @@ public final class Terminal
      */
     private void scanForStackTrace()
     {
+        // Lines before the last one we looked at have already been marked up.  (We look again
+        // at that one, as more may have been added to it.)  If the content has been cleared, start again:
+        int lineCount = errorText.getLineCount();
+        int firstLine = stackTraceScanLine < lineCount ? stackTraceScanLine : 0;
+        stackTraceScanLine = lineCount - 1;
         try {
-            List<String> allLines = errorText.getLines();
-
             Pattern fileAndLine = java.util.regex.Pattern.compile("at (\\S+)\\((\\S+)\\.java:(\\d+)\\)");
             Pattern noSource = java.util.regex.Pattern.compile("at \\S+\\((Native Method|Unknown Source)\\)");
             
             // Matches things like:
             // at greenfoot.localdebugger.LocalDebugger$QueuedExecution.run(LocalDebugger.java:267)
             //    ^--------------------group 1----------------------------^ ^--group 2--^      ^3^
-            for (int i = 0; i < allLines.size(); i++)
+            for (int i = firstLine; i < lineCount; i++)
             {
-                String line = allLines.get(i);
+                String line = errorText.getLineText(i);
                 Matcher m = fileAndLine.matcher(line);
                 
                 while (m.find())
@@ -748,7 +843,7 @@ public final class Terminal
     @OnThread(Tag.FXPlatform)
     private void endSectionWhenNoPendingWrites()
     {
-        if (out.pendingWrites.get() > 0)
+        if (outputQueue.hasPending())
         {
             JavaFXUtil.runAfterCurrent(() -> endSectionWhenNoPendingWrites());
         }
@@ -881,6 +976,9 @@ public final class Terminal
     public void cleanup()
     {
         BlueJEvent.removeListener(this);
+        text.dispose();
+        if (errorText != null)
+            errorText.dispose();
     }
 
     /**
@@ -920,9 +1018,6 @@ public final class Terminal
     private class TerminalWriter extends Writer
     {
         private boolean isErrorOut;
-        // The number of pending writes (content that has been received on the
-        // IO thread, but not yet displayed in the terminal via the FX thread)
-        private AtomicInteger pendingWrites = new AtomicInteger(0);
         
         TerminalWriter(boolean isError)
         {
@@ -932,41 +1027,9 @@ public final class Terminal
 
         public void write(final char[] cbuf, final int off, final int len)
         {
-            try {
-                pendingWrites.incrementAndGet();
-                // We use a wait so that terminal output is limited to
-                // the processing speed of the event queue. This means the UI
-                // will still respond to user input even if the output is really
-                // gushing.
-                CompletableFuture<Boolean> written = new CompletableFuture<>();
-                Platform.runLater(() -> {
-                    try
-                    {
-                        String s = new String(cbuf, off, len);
-                        if (isErrorOut)
-                        {
-                            writeToPane(PaneType.STDERR, s, STDERR_NORMAL);
-                        }
-                        else
-                            writeToPane(PaneType.STDOUT, s, STDOUT_OUTPUT);
-                    }
-                    catch (Throwable t)
-                    {
-                        Debug.reportError(t);
-                    }
-                    finally
-                    {
-                        written.complete(true);
-                        pendingWrites.decrementAndGet();
-                    }
-                });
-                // Timeout in case something goes wrong with the printing:
-                written.get(2000, TimeUnit.MILLISECONDS);
-            }
-            catch (InterruptedException | ExecutionException | TimeoutException ie)
-            {
-                Debug.reportError(ie);
-            }
+            // We don't wait for the output to be shown; the queue coalesces it into
+            // one update per frame, and only makes us wait if too much builds up:
+            outputQueue.add(isErrorOut, cbuf, off, len);
         }
 
         public void flush() { }
@@ -0,0 +1,514 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.terminal;
+
+import bluej.editor.base.TextLine.StyledSegment;
+import bluej.utility.Debug;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The lines of content in a terminal text pane.
+ *
+ * Only the most recent lines are kept in memory.  Once there are more than a set number,
+ * the oldest are written out in fixed-size chunks of lines to a temporary file, and are read
+ * back (a chunk at a time, with a few recently used chunks cached) when they are needed
+ * again, for example to display them after scrolling back.  So memory use does not grow
+ * with the amount of output, apart from a small index entry per chunk.
+ *
+ * Lines in the file are stored compactly: each distinct list of style classes, and each
+ * custom data item (e.g. a stack trace link), is stored once in memory and referred to by
+ * number.  These are discarded along with the last chunk which refers to them, when lines
+ * are trimmed.  Lines which have been written out can still be restyled (see setLine); the
+ * restyled version is kept in memory.
+ *
+ * Line numbers used by callers are zero-based and always count from the first line which
+ * has not been trimmed away.
+ */
+class TerminalContentStore
+{
+    // The number of recent lines always kept in memory:
+    private final int memoryLines;
+    // The number of lines in each chunk written to the file:
+    private final int chunkLines;
+
+    // The lines in memory, following on from the lines in the file:
+    private final ArrayList<ContentLine> recent = new ArrayList<>();
+    // The number of lines which were trimmed from the start (see trimToMostRecentLines).  These
+    // are only ever lines which are in the file; lines in memory are removed when trimmed.
+    private int trimmedLines = 0;
+    // The content of the line (as returned by getLongestLineText).  May be out of date (too long)
+    // after trimming, which only affects the horizontal scroll range.
+    private String longestLine = "";
+
+    // The file holding older lines, or null if nothing has been written yet:
+    private File spillFile;
+    private FileChannel spillChannel;
+    private long spillFileLength = 0;
+    // Index of the chunks in the file.  Chunk n holds the lines chunkLines * n to chunkLines * (n + 1) - 1
+    // (counting from the first line written, regardless of trimming).
+    private int chunkCount = 0;
+    private long[] chunkOffsets = new long[16];
+    private int[] chunkSizes = new int[16];
+    // The total length of the text of all the lines before each chunk:
+    private long[] chunkTextStarts = new long[16];
+    // The number of the first custom data item referred to by each chunk (or later, if it has none):
+    private int[] chunkCustomDataStarts = new int[16];
+    // The total length of the text of all the lines in the file:
+    private long spilledTextLength = 0;
+
+    // Styles and custom data of lines in the file, referred to by number.  Both are
+    // discarded when the lines referring to them are trimmed, so they are kept in maps:
+    private final HashMap<Integer, List<String>> styles = new HashMap<>();
+    private final HashMap<List<String>, Integer> styleIndexes = new HashMap<>();
+    // The last chunk which refers to each style:
+    private final HashMap<Integer, Integer> styleLastChunks = new HashMap<>();
+    private int nextStyle = 0;
+    private final HashMap<Integer, Object> customData = new HashMap<>();
+    private int nextCustomData = 0;
+    // Lines from the file which have been restyled, by their index in the file:
+    private final HashMap<Integer, ContentLine> restyledLines = new HashMap<>();
+    // Recently read chunks, by chunk index:
+    private final LinkedHashMap<Integer, List<ContentLine>> chunkCache = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<ContentLine>> eldest)
+        {
+            return size() > 8;
+        }
+    };
+
+    /**
+     * @param memoryLines The number of recent lines to always keep in memory.
+     * @param chunkLines The number of lines to write to the file at once.
+     */
+    TerminalContentStore(int memoryLines, int chunkLines)
+    {
+        this.memoryLines = Math.max(1, memoryLines);
+        this.chunkLines = Math.max(1, chunkLines);
+        recent.add(new ContentLine(new ArrayList<>()));
+    }
+
+    /**
+     * The number of lines.  Always at least one.
+     */
+    int getLineCount()
+    {
+        return getSpilledLineCount() - trimmedLines + recent.size();
+    }
+
+    private int getSpilledLineCount()
+    {
+        return chunkCount * chunkLines;
+    }
+
+    /**
+     * Gets the given line.  The returned line should not be modified; use setLine instead.
+     */
+    ContentLine getLine(int line)
+    {
+        int fileLine = line + trimmedLines;
+        if (fileLine >= getSpilledLineCount())
+        {
+            return recent.get(fileLine - getSpilledLineCount());
+        }
+        ContentLine restyled = restyledLines.get(fileLine);
+        if (restyled != null)
+        {
+            return restyled;
+        }
+        return readChunk(fileLine / chunkLines).get(fileLine % chunkLines);
+    }
+
+    /**
+     * Replaces the given line.  The new line must have the same text as the old line;
+     * only the styles should differ.
+     */
+    void setLine(int line, ContentLine content)
+    {
+        int fileLine = line + trimmedLines;
+        if (fileLine >= getSpilledLineCount())
+        {
+            recent.set(fileLine - getSpilledLineCount(), content);
+        }
+        else
+        {
+            restyledLines.put(fileLine, content);
+        }
+    }
+
+    /**
+     * Gets the total length of the text in all the lines before the given line.
+     */
+    long getTextLengthBefore(int line)
+    {
+        int fileLine = line + trimmedLines;
+        long length;
+        if (fileLine >= getSpilledLineCount())
+        {
+            length = spilledTextLength;
+            for (int i = 0; i < fileLine - getSpilledLineCount(); i++)
+            {
+                length += recent.get(i).getText().length();
+            }
+        }
+        else
+        {
+            int chunk = fileLine / chunkLines;
+            length = chunkTextStarts[chunk];
+            List<ContentLine> lines = readChunk(chunk);
+            for (int i = 0; i < fileLine % chunkLines; i++)
+            {
+                length += lines.get(i).getText().length();
+            }
+        }
+        if (trimmedLines > 0)
+        {
+            // Don't count the trimmed lines:
+            length -= getTextLengthBeforeFileLine(trimmedLines);
+        }
+        return length;
+    }
+
+    // Gets the total length of the text of the lines in the file before the given line in the file.
+    private long getTextLengthBeforeFileLine(int fileLine)
+    {
+        int chunk = fileLine / chunkLines;
+        if (chunk >= chunkCount)
+        {
+            return spilledTextLength;
+        }
+        long length = chunkTextStarts[chunk];
+        List<ContentLine> lines = readChunk(chunk);
+        for (int i = 0; i < fileLine % chunkLines; i++)
+        {
+            length += lines.get(i).getText().length();
+        }
+        return length;
+    }
+
+    /**
+     * Gets the text of the longest line (which may have been trimmed away since).
+     */
+    String getLongestLineText()
+    {
+        return longestLine;
+    }
+
+    /**
+     * Appends the given segment (which must not contain a newline) to the last line.
+     */
+    void appendToLastLine(StyledSegment segment)
+    {
+        ContentLine last = recent.get(recent.size() - 1);
+        last.append(segment);
+        if (last.getText().length() > longestLine.length())
+        {
+            longestLine = last.getText();
+        }
+    }
+
+    /**
+     * Starts a new, empty, last line.
+     */
+    void addLine()
+    {
+        recent.add(new ContentLine(new ArrayList<>()));
+        if (recent.size() >= memoryLines + chunkLines)
+        {
+            spillChunk();
+        }
+    }
+
+    /**
+     * Removes lines from the start, so that at most the given number of lines remain.
+     *
+     * @return The number of lines removed.
+     */
+    int trimToMostRecentLines(int lineCount)
+    {
+        int toRemove = getLineCount() - Math.max(1, lineCount);
+        if (toRemove <= 0)
+        {
+            return 0;
+        }
+        int spilledLinesLeft = getSpilledLineCount() - trimmedLines;
+        if (toRemove >= spilledLinesLeft)
+        {
+            // Nothing left in the file, so we can discard it all:
+            recent.subList(0, toRemove - spilledLinesLeft).clear();
+            clearSpilled();
+            longestLine = recent.stream().map(ContentLine::getText).reduce("", (a, b) -> b.length() > a.length() ? b : a);
+        }
+        else
+        {
+            trimmedLines += toRemove;
+            restyledLines.keySet().removeIf(l -> l < trimmedLines);
+            discardChunksBefore(trimmedLines / chunkLines);
+        }
+        return toRemove;
+    }
+
+    /**
+     * Discards the styles and custom data which are only referred to by chunks before
+     * the given chunk (which have been trimmed away).
+     */
+    private void discardChunksBefore(int firstChunk)
+    {
+        int firstCustomData = chunkCustomDataStarts[firstChunk];
+        customData.keySet().removeIf(n -> n < firstCustomData);
+        styleLastChunks.entrySet().removeIf(e -> {
+            if (e.getValue() < firstChunk)
+            {
+                styleIndexes.remove(styles.remove(e.getKey()));
+                return true;
+            }
+            return false;
+        });
+        chunkCache.keySet().removeIf(c -> c < firstChunk);
+    }
+
+    /**
+     * The number of styles and custom data items held for the lines in the file.
+     * (Used by tests, to check that these do not grow without limit.)
+     */
+    int getRetainedDataCount()
+    {
+        return styles.size() + customData.size();
+    }
+
+    /**
+     * Removes all the content, leaving a single empty line.
+     */
+    void clear()
+    {
+        recent.clear();
+        recent.add(new ContentLine(new ArrayList<>()));
+        clearSpilled();
+        longestLine = "";
+    }
+
+    /**
+     * Deletes the file (if any).  The store can still be used afterwards.
+     */
+    void dispose()
+    {
+        clearSpilled();
+        if (spillChannel != null)
+        {
+            try
+            {
+                spillChannel.close();
+            }
+            catch (IOException e)
+            {
+                Debug.reportError(e);
+            }
+            spillChannel = null;
+            spillFile.delete();
+            spillFile = null;
+        }
+    }
+
+    private void clearSpilled()
+    {
+        trimmedLines = 0;
+        chunkCount = 0;
+        spilledTextLength = 0;
+        spillFileLength = 0;
+        styles.clear();
+        styleIndexes.clear();
+        styleLastChunks.clear();
+        nextStyle = 0;
+        customData.clear();
+        nextCustomData = 0;
+        restyledLines.clear();
+        chunkCache.clear();
+        if (spillChannel != null)
+        {
+            try
+            {
+                spillChannel.truncate(0);
+            }
+            catch (IOException e)
+            {
+                Debug.reportError(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the oldest chunk of lines in memory to the file.  If this fails,
+     * the lines just stay in memory.
+     */
+    private void spillChunk()
+    {
+        try
+        {
+            if (spillChannel == null)
+            {
+                spillFile = File.createTempFile("bluej-terminal", ".tmp");
+                spillFile.deleteOnExit();
+                spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+
+            List<ContentLine> lines = recent.subList(0, chunkLines);
+            int customDataStart = nextCustomData;
+            long textLength = 0;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (ContentLine line : lines)
+            {
+                textLength += line.getText().length();
+                writeLine(out, line);
+            }
+            out.flush();
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            long offset = spillFileLength;
+            while (buffer.hasRemaining())
+            {
+                spillChannel.write(buffer, offset + buffer.position());
+            }
+
+            if (chunkCount == chunkOffsets.length)
+            {
+                chunkOffsets = Arrays.copyOf(chunkOffsets, chunkCount * 2);
+                chunkSizes = Arrays.copyOf(chunkSizes, chunkCount * 2);
+                chunkTextStarts = Arrays.copyOf(chunkTextStarts, chunkCount * 2);
+                chunkCustomDataStarts = Arrays.copyOf(chunkCustomDataStarts, chunkCount * 2);
+            }
+            chunkOffsets[chunkCount] = offset;
+            chunkSizes[chunkCount] = bytes.size();
+            chunkTextStarts[chunkCount] = spilledTextLength;
+            chunkCustomDataStarts[chunkCount] = customDataStart;
+            chunkCount += 1;
+            spillFileLength += bytes.size();
+            spilledTextLength += textLength;
+            lines.clear();
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Could not write terminal content to temporary file", e);
+        }
+    }
+
+    private void writeLine(DataOutputStream out, ContentLine line) throws IOException
+    {
+        List<StyledSegment> segments = new ArrayList<>();
+        line.forEach(segments::add);
+        out.writeInt(segments.size());
+        for (StyledSegment segment : segments)
+        {
+            Integer style = styleIndexes.get(segment.getStyleClasses());
+            if (style == null)
+            {
+                style = nextStyle++;
+                styles.put(style, segment.getStyleClasses());
+                styleIndexes.put(segment.getStyleClasses(), style);
+            }
+            // The line is being written to the chunk at the end:
+            styleLastChunks.put(style, chunkCount);
+            out.writeInt(style);
+            if (segment.getCustomData() == null)
+            {
+                out.writeInt(-1);
+            }
+            else
+            {
+                out.writeInt(nextCustomData);
+                customData.put(nextCustomData, segment.getCustomData());
+                nextCustomData += 1;
+            }
+            byte[] text = segment.getText().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+        }
+    }
+
+    /**
+     * Reads the given chunk back from the file (or the cache).
+     */
+    private List<ContentLine> readChunk(int chunk)
+    {
+        List<ContentLine> lines = chunkCache.get(chunk);
+        if (lines != null)
+        {
+            return lines;
+        }
+
+        lines = new ArrayList<>(chunkLines);
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSizes[chunk]);
+            while (buffer.hasRemaining())
+            {
+                if (spillChannel.read(buffer, chunkOffsets[chunk] + buffer.position()) < 0)
+                {
+                    throw new IOException("Unexpected end of terminal content file");
+                }
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+            for (int i = 0; i < chunkLines; i++)
+            {
+                int segmentCount = in.readInt();
+                List<StyledSegment> segments = new ArrayList<>(segmentCount);
+                for (int j = 0; j < segmentCount; j++)
+                {
+                    List<String> style = styles.get(in.readInt());
+                    int custom = in.readInt();
+                    byte[] text = new byte[in.readInt()];
+                    in.readFully(text);
+                    segments.add(new StyledSegment(style, new String(text, StandardCharsets.UTF_8), custom == -1 ? null : customData.get(custom)));
+                }
+                lines.add(new ContentLine(segments));
+            }
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Could not read terminal content from temporary file", e);
+            // Show blank lines rather than fail:
+            lines.clear();
+            for (int i = 0; i < chunkLines; i++)
+            {
+                lines.add(new ContentLine(new ArrayList<>()));
+            }
+        }
+        chunkCache.put(chunk, lines);
+        return lines;
+    }
+}
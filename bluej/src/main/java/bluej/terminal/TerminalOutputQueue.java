@@ -0,0 +1,174 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.terminal;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A queue of output (from the debug VM's stdout and stderr) waiting to be shown
+ * in the terminal.
+ *
+ * The I/O threads add to the queue without locking, and without waiting for the
+ * output to be displayed.  The display side takes all pending output in one go
+ * (see drain()), merging consecutive chunks for the same stream, so that however
+ * fast the output arrives, the terminal only needs one update per frame.
+ *
+ * To bound memory use, a writer does wait if the amount of output which has not
+ * yet been taken from the queue exceeds the budget given in the constructor.
+ */
+@OnThread(Tag.Any)
+class TerminalOutputQueue
+{
+    /**
+     * A piece of output, for either stdout or stderr.
+     */
+    record Chunk(boolean isError, String text) {}
+
+    private final ConcurrentLinkedQueue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    // Number of characters added to the queue but not yet drained:
+    private final AtomicInteger pendingChars = new AtomicInteger(0);
+    // True if the drain callback has been requested and the queue has not been found empty since:
+    private final AtomicBoolean drainRequested = new AtomicBoolean(false);
+    private final int maxPendingChars;
+    private final Runnable requestDrain;
+    // Only used for waiting when the queue is over budget:
+    private final Object budgetLock = new Object();
+
+    /**
+     * @param maxPendingChars The number of characters which can be waiting before
+     *                        writers have to wait for the queue to be drained.
+     * @param requestDrain    Called (on the writing thread) when output is added to
+     *                        an idle queue.  It should arrange for drain() to be called
+     *                        until stopIfEmpty() returns true.
+     */
+    TerminalOutputQueue(int maxPendingChars, Runnable requestDrain)
+    {
+        this.maxPendingChars = Math.max(1, maxPendingChars);
+        this.requestDrain = requestDrain;
+    }
+
+    /**
+     * Adds output to the queue.  If too much output is already waiting, this
+     * waits until enough has been drained.
+     */
+    void add(boolean isError, char[] cbuf, int off, int len)
+    {
+        if (len <= 0)
+            return;
+
+        boolean interrupted = false;
+        while (pendingChars.get() >= maxPendingChars)
+        {
+            synchronized (budgetLock)
+            {
+                try
+                {
+                    // Timed, in case the drain happens between our check and the wait:
+                    budgetLock.wait(10);
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+
+        pendingChars.addAndGet(len);
+        chunks.add(new Chunk(isError, new String(cbuf, off, len)));
+        if (drainRequested.compareAndSet(false, true))
+        {
+            requestDrain.run();
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes all the output currently in the queue.  Consecutive chunks for the same
+     * stream are merged, so the result alternates between stdout and stderr (and is
+     * usually a single item).  Must only be called from one thread at a time.
+     */
+    List<Chunk> drain()
+    {
+        List<Chunk> r = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean currentIsError = false;
+        int drainedChars = 0;
+        Chunk chunk;
+        while ((chunk = chunks.poll()) != null)
+        {
+            if (current.length() > 0 && chunk.isError() != currentIsError)
+            {
+                r.add(new Chunk(currentIsError, current.toString()));
+                current.setLength(0);
+            }
+            currentIsError = chunk.isError();
+            current.append(chunk.text());
+            drainedChars += chunk.text().length();
+        }
+        if (current.length() > 0)
+        {
+            r.add(new Chunk(currentIsError, current.toString()));
+        }
+
+        if (drainedChars > 0)
+        {
+            pendingChars.addAndGet(-drainedChars);
+            synchronized (budgetLock)
+            {
+                budgetLock.notifyAll();
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Called by the draining side when it is thinking of stopping.  If the queue is
+     * empty, marks it as idle (so that the next add() will request a drain again)
+     * and returns true.  If output has arrived in the meantime, returns false, and
+     * the caller should keep draining.
+     */
+    boolean stopIfEmpty()
+    {
+        drainRequested.set(false);
+        // Output may have been added just before we cleared the flag; if so, carry on:
+        return chunks.isEmpty() || !drainRequested.compareAndSet(false, true);
+    }
+
+    /**
+     * Checks whether there is any output which has been added but not yet drained.
+     */
+    boolean hasPending()
+    {
+        return pendingChars.get() > 0;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * An on-disk index of the type names found in each classpath entry (jar file, or
+ * the JDK's system modules), used by the ImportScanner to avoid rescanning entries
+ * which have not changed since the last session.
+ * 
+ * Each entry is identified by a key (usually the path of the jar) and is only
+ * used if the modification time and size recorded with it still match.  Within
+ * an entry, type names are grouped by package to keep the file compact.
+ * 
+ * The file is shared by all projects, so saving merges this session's entries with
+ * those already in the file (which may have been written by another project since
+ * we loaded it), and replaces the file atomically.
+ */
+@OnThread(Tag.Worker)
+class ClasspathTypeIndex
+{
+    private static final int MAGIC = 0x424a5449; // "BJTI"
+    private static final int FORMAT_VERSION = 1;
+    // The prefix of the keys for system (JDK) entries, which are not jar files:
+    static final String SYSTEM_KEY_PREFIX = "system:";
+
+    private final Map<String, Entry> loaded;
+    // The entries which have been used or added during this session; only these are saved:
+    private final Map<String, Entry> current = new LinkedHashMap<>();
+
+    private static class Entry
+    {
+        private final long lastModified;
+        private final long length;
+        private final List<String> typeNames;
+
+        private Entry(long lastModified, long length, List<String> typeNames)
+        {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.typeNames = typeNames;
+        }
+    }
+
+    private ClasspathTypeIndex(Map<String, Entry> loaded)
+    {
+        this.loaded = loaded;
+    }
+
+    /**
+     * Loads the index from the given file.  If the file does not exist or cannot
+     * be read, an empty index is returned.
+     */
+    public static ClasspathTypeIndex load(File file)
+    {
+        synchronized (ClasspathTypeIndex.class)
+        {
+            return new ClasspathTypeIndex(readEntries(file));
+        }
+    }
+
+    /**
+     * Reads all the entries in the given file.  If the file does not exist or cannot
+     * be read, returns an empty map.
+     */
+    private static Map<String, Entry> readEntries(File file)
+    {
+        Map<String, Entry> entries = new HashMap<>();
+        long fileLength = file.length();
+        if (file.isFile() && fileLength > 0)
+        {
+            // Read through a stream rather than memory-mapping, so that the file can be
+            // replaced (by another project saving) while we read it, on all platforms:
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+            {
+                if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION)
+                {
+                    int entryCount = in.readInt();
+                    for (int i = 0; i < entryCount; i++)
+                    {
+                        String key = readString(in, fileLength);
+                        long lastModified = in.readLong();
+                        long length = in.readLong();
+                        List<String> typeNames = new ArrayList<>();
+                        int packageCount = in.readInt();
+                        for (int p = 0; p < packageCount; p++)
+                        {
+                            String pkg = readString(in, fileLength);
+                            String prefix = pkg.isEmpty() ? "" : pkg + ".";
+                            int typeCount = in.readInt();
+                            for (int t = 0; t < typeCount; t++)
+                            {
+                                typeNames.add(prefix + readString(in, fileLength));
+                            }
+                        }
+                        entries.put(key, new Entry(lastModified, length, typeNames));
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                // Includes EOFException for a truncated file:
+                Debug.message(e.getClass().getName() + " while reading type index: " + e.getMessage());
+                entries.clear();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the type names for the given jar file, if they are in the index and the
+     * file has not changed since.  Returns null otherwise.
+     */
+    public List<String> get(File jarFile)
+    {
+        return get(jarFile.getAbsolutePath(), jarFile.lastModified(), jarFile.length());
+    }
+
+    /**
+     * Gets the type names for the entry with the given key, if they are in the index
+     * and the modification time and size match.  Returns null otherwise.
+     */
+    public List<String> get(String key, long lastModified, long length)
+    {
+        Entry e = loaded.get(key);
+        if (e == null || e.lastModified != lastModified || e.length != length)
+        {
+            return null;
+        }
+        current.put(key, e);
+        return e.typeNames;
+    }
+
+    /**
+     * Records the type names for the given jar file.
+     */
+    public void put(File jarFile, List<String> typeNames)
+    {
+        put(jarFile.getAbsolutePath(), jarFile.lastModified(), jarFile.length(), typeNames);
+    }
+
+    /**
+     * Records the type names for the entry with the given key.
+     */
+    public void put(String key, long lastModified, long length, List<String> typeNames)
+    {
+        current.put(key, new Entry(lastModified, length, typeNames));
+    }
+
+    /**
+     * Saves the entries which have been used or recorded since loading, merged with the
+     * entries currently in the file (which other projects may be using).  Entries for jar
+     * files which no longer exist or have changed are dropped, as are entries for other
+     * JDKs once this one's has been recorded.
+     */
+    public void save(File file)
+    {
+        // Saves within this process are serialised; between processes, the atomic
+        // replacement means that a reader always sees a complete file:
+        synchronized (ClasspathTypeIndex.class)
+        {
+            Map<String, Entry> toSave = new LinkedHashMap<>();
+            boolean haveSystem = current.keySet().stream().anyMatch(k -> k.startsWith(SYSTEM_KEY_PREFIX));
+            for (Map.Entry<String, Entry> e : readEntries(file).entrySet())
+            {
+                String key = e.getKey();
+                Entry entry = e.getValue();
+                boolean stillValid = key.startsWith(SYSTEM_KEY_PREFIX) ? !haveSystem
+                        : (new File(key).lastModified() == entry.lastModified && new File(key).length() == entry.length);
+                if (stillValid)
+                {
+                    toSave.put(key, entry);
+                }
+            }
+            toSave.putAll(current);
+
+            File tempFile = null;
+            try
+            {
+                file.getAbsoluteFile().getParentFile().mkdirs();
+                tempFile = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".tmp").toFile();
+                write(tempFile, toSave);
+                try
+                {
+                    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e)
+                {
+                    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            catch (IOException e)
+            {
+                Debug.reportError("Could not save type index", e);
+                if (tempFile != null)
+                {
+                    tempFile.delete();
+                }
+            }
+        }
+    }
+
+    private static void write(File file, Map<String, Entry> entries) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet())
+            {
+                writeString(out, e.getKey());
+                out.writeLong(e.getValue().lastModified);
+                out.writeLong(e.getValue().length);
+
+                Map<String, List<String>> byPackage = new TreeMap<>();
+                for (String typeName : e.getValue().typeNames)
+                {
+                    int dot = typeName.lastIndexOf('.');
+                    byPackage.computeIfAbsent(dot == -1 ? "" : typeName.substring(0, dot), k -> new ArrayList<>())
+                            .add(typeName.substring(dot + 1));
+                }
+                out.writeInt(byPackage.size());
+                for (Map.Entry<String, List<String>> pkg : byPackage.entrySet())
+                {
+                    writeString(out, pkg.getKey());
+                    out.writeInt(pkg.getValue().size());
+                    for (String name : pkg.getValue())
+                    {
+                        writeString(out, name);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String readString(DataInputStream in, long fileLength) throws IOException
+    {
+        int length = in.readInt();
+        // Check the length, so that a corrupt file can't make us allocate a huge array:
+        if (length < 0 || length > fileLength)
+        {
+            throw new IOException("Corrupt string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
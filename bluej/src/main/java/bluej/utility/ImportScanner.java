@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2017,2019,2020,2021,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2017,2019,2020,2021,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -125,29 +126,7 @@ public class ImportScanner
                 try
                 {
                     CompletableFuture<AssistContentThreadSafe> f = new CompletableFuture<>();
-                    Platform.runLater(() -> {
-                        Class<?> c = project.loadClass(prefix + s);
-
-                        // This happens reasonably often while the user is typing in an import in Stride,
-                        // so it's not necessarily a bug:
-                        if (c == null)
-                        {
-                            f.complete(null);
-                        }
-                        else
-                        {
-                            AssistContentThreadSafe ac = null;
-                            try
-                            {
-                                ac = new AssistContentThreadSafe(new ImportedTypeCompletion(c, javadocResolver));
-                            }
-                            catch (Throwable t)
-                            {
-                                Debug.reportError(t);
-                            }
-                            f.complete(ac);
-                        }
-                    });
+                    Platform.runLater(() -> f.complete(makeType(prefix + s, javadocResolver)));
                     return f.get();
                 }
                 catch (Exception e)
@@ -158,6 +137,71 @@ public class ImportScanner
             });
         }
 
+        /**
+         * Gets the types for all the given names from this package.  Any which are not already
+         * cached are calculated together, in a single hop to the FXPlatform thread (rather than
+         * one hop per type, which is slow for packages with many types).
+         * 
+         * @param prefix The package name, ending in ".", e.g. "java.lang."
+         * @param names The unqualified type names
+         */
+        @OnThread(Tag.Worker)
+        private List<AssistContentThreadSafe> getTypes(String prefix, Collection<String> names, JavadocResolver javadocResolver)
+        {
+            List<String> missing = names.stream().filter(n -> types.get(n) == null).collect(Collectors.toList());
+            if (!missing.isEmpty())
+            {
+                try
+                {
+                    CompletableFuture<Map<String, AssistContentThreadSafe>> f = new CompletableFuture<>();
+                    Platform.runLater(() -> {
+                        Map<String, AssistContentThreadSafe> made = new HashMap<>();
+                        for (String name : missing)
+                        {
+                            made.put(name, makeType(prefix + name, javadocResolver));
+                        }
+                        f.complete(made);
+                    });
+                    f.get().forEach((name, ac) -> {
+                        if (ac != null)
+                            types.put(name, ac);
+                    });
+                }
+                catch (InterruptedException | ExecutionException e)
+                {
+                    Debug.reportError(e);
+                }
+            }
+            return names.stream().map(types::get).filter(ac -> ac != null).collect(Collectors.toList());
+        }
+
+        /**
+         * Makes the completion for the type with the given (binary) name, or returns null if
+         * the type cannot be loaded.
+         */
+        @OnThread(Tag.FXPlatform)
+        private AssistContentThreadSafe makeType(String typeName, JavadocResolver javadocResolver)
+        {
+            Class<?> c = project.loadClass(typeName);
+
+            // This happens reasonably often while the user is typing in an import in Stride,
+            // so it's not necessarily a bug:
+            if (c == null)
+            {
+                return null;
+            }
+
+            try
+            {
+                return new AssistContentThreadSafe(new ImportedTypeCompletion(c, javadocResolver));
+            }
+            catch (Throwable t)
+            {
+                Debug.reportError(t);
+                return null;
+            }
+        }
+
         /**
          * Gets types arising from a given import directive in the source code.
          * 
@@ -180,9 +224,9 @@ public class ImportScanner
             {
                 // Return all types:
 
-                // Take a copy in case it causes problems that getType modifies the collection
+                // Take a copy in case it causes problems that getTypes modifies the collection
                 Collection<String> typeNames = new ArrayList<>(types.keySet());
-                return typeNames.stream().map(t -> getType(prefix, t, javadocResolver)).filter(ac -> ac != null).collect(Collectors.toList());
+                return getTypes(prefix, typeNames, javadocResolver);
             }
             else if (idents.hasNext())
             {
@@ -201,10 +245,10 @@ public class ImportScanner
                         if (currentClassIdentifier.equals("*"))
                         {
                             // Return all types:
-                            // Take a copy in case it causes problems that getType modifies the collection
+                            // Take a copy in case it causes problems that getTypes modifies the collection
                             Collection<String> typeNames = new ArrayList<>(types.keySet());
                             String outerClassName = currentClassIdentifier.replace(".*", "");
-                            return typeNames.stream().map(t -> getType(prefix, t, javadocResolver)).filter(acts -> acts != null && acts.getDeclaringClass() != null && acts.getDeclaringClass().equals(outerClassName)).collect(Collectors.toList());
+                            return getTypes(prefix, typeNames, javadocResolver).stream().filter(acts -> acts.getDeclaringClass() != null && acts.getDeclaringClass().equals(outerClassName)).collect(Collectors.toList());
                         }
 
                         ac = getType(prefix, s, javadocResolver);
@@ -321,7 +365,7 @@ public class ImportScanner
      * Gets a list of ClassGraph items which can be used to find available classes.
      * 
      * Because of the way ClassGraph works, one item is not enough for all classes;
-     * we use one for system classes and one for user classes.
+     * we use one for user classes (first in the list) and one for system classes (second).
      */
     @OnThread(Tag.Worker)
     private List<ClassGraph> getClassloaderConfig()
@@ -359,10 +403,7 @@ public class ImportScanner
             .enableSystemJarsAndModules()
             .acceptPackages("java.*", "javax.*", "javafx.*");
 
-        return List.of(
-            userClassGraph.enableClassInfo(),
-            systemClassGraph.enableClassInfo()
-        );
+        return List.of(userClassGraph, systemClassGraph);
     }
 
     /**
@@ -383,25 +424,99 @@ public class ImportScanner
             // Special case -- ClassGraph library (deliberately) doesn't return Object in its list
             // so we must add it ourselves to avoid problems like "Unknown type: Object" messages.
             r.addClass("java.lang.Object");
-            final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
-            for (ClassGraph classGraph : classGraphs)
+
+            long startTime = System.currentTimeMillis();
+            ClasspathTypeIndex index = ClasspathTypeIndex.load(getTypeIndexPath());
+            int scanned = 0;
+            int fromIndex = 0;
+
+            // User libraries: we only scan the jars which have changed since they were indexed.
+            // Directories are always scanned, as their modification time doesn't reflect changes
+            // further down, but they are usually small:
+            List<File> userEntries;
+            try
+            {
+                userEntries = classGraphs.get(0).getClasspathFiles();
+            }
+            catch (Throwable t)
+            {
+                Debug.reportError(t);
+                userEntries = Collections.emptyList();
+            }
+            for (File entry : userEntries)
             {
-                try (ScanResult result = classGraph.scan(threads))
+                List<String> typeNames = entry.isFile() ? index.get(entry) : null;
+                if (typeNames != null)
                 {
-                    for (ClassInfo c : result.getAllClasses())
+                    fromIndex += 1;
+                }
+                else
+                {
+                    typeNames = scanTypeNames(new ClassGraph().overrideClasspath(List.of(entry)).rejectPackages("bluej.*"));
+                    scanned += 1;
+                    if (typeNames != null && entry.isFile())
                     {
-                        r.addClass(c.getName());
+                        index.put(entry, typeNames);
                     }
                 }
-                catch (Throwable t)
+                if (typeNames != null)
+                {
+                    typeNames.forEach(r::addClass);
+                }
+            }
+
+            // System libraries only change with the JDK (or, for JavaFX, with the BlueJ/Greenfoot version):
+            String systemKey = ClasspathTypeIndex.SYSTEM_KEY_PREFIX + System.getProperty("java.home") + ":" + System.getProperty("java.version") + ":" + getVersion();
+            List<String> systemNames = index.get(systemKey, 0, 0);
+            if (systemNames != null)
+            {
+                fromIndex += 1;
+            }
+            else
+            {
+                systemNames = scanTypeNames(classGraphs.get(1));
+                scanned += 1;
+                if (systemNames != null)
                 {
-                    Debug.reportError(t);
+                    index.put(systemKey, 0, 0, systemNames);
                 }
             }
+            if (systemNames != null)
+            {
+                systemNames.forEach(r::addClass);
+            }
+
+            index.save(getTypeIndexPath());
+            Debug.log("Import scanner: " + fromIndex + " classpath entries from index, " + scanned
+                    + " scanned, in " + (System.currentTimeMillis() - startTime) + "ms");
         }
         return r;
     }
 
+    /**
+     * Scans using the given ClassGraph, and returns the names of all the classes found,
+     * or null if the scan failed.
+     */
+    @OnThread(Tag.Worker)
+    private static List<String> scanTypeNames(ClassGraph classGraph)
+    {
+        final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        try (ScanResult result = classGraph.enableClassInfo().scan(threads))
+        {
+            List<String> typeNames = new ArrayList<>();
+            for (ClassInfo c : result.getAllClasses())
+            {
+                typeNames.add(c.getName());
+            }
+            return typeNames;
+        }
+        catch (Throwable t)
+        {
+            Debug.reportError(t);
+            return null;
+        }
+    }
+
     /**
      * Starts scanning for available importable types from the classpath.
      * Will operate in a background thread.
@@ -459,6 +574,12 @@ public class ImportScanner
         return new File(Config.getUserConfigDir(), "import-cache.xml");
     }
 
+    /** Path of the index of the type names in each classpath entry */
+    private static File getTypeIndexPath()
+    {
+        return new File(Config.getUserConfigDir(), "import-index.bin");
+    }
+
     /**
      * Loads cached (java.**) imports into the given root package, if possible.
      */
@@ -0,0 +1,168 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.classmgr;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for reading class files with ClassFileInfo, and caching with ClassFileAnalyser.
+ */
+public class ClassFileInfoTest
+{
+    // Classes for the tests to analyse:
+    static class Sample<K extends Comparable<K>, V extends List<Map<K, V>> & Serializable> extends ArrayList<V> implements Runnable
+    {
+        private Helper[][] helpers;
+        private long number = 1234567890123L;
+        private double fraction = 0.5;
+
+        public void run()
+        {
+            String s = "text " + fraction;
+            Runnable r = () -> System.out.println(s + number);
+            r.run();
+        }
+
+        Other make(int x)
+        {
+            return new Other();
+        }
+    }
+
+    static class Helper { }
+
+    static class Other { }
+
+    static abstract class Plain implements Comparable<Plain> { }
+
+    interface Shape { }
+
+    enum Colour { RED, GREEN }
+
+    private static byte[] getClassBytes(Class<?> c) throws IOException
+    {
+        String resource = "/" + c.getName().replace('.', '/') + ".class";
+        try (InputStream in = c.getResourceAsStream(resource))
+        {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testSample() throws IOException
+    {
+        ClassFileInfo info = ClassFileInfo.read(getClassBytes(Sample.class));
+        assertEquals(Sample.class.getName(), info.getName());
+        assertEquals("java.util.ArrayList", info.getSuperclass());
+        assertEquals(Arrays.asList("java.lang.Runnable"), info.getInterfaces());
+        assertEquals(Arrays.asList("K", "V"), info.getTypeParameters());
+        assertFalse(info.isInterface());
+        assertFalse(info.isAbstract());
+        assertFalse(info.isEnum());
+
+        List<String> used = info.getUsed();
+        assertTrue(used.contains(Helper.class.getName()));
+        assertTrue(used.contains(Other.class.getName()));
+        assertTrue(used.contains("java.lang.String"));
+        assertTrue(used.contains("java.lang.System"));
+        assertFalse(used.contains(Sample.class.getName()));
+    }
+
+    @Test
+    public void testKinds() throws IOException
+    {
+        ClassFileInfo plain = ClassFileInfo.read(getClassBytes(Plain.class));
+        assertTrue(plain.isAbstract());
+        assertFalse(plain.isInterface());
+        assertEquals("java.lang.Object", plain.getSuperclass());
+        assertEquals(Arrays.asList("java.lang.Comparable"), plain.getInterfaces());
+        assertTrue(plain.getTypeParameters().isEmpty());
+
+        ClassFileInfo shape = ClassFileInfo.read(getClassBytes(Shape.class));
+        assertTrue(shape.isInterface());
+        assertTrue(shape.getInterfaces().isEmpty());
+
+        ClassFileInfo colour = ClassFileInfo.read(getClassBytes(Colour.class));
+        assertTrue(colour.isEnum());
+        assertEquals("java.lang.Enum", colour.getSuperclass());
+
+        ClassFileInfo object = ClassFileInfo.read(getClassBytes(Object.class));
+        assertNull(object.getSuperclass());
+    }
+
+    @Test
+    public void testTypeParameters()
+    {
+        assertEquals(Arrays.asList("T"), ClassFileInfo.parseTypeParameters("<T:Ljava/lang/Object;>Ljava/lang/Object;"));
+        assertEquals(Arrays.asList("T", "U"), ClassFileInfo.parseTypeParameters(
+                "<T::Ljava/lang/Comparable<TT;>;U:[I:Ljava/io/Serializable;>Ljava/lang/Object;"));
+        assertEquals(Arrays.asList("A"), ClassFileInfo.parseTypeParameters(
+                "<A:Ljava/util/Map<Ljava/lang/String;Ljava/util/List<+TA;>;>.Entry<**>;>Ljava/lang/Object;"));
+        assertTrue(ClassFileInfo.parseTypeParameters("Ljava/lang/Object;").isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalid() throws IOException
+    {
+        ClassFileInfo.read(new byte[] {(byte)0xCA, (byte)0xFE, (byte)0xBA, (byte)0xBE, 0, 0});
+    }
+
+    @Test
+    public void testAnalyserCache() throws IOException
+    {
+        File dir = Files.createTempDirectory("classfiles").toFile();
+        File classFile = new File(dir, "Sample.class");
+        Files.write(classFile.toPath(), getClassBytes(Sample.class));
+
+        ClassFileAnalyser analyser = new ClassFileAnalyser();
+        ClassFileAnalyser.Result first = analyser.analyse(classFile);
+        assertTrue(first.isChanged());
+        assertEquals(Sample.class.getName(), first.getInfo().getName());
+
+        // Rewriting the same contents counts as unchanged, and reuses the result:
+        Files.write(classFile.toPath(), getClassBytes(Sample.class));
+        ClassFileAnalyser.Result second = analyser.analyse(classFile);
+        assertFalse(second.isChanged());
+        assertSame(first.getInfo(), second.getInfo());
+
+        Files.write(classFile.toPath(), getClassBytes(Other.class));
+        Map<File, ClassFileAnalyser.Result> all = analyser.analyseAll(Arrays.asList(classFile, new File(dir, "Missing.class")));
+        assertEquals(1, all.size());
+        assertTrue(all.get(classFile).isChanged());
+        assertEquals(Other.class.getName(), all.get(classFile).getInfo().getName());
+
+        classFile.delete();
+        dir.delete();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.collect;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.http.client.HttpClient;
+
+/**
+ * Tests posting requests to a local stand-in for the data collection server.
+ */
+public class TestDataSubmitter extends TestCase
+{
+    private HttpServer server;
+    private final List<String> received = new ArrayList<>();
+    // The X-Status and HTTP status code the stand-in server replies with:
+    private volatile String status = "Created";
+    private volatile int statusCode = 200;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/master_events", exchange -> {
+            try (InputStream in = exchange.getRequestBody())
+            {
+                synchronized (received)
+                {
+                    received.add(exchange.getRequestHeaders().getFirst("Content-Type") + ":" + new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+            exchange.getResponseHeaders().add("X-Status", status);
+            exchange.sendResponseHeaders(statusCode, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        server.stop(0);
+    }
+
+    private String url()
+    {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/master_events";
+    }
+
+    public void testRequestsSentInOrderOnOneClient()
+    {
+        HttpClient client = DataSubmitter.makeClient();
+        try
+        {
+            for (String body : new String[] {"one", "two", "three"})
+            {
+                assertEquals(DataSubmitter.PostResult.SENT,
+                    DataSubmitter.postData(client, url(), "text/plain", body.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        finally
+        {
+            client.getConnectionManager().shutdown();
+        }
+        assertEquals(List.of("text/plain:one", "text/plain:two", "text/plain:three"), received);
+    }
+
+    public void testRejected()
+    {
+        status = "Invalid";
+        HttpClient client = DataSubmitter.makeClient();
+        try
+        {
+            assertEquals(DataSubmitter.PostResult.REJECTED,
+                DataSubmitter.postData(client, url(), "text/plain", new byte[0]));
+        }
+        finally
+        {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    public void testTemporaryErrorsRetried()
+    {
+        HttpClient client = DataSubmitter.makeClient();
+        try
+        {
+            for (int code : new int[] {429, 500, 503})
+            {
+                // Proxies and overloaded servers don't give an X-Status:
+                status = "";
+                statusCode = code;
+                assertEquals("Status " + code, DataSubmitter.PostResult.FAILED,
+                    DataSubmitter.postData(client, url(), "text/plain", new byte[0]));
+            }
+            statusCode = 400;
+            assertEquals(DataSubmitter.PostResult.REJECTED,
+                DataSubmitter.postData(client, url(), "text/plain", new byte[0]));
+        }
+        finally
+        {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    public void testUnreachable() throws IOException
+    {
+        int freePort;
+        try (ServerSocket socket = new ServerSocket(0))
+        {
+            freePort = socket.getLocalPort();
+        }
+        HttpClient client = DataSubmitter.makeClient();
+        try
+        {
+            assertEquals(DataSubmitter.PostResult.FAILED,
+                DataSubmitter.postData(client, "http://127.0.0.1:" + freePort + "/master_events", "text/plain", new byte[0]));
+        }
+        finally
+        {
+            client.getConnectionManager().shutdown();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.collect;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestEventJournal extends TestCase
+{
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        file = File.createTempFile("journal", ".dat");
+        file.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        file.delete();
+    }
+
+    private static byte[] bytes(String s)
+    {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] b)
+    {
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    public void testUnsentEntriesSurviveReopening()
+    {
+        EventJournal journal = new EventJournal(file, Long.MAX_VALUE);
+        EventJournal.Entry a = journal.add("text/plain", bytes("a"));
+        journal.add("text/other", bytes("b"));
+        journal.add("text/plain", bytes("c"));
+        journal.markSent(a);
+
+        List<EventJournal.Entry> pending = new EventJournal(file, Long.MAX_VALUE).getPending();
+        assertEquals(2, pending.size());
+        assertEquals("b", string(pending.get(0).body));
+        assertEquals("text/other", pending.get(0).contentType);
+        assertEquals("c", string(pending.get(1).body));
+    }
+
+    public void testFileEmptiedWhenAllSent()
+    {
+        EventJournal journal = new EventJournal(file, Long.MAX_VALUE);
+        EventJournal.Entry a = journal.add("text/plain", bytes("a"));
+        EventJournal.Entry b = journal.add("text/plain", bytes("b"));
+        journal.markSent(a);
+        journal.markSent(b);
+        assertEquals(0, file.length());
+
+        // And carries on working afterwards:
+        journal.add("text/plain", bytes("c"));
+        List<EventJournal.Entry> pending = new EventJournal(file, Long.MAX_VALUE).getPending();
+        assertEquals(1, pending.size());
+        assertEquals("c", string(pending.get(0).body));
+    }
+
+    public void testIncompleteLastEntryIgnored() throws IOException
+    {
+        EventJournal journal = new EventJournal(file, Long.MAX_VALUE);
+        journal.add("text/plain", bytes("a"));
+        journal.add("text/plain", bytes("bbbbbbbb"));
+        // Lose the end of the last entry, as if BlueJ was killed while writing it:
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.setLength(raf.length() - 3);
+        }
+
+        EventJournal reopened = new EventJournal(file, Long.MAX_VALUE);
+        assertEquals(1, reopened.getPendingCount());
+        // Later entries must still be read back after the rewritten file:
+        reopened.add("text/plain", bytes("c"));
+        List<EventJournal.Entry> pending = new EventJournal(file, Long.MAX_VALUE).getPending();
+        assertEquals(2, pending.size());
+        assertEquals("a", string(pending.get(0).body));
+        assertEquals("c", string(pending.get(1).body));
+    }
+
+    public void testCorruptLengthIgnored() throws IOException
+    {
+        for (int badLength : new int[] {-5, Integer.MAX_VALUE, 100})
+        {
+            file.delete();
+            EventJournal journal = new EventJournal(file, Long.MAX_VALUE);
+            journal.add("text/plain", bytes("a"));
+            // An entry whose body length is wrong:
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true)))
+            {
+                out.writeByte('E');
+                out.writeLong(7);
+                out.writeLong(1);
+                out.writeUTF("text/plain");
+                out.writeInt(badLength);
+                out.write(bytes("bbbb"));
+            }
+
+            List<EventJournal.Entry> pending = new EventJournal(file, Long.MAX_VALUE).getPending();
+            assertEquals(1, pending.size());
+            assertEquals("a", string(pending.get(0).body));
+        }
+    }
+
+    public void testDropFromSameSessionOnly()
+    {
+        // An earlier session, which left two entries unsent:
+        EventJournal earlier = new EventJournal(file, Long.MAX_VALUE);
+        earlier.add("text/plain", bytes("a1"));
+        earlier.add("text/plain", bytes("a2"));
+
+        EventJournal journal = new EventJournal(file, Long.MAX_VALUE);
+        List<EventJournal.Entry> fromEarlier = journal.getPending();
+        journal.add("text/plain", bytes("b1"));
+        EventJournal.Entry b2 = journal.add("text/plain", bytes("b2"));
+        journal.add("text/plain", bytes("b3"));
+
+        // Later entries in the session go too, but not those of the other session:
+        journal.dropFrom(b2);
+        assertEquals(List.of("a1", "a2", "b1"), journal.getPending().stream().map(e -> string(e.body)).toList());
+
+        journal.dropFrom(fromEarlier.get(0));
+        assertEquals(List.of("b1"), journal.getPending().stream().map(e -> string(e.body)).toList());
+        List<EventJournal.Entry> reopened = new EventJournal(file, Long.MAX_VALUE).getPending();
+        assertEquals(1, reopened.size());
+        assertEquals("b1", string(reopened.get(0).body));
+    }
+
+    public void testDiscard()
+    {
+        EventJournal journal = new EventJournal(file, Long.MAX_VALUE);
+        journal.add("text/plain", bytes("a"));
+        assertTrue(file.exists());
+
+        journal.discard();
+        assertFalse(file.exists());
+        assertEquals(0, journal.getPendingCount());
+        // Nothing more is recorded:
+        journal.add("text/plain", bytes("b"));
+        assertEquals(0, journal.getPendingCount());
+        assertFalse(file.exists());
+    }
+
+    public void testEntriesBeyondMaximumKeptInMemoryOnly()
+    {
+        EventJournal journal = new EventJournal(file, 20);
+        journal.add("text/plain", bytes("aaaaaaaaaaaaaaaaaaaa"));
+        journal.add("text/plain", bytes("b"));
+        assertEquals(2, journal.getPendingCount());
+        assertEquals(1, new EventJournal(file, 20).getPendingCount());
+    }
+}
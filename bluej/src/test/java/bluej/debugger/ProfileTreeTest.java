@@ -0,0 +1,96 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger;
+
+import bluej.debugger.ProfileTree.Node;
+import bluej.runtime.Sampler;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProfileTreeTest
+{
+    private static String frame(String className, String method, int line)
+    {
+        return Sampler.FRAME_SEPARATOR + className + Sampler.FIELD_SEPARATOR + method
+            + Sampler.FIELD_SEPARATOR + className + ".java" + Sampler.FIELD_SEPARATOR + line;
+    }
+
+    @Test
+    public void testTree()
+    {
+        String samples = "5" + frame("Main", "main", 3) + frame("Main", "work", 10) + "\n"
+            + "3" + frame("Main", "main", 4) + frame("Main", "work", 12) + frame("Util", "sum", 20) + "\n"
+            + "2" + frame("Main", "main", 5) + "\n";
+        ProfileTree tree = ProfileTree.parse(samples);
+        assertEquals(10, tree.getSampleCount());
+        assertEquals(10, tree.getRoot().getTotal());
+
+        List<Node> top = tree.getRoot().getChildren();
+        assertEquals(1, top.size());
+        Node main = top.get(0);
+        assertEquals("Main", main.getClassName());
+        assertEquals("main", main.getMethodName());
+        assertEquals(10, main.getTotal());
+        assertEquals(2, main.getSelf());
+        assertEquals(3, main.getHottestLine());
+
+        Node work = main.getChildren().get(0);
+        assertEquals("work", work.getMethodName());
+        assertEquals(8, work.getTotal());
+        assertEquals(5, work.getSelf());
+        assertEquals("Main.java", work.getFileName());
+        assertEquals(10, work.getHottestLine());
+        assertEquals(3, work.getChildren().get(0).getTotal());
+
+        List<Node> hot = tree.getHotMethods();
+        assertEquals(3, hot.size());
+        assertEquals("work", hot.get(0).getMethodName());
+        assertEquals("sum", hot.get(1).getMethodName());
+        assertEquals("main", hot.get(2).getMethodName());
+    }
+
+    @Test
+    public void testRecursion()
+    {
+        // Each sample should only count once towards the total of a recursive method:
+        String samples = "4" + frame("Fib", "fib", 5) + frame("Fib", "fib", 6) + frame("Fib", "fib", 6) + "\n";
+        ProfileTree tree = ProfileTree.parse(samples);
+        Node fib = tree.getHotMethods().get(0);
+        assertEquals(1, tree.getHotMethods().size());
+        assertEquals(4, fib.getTotal());
+        assertEquals(4, fib.getSelf());
+        // But the call tree has one node per level:
+        assertEquals(4, tree.getRoot().getChildren().get(0).getChildren().get(0).getChildren().get(0).getSelf());
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        ProfileTree tree = ProfileTree.parse("");
+        assertEquals(0, tree.getSampleCount());
+        assertTrue(tree.getHotMethods().isEmpty());
+        assertTrue(tree.getRoot().getChildren().isEmpty());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger.jdi;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BreakpointExpressionTest
+{
+    // Expressions without names don't need a stack frame to evaluate:
+    private static Object eval(String expression) throws Exception
+    {
+        return BreakpointExpression.parse(expression).evaluate(null);
+    }
+
+    @Test
+    public void testArithmetic() throws Exception
+    {
+        assertEquals(7, eval("1 + 2 * 3"));
+        assertEquals(9, eval("(1 + 2) * 3"));
+        assertEquals(-1, eval("2 - 3"));
+        assertEquals(2, eval("7 / 3"));
+        assertEquals(1, eval("7 % 3"));
+        assertEquals(2.5, eval("5 / 2.0"));
+        assertEquals(66, eval("'A' + 1"));
+        assertEquals("ab1", eval("\"a\" + 'b' + 1"));
+        assertEquals(3, eval("\"abc\".length()"));
+    }
+
+    @Test
+    public void testNumericTypes() throws Exception
+    {
+        // int arithmetic wraps, as it does in Java, unless a long is involved:
+        assertEquals(Integer.MIN_VALUE, eval("2147483647 + 1"));
+        assertEquals(Integer.MIN_VALUE, eval("-2147483648"));
+        assertEquals(-1, eval("0xFFFFFFFF"));
+        assertEquals(2147483648L, eval("2147483647 + 1L"));
+        assertEquals(10000000000L, eval("100000L * 100000"));
+        assertEquals(Long.MIN_VALUE, eval("9223372036854775807L + 1"));
+        assertEquals(-3L, eval("-3L"));
+        assertEquals(30, eval("0x1E"));
+
+        // Float literals have float precision, so compare equal to float variables:
+        assertEquals(0.1f, eval("0.1f"));
+        assertEquals(false, eval("0.1f == 0.1"));
+        assertEquals(true, eval("0.1f == 0.1F"));
+        assertEquals(0.5f, eval("1 / 2f"));
+        assertEquals(-0.5f, eval("-0.5f"));
+        assertEquals(0.5, eval("1 / 2f + 0.0"));
+        assertEquals(1.0, eval("1d"));
+
+        for (String bad : List.of("2147483649", "0x100000000", "99999999999999999999L"))
+        {
+            try
+            {
+                BreakpointExpression.parse(bad);
+                fail("Parsed invalid literal: " + bad);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testLogic() throws Exception
+    {
+        assertEquals(true, eval("1 < 2 && 2 <= 2"));
+        assertEquals(false, eval("1 > 2 || 3 >= 4"));
+        assertEquals(true, eval("!(1 == 2)"));
+        assertEquals(true, eval("1 != 2"));
+        assertEquals(true, eval("1 == 1.0"));
+        assertEquals(true, eval("\"ab\" == \"a\" + \"b\""));
+        assertEquals(true, eval("\"abc\".length() == 3 && \"abc\".equals(\"abc\") && !\"abc\".isEmpty()"));
+        // Short-circuit: the right-hand side would fail:
+        assertEquals(false, eval("false && 1 / 0 == 0"));
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        for (String bad : List.of("", "1 +", "(1", "1 2", "a.", "\"abc", "1 = 2", "a & b"))
+        {
+            try
+            {
+                BreakpointExpression.parse(bad);
+                fail("Parsed invalid expression: " + bad);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Expected
+            }
+        }
+
+        try
+        {
+            eval("1 / 0");
+            fail();
+        }
+        catch (BreakpointExpression.EvaluationException e)
+        {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testMessage()
+    {
+        List<Object> parts = BreakpointExpression.parseMessage("x = {1 + 2}, y = {\"y\"}!");
+        assertEquals(5, parts.size());
+        assertEquals("x = ", parts.get(0));
+        assertEquals(", y = ", parts.get(2));
+        assertEquals("!", parts.get(4));
+        assertEquals("x = 3, y = y!", BreakpointExpression.formatMessage(parts, null));
+
+        assertEquals(List.of("plain"), BreakpointExpression.parseMessage("plain"));
+        try
+        {
+            BreakpointExpression.parseMessage("x = {1 + 2");
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger.jdi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import bluej.debugger.DebuggerTestResult;
+import bluej.runtime.ExecServer;
+import com.sun.jdi.VMDisconnectedException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestResultPollerTest
+{
+    /**
+     * Encodes a result as ExecServer does: the class name then the fields as for runTestMethod.
+     */
+    private static String record(String className, String methodName, String failureType)
+    {
+        String[] fields = {className, methodName, methodName, "msg", "trace", className, "", methodName, "3", failureType};
+        return String.join(String.valueOf(ExecServer.TEST_FIELD_SEPARATOR), fields);
+    }
+
+    private static String records(String... records)
+    {
+        return String.join(String.valueOf(ExecServer.TEST_RECORD_SEPARATOR), records);
+    }
+
+    @Test
+    public void testResultsStreamed() throws Exception
+    {
+        BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+        BlockingQueue<DebuggerTestResult> received = new LinkedBlockingQueue<>();
+        TestResultPoller poller = new TestResultPoller(pending::poll, 10, received::add);
+        poller.start();
+
+        // A result is passed on while the run is still going:
+        pending.add(record("p.ATest", "testOne", "success"));
+        DebuggerTestResult first = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals("p.ATest", first.getQualifiedClassName());
+        assertEquals("testOne", first.getMethodName());
+        assertTrue(first.isSuccess());
+
+        // Several results at once, in order:
+        pending.add(records(record("p.ATest", "testTwo", "failure"), record("p.BTest", "testThree", "error")));
+        DebuggerTestResult second = received.poll(10, TimeUnit.SECONDS);
+        DebuggerTestResult third = received.poll(10, TimeUnit.SECONDS);
+        assertTrue(second.isFailure());
+        assertEquals("testTwo", second.getMethodName());
+        assertEquals(3, second.getExceptionLocation().getLineNumber());
+        assertTrue(third.isError());
+        assertEquals("p.BTest", third.getQualifiedClassName());
+
+        poller.finish();
+        assertFalse(poller.isAlive());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testFinishWaitsForPollInProgress() throws Exception
+    {
+        CountDownLatch pollStarted = new CountDownLatch(1);
+        CountDownLatch releasePoll = new CountDownLatch(1);
+        List<String> sources = new ArrayList<>();
+        List<DebuggerTestResult> received = new ArrayList<>();
+        TestResultPoller poller = new TestResultPoller(() -> {
+            synchronized (sources)
+            {
+                sources.add(Thread.currentThread().getName());
+            }
+            if (sources.size() == 1)
+            {
+                // The first poll is slow, as if waiting for the remote VM:
+                pollStarted.countDown();
+                try
+                {
+                    releasePoll.await();
+                }
+                catch (InterruptedException e)
+                {
+                    fail("Poller was interrupted");
+                }
+                return record("p.ATest", "testOne", "success");
+            }
+            return sources.size() == 2 ? record("p.ATest", "testTwo", "success") : null;
+        }, 10, received::add);
+        poller.start();
+        assertTrue(pollStarted.await(10, TimeUnit.SECONDS));
+
+        Thread finisher = new Thread(() -> {
+            try
+            {
+                poller.finish();
+            }
+            catch (InterruptedException e)
+            {
+                fail();
+            }
+        });
+        finisher.start();
+        finisher.join(200);
+        // finish() must not return while a poll is in progress:
+        assertTrue(finisher.isAlive());
+
+        releasePoll.countDown();
+        finisher.join(10000);
+        assertFalse(finisher.isAlive());
+        assertFalse(poller.isAlive());
+
+        // The result of the poll in progress is kept, and the final poll (after the
+        // poller has stopped) collects the rest:
+        assertEquals(2, received.size());
+        assertEquals("testOne", received.get(0).getMethodName());
+        assertEquals("testTwo", received.get(1).getMethodName());
+        assertEquals(2, sources.size());
+        assertEquals(finisher.getName(), sources.get(1));
+    }
+
+    @Test
+    public void testDisconnectedVM() throws Exception
+    {
+        TestResultPoller poller = new TestResultPoller(() -> {
+            throw new VMDisconnectedException();
+        }, 10, r -> fail("Unexpected result"));
+        poller.start();
+        poller.finish();
+        assertFalse(poller.isAlive());
+    }
+}
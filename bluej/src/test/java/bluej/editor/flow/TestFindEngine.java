@@ -0,0 +1,164 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that FindEngine keeps its matches up to date as the document is edited.
+ */
+public class TestFindEngine
+{
+    private static String matchesString(FindEngine engine, Document document)
+    {
+        StringBuilder s = new StringBuilder();
+        for (int[] match : engine.getMatchesBetween(0, document.getLength()))
+        {
+            s.append(match[0]).append("-").append(match[1]).append(" ");
+        }
+        return s.toString().trim();
+    }
+
+    /**
+     * Makes an edit, and checks that the engine's matches are the same as a new search would give.
+     */
+    private static void checkEdit(FindEngine engine, HoleDocument document, int start, int end, String replacement,
+                                  String searchFor, boolean regex, boolean wholeWord)
+    {
+        document.replaceText(start, end, replacement);
+        FindEngine fresh = new FindEngine(document, searchFor, false, regex, wholeWord);
+        assertEquals("After replacing " + start + "-" + end + " with \"" + replacement + "\" in \"" + document.getFullContent() + "\"",
+            matchesString(fresh, document), matchesString(engine, document));
+    }
+
+    @Test
+    public void testPlainEdits()
+    {
+        HoleDocument document = new HoleDocument();
+        document.replaceText(0, 0, "foo bar\nfoo\nbar foo\n");
+        FindEngine engine = new FindEngine(document, "foo", false, false, false);
+        engine.attach();
+        assertEquals("0-3 8-11 16-19", matchesString(engine, document));
+
+        // Insert a new match on the middle line, and check later matches move along:
+        document.replaceText(11, 11, "foo");
+        assertEquals("0-3 8-11 11-14 19-22", matchesString(engine, document));
+
+        // Break the first match:
+        document.replaceText(1, 2, "x");
+        assertEquals("8-11 11-14 19-22", matchesString(engine, document));
+    }
+
+    @Test
+    public void testRegexMatchEndingAtEditedLine()
+    {
+        HoleDocument document = new HoleDocument();
+        document.replaceText(0, 0, "abc\nxyz\nabc\n");
+        FindEngine engine = new FindEngine(document, "c\\n", false, true, false);
+        engine.attach();
+        assertEquals("2-4 10-12", matchesString(engine, document));
+
+        // The first match ends exactly where the edited line starts:
+        document.replaceText(5, 5, "Q");
+        assertEquals("2-4 11-13", matchesString(engine, document));
+    }
+
+    @Test
+    public void testRegexMatchSpanningIntoEditedLine()
+    {
+        HoleDocument document = new HoleDocument();
+        document.replaceText(0, 0, "abc\nxyz\nabc\n");
+        FindEngine engine = new FindEngine(document, "abc\\nx", false, true, false);
+        engine.attach();
+        assertEquals("0-5", matchesString(engine, document));
+
+        document.replaceText(6, 6, "R");
+        assertEquals("0-5", matchesString(engine, document));
+
+        // And an edit which does break the match:
+        document.replaceText(4, 5, "");
+        assertEquals("", matchesString(engine, document));
+    }
+
+    @Test
+    public void testRegexMatchCreatedAcrossLines()
+    {
+        HoleDocument document = new HoleDocument();
+        document.replaceText(0, 0, "ab\nxyz\nabc\nq");
+        FindEngine engine = new FindEngine(document, "abc\\nx", false, true, false);
+        engine.attach();
+        assertEquals("", matchesString(engine, document));
+
+        // The edit makes a match which runs on to the next line:
+        checkEdit(engine, document, 2, 2, "c", "abc\\nx", true, false);
+        assertEquals("0-5", matchesString(engine, document));
+
+        // And one which starts on the line before the edit:
+        checkEdit(engine, document, 12, 13, "x", "abc\\nx", true, false);
+        assertEquals("0-5 8-13", matchesString(engine, document));
+    }
+
+    @Test
+    public void testMatchHidingLaterMatches()
+    {
+        HoleDocument document = new HoleDocument();
+        document.replaceText(0, 0, "a\nb\nb\nb\nb\n");
+        FindEngine engine = new FindEngine(document, "b(\\nb)*|a\\n", false, true, false);
+        engine.attach();
+        assertEquals("0-2 2-9", matchesString(engine, document));
+
+        // Now the match of the a takes in all the b lines:
+        checkEdit(engine, document, 0, 2, "b\n", "b(\\nb)*|a\\n", true, false);
+        assertEquals("0-9", matchesString(engine, document));
+    }
+
+    @Test
+    public void testRandomEdits()
+    {
+        String[][] searches = {{"ab", "false"}, {"aa", "false"}, {"a\\nb", "true"}, {"b+\\n?a", "true"},
+            {"(?<=b)a", "true"}, {"a[^x]*?b", "true"}};
+        String[] inserts = {"a", "b", "\n", "ab", "a\nb", "x", ""};
+        for (String[] search : searches)
+        {
+            for (boolean wholeWord : new boolean[] {false, true})
+            {
+                Random random = new Random(search[0].hashCode() + (wholeWord ? 1 : 0));
+                HoleDocument document = new HoleDocument();
+                document.replaceText(0, 0, "ab a\nb aab\nba\n\nab ab\n");
+                boolean regex = Boolean.parseBoolean(search[1]);
+                FindEngine engine = new FindEngine(document, search[0], false, regex, wholeWord);
+                engine.attach();
+                for (int i = 0; i < 300; i++)
+                {
+                    int start = random.nextInt(document.getLength() + 1);
+                    int end = Math.min(document.getLength(), start + random.nextInt(3));
+                    checkEdit(engine, document, start, end, inserts[random.nextInt(inserts.length)], search[0], regex, wholeWord);
+                }
+            }
+        }
+    }
+}
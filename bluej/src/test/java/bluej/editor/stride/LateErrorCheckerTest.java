@@ -0,0 +1,135 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.stride;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import bluej.stride.framedjava.ast.AccessPermission;
+import bluej.stride.framedjava.ast.AccessPermissionFragment;
+import bluej.stride.framedjava.ast.CallExpressionSlotFragment;
+import bluej.stride.framedjava.ast.FilledExpressionSlotFragment;
+import bluej.stride.framedjava.ast.JavadocUnit;
+import bluej.stride.framedjava.ast.NameDefSlotFragment;
+import bluej.stride.framedjava.ast.TypeSlotFragment;
+import bluej.stride.framedjava.elements.CallElement;
+import bluej.stride.framedjava.elements.ClassElement;
+import bluej.stride.framedjava.elements.CodeElement;
+import bluej.stride.framedjava.elements.NormalMethodElement;
+import bluej.stride.framedjava.elements.VarElement;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests the outline and context which decide whether the late errors of a slot
+ * can be reused from the previous check.
+ */
+public class LateErrorCheckerTest
+{
+    private static final List<String> LOCAL_TYPES = List.of("Main", "Helper");
+
+    private static NormalMethodElement method(String name, String returnType, List<CodeElement> body)
+    {
+        return new NormalMethodElement(null, new AccessPermissionFragment(AccessPermission.PUBLIC), false, false,
+            new TypeSlotFragment(returnType, returnType), new NameDefSlotFragment(name), Collections.emptyList(),
+            Collections.emptyList(), body, new JavadocUnit(""), true);
+    }
+
+    private static ClassElement classWith(List<CodeElement> fields, List<CodeElement> methods)
+    {
+        return new ClassElement(null, null, false, new NameDefSlotFragment("Main"), null, Collections.emptyList(),
+            fields, Collections.emptyList(), methods, new JavadocUnit(""), null,
+            Collections.emptyList(), true);
+    }
+
+    private static VarElement var(String type, String name)
+    {
+        return new VarElement(null, null, false, false, new TypeSlotFragment(type, type),
+            new NameDefSlotFragment(name), new FilledExpressionSlotFragment("0", "0"), true);
+    }
+
+    private static CallElement call(String expression)
+    {
+        return new CallElement(null, new CallExpressionSlotFragment(expression, expression), true);
+    }
+
+    private static String outline(ClassElement code)
+    {
+        return LateErrorChecker.makeOutline(code, LOCAL_TYPES, Collections.emptyList());
+    }
+
+    private static String context(CodeElement element)
+    {
+        return LateErrorChecker.makeContext(element, element.getLateErrorSlots().findFirst().get());
+    }
+
+    @Test
+    public void testOutlineIgnoresMethodBodies()
+    {
+        ClassElement before = classWith(List.of(var("int", "count")), List.of(method("run", "void", List.of(call("foo()")))));
+        ClassElement after = classWith(List.of(var("int", "count")), List.of(method("run", "void", List.of(call("bar()"), call("foo()")))));
+        assertEquals(outline(before), outline(after));
+    }
+
+    @Test
+    public void testOutlineChanges()
+    {
+        String original = outline(classWith(List.of(var("int", "count")), List.of(method("run", "void", new ArrayList<>()))));
+        // A changed method signature:
+        assertNotEquals(original, outline(classWith(List.of(var("int", "count")), List.of(method("run", "int", new ArrayList<>())))));
+        // A changed field:
+        assertNotEquals(original, outline(classWith(List.of(var("long", "count")), List.of(method("run", "void", new ArrayList<>())))));
+        // An added method:
+        assertNotEquals(original, outline(classWith(List.of(var("int", "count")),
+            List.of(method("run", "void", new ArrayList<>()), method("stop", "void", new ArrayList<>())))));
+        // A changed set of types in the package:
+        assertNotEquals(original, LateErrorChecker.makeOutline(
+            classWith(List.of(var("int", "count")), List.of(method("run", "void", new ArrayList<>()))),
+            List.of("Main"), Collections.emptyList()));
+    }
+
+    @Test
+    public void testContextIsVariablesInScope()
+    {
+        CallElement use = call("foo(x)");
+        classWith(new ArrayList<>(), List.of(method("run", "void", List.of(var("int", "x"), use, var("int", "y")))));
+        String original = context(use);
+
+        // Statements which don't declare variables, and variables declared after the slot, don't matter:
+        CallElement moved = call("foo(x)");
+        classWith(new ArrayList<>(), List.of(method("run", "void", List.of(call("bar()"), var("int", "x"), moved, var("long", "y")))));
+        assertEquals(original, context(moved));
+
+        // A variable in scope with a different type does:
+        CallElement retyped = call("foo(x)");
+        classWith(new ArrayList<>(), List.of(method("run", "void", List.of(var("long", "x"), retyped, var("int", "y")))));
+        assertNotEquals(original, context(retyped));
+
+        // As does a new variable in scope:
+        CallElement added = call("foo(x)");
+        classWith(new ArrayList<>(), List.of(method("run", "void", List.of(var("int", "x"), var("int", "z"), added, var("int", "y")))));
+        assertNotEquals(original, context(added));
+    }
+}
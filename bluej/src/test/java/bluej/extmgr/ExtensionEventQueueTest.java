@@ -0,0 +1,316 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.extmgr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import bluej.extensions2.event.ExtensionEvent;
+import bluej.extmgr.ExtensionEventQueue.OverflowPolicy;
+import bluej.parser.InitConfig;
+import javafx.application.Platform;
+import javafx.embed.swing.JFXPanel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the delivery of events to an extension via its event queue.  The tests run off the
+ * FX thread (which delivers the events), and hold up the FX thread when they need events to
+ * back up in the queue.
+ */
+public class ExtensionEventQueueTest
+{
+    /**
+     * An event which just carries a number, to check the order of delivery.
+     */
+    private static class NumberedEvent implements ExtensionEvent
+    {
+        private final int number;
+
+        private NumberedEvent(int number)
+        {
+            this.number = number;
+        }
+    }
+
+    // The numbers of the events delivered so far, and whether each was delivered on the FX thread:
+    private final List<Integer> received = new ArrayList<>();
+    private final List<Boolean> receivedOnFX = new ArrayList<>();
+
+    @BeforeClass
+    public static void initialise()
+    {
+        InitConfig.init();
+        // Initialise JavaFX:
+        new JFXPanel();
+    }
+
+    private ExtensionEventQueue makeQueue(boolean synchronous, int capacity, OverflowPolicy overflowPolicy)
+    {
+        return new ExtensionEventQueue("TestExtension", e -> {
+            synchronized (received)
+            {
+                received.add(((NumberedEvent)e).number);
+                receivedOnFX.add(Platform.isFxApplicationThread());
+            }
+        }, synchronous, capacity, overflowPolicy);
+    }
+
+    private List<Integer> getReceived()
+    {
+        synchronized (received)
+        {
+            return new ArrayList<>(received);
+        }
+    }
+
+    private static List<Integer> range(int from, int to)
+    {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Holds up the FX thread until the returned latch is counted down.
+     */
+    private static CountDownLatch holdFXThread() throws InterruptedException
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return release;
+    }
+
+    /**
+     * Waits until the queue has delivered or dropped the given total number of events.
+     */
+    private static void waitForEvents(ExtensionEventQueue queue, int total) throws InterruptedException
+    {
+        long giveUp = System.currentTimeMillis() + 10_000;
+        while (true)
+        {
+            ExtensionEventQueue.Statistics statistics = queue.getStatistics();
+            if (statistics.delivered + statistics.dropped >= total)
+                return;
+            assertTrue("Timed out waiting for events", System.currentTimeMillis() < giveUp);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Waits for everything currently scheduled on the FX thread to have run.
+     */
+    private static void waitForFXThread() throws Exception
+    {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        Platform.runLater(() -> done.complete(true));
+        done.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testOverflowPolicyFromConfig()
+    {
+        // Events are only dropped if that is asked for:
+        assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.fromConfig("block"));
+        assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.fromConfig(""));
+        assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.fromConfig("unknown"));
+        assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.fromConfig("dropOldest"));
+        assertEquals(OverflowPolicy.DROP_NEWEST, OverflowPolicy.fromConfig("dropNewest"));
+    }
+
+    @Test
+    public void testOrderAndThread() throws Exception
+    {
+        ExtensionEventQueue queue = makeQueue(false, 1000, OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 500; i++)
+        {
+            queue.post(new NumberedEvent(i));
+        }
+        waitForEvents(queue, 500);
+        assertEquals(range(0, 500), getReceived());
+        synchronized (received)
+        {
+            assertFalse(receivedOnFX.contains(false));
+        }
+        assertEquals(0, queue.getStatistics().dropped);
+    }
+
+    @Test
+    public void testDropOldest() throws Exception
+    {
+        ExtensionEventQueue queue = makeQueue(false, 4, OverflowPolicy.DROP_OLDEST);
+        CountDownLatch release = holdFXThread();
+        for (int i = 0; i < 10; i++)
+        {
+            queue.post(new NumberedEvent(i));
+        }
+        release.countDown();
+        waitForEvents(queue, 10);
+        assertEquals(range(6, 10), getReceived());
+        assertEquals(4, queue.getStatistics().delivered);
+        assertEquals(6, queue.getStatistics().dropped);
+    }
+
+    @Test
+    public void testDropNewest() throws Exception
+    {
+        ExtensionEventQueue queue = makeQueue(false, 4, OverflowPolicy.DROP_NEWEST);
+        CountDownLatch release = holdFXThread();
+        for (int i = 0; i < 10; i++)
+        {
+            queue.post(new NumberedEvent(i));
+        }
+        release.countDown();
+        waitForEvents(queue, 10);
+        assertEquals(range(0, 4), getReceived());
+        assertEquals(4, queue.getStatistics().delivered);
+        assertEquals(6, queue.getStatistics().dropped);
+    }
+
+    @Test
+    public void testBlock() throws Exception
+    {
+        ExtensionEventQueue queue = makeQueue(false, 4, OverflowPolicy.BLOCK);
+        CountDownLatch release = holdFXThread();
+        Thread poster = new Thread(() -> {
+            for (int i = 0; i < 10; i++)
+            {
+                queue.post(new NumberedEvent(i));
+            }
+        });
+        poster.start();
+        // The poster must wait for the queue to be emptied:
+        poster.join(200);
+        assertTrue(poster.isAlive());
+        assertEquals(Arrays.asList(), getReceived());
+
+        release.countDown();
+        poster.join(10_000);
+        assertFalse(poster.isAlive());
+        waitForEvents(queue, 10);
+        assertEquals(range(0, 10), getReceived());
+        assertEquals(0, queue.getStatistics().dropped);
+    }
+
+    @Test
+    public void testBlockOnFXThread() throws Exception
+    {
+        // The FX thread can't wait for itself, so instead delivers when the queue is full:
+        ExtensionEventQueue queue = makeQueue(false, 4, OverflowPolicy.BLOCK);
+        CompletableFuture<List<Integer>> receivedAfterPosting = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            for (int i = 0; i < 10; i++)
+            {
+                queue.post(new NumberedEvent(i));
+            }
+            receivedAfterPosting.complete(getReceived());
+        });
+        // At least the events which overflowed have been delivered, in order:
+        List<Integer> early = receivedAfterPosting.get(10, TimeUnit.SECONDS);
+        assertTrue(early.size() >= 6);
+        assertEquals(range(0, early.size()), early);
+        waitForEvents(queue, 10);
+        assertEquals(range(0, 10), getReceived());
+        assertEquals(0, queue.getStatistics().dropped);
+    }
+
+    @Test
+    public void testPostAndFlush() throws Exception
+    {
+        ExtensionEventQueue queue = makeQueue(false, 100, OverflowPolicy.DROP_OLDEST);
+        CountDownLatch release = holdFXThread();
+        for (int i = 0; i < 5; i++)
+        {
+            queue.post(new NumberedEvent(i));
+        }
+        CompletableFuture<List<Integer>> receivedAfterFlush = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            queue.postAndFlush(new NumberedEvent(5));
+            receivedAfterFlush.complete(getReceived());
+        });
+        release.countDown();
+        // The flushed event, and all those before it, are delivered before postAndFlush returns:
+        assertEquals(range(0, 6), receivedAfterFlush.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testShutdown() throws Exception
+    {
+        ExtensionEventQueue queue = makeQueue(false, 4, OverflowPolicy.BLOCK);
+        CountDownLatch release = holdFXThread();
+        Thread poster = new Thread(() -> {
+            for (int i = 0; i < 10; i++)
+            {
+                queue.post(new NumberedEvent(i));
+            }
+        });
+        poster.start();
+        poster.join(200);
+        assertTrue(poster.isAlive());
+
+        // Shutting down discards the waiting events, and lets the poster carry on:
+        queue.shutdown();
+        poster.join(10_000);
+        assertFalse(poster.isAlive());
+        queue.post(new NumberedEvent(100));
+        release.countDown();
+        waitForFXThread();
+        waitForFXThread();
+        assertEquals(Arrays.asList(), getReceived());
+        assertEquals(0, queue.getStatistics().delivered);
+    }
+
+    @Test
+    public void testSynchronous() throws Exception
+    {
+        ExtensionEventQueue queue = makeQueue(true, 4, OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 10; i++)
+        {
+            queue.post(new NumberedEvent(i));
+            // Delivered on this thread before post returns:
+            assertEquals(range(0, i + 1), getReceived());
+        }
+        synchronized (received)
+        {
+            assertFalse(receivedOnFX.contains(true));
+        }
+        assertEquals(0, queue.getStatistics().dropped);
+    }
+}
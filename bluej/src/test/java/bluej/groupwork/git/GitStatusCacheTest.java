@@ -0,0 +1,192 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.groupwork.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import bluej.groupwork.HistoryInfo;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the Git status cache against a repository cloned from a local file:// remote.
+ */
+public class GitStatusCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Git git;
+    private File workTree;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        File remote = folder.newFolder("remote.git");
+        Git.init().setBare(true).setDirectory(remote).call().close();
+
+        workTree = folder.newFolder("work");
+        git = Git.cloneRepository().setURI(remote.toURI().toString()).setDirectory(workTree).call();
+        write("A.java", "class A {}");
+        git.add().addFilepattern("A.java").call();
+        git.commit().setMessage("Add A").setAuthor("Test", "test@example.com").setCommitter("Test", "test@example.com").call();
+        git.push().call();
+    }
+
+    @After
+    public void tearDown()
+    {
+        git.close();
+    }
+
+    private void write(String name, String content) throws IOException
+    {
+        File file = new File(workTree, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Changes a file's content without changing its size or modification time, as happens
+     * when a file is saved twice within the resolution of the file system's timestamps.
+     */
+    private void rewriteKeepingStat(String name, String content) throws IOException
+    {
+        File file = new File(workTree, name);
+        long modified = file.lastModified();
+        assertEquals(file.length(), content.getBytes(StandardCharsets.UTF_8).length);
+        write(name, content);
+        assertTrue(file.setLastModified(modified));
+    }
+
+    @Test
+    public void testStatusFollowsChanges() throws Exception
+    {
+        GitStatusCache cache = new GitStatusCache();
+        GitStatusCache.StatusSnapshot clean = cache.getStatus(git);
+        assertTrue(clean.getUncommittedChanges().isEmpty());
+        assertTrue(clean.getUntracked().isEmpty());
+
+        write("A.java", "class A { int x; }");
+        write("B.java", "class B {}");
+        GitStatusCache.StatusSnapshot changed = cache.getStatus(git);
+        assertTrue(changed.getUncommittedChanges().contains("A.java"));
+        assertTrue(changed.getUntracked().contains("B.java"));
+        assertTrue(cache.getWorkingTreeFiles(workTree).contains(new File(workTree, "B.java")));
+
+        // The earlier result must not have been altered:
+        assertTrue(clean.getUntracked().isEmpty());
+
+        new File(workTree, "B.java").delete();
+        git.add().addFilepattern("A.java").call();
+        git.commit().setMessage("Change A").setAuthor("Test", "test@example.com").setCommitter("Test", "test@example.com").call();
+        GitStatusCache.StatusSnapshot committed = cache.getStatus(git);
+        assertTrue(committed.getUncommittedChanges().isEmpty());
+        assertTrue(committed.getUntracked().isEmpty());
+    }
+
+    @Test
+    public void testRacyChangeFound() throws Exception
+    {
+        GitStatusCache cache = new GitStatusCache();
+        // Modified just now, so within the racy window of the snapshot:
+        assertTrue(new File(workTree, "A.java").setLastModified(System.currentTimeMillis() / 1000 * 1000));
+        assertTrue(cache.getStatus(git).getUncommittedChanges().isEmpty());
+
+        rewriteKeepingStat("A.java", "class Z {}");
+        assertEquals(Collections.singleton("A.java"), cache.getStatus(git).getUncommittedChanges());
+    }
+
+    @Test
+    public void testOldFileNotReexamined() throws Exception
+    {
+        GitStatusCache cache = new GitStatusCache();
+        // Modified well before the snapshot, so its size and time can be trusted:
+        assertTrue(new File(workTree, "A.java").setLastModified((System.currentTimeMillis() - 60_000) / 1000 * 1000));
+        assertTrue(cache.getStatus(git).getUncommittedChanges().isEmpty());
+
+        // This is why the racy window is needed; outside it, a change which
+        // keeps the size and time is not seen:
+        rewriteKeepingStat("A.java", "class Z {}");
+        assertTrue(cache.getStatus(git).getUncommittedChanges().isEmpty());
+        // But a change to either is:
+        write("A.java", "class Z { }");
+        assertEquals(Collections.singleton("A.java"), cache.getStatus(git).getUncommittedChanges());
+    }
+
+    @Test
+    public void testCacheSharedPerProject() throws Exception
+    {
+        // A temporary repository object is made per command when no password is known,
+        // so the cache must belong to the project, not the repository object:
+        GitRepository first = new GitRepository(workTree, "file", "", "main", "user", null, "Test", "test@example.com");
+        GitRepository second = new GitRepository(new File(workTree, "."), "file", "", "main", "user", null, "Test", "test@example.com");
+        assertSame(first.getStatusCache(), second.getStatusCache());
+        GitRepository other = new GitRepository(folder.newFolder("other"), "file", "", "main", "user", null, "Test", "test@example.com");
+        assertNotSame(first.getStatusCache(), other.getStatusCache());
+
+        // Likewise the history cache:
+        ObjectId head = git.getRepository().resolve("HEAD");
+        List<HistoryInfo> history = Collections.singletonList(
+            new HistoryInfo(new String[] {"A.java"}, head.name(), "", "Test", "Initial"));
+        first.cacheHistory(head, null, history);
+        assertEquals(history, second.getCachedHistory(head, null));
+        assertNull(other.getCachedHistory(head, null));
+    }
+
+    @Test
+    public void testForkPointCachedPerCommitPair() throws Exception
+    {
+        GitStatusCache cache = new GitStatusCache();
+        String remoteBranch = "origin/" + git.getRepository().getBranch();
+        RevCommit forkPoint = cache.findForkPoint(git.getRepository(), remoteBranch, "HEAD");
+        assertNotNull(forkPoint);
+        assertSame(forkPoint, cache.findForkPoint(git.getRepository(), remoteBranch, "HEAD"));
+        assertSame(cache.getDiffs(git, "HEAD", forkPoint), cache.getDiffs(git, "HEAD", forkPoint));
+
+        // A new local commit moves HEAD, so the fork point is found again (but is the same commit):
+        write("A.java", "class A { int y; }");
+        git.add().addFilepattern("A.java").call();
+        git.commit().setMessage("Change A").setAuthor("Test", "test@example.com").setCommitter("Test", "test@example.com").call();
+        RevCommit newForkPoint = cache.findForkPoint(git.getRepository(), remoteBranch, "HEAD");
+        assertEquals(forkPoint, newForkPoint);
+        assertEquals(1, cache.getDiffs(git, "HEAD", newForkPoint).size());
+    }
+}
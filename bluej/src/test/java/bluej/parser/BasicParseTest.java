@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2013,2014,2016,2019,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2013,2014,2016,2019,2022,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,6 +21,10 @@
  */
 package bluej.parser;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
@@ -1710,4 +1714,36 @@ public class BasicParseTest
         assertNotNull(info);
         assertTrue(info.hadParseError());
     }
+
+    /**
+     * Check that ClassInfo survives being written out and read back (as done by the
+     * project parse cache).
+     */
+    @Test
+    public void testClassInfoWriteRead()
+        throws Exception
+    {
+        File file = getFile("AffinedTransformer.dat");
+        ClassInfo info = InfoParser.parse(file, new ClassLoaderResolver(this.getClass().getClassLoader()));
+        assertNotNull(info);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        info.writeTo(new DataOutputStream(bytes));
+        ClassInfo read = ClassInfo.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(info.getName(), read.getName());
+        assertEquals(info.getSuperclass(), read.getSuperclass());
+        assertEquals(info.getPackage(), read.getPackage());
+        assertEquals(info.getImplements(), read.getImplements());
+        assertEquals(info.getUsed(), read.getUsed());
+        assertEquals(info.getTypeParameterTexts(), read.getTypeParameterTexts());
+        assertEquals(info.getComments(), read.getComments());
+        assertEquals(info.hadParseError(), read.hadParseError());
+        assertEquals(info.hasPackageStatement(), read.hasPackageStatement());
+        assertEquals(info.getPackageNameSelection().toString(), read.getPackageNameSelection().toString());
+        assertEquals(info.getImplementsInsertSelection().toString(), read.getImplementsInsertSelection().toString());
+        assertEquals(info.getSuperReplaceSelection().toString(), read.getSuperReplaceSelection().toString());
+        assertNull(read.getExtendsInsertSelection());
+        assertEquals(info.hasInterfaceSelections(), read.hasInterfaceSelections());
+    }
 }
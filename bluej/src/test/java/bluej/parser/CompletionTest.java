@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2014,2015,2016,2017,2019,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2014,2015,2016,2017,2019,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -960,7 +960,7 @@ public class CompletionTest
                 throw new RuntimeException("Not implemented in test stub.");
             }
             
-        }, null, (MethodNode)aNode.getContainingMethodOrClassNode(98), -1);
+        }, null, null, (MethodNode)aNode.getContainingMethodOrClassNode(98), -1);
         
         for (AssistContent assist : assists) {
             assist.getJavadoc();
@@ -1045,7 +1045,7 @@ public class CompletionTest
             {
                 throw new RuntimeException("Not implemented in test stub.");
             }
-        }, null, (MethodNode)aNode.getContainingMethodOrClassNode(57), -1);
+        }, null, null, (MethodNode)aNode.getContainingMethodOrClassNode(57), -1);
         
         assertNotNull(acontent);
     }
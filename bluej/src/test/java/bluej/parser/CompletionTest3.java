@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -28,6 +28,7 @@ import bluej.parser.entity.ClassLoaderResolver;
 import bluej.parser.nodes.MethodNode;
 import bluej.pkgmgr.JavadocResolver;
 import bluej.utility.Debug;
+import bluej.utility.JavaReflective;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -36,6 +37,7 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -82,6 +84,7 @@ public class CompletionTest3
     };
 
     private TestEntityResolver resolver;
+    private final CompletionMemberIndex memberIndex = new CompletionMemberIndex();
 
     @Before
     public void setUp() throws Exception
@@ -130,7 +133,7 @@ public class CompletionTest3
         resolver.addCompilationUnit("", p.node());
 
         int pos = p.positionStart("A");
-        AssistContent[] results = ParseUtils.getPossibleCompletions(p.node().getExpressionType(pos, p.doc()), dummyJavadocResolver, null, p.node().getContainingMethodOrClassNode(pos) instanceof MethodNode m ? m : null, pos);
+        AssistContent[] results = ParseUtils.getPossibleCompletions(p.node().getExpressionType(pos, p.doc()), dummyJavadocResolver, memberIndex, null, p.node().getContainingMethodOrClassNode(pos) instanceof MethodNode m ? m : null, pos);
         return results;
     }
 
@@ -636,4 +639,59 @@ public class CompletionTest3
                 }
                 """);
     }
+
+    @Test
+    public void testMemberIndex()
+    {
+        JavaReflective string = new JavaReflective(String.class);
+        CompletionMemberIndex.Members members = memberIndex.getMembers(string);
+        assertNotNull(members);
+        assertTrue(members.getDeclaredMethods().containsKey("substring"));
+        // Members are kept, including across class loader generations for JDK classes:
+        assertSame(members, memberIndex.getMembers(new JavaReflective(String.class)));
+        memberIndex.invalidate();
+        assertSame(members, memberIndex.getMembers(string));
+    }
+
+    @Test
+    public void testMemberIndexAsync() throws Exception
+    {
+        JavaReflective builder = new JavaReflective(StringBuilder.class);
+        assertFalse(memberIndex.isIndexed(builder));
+        memberIndex.indexAsync(builder).get();
+        assertTrue(memberIndex.isIndexed(builder));
+        assertTrue(memberIndex.indexAsync(builder).isDone());
+    }
+
+    @Test
+    public void testAsyncCompletions()
+    {
+        String src = """
+                class Foo
+                {
+                    int count;
+                    void m(int count)
+                    {
+                        String s = "";
+                        /*A*/
+                    }
+                }
+                """;
+        // Finding the completions all at once indexes all the classes involved:
+        List<String> expected = Arrays.stream(getNamesAtA(src)).map(AssistContent::getName).collect(Collectors.toList());
+        assertTrue(expected.contains("this.count"));
+        assertTrue(expected.contains("hashCode"));
+
+        // So now they should all arrive straight away, in a single batch:
+        Parsed p = parse(src, resolver);
+        resolver.addCompilationUnit("", p.node());
+        int pos = p.positionStart("A");
+        List<List<String>> batches = new ArrayList<>();
+        assertTrue(ParseUtils.getPossibleCompletionsAsync(p.node().getExpressionType(pos, p.doc()), dummyJavadocResolver, memberIndex, p.node().getContainingMethodOrClassNode(pos) instanceof MethodNode m ? m : null, pos, (completions, last) -> {
+            assertTrue(last);
+            batches.add(completions.stream().map(AssistContent::getName).collect(Collectors.toList()));
+            return true;
+        }));
+        assertEquals(List.of(expected), batches);
+    }
 }
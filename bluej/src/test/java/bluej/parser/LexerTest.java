@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2009,2010,2011,2012,2014,2016,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2009,2010,2011,2012,2014,2016,2022,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,6 +21,7 @@
  */
 package bluej.parser;
 
+import bluej.parser.lexer.JavaLexer;
 import bluej.parser.lexer.JavaTokenFilter;
 import bluej.parser.lexer.JavaTokenTypes;
 import bluej.parser.lexer.LineColPos;
@@ -1062,4 +1063,42 @@ public class LexerTest extends junit.framework.TestCase
             }
         }
     }
+    
+    /**
+     * Check that lexing with nextTokenType() gives the same tokens as nextToken().
+     */
+    public void testTokenTypeMode() throws Exception
+    {
+        String src = "package a.b; /* comment */ class X<T> extends Y {\n"
+            + "    // line comment\n"
+            + "    int \\u0061bc = 0x1F + 1.5e3f - x-1; String s = \"a\\\"b\";\n"
+            + "    sealed non-sealed non-sealed-x synchronized synchronizedX;\n"
+            + "    String t = \"\"\"\n  text\n  \"\"\";\n"
+            + "}";
+        for (boolean whitespace : new boolean[] {false, true})
+        {
+            JavaLexer tokenLexer = new JavaLexer(new StringReader(src));
+            tokenLexer.setGenerateWhitespaceTokens(whitespace);
+            JavaLexer typeLexer = new JavaLexer(new StringReader(src));
+            typeLexer.setGenerateWhitespaceTokens(whitespace);
+            while (true)
+            {
+                LocatableToken token = tokenLexer.nextToken();
+                int type = typeLexer.nextTokenType();
+                assertEquals(token.getType(), type);
+                assertEquals(token.getText(), typeLexer.getTokenText());
+                assertEquals(token.getLine(), typeLexer.getTokenLine());
+                assertEquals(token.getColumn(), typeLexer.getTokenColumn());
+                assertEquals(token.getEndLine(), typeLexer.getTokenEndLine());
+                assertEquals(token.getEndColumn(), typeLexer.getTokenEndColumn());
+                assertEquals(token.getPosition(), typeLexer.getTokenPosition());
+                assertEquals(token.getEndPosition(), typeLexer.getTokenEndPosition());
+                if (type == JavaTokenTypes.EOF)
+                {
+                    break;
+                }
+                assertTrue(typeLexer.tokenTextEquals(token.getText()));
+            }
+        }
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import bluej.parser.InitConfig;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the decision to skip a project documentation run when nothing has changed
+ * since the last successful run.
+ */
+public class DocuGeneratorTest
+{
+    private static final String[] CALL = {"javadoc", "-d", "doc", "-author"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File stateFile;
+    private File showFile;
+    private Map<String, List<File>> sources;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        InitConfig.init();
+        File docDir = folder.newFolder("doc");
+        stateFile = new File(docDir, "doc-state.properties");
+        showFile = new File(docDir, "index.html");
+        Files.write(showFile.toPath(), "<html></html>".getBytes(StandardCharsets.UTF_8));
+
+        sources = new HashMap<>();
+        sources.put("", new ArrayList<>(List.of(writeSource("Main", "class Main { }"))));
+        sources.put("util", new ArrayList<>(List.of(writeSource("Helper", "class Helper { }"))));
+        // As after a successful run:
+        DocuGenerator.saveState(stateFile, DocuGenerator.getSourceState(CALL, sources));
+    }
+
+    private File writeSource(String name, String content) throws IOException
+    {
+        File f = new File(folder.getRoot(), name + ".java");
+        Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+
+    private boolean upToDate(String[] call)
+    {
+        return DocuGenerator.isUpToDate(DocuGenerator.getSourceState(call, sources), stateFile, showFile);
+    }
+
+    @Test
+    public void testUnchangedSkipped()
+    {
+        assertTrue(upToDate(CALL));
+    }
+
+    @Test
+    public void testEditedSourceRuns() throws IOException
+    {
+        writeSource("Helper", "class Helper { int x; }");
+        assertFalse(upToDate(CALL));
+    }
+
+    @Test
+    public void testAddedSourceRuns() throws IOException
+    {
+        sources.get("util").add(writeSource("Other", "class Other { }"));
+        assertFalse(upToDate(CALL));
+    }
+
+    @Test
+    public void testDeletedSourceRuns()
+    {
+        sources.get("util").clear();
+        assertFalse(upToDate(CALL));
+    }
+
+    @Test
+    public void testChangedCommandRuns()
+    {
+        assertFalse(upToDate(new String[] {"javadoc", "-d", "doc", "-author", "-version"}));
+    }
+
+    @Test
+    public void testMissingDocumentationRuns()
+    {
+        showFile.delete();
+        assertFalse(upToDate(CALL));
+    }
+
+    @Test
+    public void testNoSavedStateRuns()
+    {
+        stateFile.delete();
+        assertFalse(upToDate(CALL));
+    }
+}
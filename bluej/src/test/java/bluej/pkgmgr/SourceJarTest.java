@@ -0,0 +1,225 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class SourceJarTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File jarFile;
+    private File indexFile;
+    private SourceJar jar;
+    // The sources which the parser has been asked to parse:
+    private final List<String> parsed = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        jarFile = new File(folder.getRoot(), "src.zip");
+        indexFile = new File(folder.getRoot(), "index/src.bin");
+        writeJar("// A: caf\u00e9", "// B");
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (jar != null)
+        {
+            jar.close();
+        }
+    }
+
+    private void writeJar(String sourceA, String sourceB) throws IOException
+    {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jarFile)))
+        {
+            out.putNextEntry(new ZipEntry("java.base/p/A.java"));
+            out.write(sourceA.getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new ZipEntry("java.base/p/B.java"));
+            out.write(sourceB.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private SourceJar reopen() throws IOException
+    {
+        if (jar != null)
+        {
+            jar.close();
+        }
+        jar = new SourceJar(jarFile, indexFile);
+        return jar;
+    }
+
+    /**
+     * A parser which gives a class comment (the source) and a method comment without
+     * parameters.
+     */
+    private Properties parse(Reader source) throws IOException
+    {
+        String text = new BufferedReader(source).readLine();
+        parsed.add(text);
+        Properties comments = new Properties();
+        comments.setProperty("numComments", "2");
+        comments.setProperty("comment0.target", "p.A");
+        comments.setProperty("comment0.text", text);
+        comments.setProperty("comment1.target", "void m()");
+        comments.setProperty("comment1.text", "");
+        return comments;
+    }
+
+    @Test
+    public void testCommentsReadBackFromIndex() throws Exception
+    {
+        Properties comments = reopen().getComments("java.base/p/A.java", this::parse);
+        // Read as UTF-8, whatever the platform default:
+        assertEquals("// A: caf\u00e9", comments.getProperty("comment0.text"));
+        assertEquals(1, parsed.size());
+        assertNull(reopen().getComments("java.base/p/missing.java", this::parse));
+
+        assertTrue(reopen().isIndexed("java.base/p/A.java"));
+        assertFalse(jar.isIndexed("java.base/p/B.java"));
+        assertEquals(comments, jar.getComments("java.base/p/A.java", this::parse));
+        assertNull(jar.getComments("java.base/p/A.java", this::parse).getProperty("comment1.params"));
+        assertEquals(1, parsed.size());
+    }
+
+    @Test
+    public void testIndexFormat() throws Exception
+    {
+        reopen().getComments("java.base/p/A.java", this::parse);
+        jar.close();
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile)))
+        {
+            assertEquals(0x424a4349, in.readInt());
+            assertEquals(2, in.readInt());
+            assertEquals(jarFile.getAbsolutePath(), readString(in));
+            assertEquals(jarFile.lastModified(), in.readLong());
+            assertEquals(jarFile.length(), in.readLong());
+
+            // Each record is the entry name, then the length of the comments which follow:
+            assertEquals("java.base/p/A.java", readString(in));
+            int length = in.readInt();
+            assertEquals(length, in.available());
+            assertEquals(2, in.readInt());
+            assertEquals("p.A", readString(in));
+            assertEquals("// A: caf\u00e9", readString(in));
+            assertNull(readString(in));
+            assertEquals("void m()", readString(in));
+            assertEquals("", readString(in));
+            assertNull(readString(in));
+            assertEquals(0, in.available());
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length == -1)
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testTruncatedTailDropped() throws Exception
+    {
+        reopen().getComments("java.base/p/A.java", this::parse);
+        long oneRecord = indexFile.length();
+        jar.getComments("java.base/p/B.java", this::parse);
+        long twoRecords = indexFile.length();
+        jar.close();
+
+        // As if BlueJ were killed while writing the second record:
+        try (RandomAccessFile f = new RandomAccessFile(indexFile, "rw"))
+        {
+            f.setLength(twoRecords - 3);
+        }
+
+        assertTrue(reopen().isIndexed("java.base/p/A.java"));
+        assertFalse(jar.isIndexed("java.base/p/B.java"));
+        assertEquals(oneRecord, indexFile.length());
+        assertEquals("// A: caf\u00e9", jar.getComments("java.base/p/A.java", this::parse).getProperty("comment0.text"));
+        assertEquals(2, parsed.size());
+
+        // The dropped record is parsed again, and appended after the kept one:
+        assertEquals("// B", jar.getComments("java.base/p/B.java", this::parse).getProperty("comment0.text"));
+        assertEquals(3, parsed.size());
+        assertEquals(twoRecords, indexFile.length());
+        assertTrue(reopen().isIndexed("java.base/p/B.java"));
+    }
+
+    @Test
+    public void testTruncatedHeaderRestarted() throws Exception
+    {
+        reopen().getComments("java.base/p/A.java", this::parse);
+        jar.close();
+        try (RandomAccessFile f = new RandomAccessFile(indexFile, "rw"))
+        {
+            f.setLength(10);
+        }
+
+        assertFalse(reopen().isIndexed("java.base/p/A.java"));
+        jar.getComments("java.base/p/A.java", this::parse);
+        assertTrue(reopen().isIndexed("java.base/p/A.java"));
+    }
+
+    @Test
+    public void testChangedJarRestartsIndex() throws Exception
+    {
+        reopen().getComments("java.base/p/A.java", this::parse);
+        jar.close();
+
+        writeJar("// A, updated", "// B");
+        jarFile.setLastModified(jarFile.lastModified() - 10000);
+
+        assertFalse(reopen().isIndexed("java.base/p/A.java"));
+        assertEquals("// A, updated", jar.getComments("java.base/p/A.java", this::parse).getProperty("comment0.text"));
+    }
+}
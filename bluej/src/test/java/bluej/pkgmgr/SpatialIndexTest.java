@@ -0,0 +1,155 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpatialIndexTest
+{
+    private static class Box
+    {
+        double minX, minY, maxX, maxY;
+
+        Box(double minX, double minY, double maxX, double maxY)
+        {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        boolean overlaps(double x1, double y1, double x2, double y2)
+        {
+            return minX < x2 && maxX > x1 && minY < y2 && maxY > y1;
+        }
+    }
+
+    @Test
+    public void testBasic()
+    {
+        SpatialIndex<Box> index = new SpatialIndex<>(100);
+        Box a = new Box(10, 10, 50, 50);
+        Box b = new Box(150, 150, 250, 250);
+        index.put(a, a.minX, a.minY, a.maxX, a.maxY);
+        index.put(b, b.minX, b.minY, b.maxX, b.maxY);
+        assertEquals(2, index.size());
+
+        assertEquals(List.of(a), index.query(0, 0, 20, 20));
+        assertEquals(List.of(b), index.query(200, 200, 300, 300));
+        assertEquals(2, index.query(0, 0, 1000, 1000).size());
+        // Touching edges don't overlap:
+        assertTrue(index.query(50, 50, 100, 100).isEmpty());
+
+        // Moving an item:
+        index.put(a, 500, 500, 600, 600);
+        assertTrue(index.query(0, 0, 100, 100).isEmpty());
+        assertEquals(List.of(a), index.query(550, 550, 560, 560));
+
+        index.remove(a);
+        assertEquals(1, index.size());
+        assertTrue(index.query(550, 550, 560, 560).isEmpty());
+
+        // Negative coordinates, and a very large item:
+        Box c = new Box(-5000, -5000, 5000, 5000);
+        index.put(c, c.minX, c.minY, c.maxX, c.maxY);
+        assertEquals(List.of(c), index.query(-100, -100, -50, -50));
+        assertEquals(2, index.query(190, 190, 210, 210).size());
+    }
+
+    /**
+     * A synthetic class diagram of 1000 classes, with 3000 arrows between them, checked against
+     * a linear scan.  Also reports the time for querying small regions (as done when a class
+     * is dragged) compared to scanning every arrow.
+     */
+    @Test
+    public void testLargeDiagram()
+    {
+        Random random = new Random(1);
+        List<Box> classes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            double x = (i % 40) * 150 + 10;
+            double y = (i / 40) * 100 + 10;
+            classes.add(new Box(x, y, x + 120, y + 60));
+        }
+        List<Box> arrows = new ArrayList<>();
+        for (int i = 0; i < 3000; i++)
+        {
+            // Most arrows are between nearby classes, a few go right across:
+            Box from = classes.get(random.nextInt(classes.size()));
+            Box to = i % 50 == 0 ? classes.get(random.nextInt(classes.size()))
+                : classes.get(Math.min(classes.size() - 1, classes.indexOf(from) + 1 + random.nextInt(80)));
+            arrows.add(new Box(Math.min(from.minX, to.minX), Math.min(from.minY, to.minY),
+                Math.max(from.maxX, to.maxX), Math.max(from.maxY, to.maxY)));
+        }
+
+        SpatialIndex<Box> index = new SpatialIndex<>(200);
+        for (Box box : arrows)
+        {
+            index.put(box, box.minX, box.minY, box.maxX, box.maxY);
+        }
+
+        List<double[]> regions = new ArrayList<>();
+        for (int i = 0; i < 10000; i++)
+        {
+            double x = random.nextDouble() * 6000;
+            double y = random.nextDouble() * 2500;
+            regions.add(new double[] {x, y, x + 200, y + 150});
+        }
+
+        long linearCount = 0;
+        for (double[] r : regions)
+        {
+            for (Box box : arrows)
+            {
+                if (box.overlaps(r[0], r[1], r[2], r[3]))
+                    linearCount++;
+            }
+        }
+
+        long indexCount = 0;
+        for (double[] r : regions)
+        {
+            indexCount += index.query(r[0], r[1], r[2], r[3]).size();
+        }
+        assertEquals(linearCount, indexCount);
+
+        // Spot-check the actual results:
+        for (double[] r : regions.subList(0, 100))
+        {
+            HashSet<Box> expected = new HashSet<>();
+            for (Box box : arrows)
+            {
+                if (box.overlaps(r[0], r[1], r[2], r[3]))
+                    expected.add(box);
+            }
+            assertEquals(expected, new HashSet<>(index.query(r[0], r[1], r[2], r[3])));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.runtime;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SamplerTest
+{
+    private static StackTraceElement frame(String className, String method)
+    {
+        return new StackTraceElement(className, method, null, 1);
+    }
+
+    private static String[] methods(String key)
+    {
+        String[] frames = key.substring(1).split(String.valueOf(Sampler.FRAME_SEPARATOR));
+        String[] result = new String[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            result[i] = frames[i].split(String.valueOf(Sampler.FIELD_SEPARATOR))[1];
+        }
+        return result;
+    }
+
+    @Test
+    public void testInternalFramesLeftOut()
+    {
+        StackTraceElement[] stack = {
+            frame("Main", "work"),
+            frame("Main", "main"),
+            frame("jdk.internal.reflect.DirectMethodHandleAccessor", "invoke"),
+            frame("bluej.runtime.ExecServer", "run"),
+            frame("java.lang.Thread", "run")
+        };
+        StringBuilder key = new StringBuilder();
+        assertTrue(Sampler.makeKey(stack, key));
+        assertArrayEquals(new String[] {"main", "work"}, methods(key.toString()));
+    }
+
+    @Test
+    public void testNativeFramesCounted()
+    {
+        StackTraceElement[] stack = {
+            new StackTraceElement("java.io.FileOutputStream", "writeBytes", null, -2),
+            frame("java.io.PrintStream", "println"),
+            frame("Main", "main")
+        };
+        StringBuilder key = new StringBuilder();
+        assertTrue(Sampler.makeKey(stack, key));
+        assertArrayEquals(new String[] {"main", "println", "writeBytes"}, methods(key.toString()));
+    }
+
+    @Test
+    public void testNoUserCode()
+    {
+        StackTraceElement[] stack = {
+            new StackTraceElement("sun.awt.X11.XToolkit", "waitForEvents", null, -2),
+            frame("sun.awt.X11.XToolkit", "run"),
+            frame("java.lang.Thread", "run")
+        };
+        assertFalse(Sampler.makeKey(stack, new StringBuilder()));
+    }
+
+    @Test
+    public void testDeepStackKeepsInnermost()
+    {
+        StackTraceElement[] stack = new StackTraceElement[Sampler.MAX_DEPTH + 50];
+        stack[0] = frame("Main", "inner");
+        for (int i = 1; i < stack.length - 1; i++) {
+            stack[i] = frame("Main", "recurse");
+        }
+        stack[stack.length - 1] = frame("Main", "main");
+        StringBuilder key = new StringBuilder();
+        assertTrue(Sampler.makeKey(stack, key));
+        String[] methods = methods(key.toString());
+        assertEquals(Sampler.MAX_DEPTH, methods.length);
+        assertEquals("recurse", methods[0]);
+        assertEquals("inner", methods[methods.length - 1]);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.stride.framedjava.elements;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import bluej.stride.framedjava.ast.AccessPermission;
+import bluej.stride.framedjava.ast.AccessPermissionFragment;
+import bluej.stride.framedjava.ast.CallExpressionSlotFragment;
+import bluej.stride.framedjava.ast.JavadocUnit;
+import bluej.stride.framedjava.ast.NameDefSlotFragment;
+import bluej.stride.framedjava.ast.TypeSlotFragment;
+import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the location map caching on top-level elements, which the Stride editor relies
+ * on to avoid rebuilding the map for large classes after every edit.
+ */
+public class LocationMapTest
+{
+    private static final int CALLS = 500;
+
+    private static NormalMethodElement method(String name, List<CodeElement> body)
+    {
+        return new NormalMethodElement(null, new AccessPermissionFragment(AccessPermission.PUBLIC), false, false,
+            new TypeSlotFragment("void", "void"), new NameDefSlotFragment(name), Collections.emptyList(),
+            Collections.emptyList(), body, new JavadocUnit(""), true);
+    }
+
+    private static ClassElement classWith(List<CodeElement> methods)
+    {
+        return new ClassElement(null, null, false, new NameDefSlotFragment("Big"), null, Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList(), methods, new JavadocUnit(""), null,
+            Collections.emptyList(), true);
+    }
+
+    @Test
+    public void testLargeClass()
+    {
+        List<CallExpressionSlotFragment> calls = new ArrayList<>();
+        List<CodeElement> body = new ArrayList<>();
+        for (int i = 0; i < CALLS; i++)
+        {
+            CallExpressionSlotFragment call = new CallExpressionSlotFragment("foo(" + i + ")", "foo(" + i + ")");
+            calls.add(call);
+            body.add(new CallElement(null, call, true));
+        }
+        NormalMethodElement big = method("big", body);
+        ClassElement el = classWith(List.of(big));
+
+        LocationMap map = el.getLocationMap();
+        assertSame(map, el.getLocationMap());
+        assertEquals("/class[1]/methods[1]/method[1]/body[1]/call[1]/@expression", map.locationFor(calls.get(0)));
+        assertEquals("/class[1]/methods[1]/method[1]/body[1]/call[" + CALLS + "]/@expression", map.locationFor(calls.get(CALLS - 1)));
+
+        // When a new method is added, the editor reuses the unmodified method's element
+        // in the new class element; the new class element must have its own map:
+        ClassElement modified = classWith(List.of(method("added", new ArrayList<>()), big));
+        LocationMap modifiedMap = modified.getLocationMap();
+        assertEquals("/class[1]/methods[1]/method[2]/body[1]/call[" + CALLS + "]/@expression", modifiedMap.locationFor(calls.get(CALLS - 1)));
+        // The old map is unaffected:
+        assertEquals("/class[1]/methods[1]/method[1]/body[1]/call[" + CALLS + "]/@expression", map.locationFor(calls.get(CALLS - 1)));
+
+        // The new map reuses the unmodified method's own map, but gives the same locations
+        // as building the whole map again:
+        assertSame(big.getOwnLocationMap(null), big.getOwnLocationMap(null));
+        LocationMap fullMap = modified.toXML().buildLocationMap();
+        assertEquals("/class[1]/methods[1]/method[2]", modifiedMap.locationFor(big));
+        assertEquals(fullMap.locationFor(big), modifiedMap.locationFor(big));
+        for (CodeElement call : body)
+        {
+            assertEquals(fullMap.locationFor(call), modifiedMap.locationFor(call));
+        }
+        for (CallExpressionSlotFragment call : calls)
+        {
+            assertEquals(fullMap.locationFor(call), modifiedMap.locationFor(call));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.stride.framedjava.frames;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javafx.application.Platform;
+import javafx.embed.swing.JFXPanel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import bluej.editor.stride.FrameShelf;
+import bluej.editor.stride.FrameShelfStorage;
+import bluej.parser.InitConfig;
+import bluej.stride.framedjava.ast.AccessPermission;
+import bluej.stride.framedjava.ast.AccessPermissionFragment;
+import bluej.stride.framedjava.ast.CallExpressionSlotFragment;
+import bluej.stride.framedjava.ast.JavadocUnit;
+import bluej.stride.framedjava.ast.NameDefSlotFragment;
+import bluej.stride.framedjava.ast.TypeSlotFragment;
+import bluej.stride.framedjava.elements.CallElement;
+import bluej.stride.framedjava.elements.ClassElement;
+import bluej.stride.framedjava.elements.CodeElement;
+import bluej.stride.framedjava.elements.NormalMethodElement;
+import bluej.stride.framedjava.slots.ExpressionSlot;
+import bluej.stride.generic.Frame;
+import bluej.utility.FileUtility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that regenerating the code for a class only regenerates the frames which
+ * have been modified, and that the regenerated code reflects the modification.
+ */
+public class TestCodeRegeneration
+{
+    // Need to run tests on FX thread:
+    @Rule
+    public TestRule runOnFXThreadRule = new TestRule() {
+        boolean initialised = false;
+        @Override public Statement apply(Statement base, Description d) {
+            if (!initialised)
+            {
+                // Initialise JavaFX:
+                new JFXPanel();
+                InitConfig.init();
+                initialised = true;
+            }
+            return new Statement() {
+                @Override public void evaluate() throws Throwable {
+                    // Run on FX thread, rethrow any exceptions back on this thread:
+                    CompletableFuture<Throwable> thrown = new CompletableFuture<>();
+                    Platform.runLater(() -> {
+                      try {
+                        base.evaluate();
+                        thrown.complete(null);
+                      } catch( Throwable throwable ) {
+                        thrown.complete(throwable);
+                      }
+                    });
+                    Throwable t = thrown.get();
+                    if (t != null)
+                        throw t;
+                }
+            };
+        }
+    };
+
+    private File shelfDir;
+    private FrameShelf editor;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // The shelf is the one editor which can host frames without a project:
+        shelfDir = Files.createTempDirectory("shelf").toFile();
+        editor = new FrameShelf(null, new FrameShelfStorage(shelfDir));
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtility.deleteDir(shelfDir);
+    }
+
+    private static NormalMethodElement method(String name, String... calls)
+    {
+        List<CodeElement> body = new ArrayList<>();
+        for (String call : calls)
+        {
+            body.add(new CallElement(null, new CallExpressionSlotFragment(call, call), true));
+        }
+        return new NormalMethodElement(null, new AccessPermissionFragment(AccessPermission.PUBLIC), false, false,
+            new TypeSlotFragment("void", "void"), new NameDefSlotFragment(name), Collections.emptyList(),
+            Collections.emptyList(), body, new JavadocUnit(""), true);
+    }
+
+    private static String callText(CodeElement call)
+    {
+        return call.toXML().getAttributeValue("expression");
+    }
+
+    @Test
+    public void testOnlyModifiedFramesRegenerated()
+    {
+        ClassElement original = new ClassElement(null, null, false, new NameDefSlotFragment("Foo"), null,
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+            List.of(method("edited", "foo(1)", "foo(2)"), method("untouched", "foo(3)")),
+            new JavadocUnit(""), null, Collections.emptyList(), true);
+        ClassFrame classFrame = original.createFrame(editor);
+
+        classFrame.regenerateCodeIfDirty();
+        ClassElement before = classFrame.getCode();
+        NormalMethodElement editedBefore = (NormalMethodElement)before.getMethods().get(0);
+        NormalMethodElement untouchedBefore = (NormalMethodElement)before.getMethods().get(1);
+        assertEquals("foo(1)", callText(editedBefore.getContents().get(0)));
+
+        // Nothing has changed, so nothing is regenerated:
+        classFrame.regenerateCodeIfDirty();
+        assertSame(before, classFrame.getCode());
+
+        // Edit the first call in the first method:
+        NormalMethodFrame editedFrame = classFrame.getMethodsCanvas().getBlocksSubtype(NormalMethodFrame.class).get(0);
+        Frame callFrame = editedFrame.getCanvas().getBlockContents().get(0);
+        ExpressionSlot<?> slot = (ExpressionSlot<?>)callFrame.getEditableSlotsDirect().findFirst().get();
+        slot.setText("bar(4)");
+
+        classFrame.regenerateCodeIfDirty();
+        ClassElement after = classFrame.getCode();
+        assertNotSame(before, after);
+        NormalMethodElement editedAfter = (NormalMethodElement)after.getMethods().get(0);
+        assertNotSame(editedBefore, editedAfter);
+        assertEquals("bar(4)", callText(editedAfter.getContents().get(0)));
+        // The other call in the edited method, and the other method, are reused:
+        assertSame(editedBefore.getContents().get(1), editedAfter.getContents().get(1));
+        assertSame(untouchedBefore, after.getMethods().get(1));
+    }
+
+    @Test
+    public void testAllCodeDirty()
+    {
+        ClassElement original = new ClassElement(null, null, false, new NameDefSlotFragment("Foo"), null,
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+            List.of(method("first", "foo(1)"), method("second", "foo(2)")),
+            new JavadocUnit(""), null, Collections.emptyList(), true);
+        ClassFrame classFrame = original.createFrame(editor);
+
+        classFrame.regenerateCodeIfDirty();
+        ClassElement before = classFrame.getCode();
+
+        // e.g. after undo, when we don't know what changed:
+        classFrame.markAllCodeDirty();
+        classFrame.regenerateCodeIfDirty();
+        ClassElement after = classFrame.getCode();
+        assertNotSame(before, after);
+        for (int i = 0; i < 2; i++)
+        {
+            assertNotSame(before.getMethods().get(i), after.getMethods().get(i));
+            assertEquals(callText(((NormalMethodElement)before.getMethods().get(i)).getContents().get(0)),
+                callText(((NormalMethodElement)after.getMethods().get(i)).getContents().get(0)));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.terminal;
+
+import bluej.editor.base.TextLine.StyledSegment;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TerminalContentStoreTest
+{
+    private static final List<String> PLAIN = List.of("plain");
+    private static final List<String> LINK = List.of("link", "underline");
+
+    // Small sizes so that most lines end up in the file:
+    private final TerminalContentStore store = new TerminalContentStore(100, 10);
+
+    @After
+    public void dispose()
+    {
+        store.dispose();
+    }
+
+    // Adds the given number of lines; every seventh one has a linked segment.
+    private void addLines(int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            store.appendToLastLine(new StyledSegment(PLAIN, "Line " + i));
+            if (i % 7 == 0)
+            {
+                store.appendToLastLine(new StyledSegment(LINK, " at " + i, Integer.valueOf(i)));
+            }
+            store.addLine();
+        }
+    }
+
+    private static String expectedText(int i)
+    {
+        return "Line " + i + (i % 7 == 0 ? " at " + i : "");
+    }
+
+    private static List<StyledSegment> segments(ContentLine line)
+    {
+        List<StyledSegment> r = new ArrayList<>();
+        line.forEach(r::add);
+        return r;
+    }
+
+    @Test
+    public void testSpillAndReadBack()
+    {
+        addLines(10000);
+        // The last line is the empty line after the final newline:
+        assertEquals(10001, store.getLineCount());
+        assertEquals("", store.getLine(10000).getText());
+
+        long textLength = 0;
+        // Go backwards, as well as forwards, so that we don't just read from the cache:
+        for (int i = 9999; i >= 0; i -= 3)
+        {
+            assertEquals(expectedText(i), store.getLine(i).getText());
+        }
+        for (int i = 0; i < 10000; i++)
+        {
+            assertEquals(textLength, store.getTextLengthBefore(i));
+            ContentLine line = store.getLine(i);
+            assertEquals(expectedText(i), line.getText());
+            // Styles and custom data should survive the trip to disk:
+            if (i % 7 == 0)
+            {
+                assertEquals(List.of(new StyledSegment(PLAIN, "Line " + i), new StyledSegment(LINK, " at " + i, i)), segments(line));
+                assertEquals(i, line.getCustomStyleDataAtColumn(line.getText().length() - 1));
+            }
+            else
+            {
+                assertEquals(List.of(new StyledSegment(PLAIN, "Line " + i)), segments(line));
+            }
+            textLength += line.getText().length();
+        }
+        assertEquals(expectedText(9996).length(), store.getLongestLineText().length());
+    }
+
+    @Test
+    public void testRestyle()
+    {
+        addLines(1000);
+        // Line 5 has been written to the file, line 995 is still in memory:
+        for (int i : new int[] {5, 995})
+        {
+            ContentLine restyled = new ContentLine(List.of(new StyledSegment(LINK, expectedText(i), "restyled")));
+            store.setLine(i, restyled);
+            assertEquals(List.of(new StyledSegment(LINK, expectedText(i), "restyled")), segments(store.getLine(i)));
+        }
+        addLines(1000);
+        assertEquals("restyled", store.getLine(5).getCustomStyleDataAtColumn(0));
+        assertEquals("restyled", store.getLine(995).getCustomStyleDataAtColumn(0));
+    }
+
+    @Test
+    public void testTrim()
+    {
+        addLines(1000);
+        // Still leaves some lines in the file:
+        assertEquals(501, store.trimToMostRecentLines(500));
+        assertEquals(500, store.getLineCount());
+        assertEquals(expectedText(501), store.getLine(0).getText());
+        assertEquals(0, store.getTextLengthBefore(0));
+        assertEquals(expectedText(501).length(), store.getTextLengthBefore(1));
+        assertEquals(expectedText(998), store.getLine(497).getText());
+
+        // Leaves only lines in memory:
+        store.trimToMostRecentLines(3);
+        assertEquals(3, store.getLineCount());
+        assertEquals(expectedText(998), store.getLine(0).getText());
+        assertEquals(expectedText(999), store.getLine(1).getText());
+        assertEquals(expectedText(998), store.getLongestLineText());
+
+        // Carries on working afterwards:
+        addLines(1000);
+        assertEquals(1003, store.getLineCount());
+        assertEquals(expectedText(998), store.getLine(0).getText());
+        assertEquals(expectedText(0), store.getLine(2).getText());
+        assertEquals(expectedText(500), store.getLine(502).getText());
+    }
+
+    @Test
+    public void testTrimDiscardsData()
+    {
+        // Keep adding lines and trimming (but not so much that the file is emptied):
+        for (int round = 0; round < 20; round++)
+        {
+            addLines(1000);
+            store.trimToMostRecentLines(500);
+            // About 500 / 7 custom data items, and two styles, are still needed:
+            assertTrue("Retained: " + store.getRetainedDataCount(), store.getRetainedDataCount() < 100);
+        }
+        // The custom data of the remaining lines in the file is still there:
+        for (int line = 0; line < 400; line++)
+        {
+            int i = 501 + line;
+            List<StyledSegment> segments = segments(store.getLine(line));
+            assertEquals(expectedText(i), store.getLine(line).getText());
+            if (i % 7 == 0)
+            {
+                assertEquals(Integer.valueOf(i), segments.get(1).getCustomData());
+                assertEquals(LINK, segments.get(1).getStyleClasses());
+            }
+        }
+    }
+
+    @Test
+    public void testClear()
+    {
+        addLines(1000);
+        store.clear();
+        assertEquals(1, store.getLineCount());
+        assertEquals("", store.getLine(0).getText());
+        assertEquals("", store.getLongestLineText());
+        addLines(500);
+        assertEquals(501, store.getLineCount());
+        assertEquals(expectedText(20), store.getLine(20).getText());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.terminal;
+
+import bluej.terminal.TerminalOutputQueue.Chunk;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+public class TerminalOutputQueueTest
+{
+    private static void add(TerminalOutputQueue queue, boolean isError, String s)
+    {
+        queue.add(isError, s.toCharArray(), 0, s.length());
+    }
+
+    @Test
+    public void testCoalescing()
+    {
+        AtomicInteger drainRequests = new AtomicInteger();
+        TerminalOutputQueue queue = new TerminalOutputQueue(1000, drainRequests::incrementAndGet);
+        assertFalse(queue.hasPending());
+
+        add(queue, false, "a");
+        add(queue, false, "b\n");
+        add(queue, true, "c");
+        add(queue, false, "d");
+        add(queue, false, "");
+        // Only the first add to an idle queue should request a drain:
+        assertEquals(1, drainRequests.get());
+        assertTrue(queue.hasPending());
+
+        List<Chunk> output = queue.drain();
+        assertEquals(List.of(new Chunk(false, "ab\n"), new Chunk(true, "c"), new Chunk(false, "d")), output);
+        assertFalse(queue.hasPending());
+        assertTrue(queue.drain().isEmpty());
+
+        // Once stopped, the next output should request a drain again:
+        assertTrue(queue.stopIfEmpty());
+        add(queue, true, "e");
+        assertEquals(2, drainRequests.get());
+        // Can't stop while there is output waiting:
+        assertFalse(queue.stopIfEmpty());
+        assertEquals(List.of(new Chunk(true, "e")), queue.drain());
+    }
+
+    /**
+     * Writes ten million lines through the queue, in the same size chunks as the
+     * debug VM's I/O thread, while another thread drains it as the terminal would.
+     * Checks that every line comes out, in order, and that the budget holds.
+     */
+    @Test(timeout = 120000)
+    public void testThroughput() throws InterruptedException
+    {
+        final int lineCount = 10_000_000;
+        final int budget = 65536;
+        TerminalOutputQueue queue = new TerminalOutputQueue(budget, () -> {});
+
+        Thread writer = new Thread(() -> {
+            char[] chunk = new char[4096];
+            int used = 0;
+            for (int i = 0; i < lineCount; i++)
+            {
+                String line = "Line " + i + "\n";
+                if (used + line.length() > chunk.length)
+                {
+                    queue.add(false, chunk, 0, used);
+                    used = 0;
+                }
+                line.getChars(0, line.length(), chunk, used);
+                used += line.length();
+            }
+            queue.add(false, chunk, 0, used);
+        });
+
+        long start = System.nanoTime();
+        writer.start();
+        int linesSeen = 0;
+        int maxDrained = 0;
+        StringBuilder partialLine = new StringBuilder();
+        while (linesSeen < lineCount)
+        {
+            List<Chunk> output = queue.drain();
+            if (output.isEmpty())
+            {
+                LockSupport.parkNanos(100_000);
+                continue;
+            }
+            for (Chunk c : output)
+            {
+                assertFalse(c.isError());
+                String s = c.text();
+                maxDrained = Math.max(maxDrained, s.length());
+                int lineStart = 0;
+                int newline;
+                while ((newline = s.indexOf('\n', lineStart)) != -1)
+                {
+                    partialLine.append(s, lineStart, newline);
+                    assertEquals("Line " + linesSeen, partialLine.toString());
+                    partialLine.setLength(0);
+                    linesSeen += 1;
+                    lineStart = newline + 1;
+                }
+                partialLine.append(s, lineStart, s.length());
+            }
+        }
+        writer.join();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(0, partialLine.length());
+        assertFalse(queue.hasPending());
+        // A writer only waits once the budget is reached, so it may go over by one chunk:
+        assertTrue("Drained " + maxDrained, maxDrained < budget + 4096);
+        System.out.println("Passed " + lineCount + " lines through terminal output queue in " + millis + "ms");
+    }
+}
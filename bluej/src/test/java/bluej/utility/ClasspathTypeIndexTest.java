@@ -0,0 +1,152 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.utility;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClasspathTypeIndexTest
+{
+    private File dir;
+    private File indexFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("typeindex").toFile();
+        indexFile = new File(dir, "import-index.bin");
+    }
+
+    @After
+    public void tearDown()
+    {
+        for (File f : dir.listFiles())
+        {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private File makeJar(String name, int size) throws IOException
+    {
+        File jar = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(jar))
+        {
+            out.write(new byte[size]);
+        }
+        return jar;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        File jar = makeJar("a.jar", 10);
+        ClasspathTypeIndex index = ClasspathTypeIndex.load(indexFile);
+        assertNull(index.get(jar));
+        index.put(jar, List.of("a.A", "a.b.B", "C"));
+        index.save(indexFile);
+
+        assertEquals(List.of("C", "a.A", "a.b.B"), ClasspathTypeIndex.load(indexFile).get(jar));
+        // No temporary files are left behind:
+        assertEquals(1, dir.listFiles(f -> f.getName().startsWith(indexFile.getName())).length);
+    }
+
+    @Test
+    public void testSavesFromDifferentProjectsAreMerged() throws IOException
+    {
+        File jarA = makeJar("a.jar", 10);
+        File jarB = makeJar("b.jar", 20);
+        // Two projects load the index before either has saved:
+        ClasspathTypeIndex first = ClasspathTypeIndex.load(indexFile);
+        ClasspathTypeIndex second = ClasspathTypeIndex.load(indexFile);
+        first.put(jarA, List.of("a.A"));
+        first.save(indexFile);
+        second.put(jarB, List.of("b.B"));
+        second.save(indexFile);
+
+        ClasspathTypeIndex loaded = ClasspathTypeIndex.load(indexFile);
+        assertEquals(List.of("a.A"), loaded.get(jarA));
+        assertEquals(List.of("b.B"), loaded.get(jarB));
+    }
+
+    @Test
+    public void testStaleEntriesAreDropped() throws IOException
+    {
+        File jar = makeJar("a.jar", 10);
+        ClasspathTypeIndex index = ClasspathTypeIndex.load(indexFile);
+        index.put(jar, List.of("a.A"));
+        index.save(indexFile);
+        long lastModified = jar.lastModified();
+
+        // The jar changes, then another project (not using it) saves:
+        makeJar("a.jar", 30);
+        ClasspathTypeIndex.load(indexFile).save(indexFile);
+        assertNull(ClasspathTypeIndex.load(indexFile).get(jar.getAbsolutePath(), lastModified, 10));
+    }
+
+    @Test
+    public void testSystemEntries() throws IOException
+    {
+        ClasspathTypeIndex index = ClasspathTypeIndex.load(indexFile);
+        index.put(ClasspathTypeIndex.SYSTEM_KEY_PREFIX + "1", 0, 0, List.of("java.lang.String"));
+        index.save(indexFile);
+
+        // Another project with no system entry (yet) keeps it:
+        ClasspathTypeIndex.load(indexFile).save(indexFile);
+        assertNotNull(ClasspathTypeIndex.load(indexFile).get(ClasspathTypeIndex.SYSTEM_KEY_PREFIX + "1", 0, 0));
+
+        // A different JDK replaces it:
+        index = ClasspathTypeIndex.load(indexFile);
+        index.put(ClasspathTypeIndex.SYSTEM_KEY_PREFIX + "2", 0, 0, List.of("java.lang.Object"));
+        index.save(indexFile);
+        ClasspathTypeIndex loaded = ClasspathTypeIndex.load(indexFile);
+        assertNull(loaded.get(ClasspathTypeIndex.SYSTEM_KEY_PREFIX + "1", 0, 0));
+        assertEquals(List.of("java.lang.Object"), loaded.get(ClasspathTypeIndex.SYSTEM_KEY_PREFIX + "2", 0, 0));
+    }
+
+    @Test
+    public void testCorruptFile() throws IOException
+    {
+        File jar = makeJar("a.jar", 10);
+        ClasspathTypeIndex index = ClasspathTypeIndex.load(indexFile);
+        index.put(jar, List.of("a.A"));
+        index.save(indexFile);
+
+        // Truncate the file part way through:
+        byte[] contents = Files.readAllBytes(indexFile.toPath());
+        Files.write(indexFile.toPath(), Arrays.copyOf(contents, contents.length - 3));
+        assertNull(ClasspathTypeIndex.load(indexFile).get(jar));
+
+        Files.write(indexFile.toPath(), new byte[] {1, 2, 3});
+        assertNull(ClasspathTypeIndex.load(indexFile).get(jar));
+    }
+}